@@ -0,0 +1,103 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import de.unima.webtuples.queries.AllTuplesResultIterator;
+import de.unima.webtuples.queries.ParallelAllTuplesResultIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the throughput of AllTuplesResultIterator and ParallelAllTuplesResultIterator.
+ *
+ * Usage: java -cp benchmarks.jar de.unima.webtuples.benchmarks.AllTuplesScanBenchmark [host port dbName]
+ * Without arguments an in-process Fongo database is filled with synthetic tuples.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class AllTuplesScanBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        MongoClient client = null;
+        DB db;
+        if (args.length >= 3) {
+            client = new MongoClient(args[0], Integer.parseInt(args[1]));
+            db = client.getDB(args[2]);
+        } else {
+            db = new Fongo("benchmark").getDB("tuplesdb");
+            fill(db, 52, 2000, 20);
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("round " + round);
+            run("sequential", new AllTuplesResultIterator(db, "i"));
+            run("parallel " + cores + " ordered", new ParallelAllTuplesResultIterator(db, "i", cores, true));
+            run("parallel " + cores + " unordered", new ParallelAllTuplesResultIterator(db, "i", cores, false));
+        }
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    private static void run(String name, AllTuplesResultIterator iterator) {
+        long start = System.nanoTime();
+        long tuples = 0;
+        while (iterator.hasNext()) {
+            tuples += iterator.next().size();
+        }
+        iterator.close();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("  %-25s %10d tuples %8.3f s %12.0f tuples/s", name, tuples, seconds, tuples / seconds));
+    }
+
+    /**
+     * Fills tables i0a, i0b, ... with documents having up to maxModifications modifications each.
+     */
+    static void fill(DB db, int tables, int documentsPerTable, int maxModifications) {
+        Random random = new Random(42);
+        for (int t = 0; t < tables; t++) {
+            String prefix = "" + (char) ('a' + t / 26) + (char) ('a' + t % 26);
+            DBCollection collection = db.getCollection("i" + prefix);
+            List<DBObject> documents = new ArrayList<>();
+            for (int d = 0; d < documentsPerTable; d++) {
+                BasicDBList modifications = new BasicDBList();
+                int count = 1 + random.nextInt(maxModifications);
+                for (int m = 0; m < count; m++) {
+                    modifications.add(new BasicDBObject("ipremod", "mod" + random.nextInt(100)).append("ipostmod", "")
+                            .append("cpremod", "").append("cpostmod", "")
+                            .append("frequency", 1.0 + random.nextInt(10)).append("pidspread", 1 + random.nextInt(5))
+                            .append("pldspread", 1 + random.nextInt(5))
+                            .append("pids", "p1;p2;").append("plds", "example.org;").append("provids", "1;2;3;"));
+                }
+                documents.add(new BasicDBObject("instance", prefix + d).append("class", "class" + random.nextInt(1000))
+                        .append("modifications", modifications));
+            }
+            collection.insert(documents);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The command line options of the tools of this module, given as --name value.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+final class Arguments {
+
+    private final Map<String, String> options = new HashMap<>();
+
+    Arguments(String[] args) {
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --name value instead of " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+    }
+
+    boolean has(String name) {
+        return options.containsKey(name);
+    }
+
+    String get(String name, String defaultValue) {
+        return options.containsKey(name) ? options.get(name) : defaultValue;
+    }
+
+    int getInt(String name, int defaultValue) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+
+    long getLong(String name, long defaultValue) {
+        return options.containsKey(name) ? Long.parseLong(options.get(name)) : defaultValue;
+    }
+
+    double getDouble(String name, double defaultValue) {
+        return options.containsKey(name) ? Double.parseDouble(options.get(name)) : defaultValue;
+    }
+
+    /**
+     * @return host, port and database of an option host:port/db
+     */
+    String[] getAddress(String name) {
+        String address = options.get(name);
+        int colon = address.indexOf(':');
+        int slash = address.indexOf('/');
+        if (colon < 0 || slash < colon) {
+            throw new IllegalArgumentException("Expected host:port/db instead of " + address);
+        }
+        return new String[]{address.substring(0, colon), address.substring(colon + 1, slash), address.substring(slash + 1)};
+    }
+}
@@ -0,0 +1,156 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import de.unima.webtuples.WebIsADb;
+import de.unima.webtuples.datatypes.Tuple;
+import de.unima.webtuples.queries.ResultIterator;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures the throughput of instance lookups of a WebIsADb client from many threads, for several pool sizes:
+ * while there are more threads than connections, the throughput grows with connectionsPerHost.
+ * The lookups failing under load (e.g. the wait queue of the pool is full or maxWaitTime elapsed) are counted, 
+ * the first failure of each pool size is printed with the results.
+ *
+ * Usage: java -cp benchmarks.jar de.unima.webtuples.benchmarks.ClientThroughputBenchmark host port tuplesDbName [threads seconds]
+ * It needs a running MongoDB instance, the pools of an in-process database would not be exercised.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class ClientThroughputBenchmark {
+
+    private static final int[] POOL_SIZES = {1, 2, 4, 8, 16, 32};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: ClientThroughputBenchmark host port tuplesDbName [threads seconds]");
+            return;
+        }
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+
+        List<String> lemmas = sampleLemmas(new WebIsADb.Builder().tuples(host, port, args[2]).contexts(host, port, args[2]).build(), 10000);
+        System.out.println(lemmas.size() + " lemmas, " + threads + " threads, " + seconds + " s per pool size");
+        for (int poolSize : POOL_SIZES) {
+            WebIsADb client = new WebIsADb.Builder()
+                    .tuples(host, port, args[2])
+                    .contexts(host, port, args[2])
+                    .connectionsPerHost(poolSize)
+                    .threadsAllowedToBlockForConnectionMultiplier(Math.max(1, threads / poolSize + 1))
+                    .maxWaitTime(1, TimeUnit.MINUTES)
+                    .build();
+            try {
+                // warm up the connections of the pool
+                run(client, lemmas, threads, 2);
+                Result result = run(client, lemmas, threads, seconds);
+                System.out.println(String.format("  pool %3d %10.0f lookups/s %10.0f tuples/s %8d failed",
+                        poolSize, result.lookups / (double) seconds, result.tuples / (double) seconds, result.failed));
+                if (result.firstFailure != null) {
+                    System.out.println("    first failure: " + result.firstFailure);
+                }
+            } finally {
+                client.shutdown();
+            }
+        }
+    }
+
+    private static Result run(final WebIsADb client, final List<String> lemmas, int threads, int measuredSeconds)
+            throws InterruptedException {
+        final AtomicLong lookups = new AtomicLong();
+        final AtomicLong tuples = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicReference<Exception> firstFailure = new AtomicReference<>();
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(measuredSeconds);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        while (System.nanoTime() < end) {
+                            try {
+                                ResultIterator<List<Tuple>> it = client.getTuplesWhereInstanceLemma(lemmas.get(random.nextInt(lemmas.size())), false);
+                                try {
+                                    while (it.hasNext()) {
+                                        tuples.addAndGet(it.next().size());
+                                    }
+                                } finally {
+                                    it.close();
+                                }
+                                lookups.incrementAndGet();
+                            } catch (Exception e) {
+                                failed.incrementAndGet();
+                                firstFailure.compareAndSet(null, e);
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        done.await();
+        return new Result(lookups.get(), tuples.get(), failed.get(), firstFailure.get());
+    }
+
+    private static List<String> sampleLemmas(WebIsADb client, int count) throws Exception {
+        Set<String> lemmas = new LinkedHashSet<>();
+        ResultIterator<List<Tuple>> it = client.getAllTuples();
+        try {
+            while (it.hasNext() && lemmas.size() < count) {
+                for (Tuple t : it.next()) {
+                    lemmas.add(t.getInstanceLemma());
+                }
+            }
+        } finally {
+            it.close();
+            client.shutdown();
+        }
+        return new ArrayList<>(lemmas);
+    }
+
+    /**
+     * The lookups, tuples and failed lookups of a run.
+     */
+    private static class Result {
+
+        final long lookups;
+        final long tuples;
+        final long failed;
+        // null if no lookup failed
+        final Exception firstFailure;
+
+        Result(long lookups, long tuples, long failed, Exception firstFailure) {
+            this.lookups = lookups;
+            this.tuples = tuples;
+            this.failed = failed;
+            this.firstFailure = firstFailure;
+        }
+    }
+}
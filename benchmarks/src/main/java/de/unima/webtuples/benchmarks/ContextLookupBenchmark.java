@@ -0,0 +1,147 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import de.unima.webtuples.queries.MultipleContextsResultIterator;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares the lookup of a batch of provids spread over many sentence collections: 
+ * one query per provid carrying the whole batch (the former MultipleContextsResultIterator) 
+ * against one query per collection carrying its own provids, sequential and parallel.
+ *
+ * Usage: java -cp benchmarks.jar de.unima.webtuples.benchmarks.ContextLookupBenchmark [host port dbName [batchSize]]
+ * Without arguments an in-process Fongo database is filled with synthetic contexts and a smaller batch is used,
+ * since Fongo evaluates $in by scanning the whole collection.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class ContextLookupBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int COLLECTIONS = 50;
+    private static final int BATCH = 1000;
+    private static final int FONGO_BATCH = 200;
+
+    public static void main(String[] args) {
+        MongoClient client = null;
+        DB db;
+        int batch;
+        if (args.length >= 3) {
+            client = new MongoClient(args[0], Integer.parseInt(args[1]));
+            db = client.getDB(args[2]);
+            batch = args.length >= 4 ? Integer.parseInt(args[3]) : BATCH;
+        } else {
+            db = new Fongo("benchmark").getDB("sentencesdb");
+            fill(db, COLLECTIONS, 2000);
+            batch = FONGO_BATCH;
+        }
+        Random random = new Random(42);
+        Set<String> provids = new HashSet<>();
+        while (provids.size() < batch) {
+            provids.add(String.valueOf(random.nextInt(COLLECTIONS) * 1000000L + random.nextInt(2000)));
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(cores);
+
+        Set<String> collections = new HashSet<>();
+        for (String provid : provids) {
+            collections.add("s" + Long.parseLong(provid) / 1000000);
+        }
+        System.out.println(String.format("%d provids in %d collections", provids.size(), collections.size()));
+        System.out.println(String.format("  per provid:     %6d queries, %6d keys sent", provids.size(), provids.size() * provids.size()));
+        System.out.println(String.format("  per collection: %6d queries, %6d keys sent", collections.size(), provids.size()));
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("round " + round);
+            long start = System.nanoTime();
+            int results = perProvid(db, provids);
+            print("per provid", results, start);
+            start = System.nanoTime();
+            results = count(new MultipleContextsResultIterator(provids, db));
+            print("per collection", results, start);
+            start = System.nanoTime();
+            results = count(new MultipleContextsResultIterator(provids, db, 0, executor));
+            print("parallel " + cores, results, start);
+        }
+        executor.shutdown();
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    /**
+     * The lookup as done before the provids were grouped: every occurrence of a collection sends all the provids.
+     */
+    private static int perProvid(DB db, Set<String> provids) {
+        int results = 0;
+        Set<String> existing = db.getCollectionNames();
+        BasicDBObject query = new BasicDBObject("provid", new BasicDBObject("$in", new ArrayList<>(provids)));
+        for (String provid : provids) {
+            String tablename = "s" + Long.parseLong(provid) / 1000000;
+            if (!existing.contains(tablename)) {
+                continue;
+            }
+            DBCursor cursor = db.getCollection(tablename).find(query, new BasicDBObject("_id", 0));
+            while (cursor.hasNext()) {
+                DBObject context = cursor.next();
+                results += context.get("sentence") != null ? 1 : 0;
+            }
+            cursor.close();
+        }
+        return results;
+    }
+
+    private static int count(MultipleContextsResultIterator iterator) {
+        int results = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            results++;
+        }
+        iterator.close();
+        return results;
+    }
+
+    private static void print(String name, int results, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("  %-20s %8d contexts %8.3f s", name, results, seconds));
+    }
+
+    static void fill(DB db, int collections, int contextsPerCollection) {
+        for (int c = 0; c < collections; c++) {
+            List<DBObject> documents = new ArrayList<>();
+            for (int p = 0; p < contextsPerCollection; p++) {
+                long provid = c * 1000000L + p;
+                documents.add(new BasicDBObject("provid", String.valueOf(provid)).append("pld", "example.org")
+                        .append("sentence", "sentence number " + provid + " of the benchmark"));
+            }
+            db.getCollection("s" + c).insert(documents);
+            db.getCollection("s" + c).createIndex(new BasicDBObject("provid", 1));
+        }
+    }
+}
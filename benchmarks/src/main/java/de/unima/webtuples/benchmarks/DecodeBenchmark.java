@@ -0,0 +1,150 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
+import de.unima.webtuples.codecs.CoreTupleCodec;
+import de.unima.webtuples.codecs.TupleListCodec;
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.datatypes.Tuple;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.bson.BasicBSONEncoder;
+import org.bson.BsonBinaryReader;
+import org.bson.codecs.DecoderContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the decoding of core tuple documents into tuples: the legacy path (DBObject, then toString and parse
+ * of every field) against the codecs of WebIsADbCodecs reading the BSON bytes directly.
+ * Both paths start from the raw bytes, as received from the server.
+ *
+ * Usage: java -jar benchmarks.jar DecodeBenchmark [JMH options]
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int modifications;
+
+    private byte[][] documents;
+
+    private final TupleListCodec tupleListCodec = new TupleListCodec();
+    private final CoreTupleCodec coreTupleCodec = new CoreTupleCodec();
+    private final DecoderContext context = DecoderContext.builder().build();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        BasicBSONEncoder encoder = new BasicBSONEncoder();
+        documents = new byte[1000][];
+        for (int d = 0; d < documents.length; d++) {
+            BasicDBList list = new BasicDBList();
+            for (int m = 0; m < modifications; m++) {
+                list.add(new BasicDBObject("ipremod", "mod" + random.nextInt(100)).append("ipostmod", "")
+                        .append("cpremod", "").append("cpostmod", "")
+                        .append("frequency", 1.0 + random.nextInt(10)).append("pidspread", 1 + random.nextInt(5))
+                        .append("pldspread", 1 + random.nextInt(5))
+                        .append("pids", "p1;p2;").append("plds", "example.org;").append("provids", "1;2;3;"));
+            }
+            documents[d] = encoder.encode(new BasicDBObject("instance", "instance" + d).append("class", "class" + random.nextInt(1000))
+                    .append("frequency", 1.0 + random.nextInt(100)).append("pidspread", 2).append("pldspread", 1)
+                    .append("pids", "p1;p2;").append("plds", "example.org;").append("modifications", list));
+        }
+    }
+
+    @Benchmark
+    public void legacyTuples(Blackhole blackhole) {
+        DefaultDBDecoder decoder = new DefaultDBDecoder();
+        for (byte[] document : documents) {
+            blackhole.consume(legacyDecode(decoder.decode(document, (DBCollection) null)));
+        }
+    }
+
+    @Benchmark
+    public void codecTuples(Blackhole blackhole) {
+        for (byte[] document : documents) {
+            blackhole.consume(tupleListCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(document)), context));
+        }
+    }
+
+    @Benchmark
+    public void legacyCoreTuples(Blackhole blackhole) {
+        DefaultDBDecoder decoder = new DefaultDBDecoder();
+        for (byte[] document : documents) {
+            DBObject current = decoder.decode(document, (DBCollection) null);
+            blackhole.consume(new CoreTuple(current.get("instance").toString(), current.get("class").toString(),
+                    Double.parseDouble(current.get("frequency").toString()),
+                    Integer.parseInt(current.get("pidspread").toString()),
+                    Integer.parseInt(current.get("pldspread").toString()),
+                    current.get("pids").toString(), current.get("plds").toString(), ""));
+        }
+    }
+
+    @Benchmark
+    public void codecCoreTuples(Blackhole blackhole) {
+        for (byte[] document : documents) {
+            blackhole.consume(coreTupleCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(document)), context));
+        }
+    }
+
+    /**
+     * The decoding done by the iterators before the codecs.
+     */
+    private static List<Tuple> legacyDecode(DBObject current) {
+        String instance = current.get("instance").toString();
+        String clazz = current.get("class").toString();
+        BasicDBList modifications = (BasicDBList) current.get("modifications");
+        List<Tuple> results = new ArrayList<>();
+        for (Object o : modifications) {
+            DBObject m = (DBObject) o;
+            results.add(new Tuple(instance, clazz,
+                    Double.parseDouble(m.get("frequency").toString()),
+                    Integer.parseInt(m.get("pidspread").toString()),
+                    Integer.parseInt(m.get("pldspread").toString()),
+                    m.get("ipremod").toString(), m.get("ipostmod").toString(),
+                    m.get("cpremod").toString(), m.get("cpostmod").toString(),
+                    m.get("pids").toString(), m.get("plds").toString(), m.get("provids").toString()));
+        }
+        return results;
+    }
+}
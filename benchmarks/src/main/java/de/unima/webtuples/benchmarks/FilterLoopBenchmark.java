@@ -0,0 +1,175 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.client.MongoCursor;
+import de.unima.webtuples.codecs.CoreTupleCodec;
+import de.unima.webtuples.codecs.TupleList;
+import de.unima.webtuples.codecs.TupleListCodec;
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.datatypes.Tuple;
+import de.unima.webtuples.queries.CollectionCatalog;
+import de.unima.webtuples.queries.CoreTupleQueryResultIterator;
+import de.unima.webtuples.queries.TupleFilter;
+import de.unima.webtuples.queries.TupleQueryResultIterator;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonBinaryReader;
+import org.bson.codecs.DecoderContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the client side filter loops of CoreTupleQueryResultIterator.next() and TupleQueryResultIterator.next(),
+ * iterating over documents decoded by the codecs ahead of the measurement.
+ * The collections are replaced by in-memory cursors (ListCursor), the database only serves to create the iterators. 
+ * As the cursors are opened without building the server side query, the core tuples are filtered 
+ * by the client as with filters not sent to the server.
+ * decodeThenFilter and decodeFiltered compare decoding every modification and filtering the tuples afterwards
+ * with the filtering TupleListCodec used by TupleQueryResultIterator, which only creates the matching tuples.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterLoopBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int modifications;
+
+    // the filters of the query: none, thresholds, pids, plds, modifiers or all of them
+    @Param({"none", "thresholds", "pids", "plds", "modifiers", "all"})
+    public String filters;
+
+    private CollectionCatalog catalog;
+    private byte[][] documents;
+    private TupleFilter tupleFilter;
+    private TupleListCodec plainCodec;
+    private TupleListCodec filteringCodec;
+    private List<CoreTuple> coreTuples;
+    private List<TupleList> tupleLists;
+
+    private String iPreModifier = "*";
+    private String cPreModifier = "*";
+    private String[] pids;
+    private String[] plds;
+    private double minFrequency = 0;
+    private int minPldSpread = 0;
+
+    @Setup
+    public void setUp() {
+        catalog = new CollectionCatalog(new Fongo("benchmark").getDB("tuplesdb"));
+        documents = SyntheticDocuments.encode(new SyntheticDocuments(42, 10000).tuples(1000, modifications));
+        CoreTupleCodec coreTupleCodec = new CoreTupleCodec();
+        TupleListCodec tupleListCodec = new TupleListCodec();
+        DecoderContext context = DecoderContext.builder().build();
+        coreTuples = new ArrayList<>();
+        tupleLists = new ArrayList<>();
+        for (byte[] document : documents) {
+            coreTuples.add(coreTupleCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(document)), context));
+            tupleLists.add(tupleListCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(document)), context));
+        }
+        boolean all = filters.equals("all");
+        if (all || filters.equals("thresholds")) {
+            minFrequency = 3;
+            minPldSpread = 2;
+        }
+        if (all || filters.equals("pids")) {
+            pids = new String[]{"p1", "p3a"};
+        }
+        if (all || filters.equals("plds")) {
+            plds = new String[]{SyntheticDocuments.pld(0), SyntheticDocuments.pld(1)};
+        }
+        if (all || filters.equals("modifiers")) {
+            iPreModifier = "";
+            cPreModifier = "new";
+        }
+        tupleFilter = new TupleFilter(iPreModifier, "*", cPreModifier, "*", pids, plds, minFrequency, 0, 0, 0, minPldSpread, 0, false);
+        plainCodec = new TupleListCodec();
+        filteringCodec = new TupleListCodec(tupleFilter);
+    }
+
+    @Benchmark
+    public void decodeThenFilter(Blackhole blackhole) {
+        DecoderContext context = DecoderContext.builder().build();
+        for (byte[] document : documents) {
+            List<Tuple> results = new ArrayList<>();
+            for (Tuple tuple : plainCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(document)), context)) {
+                if (tupleFilter.matchesModifiers(tuple.getInstancePreModifiers(), tuple.getInstancePostModifiers(),
+                        tuple.getClassPreModifiers(), tuple.getClassPostModifiers()) && tupleFilter.matches(tuple)) {
+                    results.add(tuple);
+                }
+            }
+            blackhole.consume(results);
+        }
+    }
+
+    @Benchmark
+    public void decodeFiltered(Blackhole blackhole) {
+        DecoderContext context = DecoderContext.builder().build();
+        for (byte[] document : documents) {
+            blackhole.consume(filteringCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(document)), context));
+        }
+    }
+
+    @Benchmark
+    public void coreTuplesNext(Blackhole blackhole) {
+        CoreTupleQueryResultIterator<List<? extends CoreTuple>> iterator = new CoreTupleQueryResultIterator<List<? extends CoreTuple>>("instance", "*", catalog,
+                pids, plds, minFrequency, 0, 0, 0, minPldSpread, 0, false) {
+            @Override
+            protected MongoCursor<?> openCursor(String tablename) {
+                return new ListCursor<>(coreTuples);
+            }
+        };
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+        iterator.close();
+    }
+
+    @Benchmark
+    public void tuplesNext(Blackhole blackhole) {
+        TupleQueryResultIterator iterator = new TupleQueryResultIterator("instance", "*", catalog,
+                iPreModifier, "*", cPreModifier, "*", pids, plds, minFrequency, 0, 0, 0, minPldSpread, 0, false, false) {
+            @Override
+            protected MongoCursor<?> openCursor(String tablename) {
+                return new ListCursor<>(tupleLists);
+            }
+        };
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+        iterator.close();
+    }
+}
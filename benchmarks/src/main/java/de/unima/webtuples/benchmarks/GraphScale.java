@@ -0,0 +1,107 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import de.unima.webtuples.graph.GraphAlgorithms;
+import de.unima.webtuples.graph.HypernymGraph;
+import de.unima.webtuples.graph.HypernymGraphBuilder;
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Builds a hypernym graph of synthetic edges with HypernymGraphBuilder, writes it, maps it back and runs
+ * the reference algorithms on the mapped graph, printing the time and the heap of each step.
+ * The classes are drawn from a Zipf distribution, as in the database a few classes have most of the instances.
+ *
+ * Usage: GraphScale [--edges n] [--vocabulary n] [--exponent s] [--threads n] [--iterations n] [--file graph] [--seed n]
+ * A full size graph (--edges 400000000) needs a heap of about 8 bytes per edge (e.g. -Xmx6g) to be built,
+ * and about 12 bytes per lemma to be analyzed once mapped.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class GraphScale {
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = new Arguments(args);
+        long edges = arguments.getLong("edges", 10000000);
+        int vocabulary = arguments.getInt("vocabulary", (int) Math.max(16, edges / 8));
+        int threads = arguments.getInt("threads", Runtime.getRuntime().availableProcessors());
+        int iterations = arguments.getInt("iterations", 20);
+        ZipfDistribution classes = new ZipfDistribution(vocabulary, arguments.getDouble("exponent", 1.0));
+        Random random = new Random(arguments.getLong("seed", 42));
+        File file = arguments.has("file") ? new File(arguments.get("file", null)) : File.createTempFile("webisadb", ".graph");
+
+        long start = System.nanoTime();
+        HypernymGraphBuilder builder = new HypernymGraphBuilder(file.getAbsoluteFile().getParentFile());
+        for (long e = 0; e < edges; e++) {
+            builder.addEdge(lemma(1 + random.nextInt(vocabulary)), lemma(classes.sample(random)), 1 + random.nextInt(100));
+        }
+        HypernymGraph graph = builder.build();
+        report("build", start);
+        System.out.println(String.format("  %d lemmas, %d edges", graph.getNodeCount(), graph.getEdgeCount()));
+
+        start = System.nanoTime();
+        graph.write(file);
+        report("write", start);
+        System.out.println(String.format("  %.1f MB", file.length() / 1e6));
+        graph = null;
+
+        start = System.nanoTime();
+        try (HypernymGraph mapped = HypernymGraph.open(file)) {
+            report("open", start);
+
+            start = System.nanoTime();
+            GraphAlgorithms.outDegrees(mapped, threads);
+            report("out-degrees", start);
+
+            start = System.nanoTime();
+            int[] inDegrees = GraphAlgorithms.inDegrees(mapped, threads);
+            report("in-degrees", start);
+
+            start = System.nanoTime();
+            HypernymGraph reversed = mapped.reverse();
+            report("reverse", start);
+
+            start = System.nanoTime();
+            double[] ranks = GraphAlgorithms.pageRank(mapped, reversed, 0.85, true, iterations, 0, threads);
+            report("pagerank " + iterations + " iterations", start);
+
+            int top = 0;
+            for (int node = 1; node < ranks.length; node++) {
+                if (ranks[node] > ranks[top]) {
+                    top = node;
+                }
+            }
+            System.out.println(String.format("  top lemma %s: rank %.6f, %d instances", mapped.lemma(top), ranks[top], inDegrees[top]));
+        } finally {
+            if (!arguments.has("file")) {
+                file.delete();
+            }
+        }
+    }
+
+    private static String lemma(int k) {
+        return "w" + Integer.toString(k, 36);
+    }
+
+    private static void report(String step, long start) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        System.out.println(String.format("%-30s %10.0f ms %10.1f MB heap", step, (System.nanoTime() - start) / 1e6,
+                (runtime.totalMemory() - runtime.freeMemory()) / 1e6));
+    }
+}
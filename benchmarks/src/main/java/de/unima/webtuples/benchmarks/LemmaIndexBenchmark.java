@@ -0,0 +1,113 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import de.unima.webtuples.store.LemmaIndex;
+import de.unima.webtuples.store.LemmaIndexBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of the type-ahead lookups of a mapped LemmaIndex over a synthetic vocabulary 
+ * with Zipf distributed frequencies: short prefixes match a large part of the lemmas, long prefixes a few of them.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LemmaIndexBenchmark {
+
+    @Param({"1000000"})
+    public int lemmas;
+
+    // the length of the prefixes, taken from random lemmas
+    @Param({"1", "2", "4"})
+    public int prefixLength;
+
+    @Param({"10"})
+    public int k;
+
+    private File file;
+    private LemmaIndex index;
+    private String[] prefixes;
+    private int next = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        ZipfDistribution frequencies = new ZipfDistribution(lemmas, 1.0);
+        LemmaIndexBuilder builder = new LemmaIndexBuilder();
+        String[] words = new String[lemmas];
+        for (int i = 0; i < lemmas; i++) {
+            words[i] = word(random);
+            builder.add(words[i], words[random.nextInt(i + 1)], lemmas / frequencies.sample(random));
+        }
+        file = File.createTempFile("webisadb", ".lemmas");
+        builder.build().write(file);
+        index = LemmaIndex.open(file);
+        prefixes = new String[1024];
+        for (int i = 0; i < prefixes.length; i++) {
+            String word = words[random.nextInt(lemmas)];
+            prefixes[i] = word.substring(0, Math.min(prefixLength, word.length()));
+        }
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 3 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public Object complete() {
+        next = (next + 1) & (prefixes.length - 1);
+        return index.complete(prefixes[next], k);
+    }
+
+    @Benchmark
+    public Object count() {
+        next = (next + 1) & (prefixes.length - 1);
+        return index.count(prefixes[next]);
+    }
+}
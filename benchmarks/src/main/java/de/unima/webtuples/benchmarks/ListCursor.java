@@ -0,0 +1,74 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.ServerCursor;
+import com.mongodb.client.MongoCursor;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A cursor on documents already decoded in memory, it stands in for the cursor of a collection,
+ * so that the iterators can be benchmarked without a database.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class ListCursor<T> implements MongoCursor<T> {
+
+    private static final ServerAddress ADDRESS = new ServerAddress();
+
+    private final List<T> documents;
+    private int position = 0;
+
+    public ListCursor(List<T> documents) {
+        this.documents = documents;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < documents.size();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return documents.get(position++);
+    }
+
+    @Override
+    public T tryNext() {
+        return hasNext() ? documents.get(position++) : null;
+    }
+
+    @Override
+    public ServerCursor getServerCursor() {
+        return null;
+    }
+
+    @Override
+    public ServerAddress getServerAddress() {
+        return ADDRESS;
+    }
+
+    @Override
+    public void close() {
+        position = documents.size();
+    }
+}
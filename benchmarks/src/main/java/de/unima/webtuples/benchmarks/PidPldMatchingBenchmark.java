@@ -0,0 +1,135 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import com.mongodb.BasicDBObject;
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.datatypes.Dictionary;
+import de.unima.webtuples.queries.TupleFilter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the ways of matching the pids and plds of a query: TupleFilter on the codes of a decoded tuple
+ * (the bit mask of the pids, or the codes one by one once a pid has a code of 64 or higher),
+ * TupleFilter on the semicolon separated strings of the documents, and the single containsValue lookups.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PidPldMatchingBenchmark {
+
+    // the number of pids and plds in the query
+    @Param({"1", "3"})
+    public int values;
+
+    @Param({"false", "true"})
+    public boolean strict;
+
+    // "mask": the pids have the first codes of the dictionary, "codes": 64 other pids were seen before
+    @Param({"mask", "codes"})
+    public String pidCodes;
+
+    private CoreTuple[] tuples;
+    private String[] pidsStrings;
+    private String[] pldsStrings;
+    private String[] pids;
+    private String[] plds;
+    private TupleFilter filter;
+
+    @Setup
+    public void setUp() {
+        if (pidCodes.equals("codes")) {
+            for (int i = 0; i < 64; i++) {
+                Dictionary.PIDS.code("unseen" + i);
+            }
+        }
+        // the pids of the synthetic documents get their codes in the order of SyntheticDocuments.PIDS
+        for (String pid : SyntheticDocuments.PIDS) {
+            Dictionary.PIDS.code(pid);
+        }
+        List<BasicDBObject> documents = new SyntheticDocuments(42, 10000).tuples(10000, 5);
+        tuples = new CoreTuple[documents.size()];
+        pidsStrings = new String[documents.size()];
+        pldsStrings = new String[documents.size()];
+        for (int d = 0; d < tuples.length; d++) {
+            BasicDBObject document = documents.get(d);
+            pidsStrings[d] = document.getString("pids");
+            pldsStrings[d] = document.getString("plds");
+            tuples[d] = new CoreTuple(document.getString("instance"), document.getString("class"),
+                    document.getDouble("frequency"), document.getInt("pidspread"), document.getInt("pldspread"),
+                    pidsStrings[d], pldsStrings[d], "");
+        }
+        // frequent values, so that the matching does not stop at the first value
+        pids = new String[values];
+        plds = new String[values];
+        for (int i = 0; i < values; i++) {
+            pids[i] = SyntheticDocuments.PIDS[i * 2];
+            plds[i] = SyntheticDocuments.pld(i);
+        }
+        filter = new TupleFilter(pids, plds, 0, 0, 0, 0, 0, 0, strict);
+    }
+
+    @Benchmark
+    public void matchCodes(Blackhole blackhole) {
+        for (CoreTuple tuple : tuples) {
+            blackhole.consume(filter.matches(tuple));
+        }
+    }
+
+    @Benchmark
+    public void matchStrings(Blackhole blackhole) {
+        for (int d = 0; d < tuples.length; d++) {
+            blackhole.consume(filter.matches(0, 0, 0, pidsStrings[d], pldsStrings[d]));
+        }
+    }
+
+    @Benchmark
+    public void containsPids(Blackhole blackhole) {
+        for (String list : pidsStrings) {
+            for (String pid : pids) {
+                blackhole.consume(TupleFilter.containsValue(list, pid));
+            }
+        }
+    }
+
+    @Benchmark
+    public void containsPlds(Blackhole blackhole) {
+        for (String list : pldsStrings) {
+            for (String pld : plds) {
+                blackhole.consume(TupleFilter.containsValue(list, pld));
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import de.unima.webtuples.WebIsADb;
+import de.unima.webtuples.queries.ResultIterator;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A recorded sequence of calls to WebIsADb, replayed by QueryLogReplay.
+ * The log is a text file with one call per line, the method followed by its parameters, separated by tabs.
+ * Empty lines and lines starting with # are ignored.
+ * <pre>
+ * getTuplesWhere  instance class iPreModifier iPostModifier cPreModifier cPostModifier pids plds minFrequency maxFrequency minPidSpread maxPidSpread minPldSpread maxPldSpread strict
+ * getCoreTuplesWhere  instance class pids plds minFrequency maxFrequency minPidSpread maxPidSpread minPldSpread maxPldSpread strict
+ * getContextWithProvid  provid
+ * getMultipleContextsWithProvid  provids limit
+ * </pre>
+ * The pids, plds and provids are separated by commas, "-" stands for null. 
+ * The thresholds and strict can be left out, they are then 0 and false.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public final class QueryLog {
+
+    public static final String TUPLES = "getTuplesWhere";
+    public static final String CORE_TUPLES = "getCoreTuplesWhere";
+    public static final String CONTEXT = "getContextWithProvid";
+    public static final String CONTEXTS = "getMultipleContextsWithProvid";
+
+    private QueryLog() {
+    }
+
+    /**
+     * A call of the log.
+     */
+    public abstract static class RecordedCall {
+
+        private final String method;
+        private final String line;
+
+        RecordedCall(String method, String line) {
+            this.method = method;
+            this.line = line;
+        }
+
+        /**
+         * Runs the call and reads all its results.
+         * @return the number of results
+         */
+        public abstract long run(WebIsADb db) throws Exception;
+
+        public String getMethod() {
+            return method;
+        }
+
+        @Override
+        public String toString() {
+            return line;
+        }
+    }
+
+    /**
+     * @return the calls of a log file
+     * @throws IllegalArgumentException if a line is not a valid call
+     */
+    public static List<RecordedCall> read(Path file) throws IOException {
+        return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    public static void write(Path file, List<String> lines) throws IOException {
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the calls of the lines of a log
+     * @throws IllegalArgumentException if a line is not a valid call
+     */
+    public static List<RecordedCall> parse(List<String> lines) {
+        List<RecordedCall> calls = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.trim().isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                calls.add(parse(line));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + " is not a valid call: " + e.getMessage(), e);
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * @return the call of a single line
+     */
+    public static RecordedCall parse(final String line) {
+        final String[] f = line.split("\t", -1);
+        switch (f[0]) {
+            case TUPLES:
+                return new RecordedCall(TUPLES, line) {
+                    @Override
+                    public long run(WebIsADb db) throws Exception {
+                        return count(db.getTuplesWhere(f[1], f[2], f[3], f[4], f[5], f[6], list(f, 7), list(f, 8),
+                                number(f, 9), number(f, 10), (int) number(f, 11), (int) number(f, 12), 
+                                (int) number(f, 13), (int) number(f, 14), flag(f, 15)));
+                    }
+                };
+            case CORE_TUPLES:
+                return new RecordedCall(CORE_TUPLES, line) {
+                    @Override
+                    public long run(WebIsADb db) throws Exception {
+                        return count(db.getCoreTuplesWhere(f[1], f[2], list(f, 3), list(f, 4),
+                                number(f, 5), number(f, 6), (int) number(f, 7), (int) number(f, 8), 
+                                (int) number(f, 9), (int) number(f, 10), flag(f, 11)));
+                    }
+                };
+            case CONTEXT:
+                return new RecordedCall(CONTEXT, line) {
+                    @Override
+                    public long run(WebIsADb db) throws Exception {
+                        return count(db.getContextWithProvid(f[1]));
+                    }
+                };
+            case CONTEXTS:
+                final String[] provids = list(f, 1);
+                return new RecordedCall(CONTEXTS, line) {
+                    @Override
+                    public long run(WebIsADb db) throws Exception {
+                        return count(db.getMultipleContextsWithProvid(
+                                provids == null ? null : new LinkedHashSet<>(Arrays.asList(provids)), (int) number(f, 2)));
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("unknown method " + f[0]);
+        }
+    }
+
+    private static String[] list(String[] fields, int i) {
+        if (i >= fields.length || fields[i].equals("-")) {
+            return null;
+        }
+        return fields[i].isEmpty() ? new String[0] : fields[i].split(",");
+    }
+
+    private static double number(String[] fields, int i) {
+        return i >= fields.length || fields[i].isEmpty() ? 0 : Double.parseDouble(fields[i]);
+    }
+
+    private static boolean flag(String[] fields, int i) {
+        return i < fields.length && Boolean.parseBoolean(fields[i]);
+    }
+
+    /**
+     * Reads all the results of an iterator, the lists of tuples count as their size.
+     */
+    private static long count(ResultIterator<?> iterator) {
+        long results = 0;
+        try {
+            while (iterator.hasNext()) {
+                Object next = iterator.next();
+                results += next instanceof List ? ((List<?>) next).size() : 1;
+            }
+        } finally {
+            iterator.close();
+        }
+        return results;
+    }
+
+    /**
+     * Generates a log with a typical mix of calls on the data of a SyntheticDatabase: 
+     * 40% getTuplesWhere, 30% getCoreTuplesWhere, 20% getContextWithProvid and 10% getMultipleContextsWithProvid.
+     * A part of the calls filter by pids, plds or frequency. The tuples and provids are drawn from the samples of the database
+     * with a Zipf distribution, the first (most frequent) ones are asked more often.
+     * @return the lines of the log
+     */
+    public static List<String> synthesize(SyntheticDatabase data, int calls, long seed) {
+        Random random = new Random(seed);
+        ZipfDistribution tuples = new ZipfDistribution(data.getInstances().size(), 1.0);
+        ZipfDistribution provids = new ZipfDistribution(data.getProvids().size(), 1.0);
+        ZipfDistribution pidRanks = new ZipfDistribution(8, 1.0);
+        ZipfDistribution pldRanks = new ZipfDistribution(20, 1.0);
+        List<String> lines = new ArrayList<>(calls);
+        for (int c = 0; c < calls; c++) {
+            int kind = random.nextInt(10);
+            int t = tuples.sample(random) - 1;
+            String instance = data.getInstances().get(t);
+            String clazz = random.nextBoolean() ? data.getClasses().get(t) : "*";
+            String pids = random.nextInt(4) == 0 ? SyntheticDocuments.PIDS[pidRanks.sample(random) - 1] : "-";
+            String plds = random.nextInt(8) == 0 ? SyntheticDocuments.pld(pldRanks.sample(random) - 1) : "-";
+            int minFrequency = random.nextInt(4) == 0 ? 2 : 0;
+            if (kind < 4) {
+                String iPreModifier = random.nextInt(4) == 0 ? "" : "*";
+                lines.add(join(TUPLES, instance, clazz, iPreModifier, "*", "*", "*", pids, plds, minFrequency, 0, 0, 0, 0, 0, false));
+            } else if (kind < 7) {
+                lines.add(join(CORE_TUPLES, instance, clazz, pids, plds, minFrequency, 0, 0, 0, 0, 0, false));
+            } else if (kind < 9) {
+                lines.add(join(CONTEXT, data.getProvids().get(provids.sample(random) - 1)));
+            } else {
+                StringBuilder batch = new StringBuilder();
+                for (int p = 0; p < 10; p++) {
+                    batch.append(p == 0 ? "" : ",").append(data.getProvids().get(random.nextInt(data.getProvids().size())));
+                }
+                lines.add(join(CONTEXTS, batch, 0));
+            }
+        }
+        return lines;
+    }
+
+    private static String join(Object... fields) {
+        StringBuilder line = new StringBuilder();
+        for (Object field : fields) {
+            line.append(line.length() == 0 ? "" : "\t").append(field);
+        }
+        return line.toString();
+    }
+}
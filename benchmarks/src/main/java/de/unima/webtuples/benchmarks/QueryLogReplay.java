@@ -0,0 +1,244 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import com.github.fakemongo.Fongo;
+import de.unima.webtuples.WebIsADb;
+import de.unima.webtuples.benchmarks.QueryLog.RecordedCall;
+import de.unima.webtuples.store.MongoTupleStore;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Replays a query log (see QueryLog) against a WebIsADb and reports the throughput and the latency percentiles of each method.
+ * 
+ * In closed loop mode (the default) each thread runs the next call of the log as soon as its previous call is done.
+ * With --rate the calls are started at a fixed rate by a pool of threads, whatever the response time is: 
+ * the latency of a call is measured from the time it should have been started, so that a stalled server 
+ * is not hidden by the calls which could not be started.
+ * The log is replayed from the beginning again until the end of the run, the calls of the warm-up are not reported.
+ *
+ * Usage: QueryLogReplay [options]
+ *   --log file              the query log, without it a log is generated on the synthetic data
+ *   --save-log file         writes the generated log
+ *   --calls n               the number of calls of the generated log (10000)
+ *   --tuples host:port/db   the tuples instance, without it an in-process Fongo database is filled with synthetic data
+ *   --contexts host:port/db the contexts instance (the tuples instance with db sentencesdb)
+ *   --synthetic n           the number of synthetic core tuples (5000)
+ *   --threads n             the number of threads (4)
+ *   --rate n                the calls started per second, without it the threads run in closed loop
+ *   --duration s            the measured seconds (30)
+ *   --warmup s              the seconds of warm-up (5)
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class QueryLogReplay {
+
+    private final WebIsADb db;
+    private final List<RecordedCall> calls;
+    // the latencies in microseconds, by method and for all the calls
+    private final Map<String, Recorder> latencies = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> errors = new HashMap<>();
+    private final Recorder total = new Recorder(3);
+    private final AtomicLong totalErrors = new AtomicLong();
+    private final AtomicLong results = new AtomicLong();
+    private final AtomicLong next = new AtomicLong();
+    private volatile long measureStart;
+
+    public QueryLogReplay(WebIsADb db, List<RecordedCall> calls) {
+        if (calls.isEmpty()) {
+            throw new IllegalArgumentException("The query log is empty");
+        }
+        this.db = db;
+        this.calls = calls;
+        for (RecordedCall call : calls) {
+            if (!latencies.containsKey(call.getMethod())) {
+                latencies.put(call.getMethod(), new Recorder(3));
+                errors.put(call.getMethod(), new AtomicLong());
+            }
+        }
+    }
+
+    /**
+     * Runs the calls of the log in closed loop.
+     * @param threads : the number of threads running calls
+     * @return the seconds measured
+     */
+    public double runClosedLoop(int threads, long warmup, long duration, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        measureStart = start + unit.toNanos(warmup);
+        final long end = measureStart + unit.toNanos(duration);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (System.nanoTime() < end) {
+                        execute(nextCall(), System.nanoTime());
+                    }
+                }
+            }, "replay-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return (System.nanoTime() - measureStart) / 1e9;
+    }
+
+    /**
+     * Starts the calls of the log at a fixed rate on a pool of threads.
+     * @param threads : the number of threads running calls, when they are all busy the calls wait for a thread
+     * @param rate : the calls started per second
+     * @return the seconds measured
+     */
+    public double runFixedRate(int threads, double rate, long warmup, long duration, TimeUnit unit) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        measureStart = start + unit.toNanos(warmup);
+        long end = measureStart + unit.toNanos(duration);
+        double period = 1e9 / rate;
+        for (long i = 0; ; i++) {
+            final long intended = start + (long) (i * period);
+            if (intended >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            final RecordedCall call = nextCall();
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    execute(call, intended);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        return (end - measureStart) / 1e9;
+    }
+
+    private RecordedCall nextCall() {
+        return calls.get((int) (next.getAndIncrement() % calls.size()));
+    }
+
+    /**
+     * Runs a call and records its latency from start, if it was started after the warm-up.
+     */
+    private void execute(RecordedCall call, long start) {
+        try {
+            long count = call.run(db);
+            if (start >= measureStart) {
+                long micros = (System.nanoTime() - start) / 1000;
+                latencies.get(call.getMethod()).recordValue(micros);
+                total.recordValue(micros);
+                results.addAndGet(count);
+            }
+        } catch (Exception e) {
+            if (start >= measureStart) {
+                errors.get(call.getMethod()).incrementAndGet();
+                totalErrors.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Prints a line for each method and one for all the calls. Can be called once.
+     */
+    public void report(double seconds) {
+        System.out.println(String.format("%-30s %9s %7s %10s %9s %9s %9s %9s", 
+                "method", "calls", "errors", "calls/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (Map.Entry<String, Recorder> method : latencies.entrySet()) {
+            print(method.getKey(), method.getValue().getIntervalHistogram(), errors.get(method.getKey()).get(), seconds);
+        }
+        print("all", total.getIntervalHistogram(), totalErrors.get(), seconds);
+        System.out.println(String.format("%d results, %.0f results/s", results.get(), results.get() / seconds));
+    }
+
+    private static void print(String name, Histogram histogram, long errors, double seconds) {
+        System.out.println(String.format("%-30s %9d %7d %10.1f %9.3f %9.3f %9.3f %9.3f", name, histogram.getTotalCount(), errors,
+                histogram.getTotalCount() / seconds, 
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = new Arguments(args);
+        int threads = arguments.getInt("threads", 4);
+        long duration = arguments.getLong("duration", 30);
+        long warmup = arguments.getLong("warmup", 5);
+
+        WebIsADb db;
+        SyntheticDatabase data = null;
+        if (arguments.has("tuples")) {
+            String[] tuples = arguments.getAddress("tuples");
+            String[] contexts = arguments.has("contexts") ? arguments.getAddress("contexts") 
+                    : new String[]{tuples[0], tuples[1], "sentencesdb"};
+            db = new WebIsADb.Builder()
+                    .tuples(tuples[0], Integer.parseInt(tuples[1]), tuples[2])
+                    .contexts(contexts[0], Integer.parseInt(contexts[1]), contexts[2])
+                    .connectionsPerHost(Math.max(100, threads))
+                    .build();
+        } else {
+            int size = arguments.getInt("synthetic", 5000);
+            Fongo fongo = new Fongo("replay");
+            data = new SyntheticDatabase(42, size);
+            long start = System.nanoTime();
+            size = (int) data.insert(fongo.getDB("tuplesdb"), fongo.getDB("sentencesdb"));
+            System.out.println(String.format("%d synthetic core tuples inserted in %.1f s", size, (System.nanoTime() - start) / 1e9));
+            db = new WebIsADb(new MongoTupleStore(fongo.getDB("tuplesdb"), fongo.getDB("sentencesdb")));
+        }
+
+        List<RecordedCall> calls;
+        if (arguments.has("log")) {
+            calls = QueryLog.read(Paths.get(arguments.get("log", null)));
+        } else if (data != null) {
+            List<String> lines = QueryLog.synthesize(data, arguments.getInt("calls", 10000), 7);
+            if (arguments.has("save-log")) {
+                QueryLog.write(Paths.get(arguments.get("save-log", null)), lines);
+            }
+            calls = QueryLog.parse(lines);
+        } else {
+            throw new IllegalArgumentException("--log is needed with --tuples");
+        }
+
+        QueryLogReplay replay = new QueryLogReplay(db, calls);
+        double seconds;
+        if (arguments.has("rate")) {
+            double rate = arguments.getDouble("rate", 0);
+            System.out.println(String.format("%d calls, %.0f calls/s on %d threads, %d s warm-up, %d s", calls.size(), rate, threads, warmup, duration));
+            seconds = replay.runFixedRate(threads, rate, warmup, duration, TimeUnit.SECONDS);
+        } else {
+            System.out.println(String.format("%d calls, %d threads in closed loop, %d s warm-up, %d s", calls.size(), threads, warmup, duration));
+            seconds = replay.runClosedLoop(threads, warmup, duration, TimeUnit.SECONDS);
+        }
+        replay.report(seconds);
+        db.shutdown();
+    }
+}
@@ -0,0 +1,609 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ServerAddress;
+import com.mongodb.util.JSON;
+import com.mongodb.util.JSONSerializers;
+import com.mongodb.util.ObjectSerializer;
+import de.unima.webtuples.queries.CollectionCatalog;
+import de.unima.webtuples.queries.CoreTupleQueryResultIterator;
+import de.unima.webtuples.store.SnapshotWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates a synthetic WebIsADb with the layout of the production instances: each core tuple, with its modifications array,
+ * is stored in the collection of its instance (i followed by the first two letters) and in the collection of its class
+ * (c followed by the first two letters), each context in the collection of its provid (s followed by provid/1000000).
+ * 
+ * The instances are the ranks of a Zipf distribution: rank k gets about coreTuples / (k^exponent * H) core tuples, 
+ * with distinct classes drawn from a second Zipf distribution. An instance has at most maxClassesPerInstance core tuples 
+ * (100000): the first ranks of a large database would otherwise get millions of core tuples, generated by a single thread, 
+ * so that the number of generated core tuples can be lower than requested. The lengths of the modifications arrays and of the provid lists,
+ * the pattern ids and the pay level domains are Zipf distributed as well, so that most core tuples have a single modification
+ * extracted from a single sentence, and a few have hundreds.
+ * 
+ * The ranks are shared among threads, each rank has its own random generator: the same seed gives the same data 
+ * whatever the number of threads. The documents are written in batches per collection, into MongoDB with bulk inserts
+ * or into JSON files (one per collection, as read by mongoimport), which can then be converted into a snapshot for SnapshotTupleStore.
+ *
+ * Usage: SyntheticDatabase [options]
+ *   --tuples n               the number of core tuples (100000)
+ *   --vocabulary n           the number of instance lemmas (tuples / 10)
+ *   --classes n              the number of class lemmas (vocabulary)
+ *   --exponent x             the exponent of the Zipf distributions of the instances and classes (1.0)
+ *   --max-classes n          the maximum number of core tuples of an instance (100000)
+ *   --seed n                 (42)
+ *   --threads n              (the available processors)
+ *   --batch n                the documents of each bulk insert (1000)
+ *   --sentences false        no contexts are generated
+ *   --mongo host:port/db     inserts into the tuples instance
+ *   --contexts host:port/db  the contexts instance (the tuples instance with db sentencesdb)
+ *   --files dir              writes a JSON file per collection into dir
+ *   --snapshot file          converts the files of --files into a snapshot
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class SyntheticDatabase {
+
+    /**
+     * Receives the generated documents, a batch of one collection at a time. Called by several threads at the same time.
+     */
+    public interface Output {
+
+        void write(String collection, List<DBObject> documents) throws IOException;
+    }
+
+    // the number of tuples and provids kept by getInstances(), getClasses() and getProvids()
+    static final int SAMPLE_SIZE = 10000;
+
+    // writes the documents in the strict mode of MongoDB Extended JSON, read by mongoimport
+    private static final ObjectSerializer SERIALIZER = JSONSerializers.getStrict();
+
+    // the batches buffered by each thread
+    private static final int MAX_BUFFERED = 64;
+
+    private static final String[] SYLLABLES = {
+        "an", "el", "in", "or", "us", "ter", "ple", "ion", "man", "dor", "sta", "ly", "ca", "ri", "to", "ve"
+    };
+
+    private final long seed;
+    private final long coreTuples;
+    private int vocabulary;
+    private int classes;
+    private double exponent = 1.0;
+    private int maxClassesPerInstance = 100000;
+    private int maxModifications = 200;
+    private int maxProvids = 100;
+    private int domains;
+    private long providRange;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 1000;
+    private boolean contexts = true;
+
+    private final List<String> instances = new ArrayList<>();
+    private final List<String> tupleClasses = new ArrayList<>();
+    private final List<String> provids = new ArrayList<>();
+    // true once the samples are complete
+    private volatile boolean sampled = false;
+
+    /**
+     * @param seed : the seed of the generator, the same seed gives the same data
+     * @param coreTuples : the number of core tuples, with about 3.5 modifications and 11 contexts each
+     */
+    public SyntheticDatabase(long seed, long coreTuples) {
+        this.seed = seed;
+        this.coreTuples = coreTuples;
+        vocabulary((int) Math.min(Integer.MAX_VALUE, Math.max(100, coreTuples / 10)));
+        // at least 100 sentence collections, as the provids of a real instance are spread over hundreds of them
+        providRange = Math.max(100000000, coreTuples * 10);
+    }
+
+    /**
+     * Sets the number of instance lemmas, as many class lemmas and half as many pay level domains.
+     */
+    public SyntheticDatabase vocabulary(int lemmas) {
+        vocabulary = lemmas;
+        classes = lemmas;
+        domains = Math.max(100, lemmas / 2);
+        return this;
+    }
+
+    public SyntheticDatabase classes(int lemmas) {
+        classes = lemmas;
+        return this;
+    }
+
+    /**
+     * @param exponent : the exponent of the Zipf distributions of the instances and classes
+     */
+    public SyntheticDatabase exponent(double exponent) {
+        this.exponent = exponent;
+        return this;
+    }
+
+    /**
+     * @param classes : the maximum number of core tuples of an instance, the classes of an instance are distinct
+     */
+    public SyntheticDatabase maxClassesPerInstance(int classes) {
+        if (classes < 1) {
+            throw new IllegalArgumentException("maxClassesPerInstance must be positive");
+        }
+        maxClassesPerInstance = classes;
+        return this;
+    }
+
+    public SyntheticDatabase maxModifications(int modifications) {
+        maxModifications = modifications;
+        return this;
+    }
+
+    public SyntheticDatabase maxProvids(int provids) {
+        maxProvids = provids;
+        return this;
+    }
+
+    public SyntheticDatabase threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param documents : the number of documents written at once into a collection
+     */
+    public SyntheticDatabase batchSize(int documents) {
+        batchSize = documents;
+        return this;
+    }
+
+    /**
+     * @param contexts : if false, no sentence collections are generated
+     */
+    public SyntheticDatabase contexts(boolean contexts) {
+        this.contexts = contexts;
+        return this;
+    }
+
+    /**
+     * @return the made up word of rank n, its first two letters spread over all the collections
+     */
+    static String lemma(int n) {
+        StringBuilder lemma = new StringBuilder();
+        int prefix = (int) ((n * 263L) % 676);
+        lemma.append((char) ('a' + prefix / 26)).append((char) ('a' + prefix % 26));
+        for (n /= 676; n > 0; n /= SYLLABLES.length) {
+            lemma.append(SYLLABLES[n % SYLLABLES.length]);
+        }
+        return lemma.toString();
+    }
+
+    /**
+     * Generates the database into output.
+     * @return the number of core tuples
+     */
+    public long generate(final Output output) throws IOException, InterruptedException {
+        final ZipfDistribution instanceRanks = new ZipfDistribution(vocabulary, exponent);
+        final AtomicLong generated = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int first = t + 1;
+            tasks.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    Generator generator = new Generator(output);
+                    for (int rank = first; rank <= vocabulary; rank += threads) {
+                        double expected = coreTuples * instanceRanks.probability(rank);
+                        Random random = new Random(mix(seed * 1000003 + rank));
+                        int count = (int) expected + (random.nextDouble() < expected - (int) expected ? 1 : 0);
+                        generated.addAndGet(generator.instance(random, rank, Math.min(count, Math.min(classes, maxClassesPerInstance))));
+                    }
+                    generator.flush();
+                    return null;
+                }
+            }));
+        }
+        executor.shutdown();
+        try {
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return generated.get();
+    }
+
+    /**
+     * Generates the core tuples of the instances of one thread, and buffers the documents of each collection.
+     */
+    private class Generator {
+
+        private final Output output;
+        private final Map<String, List<DBObject>> batches = new HashMap<>();
+        // the number of documents in batches, which are all written once it reaches MAX_BUFFERED batches
+        private int buffered = 0;
+        private final ZipfDistribution classRanks = new ZipfDistribution(classes, exponent);
+        private final ZipfDistribution modificationCounts = new ZipfDistribution(maxModifications, 2.0);
+        private final ZipfDistribution providCounts = new ZipfDistribution(maxProvids, 2.0);
+        private final ZipfDistribution pidRanks = new ZipfDistribution(SyntheticDocuments.PIDS.length, 1.2);
+        private final ZipfDistribution domainRanks = new ZipfDistribution(domains, 1.0);
+        private final ZipfDistribution modifierRanks = new ZipfDistribution(Math.min(vocabulary, 5000), 1.0);
+
+        Generator(Output output) {
+            this.output = output;
+        }
+
+        /**
+         * Generates count core tuples of the instance of rank.
+         * @param count : at most maxClassesPerInstance, which bounds the classes remembered to keep them distinct
+         * @return count
+         */
+        int instance(Random random, int rank, int count) throws IOException {
+            String instance = lemma(rank - 1);
+            Set<Integer> seen = new HashSet<>();
+            for (int t = 0; t < count; t++) {
+                int classRank = classRanks.sample(random);
+                while (!seen.add(classRank)) {
+                    // the frequent classes are taken, the others are about uniform
+                    classRank = 1 + random.nextInt(classes);
+                }
+                String clazz = lemma(classRank - 1);
+                BasicDBObject tuple = tuple(random, instance, clazz);
+                add(CoreTupleQueryResultIterator.tablename("i", instance), tuple);
+                add(CoreTupleQueryResultIterator.tablename("c", clazz), new BasicDBObject(tuple.toMap()));
+                if (!sampled) {
+                    sample(instance, clazz, tuple);
+                }
+            }
+            return count;
+        }
+
+        private BasicDBObject tuple(Random random, String instance, String clazz) {
+            int count = modificationCounts.sample(random);
+            BasicDBList modifications = new BasicDBList();
+            Set<String> pids = new LinkedHashSet<>();
+            Set<String> plds = new LinkedHashSet<>();
+            double frequency = 0;
+            for (int m = 0; m < count; m++) {
+                BasicDBObject modification = modification(random, instance, clazz, m == 0);
+                frequency += modification.getDouble("frequency");
+                pids.addAll(Arrays.asList(modification.getString("pids").split(";")));
+                plds.addAll(Arrays.asList(modification.getString("plds").split(";")));
+                modifications.add(modification);
+            }
+            return new BasicDBObject("instance", instance).append("class", clazz)
+                    .append("frequency", frequency).append("pidspread", pids.size()).append("pldspread", plds.size())
+                    .append("pids", join(pids)).append("plds", join(plds)).append("modifications", modifications);
+        }
+
+        /**
+         * @param bare : true for the modification without modifiers, which most core tuples have
+         */
+        private BasicDBObject modification(Random random, String instance, String clazz, boolean bare) {
+            String ipremod = bare || random.nextInt(5) < 2 ? "" : modifier(random);
+            String ipostmod = bare || random.nextInt(8) > 0 ? "" : "of " + modifier(random);
+            String cpremod = bare || random.nextInt(3) > 0 ? "" : modifier(random);
+            int count = providCounts.sample(random);
+            Set<String> pids = new LinkedHashSet<>();
+            Set<String> plds = new LinkedHashSet<>();
+            StringBuilder provids = new StringBuilder();
+            for (int p = 0; p < count; p++) {
+                pids.add(SyntheticDocuments.PIDS[pidRanks.sample(random) - 1]);
+                String pld = SyntheticDocuments.pld(domainRanks.sample(random) - 1);
+                plds.add(pld);
+                String provid = Long.toString((long) (random.nextDouble() * providRange));
+                provids.append(provid).append(';');
+                if (contexts) {
+                    add(CollectionCatalog.contextCollection(provid), new BasicDBObject("provid", provid).append("pld", pld)
+                            .append("sentence", sentence(random, (ipremod + " " + instance).trim(), (cpremod + " " + clazz).trim())));
+                }
+            }
+            return new BasicDBObject("ipremod", ipremod).append("ipostmod", ipostmod)
+                    .append("cpremod", cpremod).append("cpostmod", "")
+                    .append("frequency", (double) count).append("pidspread", pids.size()).append("pldspread", plds.size())
+                    .append("pids", join(pids)).append("plds", join(plds)).append("provids", provids.toString());
+        }
+
+        private String modifier(Random random) {
+            return lemma(vocabulary - modifierRanks.sample(random));
+        }
+
+        /**
+         * @return a sentence of 10 to 40 words containing the instance and the class
+         */
+        private String sentence(Random random, String instance, String clazz) {
+            StringBuilder sentence = new StringBuilder();
+            int words = 8 + random.nextInt(31);
+            int position = random.nextInt(words);
+            for (int w = 0; w < words; w++) {
+                if (w == position) {
+                    sentence.append(clazz).append("s such as ").append(instance).append(' ');
+                }
+                sentence.append(lemma(modifierRanks.sample(random) - 1)).append(' ');
+            }
+            return sentence.append('.').toString();
+        }
+
+        private void add(String collection, DBObject document) {
+            List<DBObject> batch = batches.get(collection);
+            if (batch == null) {
+                batch = new ArrayList<>(batchSize);
+                batches.put(collection, batch);
+            }
+            batch.add(document);
+            buffered++;
+            if (batch.size() >= batchSize) {
+                batches.remove(collection);
+                buffered -= batch.size();
+                write(collection, batch);
+            } else if (buffered >= MAX_BUFFERED * batchSize) {
+                // with many collections, e.g. the sentence collections of a large database, the batches would not fit in memory
+                flush();
+            }
+        }
+
+        private void write(String collection, List<DBObject> batch) {
+            try {
+                output.write(collection, batch);
+            } catch (IOException e) {
+                throw new IllegalStateException("Writing " + collection + " failed", e);
+            }
+        }
+
+        void flush() {
+            for (Map.Entry<String, List<DBObject>> batch : batches.entrySet()) {
+                write(batch.getKey(), batch.getValue());
+            }
+            batches.clear();
+            buffered = 0;
+        }
+    }
+
+    /**
+     * Spreads the bits of consecutive seeds, whose first values would be alike otherwise (finalizer of MurmurHash3).
+     */
+    static long mix(long seed) {
+        seed ^= seed >>> 33;
+        seed *= 0xff51afd7ed558ccdL;
+        seed ^= seed >>> 33;
+        seed *= 0xc4ceb9fe1a85ec53L;
+        return seed ^ (seed >>> 33);
+    }
+
+    private static String join(Set<String> values) {
+        StringBuilder list = new StringBuilder();
+        for (String value : values) {
+            list.append(value).append(';');
+        }
+        return list.toString();
+    }
+
+    /**
+     * Keeps the first tuples and provids, as examples of existing values.
+     */
+    private synchronized void sample(String instance, String clazz, BasicDBObject tuple) {
+        if (instances.size() < SAMPLE_SIZE) {
+            instances.add(instance);
+            tupleClasses.add(clazz);
+        }
+        for (Object modification : (BasicDBList) tuple.get("modifications")) {
+            if (provids.size() < SAMPLE_SIZE) {
+                provids.add(((BasicDBObject) modification).getString("provids").split(";")[0]);
+            }
+        }
+        sampled = instances.size() == SAMPLE_SIZE && provids.size() == SAMPLE_SIZE;
+    }
+
+    /**
+     * Inserts the database with bulk inserts of batchSize documents, then creates the indexes used by the queries:
+     * instance and class on the instance collections, class and instance on the class collections, provid on the sentence collections.
+     * @param tuplesDb : the database of the instance and class collections
+     * @param contextsDb : the database of the sentence collections
+     * @return the number of core tuples
+     */
+    public long insert(final DB tuplesDb, final DB contextsDb) throws IOException, InterruptedException {
+        final Set<String> collections = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        long generated = generate(new Output() {
+            @Override
+            public void write(String collection, List<DBObject> documents) {
+                (collection.startsWith("s") ? contextsDb : tuplesDb).getCollection(collection).insert(documents);
+                collections.add(collection);
+            }
+        });
+        for (String collection : collections) {
+            if (collection.startsWith("s")) {
+                contextsDb.getCollection(collection).createIndex(new BasicDBObject("provid", 1));
+            } else if (collection.startsWith("i")) {
+                tuplesDb.getCollection(collection).createIndex(new BasicDBObject("instance", 1).append("class", 1));
+            } else {
+                tuplesDb.getCollection(collection).createIndex(new BasicDBObject("class", 1).append("instance", 1));
+            }
+        }
+        return generated;
+    }
+
+    /**
+     * Writes the documents of each collection into the file collection.json of directory, one document per line.
+     * The files can be loaded with mongoimport or converted by writeSnapshot.
+     * @return the number of core tuples
+     */
+    public long writeFiles(File directory) throws IOException, InterruptedException {
+        Files.createDirectories(directory.toPath());
+        final File dir = directory;
+        final Map<String, Writer> writers = new ConcurrentHashMap<>();
+        try {
+            return generate(new Output() {
+                @Override
+                public void write(String collection, List<DBObject> documents) throws IOException {
+                    Writer writer;
+                    synchronized (writers) {
+                        writer = writers.get(collection);
+                        if (writer == null) {
+                            writer = Files.newBufferedWriter(new File(dir, collection + ".json").toPath(), StandardCharsets.UTF_8);
+                            writers.put(collection, writer);
+                        }
+                    }
+                    StringBuilder lines = new StringBuilder();
+                    for (DBObject document : documents) {
+                        // JSON.serialize would create a serializer for each document
+                        SERIALIZER.serialize(document, lines);
+                        lines.append('\n');
+                    }
+                    synchronized (writer) {
+                        writer.write(lines.toString());
+                    }
+                }
+            });
+        } finally {
+            for (Writer writer : writers.values()) {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * Converts the instance and class collections written by writeFiles into a snapshot read by SnapshotTupleStore.
+     * @param directory : the directory of the JSON files
+     * @param snapshot : the snapshot file
+     */
+    public static void writeSnapshot(File directory, File snapshot) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (String name : directory.list()) {
+            if ((name.startsWith("i") || name.startsWith("c")) && name.endsWith(".json")) {
+                names.add(name);
+            }
+        }
+        Collections.sort(names);
+        try (SnapshotWriter writer = new SnapshotWriter(snapshot)) {
+            for (String name : names) {
+                writer.beginShard(name.substring(0, name.length() - ".json".length()));
+                try (BufferedReader reader = Files.newBufferedReader(new File(directory, name).toPath(), StandardCharsets.UTF_8)) {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        BasicDBObject tuple = (BasicDBObject) JSON.parse(line);
+                        writer.addCoreTuple(tuple.getString("instance"), tuple.getString("class"), tuple.getDouble("frequency"),
+                                tuple.getInt("pidspread"), tuple.getInt("pldspread"), tuple.getString("pids"), tuple.getString("plds"));
+                        for (Object o : (BasicDBList) tuple.get("modifications")) {
+                            BasicDBObject m = (BasicDBObject) o;
+                            writer.addModification(m.getString("ipremod"), m.getString("ipostmod"), m.getString("cpremod"), m.getString("cpostmod"),
+                                    m.getDouble("frequency"), m.getInt("pidspread"), m.getInt("pldspread"),
+                                    m.getString("pids"), m.getString("plds"), m.getString("provids"));
+                        }
+                    }
+                }
+                writer.endShard();
+            }
+        }
+    }
+
+    /**
+     * @return the instances of the first generated core tuples, at most SAMPLE_SIZE
+     */
+    public List<String> getInstances() {
+        return instances;
+    }
+
+    /**
+     * @return the classes of the core tuples of getInstances()
+     */
+    public List<String> getClasses() {
+        return tupleClasses;
+    }
+
+    /**
+     * @return provids of the first generated modifications, at most SAMPLE_SIZE
+     */
+    public List<String> getProvids() {
+        return provids;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = new Arguments(args);
+        SyntheticDatabase data = new SyntheticDatabase(arguments.getLong("seed", 42), arguments.getLong("tuples", 100000));
+        if (arguments.has("vocabulary")) {
+            data.vocabulary(arguments.getInt("vocabulary", 0));
+        }
+        if (arguments.has("classes")) {
+            data.classes(arguments.getInt("classes", 0));
+        }
+        data.exponent(arguments.getDouble("exponent", 1.0))
+                .maxClassesPerInstance(arguments.getInt("max-classes", 100000))
+                .threads(arguments.getInt("threads", Runtime.getRuntime().availableProcessors()))
+                .batchSize(arguments.getInt("batch", 1000))
+                .contexts(Boolean.parseBoolean(arguments.get("sentences", "true")));
+        long start = System.currentTimeMillis();
+        long generated;
+        if (arguments.has("mongo")) {
+            String[] tuples = arguments.getAddress("mongo");
+            String[] contexts = arguments.has("contexts") ? arguments.getAddress("contexts") 
+                    : new String[]{tuples[0], tuples[1], "sentencesdb"};
+            MongoClientOptions options = MongoClientOptions.builder().connectionsPerHost(Math.max(100, data.threads)).build();
+            MongoClient tuplesClient = new MongoClient(new ServerAddress(tuples[0], Integer.parseInt(tuples[1])), options);
+            MongoClient contextsClient = new MongoClient(new ServerAddress(contexts[0], Integer.parseInt(contexts[1])), options);
+            try {
+                generated = data.insert(tuplesClient.getDB(tuples[2]), contextsClient.getDB(contexts[2]));
+            } finally {
+                tuplesClient.close();
+                contextsClient.close();
+            }
+        } else if (arguments.has("files")) {
+            File directory = new File(arguments.get("files", null));
+            generated = data.writeFiles(directory);
+            if (arguments.has("snapshot")) {
+                writeSnapshot(directory, new File(arguments.get("snapshot", null)));
+            }
+        } else {
+            System.err.println("Usage: SyntheticDatabase [--tuples n] (--mongo host:port/db | --files dir [--snapshot file])");
+            System.exit(1);
+            return;
+        }
+        System.out.println("Generated " + generated + " core tuples in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
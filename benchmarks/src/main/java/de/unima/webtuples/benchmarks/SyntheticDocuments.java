@@ -0,0 +1,181 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.bson.BasicBSONEncoder;
+
+/**
+ * Generates synthetic tuple documents with the layout of the instance and class collections.
+ * The pattern ids are drawn from the patterns of the extraction (p1 ... p43 with their variants),
+ * the pay level domains from a pool where a few domains are much more frequent than the others,
+ * so that the pid and pld lists have the lengths and the skew of the real data.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public final class SyntheticDocuments {
+
+    /**
+     * The pattern ids, as stored in the pids fields.
+     */
+    public static final String[] PIDS = {
+        "p1", "p2", "p3a", "p3b", "p4", "p5", "p6", "p7", "p8a", "p8b", "p8c", "p8d", "p10", "p11", "p12a", "p12b", "p12c",
+        "p13", "p14", "p15a", "p15b", "p16", "p20a", "p20b", "p20c", "p20d", "p21a", "p21b", "p21c", "p21d", "p22a", "p22b",
+        "p23a", "p23b", "p23c", "p23d", "p23e", "p24", "p25", "p26", "p27a", "p27b", "p28a", "p28b", "p28c", "p28d",
+        "p29a", "p29b", "p29c", "p30a", "p30b", "p31a", "p31b", "p34", "p36", "p37", "p38", "p39", "p42", "p43"
+    };
+
+    private static final String[] TLDS = {"com", "org", "net", "de", "co.uk", "edu", "info"};
+    private static final String[] MODIFIERS = {"", "", "", "new", "big", "small", "red", "green", "fresh", "local", "popular", "other"};
+
+    private final Random random;
+    private final int domains;
+
+    /**
+     * @param seed : the seed of the generator, the same seed gives the same documents
+     * @param domains : the number of distinct pay level domains
+     */
+    public SyntheticDocuments(long seed, int domains) {
+        this.random = new Random(seed);
+        this.domains = domains;
+    }
+
+    /**
+     * @param count : the number of documents
+     * @param modifications : the number of modifications of each document
+     * @return core tuple documents with their modifications array
+     */
+    public List<BasicDBObject> tuples(int count, int modifications) {
+        List<BasicDBObject> documents = new ArrayList<>(count);
+        for (int d = 0; d < count; d++) {
+            documents.add(tuple("instance" + d, "class" + random.nextInt(1000), modifications));
+        }
+        return documents;
+    }
+
+    /**
+     * @return a core tuple document, whose aggregated values are those of its modifications
+     */
+    public BasicDBObject tuple(String instance, String clazz, int modifications) {
+        BasicDBList list = new BasicDBList();
+        StringBuilder pids = new StringBuilder();
+        StringBuilder plds = new StringBuilder();
+        double frequency = 0;
+        for (int m = 0; m < modifications; m++) {
+            BasicDBObject modification = modification();
+            frequency += (Double) modification.get("frequency");
+            merge(pids, (String) modification.get("pids"));
+            merge(plds, (String) modification.get("plds"));
+            list.add(modification);
+        }
+        return new BasicDBObject("instance", instance).append("class", clazz)
+                .append("frequency", frequency).append("pidspread", count(pids)).append("pldspread", count(plds))
+                .append("pids", pids.toString()).append("plds", plds.toString()).append("modifications", list);
+    }
+
+    private BasicDBObject modification() {
+        int pidspread = 1 + skewed(4);
+        int pldspread = 1 + skewed(6);
+        StringBuilder provids = new StringBuilder();
+        for (int i = 0; i < pldspread; i++) {
+            provids.append(random.nextInt(400000000)).append(';');
+        }
+        return new BasicDBObject("ipremod", modifier()).append("ipostmod", random.nextInt(8) == 0 ? "of " + modifier() : "")
+                .append("cpremod", modifier()).append("cpostmod", "")
+                .append("frequency", (double) (pldspread + random.nextInt(3))).append("pidspread", pidspread).append("pldspread", pldspread)
+                .append("pids", pids(pidspread)).append("plds", plds(pldspread)).append("provids", provids.toString());
+    }
+
+    /**
+     * @return count distinct pattern ids, the first patterns being the most frequent
+     */
+    public String pids(int count) {
+        StringBuilder pids = new StringBuilder();
+        while (count(pids) < count) {
+            merge(pids, PIDS[skewed(PIDS.length)] + ";");
+        }
+        return pids.toString();
+    }
+
+    /**
+     * @return count distinct pay level domains, the first domains being the most frequent
+     */
+    public String plds(int count) {
+        StringBuilder plds = new StringBuilder();
+        while (count(plds) < count) {
+            merge(plds, pld(skewed(domains)) + ";");
+        }
+        return plds.toString();
+    }
+
+    /**
+     * @return the pay level domain of rank n
+     */
+    public static String pld(int n) {
+        return "domain" + n + "." + TLDS[n % TLDS.length];
+    }
+
+    private String modifier() {
+        return MODIFIERS[random.nextInt(MODIFIERS.length)];
+    }
+
+    /**
+     * @return a value in [0, n), small values being more frequent
+     */
+    private int skewed(int n) {
+        double u = random.nextDouble();
+        return Math.min(n - 1, (int) (n * u * u * u));
+    }
+
+    /**
+     * Appends the values of list, which are not already in values.
+     */
+    private static void merge(StringBuilder values, String list) {
+        for (String value : list.split(";")) {
+            if (!value.isEmpty() && !(";" + values).contains(";" + value + ";")) {
+                values.append(value).append(';');
+            }
+        }
+    }
+
+    private static int count(CharSequence values) {
+        int count = 0;
+        for (int i = 0; i < values.length(); i++) {
+            if (values.charAt(i) == ';') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the BSON bytes of the documents, as received from the server
+     */
+    public static byte[][] encode(List<? extends DBObject> documents) {
+        BasicBSONEncoder encoder = new BasicBSONEncoder();
+        byte[][] result = new byte[documents.size()][];
+        for (int d = 0; d < result.length; d++) {
+            result[d] = encoder.encode(documents.get(d));
+        }
+        return result;
+    }
+}
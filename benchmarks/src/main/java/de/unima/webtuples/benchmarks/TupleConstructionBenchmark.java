@@ -0,0 +1,120 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.benchmarks;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.datatypes.Tuple;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the construction of CoreTuple and Tuple from the fields of the documents, 
+ * including the encoding of the pids and plds into the codes of the dictionaries,
+ * and the formatting of the tuples by toString().
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TupleConstructionBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int modifications;
+
+    private List<BasicDBObject> documents;
+    private List<CoreTuple> coreTuples;
+    private List<Tuple> tuples;
+
+    @Setup
+    public void setUp() {
+        documents = new SyntheticDocuments(42, 10000).tuples(1000, modifications);
+        coreTuples = new ArrayList<>();
+        tuples = new ArrayList<>();
+        for (BasicDBObject document : documents) {
+            coreTuples.add(coreTuple(document));
+            tuples.addAll(tuples(document));
+        }
+    }
+
+    @Benchmark
+    public void coreTuples(Blackhole blackhole) {
+        for (BasicDBObject document : documents) {
+            blackhole.consume(coreTuple(document));
+        }
+    }
+
+    @Benchmark
+    public void tuples(Blackhole blackhole) {
+        for (BasicDBObject document : documents) {
+            blackhole.consume(tuples(document));
+        }
+    }
+
+    @Benchmark
+    public void coreTupleToString(Blackhole blackhole) {
+        for (CoreTuple tuple : coreTuples) {
+            blackhole.consume(tuple.toString());
+        }
+    }
+
+    @Benchmark
+    public void tupleToString(Blackhole blackhole) {
+        for (Tuple tuple : tuples) {
+            blackhole.consume(tuple.toString());
+        }
+    }
+
+    private static CoreTuple coreTuple(BasicDBObject document) {
+        return new CoreTuple(document.getString("instance"), document.getString("class"),
+                document.getDouble("frequency"), document.getInt("pidspread"), document.getInt("pldspread"),
+                document.getString("pids"), document.getString("plds"), "");
+    }
+
+    private static List<Tuple> tuples(BasicDBObject document) {
+        String instance = document.getString("instance");
+        String clazz = document.getString("class");
+        BasicDBList list = (BasicDBList) document.get("modifications");
+        List<Tuple> results = new ArrayList<>(list.size());
+        for (Object o : list) {
+            BasicDBObject m = (BasicDBObject) o;
+            results.add(new Tuple(instance, clazz,
+                    m.getDouble("frequency"), m.getInt("pidspread"), m.getInt("pldspread"),
+                    m.getString("ipremod"), m.getString("ipostmod"), m.getString("cpremod"), m.getString("cpostmod"),
+                    m.getString("pids"), m.getString("plds"), m.getString("provids")));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,141 @@
+package de.unima.webtuples.benchmarks;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import junit.framework.TestCase;
+
+/**
+ * Checks the collections of the generated documents, that the same seed gives the same data whatever the number of threads,
+ * and the maximum number of core tuples of an instance.
+ */
+public class SyntheticDatabaseTest extends TestCase
+{
+    public void testLayout() throws Exception
+    {
+        SyntheticDatabase data = new SyntheticDatabase(42, 2000).vocabulary(200).threads(2).batchSize(50);
+        CollectingOutput output = new CollectingOutput();
+        long generated = data.generate(output);
+        int instanceDocuments = 0;
+        int classDocuments = 0;
+        int contexts = 0;
+        int provids = 0;
+        Set<String> pairs = new HashSet<>();
+        for (Map.Entry<String, List<DBObject>> collection : output.collections.entrySet())
+        {
+            String name = collection.getKey();
+            for (DBObject document : collection.getValue())
+            {
+                if (name.startsWith("s"))
+                {
+                    contexts++;
+                    assertEquals("s" + Long.parseLong((String) document.get("provid")) / 1000000, name);
+                    continue;
+                }
+                String instance = (String) document.get("instance");
+                String clazz = (String) document.get("class");
+                if (name.startsWith("i"))
+                {
+                    instanceDocuments++;
+                    assertEquals("i" + instance.substring(0, 2), name);
+                    assertTrue(pairs.add(instance + "\t" + clazz));
+                    for (Object modification : (BasicDBList) document.get("modifications"))
+                    {
+                        provids += ((BasicDBObject) modification).getString("provids").split(";").length;
+                    }
+                }
+                else
+                {
+                    classDocuments++;
+                    assertEquals("c" + clazz.substring(0, 2), name);
+                }
+            }
+        }
+        assertEquals(generated, instanceDocuments);
+        assertEquals(instanceDocuments, classDocuments);
+        // one sentence for each provid of each modification
+        assertEquals(provids, contexts);
+        assertTrue(Math.abs(instanceDocuments - 2000) < 200);
+    }
+
+    public void testSameDataWhateverTheThreads() throws Exception
+    {
+        Map<String, List<String>> one = sorted(generate(new SyntheticDatabase(7, 1000).vocabulary(100).threads(1)));
+        Map<String, List<String>> four = sorted(generate(new SyntheticDatabase(7, 1000).vocabulary(100).threads(4).batchSize(10)));
+        assertEquals(one, four);
+        assertFalse(one.equals(sorted(generate(new SyntheticDatabase(8, 1000).vocabulary(100).threads(1)))));
+    }
+
+    public void testMaxClassesPerInstance() throws Exception
+    {
+        // rank 1 would get about 3000 of the 5000 core tuples
+        SyntheticDatabase data = new SyntheticDatabase(42, 5000).vocabulary(50).exponent(2.0).maxClassesPerInstance(20).contexts(false);
+        CollectingOutput output = new CollectingOutput();
+        long generated = data.generate(output);
+        Map<String, Integer> classes = new HashMap<>();
+        for (Map.Entry<String, List<DBObject>> collection : output.collections.entrySet())
+        {
+            if (collection.getKey().startsWith("i"))
+            {
+                for (DBObject document : collection.getValue())
+                {
+                    String instance = (String) document.get("instance");
+                    classes.put(instance, classes.containsKey(instance) ? classes.get(instance) + 1 : 1);
+                }
+            }
+        }
+        assertEquals(20, classes.get(SyntheticDatabase.lemma(0)).intValue());
+        assertTrue(Collections.max(classes.values()) <= 20);
+        assertTrue(generated < 5000);
+        assertTrue(generated <= 50 * 20);
+    }
+
+    private static Map<String, List<DBObject>> generate(SyntheticDatabase data) throws Exception
+    {
+        CollectingOutput output = new CollectingOutput();
+        data.generate(output);
+        return output.collections;
+    }
+
+    /**
+     * @return the documents of each collection as strings in a fixed order, since the threads write them in any order
+     */
+    private static Map<String, List<String>> sorted(Map<String, List<DBObject>> collections)
+    {
+        Map<String, List<String>> sorted = new TreeMap<>();
+        for (Map.Entry<String, List<DBObject>> collection : collections.entrySet())
+        {
+            List<String> documents = new ArrayList<>();
+            for (DBObject document : collection.getValue())
+            {
+                documents.add(document.toString());
+            }
+            Collections.sort(documents);
+            sorted.put(collection.getKey(), documents);
+        }
+        return sorted;
+    }
+
+    private static class CollectingOutput implements SyntheticDatabase.Output
+    {
+        final Map<String, List<DBObject>> collections = new HashMap<>();
+
+        @Override
+        public synchronized void write(String collection, List<DBObject> documents)
+        {
+            if (!collections.containsKey(collection))
+            {
+                collections.put(collection, new ArrayList<DBObject>());
+            }
+            collections.get(collection).addAll(documents);
+        }
+    }
+}
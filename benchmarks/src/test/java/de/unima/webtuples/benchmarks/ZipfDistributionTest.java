@@ -0,0 +1,72 @@
+package de.unima.webtuples.benchmarks;
+
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Compares the mean and variance of the sampled ranks with the moments of the distribution given by probability().
+ */
+public class ZipfDistributionTest extends TestCase
+{
+    private static final int SAMPLES = 200000;
+
+    public void testMoments()
+    {
+        checkMoments(new ZipfDistribution(100, 1.0));
+        checkMoments(new ZipfDistribution(1000, 1.2));
+        checkMoments(new ZipfDistribution(50, 2.0));
+    }
+
+    public void testUniform()
+    {
+        ZipfDistribution uniform = new ZipfDistribution(100, 0);
+        assertEquals(0.01, uniform.probability(1), 1e-12);
+        assertEquals(0.01, uniform.probability(100), 1e-12);
+        checkMoments(uniform);
+    }
+
+    public void testFirstRank()
+    {
+        ZipfDistribution zipf = new ZipfDistribution(10000, 1.0);
+        Random random = new Random(42);
+        int first = 0;
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            int rank = zipf.sample(random);
+            assertTrue(rank >= 1 && rank <= 10000);
+            first += rank == 1 ? 1 : 0;
+        }
+        assertEquals(zipf.probability(1), first / (double) SAMPLES, 0.005);
+    }
+
+    private static void checkMoments(ZipfDistribution zipf)
+    {
+        double mean = 0;
+        double square = 0;
+        double total = 0;
+        for (int k = 1; k <= zipf.getN(); k++)
+        {
+            double p = zipf.probability(k);
+            total += p;
+            mean += k * p;
+            square += (double) k * k * p;
+        }
+        assertEquals(1.0, total, 1e-9);
+        double variance = square - mean * mean;
+
+        Random random = new Random(42);
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            int rank = zipf.sample(random);
+            sum += rank;
+            sumOfSquares += (double) rank * rank;
+        }
+        double sampleMean = sum / SAMPLES;
+        double sampleVariance = sumOfSquares / SAMPLES - sampleMean * sampleMean;
+        // five standard errors of the mean
+        assertEquals(mean, sampleMean, 5 * Math.sqrt(variance / SAMPLES));
+        assertEquals(variance, sampleVariance, 0.05 * variance);
+    }
+}
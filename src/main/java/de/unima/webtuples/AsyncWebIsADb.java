@@ -0,0 +1,289 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples;
+
+import de.unima.webtuples.datatypes.Context;
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.datatypes.Tuple;
+import de.unima.webtuples.queries.ResultIterator;
+import de.unima.webtuples.queries.ResultPublisher;
+import de.unima.webtuples.queries.ResultStreams;
+import de.unima.webtuples.queries.TupleFilter;
+import de.unima.webtuples.store.TupleStore;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.reactivestreams.Publisher;
+
+/**
+ * This class is the asynchronous facade of a TupleStore: the lookups return CompletableFutures 
+ * and the scans return Reactive Streams Publishers, so that the callers do not wait on the database cursors.
+ * The blocking reads of the store run on an executor, by default on virtual threads when the JVM supports them 
+ * (Java 21 and later), otherwise on a pool of daemon threads.
+ * Lookups depending on each other are composed with thenCompose, e.g. the contexts of the tuples of an instance:
+ * async.getTuplesWhereInstanceLemma("apple", false).thenCompose(tuples -> async.getContextsOf(tuples, 10)).
+ * 
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class AsyncWebIsADb
+{
+    private final TupleStore store;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+
+    /**
+     * Runs the queries on the default executor, which is shut down by close().
+     * The store is not closed by close().
+     * @param store : the backend answering the queries
+     */
+    public AsyncWebIsADb(TupleStore store)
+    {
+        this(store, defaultExecutor(), true);
+    }
+
+    /**
+     * @param store : the backend answering the queries
+     * @param executor : runs the blocking reads of the store, it is not shut down by close()
+     */
+    public AsyncWebIsADb(TupleStore store, ExecutorService executor)
+    {
+        this(store, executor, false);
+    }
+
+    private AsyncWebIsADb(TupleStore store, ExecutorService executor, boolean ownExecutor)
+    {
+        this.store = store;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * @return an executor starting a virtual thread for each task on Java 21 and later, 
+     * 		otherwise a cached pool of daemon threads
+     */
+    static ExecutorService defaultExecutor()
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "webisadb-async");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+    }
+
+    public TupleStore getStore()
+    {
+        return store;
+    }
+
+    public ExecutorService getExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * @see WebIsADb#getCoreTuplesWhere
+     * @return the matching core tuples
+     */
+    public CompletableFuture<List<CoreTuple>> getCoreTuplesWhere(String instance, String clazz,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict)
+    {
+        return collectLists(() -> store.getCoreTuplesWhere(instance, clazz, pids, plds, minFrequency, maxFrequency,
+                minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict));
+    }
+
+    /**
+     * @see WebIsADb#getTuplesWhere
+     * @return the matching tuples
+     */
+    public CompletableFuture<List<Tuple>> getTuplesWhere(String instanceHead, String clazzHead,
+            String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict)
+    {
+        return collectLists(() -> store.getTuplesWhere(instanceHead, clazzHead, iPreModifier, iPostModifier, cPreModifier, cPostModifier,
+                pids, plds, minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict));
+    }
+
+    /**
+     * @see WebIsADb#getTuplesWhereInstanceLemma
+     * @return all the tuples of the instance
+     */
+    public CompletableFuture<List<Tuple>> getTuplesWhereInstanceLemma(String instanceHead, boolean strict)
+    {
+        return getTuplesWhere(instanceHead, "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, strict);
+    }
+
+    /**
+     * @see WebIsADb#getTuplesWhereInstanceLemmas(Collection)
+     * @return the tuples of each instance in the order of instanceHeads
+     */
+    public CompletableFuture<Map<String, List<Tuple>>> getTuplesWhereInstanceLemmas(Collection<String> instanceHeads)
+    {
+        return CompletableFuture.supplyAsync(() -> store.getTuplesWhereInstanceLemmas(instanceHeads), executor);
+    }
+
+    /**
+     * @see WebIsADb#getAncestors
+     * @return the classes reached from instance and their distance
+     */
+    public CompletableFuture<Map<String, Integer>> getAncestors(String instance, int maxDepth, TupleFilter filter)
+    {
+        return CompletableFuture.supplyAsync(() -> store.getAncestors(instance, maxDepth, filter), executor);
+    }
+
+    /**
+     * @see WebIsADb#getDescendants
+     * @return the instances reached from clazz and their distance
+     */
+    public CompletableFuture<Map<String, Integer>> getDescendants(String clazz, int maxDepth, TupleFilter filter)
+    {
+        return CompletableFuture.supplyAsync(() -> store.getDescendants(clazz, maxDepth, filter), executor);
+    }
+
+    /**
+     * @see WebIsADb#getContextWithProvid
+     * @return the contexts of the provid
+     */
+    public CompletableFuture<List<Context>> getContextWithProvid(String provid)
+    {
+        return collect(() -> store.getContextWithProvid(provid));
+    }
+
+    /**
+     * @see WebIsADb#getMultipleContextsWithProvid(Set, int)
+     * @return up to limit contexts of the provids, all the contexts of the database if provids is empty
+     */
+    public CompletableFuture<List<Context>> getMultipleContextsWithProvid(Set<String> provids, int limit)
+    {
+        return collect(() -> store.getMultipleContextsWithProvid(provids, limit));
+    }
+
+    /**
+     * Context lookup of the provids of the given tuples, to be composed with the tuple lookups.
+     * @param tuples : e.g. the result of getTuplesWhere
+     * @param limit : the maximum number of contexts, 0 means no limits
+     * @return the contexts of the tuples, an empty list if the tuples have no provids
+     */
+    public CompletableFuture<List<Context>> getContextsOf(Collection<? extends CoreTuple> tuples, int limit)
+    {
+        Set<String> provids = new LinkedHashSet<>();
+        for (CoreTuple tuple : tuples)
+        {
+            if (tuple.getProvids() == null) continue;
+            for (String provid : tuple.getProvids().split(";"))
+            {
+                if (!provid.isEmpty()) provids.add(provid);
+            }
+        }
+        if (provids.isEmpty())
+        {
+            return CompletableFuture.completedFuture(Collections.<Context>emptyList());
+        }
+        return getMultipleContextsWithProvid(provids, limit);
+    }
+
+    /**
+     * Full scan: the lists of tuples of the core tuples, read as far as the subscribers request them.
+     * @see WebIsADb#getAllTuples()
+     */
+    public Publisher<List<Tuple>> publishAllTuples()
+    {
+        return new ResultPublisher<List<Tuple>>(store::getAllTuples, executor);
+    }
+
+    /**
+     * Modification lookup publishing the tuples of each core tuple, read as far as the subscribers request them.
+     * @see WebIsADb#getTuplesWhere
+     */
+    public Publisher<List<Tuple>> publishTuplesWhere(String instanceHead, String clazzHead,
+            String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict)
+    {
+        return new ResultPublisher<List<Tuple>>(() -> store.getTuplesWhere(instanceHead, clazzHead, iPreModifier, iPostModifier,
+                cPreModifier, cPostModifier, pids, plds, minFrequency, maxFrequency, minPidSpread, maxPidSpread,
+                minPldSpread, maxPldSpread, strict), executor);
+    }
+
+    /**
+     * Core lookup publishing the matching core tuples, read as far as the subscribers request them.
+     * @see WebIsADb#getCoreTuplesWhere
+     */
+    public Publisher<List<? extends CoreTuple>> publishCoreTuplesWhere(String instance, String clazz,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict)
+    {
+        return new ResultPublisher<List<? extends CoreTuple>>(() -> store.getCoreTuplesWhere(instance, clazz, pids, plds,
+                minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict), executor);
+    }
+
+    /**
+     * Shuts down the default executor. The store is not closed.
+     */
+    public void close()
+    {
+        if (ownExecutor) executor.shutdown();
+    }
+
+    /**
+     * Reads all the results of an iterator on the executor.
+     */
+    private <T> CompletableFuture<List<T>> collect(Supplier<? extends ResultIterator<T>> opener)
+    {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Stream<T> results = ResultStreams.stream(opener.get()))
+            {
+                return results.collect(Collectors.toList());
+            }
+        }, executor);
+    }
+
+    /**
+     * Reads all the results of an iterator on the executor, flattening the lists.
+     */
+    private <T> CompletableFuture<List<T>> collectLists(Supplier<? extends ResultIterator<? extends List<? extends T>>> opener)
+    {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Stream<T> results = ResultStreams.<T>flatStream(opener.get()))
+            {
+                return results.collect(Collectors.toList());
+            }
+        }, executor);
+    }
+}
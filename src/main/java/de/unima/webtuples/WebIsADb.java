@@ -23,22 +23,36 @@
 
 package de.unima.webtuples;
 
-import com.mongodb.DB;
-import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ReadPreference;
+import com.mongodb.ServerAddress;
 import de.unima.webtuples.datatypes.Context;
+import de.unima.webtuples.datatypes.CoreTuple;
 import de.unima.webtuples.datatypes.Tuple;
-import de.unima.webtuples.queries.CoreTupleQueryResultIterator;
-import de.unima.webtuples.queries.TupleQueryResultIterator;
-import de.unima.webtuples.queries.AllTuplesResultIterator;
-import de.unima.webtuples.queries.ContextResultIterator;
-import de.unima.webtuples.queries.MultipleContextsResultIterator;
+import de.unima.webtuples.queries.QueryMetrics;
+import de.unima.webtuples.queries.ResultIterator;
+import de.unima.webtuples.queries.TupleFilter;
+import de.unima.webtuples.store.CachingTupleStore;
+import de.unima.webtuples.store.MongoTupleStore;
+import de.unima.webtuples.store.TupleStore;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
  * This class sets the connection to the mongodb instances. 
- * The class follows the singleton pattern. Therefore only one instance of this class can be instantiated.
+ * The singleton instance returned by getInstance() connects to the MongoDB instances below.
  * Additionally this class provides methods to query the isa database.
+ * The queries are answered by a TupleStore: by default the MongoDB instances below (MongoTupleStore),
+ * an instance on another store (e.g. an InMemoryTupleStore) can be created with WebIsADb(TupleStore).
+ * Clients with their own hosts and connection pools are created with a WebIsADb.Builder.
  * 
  * @author Julian Seitener, Nacho Vidal and Stefano Faralli
  *
@@ -60,41 +74,151 @@ public class WebIsADb
     public final static int dbPort_contexts_instance=27017;   
     
     // following the singelton pattern this is the reference to the unique static instance of the class
-    public static WebIsADb instance=null;
+    public static volatile WebIsADb instance=null;
     
-    // reference to the MongoDB API to connect to the tuples instance:
-    private static DB mongoDb_tuples_instance = null;
-    private static MongoClient mongoClient_tuples_instance = null;
+    // the backend answering the queries
+    private final TupleStore store;
+    // true if the store was opened by the Builder and is closed by shutdown()
+    private final boolean ownStore;
     
-    // reference to the MongoDB API to connect to the contexts instance:
-    private static DB mongoDb_contexts_instance = null;
-    private static MongoClient mongoClient_contexts_instance = null;
+    /**
+     * Creates a WebIsADb querying the given store, independently of the singleton instance.
+     * The store is not closed by WebIsADb.close(), the caller has to close it.
+     * @param store : the backend answering the queries, e.g. an InMemoryTupleStore, 
+     * 		or a CachingTupleStore to keep the results of repeated lookups in memory
+     */
+    public WebIsADb(TupleStore store)
+    {
+        this(store, false);
+    }
     
+    private WebIsADb(TupleStore store, boolean ownStore)
+    {
+        this.store = store;
+        this.ownStore = ownStore;
+    }
     
+    /**
+     * @return the backend answering the queries
+     */
+    public TupleStore getStore()
+    {
+        return store;
+    }
     
-    /* singleton pattern for contructor*/
-    private WebIsADb()
+    /**
+     * Reads again the names of the collections, which are read once and then shared by all the queries.
+     * Call it after collections were added to or removed from the databases. Stores other than MongoTupleStore have no collections.
+     */
+    public void refreshCollections()
     {
-        // open the connection to the MongoDb instance for the tuples 
-        mongoClient_tuples_instance = new MongoClient(tuplesDbUrl, dbPort_tuples_instance);
-    	mongoDb_tuples_instance = mongoClient_tuples_instance.getDB(tuplesDbName);
-        
-        // open the connection to the MongoDb instance for the contexts 
-        mongoClient_contexts_instance = new MongoClient(contextsDbUrl, dbPort_contexts_instance);
-    	mongoDb_contexts_instance = mongoClient_contexts_instance.getDB(contextsDbName);
+        if (mongoStore() != null) mongoStore().refreshCatalogs();
+    }
+    
+    /**
+     * Reads again the names of the collections every period, until the store is closed.
+     * @see #refreshCollections()
+     */
+    public void startRefreshingCollections(long period, TimeUnit unit)
+    {
+        if (mongoStore() != null) mongoStore().startRefreshingCatalogs(period, unit);
+    }
+    
+    /**
+     * @return the statistics of the queries sent to MongoDB by this client, e.g. to register them as MBeans, 
+     * 		null if the store is not a MongoTupleStore
+     */
+    public QueryMetrics getQueryMetrics()
+    {
+        return mongoStore() != null ? mongoStore().getQueryMetrics() : null;
+    }
+    
+    /**
+     * @return the reason why the last check of the replication lag failed, null if it succeeded, 
+     * 		if the staleness is not bounded or if the store is not a MongoTupleStore
+     * @see Builder#maxStaleness(long, TimeUnit)
+     */
+    public RuntimeException getStalenessFailure()
+    {
+        return mongoStore() != null ? mongoStore().getStalenessFailure() : null;
+    }
+    
+    /**
+     * @return the MongoTupleStore answering the full scans, also behind a CachingTupleStore, null for other stores
+     */
+    private MongoTupleStore mongoStore()
+    {
+        TupleStore backend = store instanceof CachingTupleStore ? ((CachingTupleStore) store).getStore() : store;
+        return backend instanceof MongoTupleStore ? (MongoTupleStore) backend : null;
     }
     
     /**
      * This method will return an Iterator, to iterate through all the tuples.
      * For this purpose every single entry of all the instance tables, which start with i, is returned.
-     * @return an instance of AllTuplesResultIterator, to iterate through all the tuples
+     * @return an iterator through all the tuples
      * @throws java.lang.Exception
      */
-    public AllTuplesResultIterator getAllTuples() throws Exception
+    public ResultIterator<List<Tuple>> getAllTuples() throws Exception
     {
-
-    	AllTuplesResultIterator qri=new AllTuplesResultIterator(mongoDb_tuples_instance,"i");
-    	return qri;
+    	return store.getAllTuples();
+    }
+    
+    /**
+     * Same as getAllTuples(), but the tuples are instances of LazyTuple: only the lemmas are decoded up front,
+     * the other fields are parsed from the raw documents on first access. 
+     * This is cheaper for scans reading only a few fields, e.g. the lemmas and the frequency.
+     * Stores other than MongoTupleStore return getAllTuples().
+     * @return an iterator through all the tuples
+     * @throws java.lang.Exception
+     */
+    public ResultIterator<List<Tuple>> getAllLazyTuples() throws Exception
+    {
+    	if (mongoStore() != null) return mongoStore().getAllLazyTuples();
+    	return store.getAllTuples();
+    }
+    
+    /**
+     * This method will return an Iterator, to iterate through all the tuples reading several instance tables at the same time.
+     * The tables are read and decoded by parallelism threads, which are stopped when the iterator is exhausted or closed.
+     * @param parallelism the number of tables read at the same time
+     * @param ordered if true, the tuples are returned in the same order as getAllTuples(), 
+     * 		otherwise in the order they are decoded, which is faster
+     * Stores other than MongoTupleStore ignore the parameters and return getAllTuples().
+     * @return an iterator through all the tuples
+     * @throws java.lang.Exception
+     */
+    public ResultIterator<List<Tuple>> getAllTuples(int parallelism, boolean ordered) throws Exception
+    {
+    	if (mongoStore() != null) return mongoStore().getAllTuples(parallelism, ordered);
+    	return store.getAllTuples();
+    }
+    
+    /**
+     * Same as getAllTuples(int, boolean), but the tables are read by the tasks of the given executor.
+     * @param executor the executor running the tasks, it is not shut down by the iterator. It needs at least parallelism free threads,
+     * 		otherwise the bounded queues of the tasks can block the iterator forever
+     * @param parallelism the number of tables read at the same time
+     * @param queueCapacity the number of documents, which can be decoded ahead of the consumer
+     * @param ordered if true, the tuples are returned in the same order as getAllTuples()
+     * @return an iterator through all the tuples
+     * @throws java.lang.Exception
+     */
+    public ResultIterator<List<Tuple>> getAllTuples(ExecutorService executor, int parallelism, int queueCapacity, boolean ordered) throws Exception
+    {
+    	if (mongoStore() != null) return mongoStore().getAllTuples(executor, parallelism, queueCapacity, ordered);
+    	return store.getAllTuples();
+    }
+    
+    /**
+     * This method will return an Iterator, to iterate through all the core tuples.
+     * Only the aggregated values of each core tuple are transferred, without its modifications. 
+     * This is much cheaper than getAllTuples() when the premodifiers and postmodifiers are not needed.
+     * @return an iterator through all the core tuples
+     * @throws java.lang.Exception
+     */
+    public ResultIterator<List<? extends CoreTuple>> getAllCoreTuples() throws Exception
+    {
+    	return store.getCoreTuplesWhere("*", "*", null, null, 0, 0, 0, 0, 0, 0, false);
     }
     
     /**
@@ -102,38 +226,49 @@ public class WebIsADb
      * For this purpose every single entry of all the instance tables, which start with i, is returned.
      * @param provids a set of context id
      * @param limit a parameter to limit the number of results. 0 means no limits.
-     * @return an instance of MultipleContextsResultIterator, to iterate through all the requested contexts
+     * @return an iterator through all the requested contexts
      * @throws java.lang.Exception
      */
     
-    public MultipleContextsResultIterator getMultipleContextsWithProvid(Set<String>  provids, int limit)  throws Exception
+    public ResultIterator<Context> getMultipleContextsWithProvid(Set<String>  provids, int limit)  throws Exception
     {
-    	MultipleContextsResultIterator sri = new MultipleContextsResultIterator(provids, mongoDb_contexts_instance,limit);
-    	return sri;
+    	return store.getMultipleContextsWithProvid(provids, limit);
+    }
     
+    /**
+     * Same as getMultipleContextsWithProvid(Set, int), but the sentence collections of the provids are queried 
+     * at the same time by the tasks of the given executor.
+     * Stores other than MongoTupleStore ignore the executor. Behind a CachingTupleStore the MongoTupleStore is queried directly,
+     * without the context cache.
+     * @param executor the executor running the queries, it is not shut down by the iterator
+     * @return an iterator through all the requested contexts
+     * @throws java.lang.Exception
+     */
+    public ResultIterator<Context> getMultipleContextsWithProvid(Set<String>  provids, int limit, ExecutorService executor)  throws Exception
+    {
+    	if (mongoStore() != null) return mongoStore().getMultipleContextsWithProvid(provids, limit, executor);
+    	return store.getMultipleContextsWithProvid(provids, limit);
     }
       /**
      * This method will return an Iterator, to iterate through all the contexts corresponding to the context ids in provids.
      * For this purpose every single entry of all the instance tables, which start with i, is returned.
      * @param provids a set of context id
-     * @return an instance of MultipleContextsResultIterator, to iterate through all the requested contexts
+     * @return an iterator through all the requested contexts
      * @throws java.lang.Exception
      */
-    public MultipleContextsResultIterator getMultipleSentenceWithProvid(Set<String>  provids)  throws Exception
+    public ResultIterator<Context> getMultipleSentenceWithProvid(Set<String>  provids)  throws Exception
     {
-    	MultipleContextsResultIterator sri = new MultipleContextsResultIterator(provids, mongoDb_contexts_instance,0);
-    	return sri;
+    	return store.getMultipleContextsWithProvid(provids, 0);
     }
     /**
      * This method will return an Iterator, to iterate through all the contexts corresponding to the context id provid.
      * @param provid : Is the id of a context. 	The context ID is used to keep the relation between a tuple and the context of the extraction.      
-     * @return a ContextResultIterator instance to iterate through all the contexts corresponding to the context id provid.
+     * @return an iterator through all the contexts corresponding to the context id provid.
      * @throws java.lang.Exception
      */
-    public ContextResultIterator getContextWithProvid(String provid)  throws Exception
+    public ResultIterator<Context> getContextWithProvid(String provid)  throws Exception
     {
-    	ContextResultIterator sri = new ContextResultIterator(provid, mongoDb_contexts_instance);
-    	return sri;
+    	return store.getContextWithProvid(provid);
     }
     /**
      * This method return TupleQueryResultIterator, to iterate through all the tuple that match the specified parameters.
@@ -156,6 +291,7 @@ public class WebIsADb
      * 		Examples: "from portugal", "*", ""
      * @param pids : Refers to list of pattern IDs. Only if one of the pattern IDs is found in an tuple, it can be returned as result.
      * 		If every pattern ID should be allowed, pass an null value pids.
+     * 		A pattern ID has to be a whole entry of the list of the tuple: "p1" does not match "p21", the same holds for plds.
      * 		Example: ["p1","p2"], null
      * @param plds : Refers to list of pay level domains IDs. Only if one of the pay level domains is found in an tuple, it can be returned as result.
      * 		If every pay level domain should be allowed, pass an null value plds.
@@ -185,17 +321,39 @@ public class WebIsADb
      * @param strict : This parameter is used to process the pids and plds lists. 
      * 		Value true: Each single pid in pids and each single pld in plds has to be present in a Tuple
      * 		Value false: Only one pid of the pids and only one pld of the plds has to be present in a Tuple
-     * @return a TupleQueryResultIterator, to iterate through all the tuple that match the specified parameters
+     * @return an iterator through all the tuple that match the specified parameters
      * @throws java.lang.Exception
      */
-    public TupleQueryResultIterator getTuplesWhere(String instanceHead, String clazzHead, String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+    public ResultIterator<List<Tuple>> getTuplesWhere(String instanceHead, String clazzHead, String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
     		String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread, 
     		int minPldSpread, int maxPldSpread, boolean strict) throws Exception
     {
-
-       TupleQueryResultIterator fuqri=new TupleQueryResultIterator(instanceHead,clazzHead,mongoDb_tuples_instance, iPreModifier, iPostModifier, cPreModifier, cPostModifier, pids, plds, minFrequency,
+       return store.getTuplesWhere(instanceHead, clazzHead, iPreModifier, iPostModifier, cPreModifier, cPostModifier, pids, plds, minFrequency,
+    		   maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
+    }
+    
+    /**
+     * Same as getTuplesWhere, but optionally lets the server filter the modifications of each core tuple.
+     * @param aggregate : If true, an aggregation pipeline ($match and $unwind on the modifications) is used 
+     * 		and only the matching modifications are transferred. This is much faster for core tuples with thousands of modifications.
+     * 		If false, the whole modifications array is transferred and filtered by the client, as in getTuplesWhere.
+     * 		Stores other than MongoTupleStore ignore this parameter. Behind a CachingTupleStore the MongoTupleStore is queried directly,
+     * 		without the cache.
+     * @return an iterator through all the tuple that match the specified parameters
+     * @throws java.lang.Exception
+     * @see #getTuplesWhere(String, String, String, String, String, String, String[], String[], double, double, int, int, int, int, boolean)
+     */
+    public ResultIterator<List<Tuple>> getTuplesWhere(String instanceHead, String clazzHead, String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+    		String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread, 
+    		int minPldSpread, int maxPldSpread, boolean strict, boolean aggregate) throws Exception
+    {
+       if (mongoStore() != null) 
+       {
+    	   return mongoStore().getTuplesWhere(instanceHead, clazzHead, iPreModifier, iPostModifier, cPreModifier, cPostModifier, pids, plds, minFrequency,
+    			   maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict, aggregate);
+       }
+       return getTuplesWhere(instanceHead, clazzHead, iPreModifier, iPostModifier, cPreModifier, cPostModifier, pids, plds, minFrequency,
     		   maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
-       return fuqri;
     }
     
     /**
@@ -203,18 +361,40 @@ public class WebIsADb
      * @param instanceHead : Refers to the core noun of the instance of a tuple. It consists of exactly one word.
      * 		Examples: "apple", "germany"
      * @param strict
-     * @return TupleQueryResultIterator, to iterate through all the tuple that match the instance string value.
+     * @return an iterator through all the tuple that match the instance string value.
      * @throws Exception
      */
-    public TupleQueryResultIterator getTuplesWhereInstanceLemma(String instanceHead, boolean strict) throws Exception
+    public ResultIterator<List<Tuple>> getTuplesWhereInstanceLemma(String instanceHead, boolean strict) throws Exception
     {
-        TupleQueryResultIterator fuqri=new TupleQueryResultIterator(instanceHead,"*",mongoDb_tuples_instance, "*", "*", "*", "*", null, null, 0,
+       return store.getTuplesWhere(instanceHead, "*", "*", "*", "*", "*", null, null, 0,
     		 0, 0, 0, 0, 0, strict);
-       return fuqri;
     }
     
     
     
+    /**
+     * Bulk version of getTuplesWhereInstanceLemma: returns all the tuples of many instances at once.
+     * With MongoTupleStore the instances are grouped by their collection and each collection is queried once.
+     * @param instanceHeads : the instances, e.g. "apple", "germany". Duplicates are looked up once
+     * @return the tuples of each instance in the order of instanceHeads, an empty list for the instances without tuples
+     */
+    public Map<String, List<Tuple>> getTuplesWhereInstanceLemmas(Collection<String> instanceHeads)
+    {
+       return store.getTuplesWhereInstanceLemmas(instanceHeads);
+    }
+
+    /**
+     * Same as getTuplesWhereInstanceLemmas(Collection), but the collections are queried at the same time 
+     * by the tasks of the given executor. Stores other than MongoTupleStore ignore the executor,
+     * behind a CachingTupleStore the MongoTupleStore is queried directly.
+     * @param executor the executor running the queries, it is not shut down
+     */
+    public Map<String, List<Tuple>> getTuplesWhereInstanceLemmas(Collection<String> instanceHeads, ExecutorService executor)
+    {
+       if (mongoStore() != null) return mongoStore().getTuplesWhereInstanceLemmas(instanceHeads, executor);
+       return store.getTuplesWhereInstanceLemmas(instanceHeads);
+    }
+    
     /**
      * Similar to getTuplesWhere this method return a CoreTupleQueryResultIterator iterate through result of a query on the "core" index of the tuples.
      * the core index is meant a groped collection of tuples which share the same instance value and class value.
@@ -225,6 +405,7 @@ public class WebIsADb
      * 		Examples: "fruit", "country"
      * @param pids : Refers to list of pattern IDs. Only if one of the pattern IDs is found in an tuple, it can be returned as result.
      * 		If every pattern ID should be allowed, pass an null value pids.
+     * 		A pattern ID has to be a whole entry of the list of the tuple: "p1" does not match "p21", the same holds for plds.
      * 		Example: ["p1","p2"], null
      * @param plds : Refers to list of pay level domains IDs. Only if one of the pay level domains is found in an tuple, it can be returned as result.
      * 		If every pay level domain should be allowed, pass an null value plds.
@@ -257,14 +438,77 @@ public class WebIsADb
      * @return a Tuple Iterator, which contains tuples, that match the specified parameters
      * @throws java.lang.Exception
      */
-    public CoreTupleQueryResultIterator getCoreTuplesWhere(String instance, String clazz,
+    public ResultIterator<List<? extends CoreTuple>> getCoreTuplesWhere(String instance, String clazz,
     		String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread, 
     		int minPldSpread, int maxPldSpread, boolean strict) throws Exception
     {
-    	
-    	CoreTupleQueryResultIterator cqri =new CoreTupleQueryResultIterator(instance,clazz,mongoDb_tuples_instance, pids, plds, minFrequency,
+       return store.getCoreTuplesWhere(instance, clazz, pids, plds, minFrequency,
+    		   maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
+    }
+    
+    /**
+     * Transitive hypernym lookup: the classes of instance, the classes of those classes and so on.
+     * With a MongoTupleStore each level of the walk is expanded with a single query per instance collection,
+     * and the closures are memoized across calls.
+     * @param instance : the lemma where the walk starts, Example: "apple"
+     * @param maxDepth : the maximum number of is-a steps, 1 returns the direct classes only
+     * @param filter : the core tuples to follow, e.g. new TupleFilter(null, null, 5, 0, 2, 0, 0, 0, false)
+     * 		follows only the tuples with a frequency of at least 5 and at least 2 distinct patterns. null follows all the tuples
+     * @return the classes reached from instance and their distance, ordered by distance, Example: {fruit=1, food=2}
+     */
+    public Map<String, Integer> getAncestors(String instance, int maxDepth, TupleFilter filter)
+    {
+       return store.getAncestors(instance, maxDepth, filter);
+    }
+    
+    /**
+     * Transitive hyponym lookup: the instances of clazz, the instances of those instances and so on, 
+     * walking the class collections downwards.
+     * @return the instances reached from clazz and their distance, ordered by distance
+     * @see #getAncestors(String, int, TupleFilter)
+     */
+    public Map<String, Integer> getDescendants(String clazz, int maxDepth, TupleFilter filter)
+    {
+       return store.getDescendants(clazz, maxDepth, filter);
+    }
+    
+    /**
+     * Same as getAllTuples(), as a stream of single tuples. 
+     * With a MongoTupleStore, parallel() reads distinct instance tables on different threads.
+     * Close the stream (e.g. with try-with-resources) if it is not consumed completely.
+     * @return a stream of all the tuples
+     */
+    public Stream<Tuple> streamAllTuples()
+    {
+    	return store.streamAllTuples();
+    }
+    
+    /**
+     * Same as getTuplesWhere, as a stream of single tuples: the core tuples without matching modifications are skipped.
+     * Close the stream (e.g. with try-with-resources) if it is not consumed completely.
+     * @return a stream of the tuples that match the specified parameters
+     * @see #getTuplesWhere(String, String, String, String, String, String, String[], String[], double, double, int, int, int, int, boolean)
+     */
+    public Stream<Tuple> streamTuplesWhere(String instanceHead, String clazzHead, String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+    		String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread, 
+    		int minPldSpread, int maxPldSpread, boolean strict)
+    {
+       return store.streamTuplesWhere(instanceHead, clazzHead, iPreModifier, iPostModifier, cPreModifier, cPostModifier, pids, plds, minFrequency,
+    		   maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
+    }
+    
+    /**
+     * Same as getCoreTuplesWhere, as a stream of single core tuples.
+     * Close the stream (e.g. with try-with-resources) if it is not consumed completely.
+     * @return a stream of the core tuples that match the specified parameters
+     * @see #getCoreTuplesWhere(String, String, String[], String[], double, double, int, int, int, int, boolean)
+     */
+    public Stream<CoreTuple> streamCoreTuplesWhere(String instance, String clazz,
+    		String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread, 
+    		int minPldSpread, int maxPldSpread, boolean strict)
+    {
+       return store.streamCoreTuplesWhere(instance, clazz, pids, plds, minFrequency,
     		   maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
-       return cqri;
     }
     
     /**
@@ -273,20 +517,252 @@ public class WebIsADb
      */
     public static WebIsADb getInstance()
     {
-        if (instance==null) instance=new WebIsADb();
-        return instance;
+        WebIsADb result = instance;
+        if (result == null)
+        {
+            synchronized (WebIsADb.class)
+            {
+                result = instance;
+                // open the connections to the MongoDb instances for the tuples and the contexts
+                if (result == null) instance = result = new Builder().build();
+            }
+        }
+        return result;
     }              
     /**
-     * Close all the connection to MongoDBs
+     * Close all the connection to MongoDBs of the singleton instance
      */
-    public static void close()
+    public static synchronized void close()
     {
-        if (mongoClient_tuples_instance!=null) mongoClient_tuples_instance.close();
-        if (mongoClient_contexts_instance!=null) mongoClient_contexts_instance.close();
-        mongoClient_tuples_instance=null;
-        mongoClient_contexts_instance=null;
+        if (instance!=null) instance.store.close();
         instance=null;
     }
+    
+    /**
+     * Closes the connections of an instance created by a Builder. 
+     * The store of an instance created with WebIsADb(TupleStore) is not closed.
+     */
+    public void shutdown()
+    {
+        if (ownStore) store.close();
+    }
+    
+    /**
+     * This class configures a WebIsADb client owning its connections, instead of the singleton instance.
+     * The clients are thread safe and independent of each other: each one has its own connection pools 
+     * (one for the tuples instance and one for the contexts instance), closed by shutdown().
+     * The instances can be replica sets, read with their own read preference, and the full scans can be routed 
+     * to other members than the lookups.
+     * By default the hosts, ports and database names are the constants of WebIsADb, the pools 
+     * have the defaults of the MongoDB driver and all the reads go to the primary.
+     */
+    public static class Builder
+    {
+        private List<ServerAddress> tuplesSeeds = Collections.singletonList(new ServerAddress(tuplesDbUrl, dbPort_tuples_instance));
+        private String tuplesName = tuplesDbName;
+        private List<ServerAddress> contextsSeeds = Collections.singletonList(new ServerAddress(contextsDbUrl, dbPort_contexts_instance));
+        private String contextsName = contextsDbName;
+        private final MongoClientOptions.Builder options = MongoClientOptions.builder();
+        private ReadPreference tuplesReadPreference = ReadPreference.primary();
+        private ReadPreference contextsReadPreference = ReadPreference.primary();
+        private ReadPreference scanReadPreference;
+        private long maxStalenessMillis = 0;
+        
+        /**
+         * @param host : the host of the MongoDB tuples instance
+         * @param port : its port, e.g. 27017
+         * @param dbName : the database of the tuples, e.g. "tuplesdb"
+         */
+        public Builder tuples(String host, int port, String dbName)
+        {
+            return tuplesReplicaSet(Collections.singletonList(new ServerAddress(host, port)), dbName);
+        }
+        
+        /**
+         * @param seeds : members of the replica set of the tuples, the driver discovers the others
+         * @param dbName : the database of the tuples, e.g. "tuplesdb"
+         */
+        public Builder tuplesReplicaSet(List<ServerAddress> seeds, String dbName)
+        {
+            this.tuplesSeeds = new ArrayList<>(seeds);
+            this.tuplesName = dbName;
+            return this;
+        }
+        
+        /**
+         * @param host : the host of the MongoDB contexts instance
+         * @param port : its port, e.g. 27017
+         * @param dbName : the database of the contexts, e.g. "sentencesdb"
+         */
+        public Builder contexts(String host, int port, String dbName)
+        {
+            return contextsReplicaSet(Collections.singletonList(new ServerAddress(host, port)), dbName);
+        }
+        
+        /**
+         * @param seeds : members of the replica set of the contexts, the driver discovers the others
+         * @param dbName : the database of the contexts, e.g. "sentencesdb"
+         */
+        public Builder contextsReplicaSet(List<ServerAddress> seeds, String dbName)
+        {
+            this.contextsSeeds = new ArrayList<>(seeds);
+            this.contextsName = dbName;
+            return this;
+        }
+        
+        /**
+         * @param readPreference : where the lookups on the tuples are read, e.g. ReadPreference.secondaryPreferred() 
+         * 		or ReadPreference.nearest(). The default is the primary
+         */
+        public Builder tuplesReadPreference(ReadPreference readPreference)
+        {
+            this.tuplesReadPreference = readPreference;
+            return this;
+        }
+        
+        /**
+         * @param readPreference : where the lookups on the contexts are read. The default is the primary
+         */
+        public Builder contextsReadPreference(ReadPreference readPreference)
+        {
+            this.contextsReadPreference = readPreference;
+            return this;
+        }
+        
+        /**
+         * @param readPreference : where the full scans of the tuples are read, e.g. secondaries tagged for the analytics
+         * 		with ReadPreference.secondary(new TagSet(new Tag("workload", "scan"))). 
+         * 		By default they are read as the lookups
+         */
+        public Builder scanReadPreference(ReadPreference readPreference)
+        {
+            this.scanReadPreference = readPreference;
+            return this;
+        }
+        
+        /**
+         * Bounds the replication lag of the lookups reading from secondaries, 
+         * they read from the primary while a secondary lags more. The lag is checked every maxStaleness / 2.
+         * A single lagging secondary switches all the lookups of the database to primaryPreferred, 
+         * also the ones the other secondaries could answer.
+         * The lag is read with replSetGetStatus, which needs the clusterMonitor role: while it fails the last decision is kept
+         * (the configured read preference, if it never succeeded) and getStalenessFailure() returns the reason.
+         * @param duration : the maximum lag, 0 means no bound
+         */
+        public Builder maxStaleness(long duration, TimeUnit unit)
+        {
+            this.maxStalenessMillis = unit.toMillis(duration);
+            return this;
+        }
+        
+        /**
+         * @param connections : the maximum number of connections of each pool, 
+         * 		i.e. the number of queries running at the same time on an instance
+         */
+        public Builder connectionsPerHost(int connections)
+        {
+            options.connectionsPerHost(connections);
+            return this;
+        }
+        
+        /**
+         * @param connections : the number of connections each pool keeps open when idle
+         */
+        public Builder minConnectionsPerHost(int connections)
+        {
+            options.minConnectionsPerHost(connections);
+            return this;
+        }
+        
+        /**
+         * @param multiplier : the wait queue of a pool is connectionsPerHost * multiplier threads, 
+         * 		further threads waiting for a connection get an exception
+         */
+        public Builder threadsAllowedToBlockForConnectionMultiplier(int multiplier)
+        {
+            options.threadsAllowedToBlockForConnectionMultiplier(multiplier);
+            return this;
+        }
+        
+        /**
+         * @param duration : the maximum time a thread waits for a connection of the pool
+         */
+        public Builder maxWaitTime(long duration, TimeUnit unit)
+        {
+            options.maxWaitTime(millis(duration, unit));
+            return this;
+        }
+        
+        /**
+         * @param duration : the timeout of opening a connection, 0 means no timeout
+         */
+        public Builder connectTimeout(long duration, TimeUnit unit)
+        {
+            options.connectTimeout(millis(duration, unit));
+            return this;
+        }
+        
+        /**
+         * @param duration : the timeout of reading from a connection, 0 means no timeout.
+         * 		It has to be longer than the slowest query (e.g. a getMore of a full scan)
+         */
+        public Builder socketTimeout(long duration, TimeUnit unit)
+        {
+            options.socketTimeout(millis(duration, unit));
+            return this;
+        }
+        
+        /**
+         * @param duration : the time after which an idle connection is closed, 0 means never
+         */
+        public Builder maxConnectionIdleTime(long duration, TimeUnit unit)
+        {
+            options.maxConnectionIdleTime(millis(duration, unit));
+            return this;
+        }
+        
+        private static int millis(long duration, TimeUnit unit)
+        {
+            long millis = unit.toMillis(duration);
+            if (millis < 0 || millis > Integer.MAX_VALUE) 
+            {
+                throw new IllegalArgumentException("duration out of range: " + duration + " " + unit);
+            }
+            return (int) millis;
+        }
+        
+        /**
+         * @return the options of the connections to the tuples instance
+         */
+        public MongoClientOptions getTuplesOptions()
+        {
+            return options.readPreference(tuplesReadPreference).build();
+        }
+        
+        /**
+         * @return the options of the connections to the contexts instance
+         */
+        public MongoClientOptions getContextsOptions()
+        {
+            return options.readPreference(contextsReadPreference).build();
+        }
+        
+        /**
+         * Opens the connection pools of a new client.
+         * @return a client closed by shutdown()
+         */
+        public WebIsADb build()
+        {
+            MongoTupleStore store = new MongoTupleStore(tuplesSeeds, tuplesName, getTuplesOptions(),
+                    contextsSeeds, contextsName, getContextsOptions());
+            store.setScanReadPreference(scanReadPreference);
+            if (maxStalenessMillis > 0)
+            {
+                store.limitStaleness(maxStalenessMillis, TimeUnit.MILLISECONDS, Math.max(1000, maxStalenessMillis / 2), TimeUnit.MILLISECONDS);
+            }
+            return new WebIsADb(store, true);
+        }
+    }
     /**
      * Example of the class usage.
      * @param args
@@ -296,17 +772,10 @@ public class WebIsADb
        WebIsADb webisadb=WebIsADb.getInstance();
        try 
        {
-        // Example of iterator of all the tuples
-        int counts=0;   
-        AllTuplesResultIterator ti=webisadb.getAllTuples();
-        while (ti.hasNext())
+        // Example of stream of all the tuples
+        try (Stream<Tuple> tuples = webisadb.streamAllTuples())
         {
-            for(Tuple t:ti.next())
-        	{
-                    counts++;
-                    System.out.println(t);
-                }
-            if (counts==10) break;
+            tuples.limit(10).forEach(System.out::println);
         }
            
            
@@ -315,7 +784,7 @@ public class WebIsADb
         Set<String> keys=new HashSet<String>();
         keys.add("1");
         keys.add("2");
-        MultipleContextsResultIterator sri = webisadb.getMultipleSentenceWithProvid(keys);
+        ResultIterator<Context> sri = webisadb.getMultipleSentenceWithProvid(keys);
         while (sri.hasNext())
         {
             Context provenance=sri.next();
@@ -324,18 +793,11 @@ public class WebIsADb
         sri.close(); 
         
         
-        //example of TupleQueryResultIterator
-        TupleQueryResultIterator tuqri = webisadb.getTuplesWhere("gaga", "", "", "", "", "",
-        		null, null, 0, 0, 0, 0, 0, 0, false);
-        double sumOfFrequencies = 0;   
-        while (tuqri.hasNext())
-        {
-        	for(Tuple t:tuqri.next())
-        	{
-        		sumOfFrequencies += t.getAdjustedFrequency();
-        		System.out.println(t);
-        	}
-        }
+        //example of a stream of the tuples of a query
+        double sumOfFrequencies = webisadb.streamTuplesWhere("gaga", "", "", "", "", "",
+        		null, null, 0, 0, 0, 0, 0, 0, false)
+        		.peek(System.out::println)
+        		.mapToDouble(Tuple::getAdjustedFrequency).sum();
         
         System.out.println("Overall count: " + sumOfFrequencies + " times.");
         
@@ -0,0 +1,94 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.codecs;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+
+/**
+ * Typed reads of the fields of the tuples and contexts documents.
+ * The numbers are read with the type they were stored with, strings are parsed as the legacy iterators did.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+final class BsonFields {
+
+    private BsonFields() {
+    }
+
+    /**
+     * @return the position of the reader in the encoded documents, -1 if the documents are not read from bytes
+     */
+    static int position(BsonReader reader) {
+        return reader instanceof BsonBinaryReader ? ((BsonBinaryReader) reader).getBsonInput().getPosition() : -1;
+    }
+
+    /**
+     * Counts the bytes read since start in DecodedBytes.
+     */
+    static void countFrom(BsonReader reader, int start) {
+        if (start >= 0) {
+            DecodedBytes.add(position(reader) - start);
+        }
+    }
+
+    static double readDouble(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case DOUBLE:
+                return reader.readDouble();
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return reader.readInt64();
+            default:
+                return Double.parseDouble(readString(reader));
+        }
+    }
+
+    static int readInt(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return (int) reader.readInt64();
+            case DOUBLE:
+                return (int) reader.readDouble();
+            default:
+                return Integer.parseInt(readString(reader));
+        }
+    }
+
+    static String readString(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        switch (type) {
+            case STRING:
+                return reader.readString();
+            case INT32:
+                return String.valueOf(reader.readInt32());
+            case INT64:
+                return String.valueOf(reader.readInt64());
+            case DOUBLE:
+                return String.valueOf(reader.readDouble());
+            case SYMBOL:
+                return reader.readSymbol();
+            default:
+                throw new IllegalStateException("Cannot read a " + type + " as a string");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.codecs;
+
+import de.unima.webtuples.datatypes.Context;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * This class decodes a document of a sentence collection into its Context.
+ * The collections are read-only, encoding is not supported.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class ContextCodec implements Codec<Context> {
+
+    @Override
+    public Context decode(BsonReader reader, DecoderContext decoderContext) {
+        int start = BsonFields.position(reader);
+        String provid = null;
+        String pld = null;
+        String sentence = null;
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "provid":
+                    provid = BsonFields.readString(reader);
+                    break;
+                case "pld":
+                    pld = BsonFields.readString(reader);
+                    break;
+                case "sentence":
+                    sentence = BsonFields.readString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        BsonFields.countFrom(reader, start);
+        return new Context(provid, pld, sentence);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Context value, EncoderContext encoderContext) {
+        throw new UnsupportedOperationException("The sentence collections are read-only");
+    }
+
+    @Override
+    public Class<Context> getEncoderClass() {
+        return Context.class;
+    }
+}
@@ -0,0 +1,90 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.codecs;
+
+import de.unima.webtuples.datatypes.CoreTuple;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * This class decodes a document of an instance or class collection into its CoreTuple, 
+ * reading the aggregated fields and skipping the modifications.
+ * The collections are read-only, encoding is not supported.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class CoreTupleCodec implements Codec<CoreTuple> {
+
+    @Override
+    public CoreTuple decode(BsonReader reader, DecoderContext decoderContext) {
+        int start = BsonFields.position(reader);
+        String instance = null;
+        String clazz = null;
+        double frequency = 0;
+        int pidSpread = 0;
+        int pldSpread = 0;
+        String pids = "";
+        String plds = "";
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "instance":
+                    instance = BsonFields.readString(reader);
+                    break;
+                case "class":
+                    clazz = BsonFields.readString(reader);
+                    break;
+                case "frequency":
+                    frequency = BsonFields.readDouble(reader);
+                    break;
+                case "pidspread":
+                    pidSpread = BsonFields.readInt(reader);
+                    break;
+                case "pldspread":
+                    pldSpread = BsonFields.readInt(reader);
+                    break;
+                case "pids":
+                    pids = BsonFields.readString(reader);
+                    break;
+                case "plds":
+                    plds = BsonFields.readString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        BsonFields.countFrom(reader, start);
+        return new CoreTuple(instance, clazz, frequency, pidSpread, pldSpread, pids, plds, "");
+    }
+
+    @Override
+    public void encode(BsonWriter writer, CoreTuple value, EncoderContext encoderContext) {
+        throw new UnsupportedOperationException("The tuples collections are read-only");
+    }
+
+    @Override
+    public Class<CoreTuple> getEncoderClass() {
+        return CoreTuple.class;
+    }
+}
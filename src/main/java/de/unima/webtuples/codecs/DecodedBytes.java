@@ -0,0 +1,52 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.codecs;
+
+/**
+ * This class counts the bytes of the documents decoded by the codecs of WebIsADbCodecs on each thread, 
+ * so that an iterator can measure the bytes decoded by its cursor: the difference of get() before and after 
+ * a call of the cursor, which decodes the documents of a batch on the calling thread.
+ * Only the documents read from the wire (by a BsonBinaryReader) are counted.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public final class DecodedBytes {
+
+    private static final ThreadLocal<long[]> COUNTER = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private DecodedBytes() {
+    }
+
+    /**
+     * @return the number of bytes decoded by the current thread since it started
+     */
+    public static long get() {
+        return COUNTER.get()[0];
+    }
+
+    static void add(long bytes) {
+        if (bytes > 0) {
+            COUNTER.get()[0] += bytes;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.codecs;
+
+import de.unima.webtuples.datatypes.Tuple;
+
+import java.util.ArrayList;
+
+/**
+ * This class is the list of the tuples of a core tuple document, one for each element of its modifications array,
+ * as decoded by TupleListCodec.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class TupleList extends ArrayList<Tuple> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String instance;
+    private final String clazz;
+    private int modificationCount;
+    private boolean filtered = false;
+
+    public TupleList(String instance, String clazz, int capacity) {
+        super(capacity);
+        this.instance = instance;
+        this.clazz = clazz;
+    }
+
+    public String getInstance() {
+        return instance;
+    }
+
+    public String getClazz() {
+        return clazz;
+    }
+
+    /**
+     * @return the number of modifications of the document, including the ones skipped by the filter of the codec
+     */
+    public int getModificationCount() {
+        return filtered ? modificationCount : size();
+    }
+
+    /**
+     * @return true if the tuples were filtered by the codec, i.e. the list holds only the matching modifications
+     */
+    public boolean isFiltered() {
+        return filtered;
+    }
+
+    void setModificationCount(int modificationCount, boolean filtered) {
+        this.modificationCount = modificationCount;
+        this.filtered = filtered;
+    }
+}
@@ -0,0 +1,186 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.codecs;
+
+import de.unima.webtuples.datatypes.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * This class decodes a document of an instance or class collection into a TupleList, one Tuple for each modification.
+ * The modifications field can also be a single document, as in the results of an $unwind stage.
+ * With a ModificationFilter only the modifications passing it become tuples, the others are skipped 
+ * without creating objects for them (e.g. TupleQueryResultIterator, which checks the modifications on the client).
+ * The collections are read-only, encoding is not supported.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class TupleListCodec implements Codec<TupleList> {
+
+    /**
+     * The check of a single modification, applied while decoding.
+     */
+    public interface ModificationFilter {
+        boolean accept(String iPreMod, String iPostMod, String cPreMod, String cPostMod,
+                double frequency, int pidSpread, int pldSpread, String pids, String plds);
+    }
+
+    // null if every modification is decoded
+    private final ModificationFilter filter;
+
+    public TupleListCodec() {
+        this(null);
+    }
+
+    /**
+     * @param filter : the modifications to decode, null for all of them
+     */
+    public TupleListCodec(ModificationFilter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public TupleList decode(BsonReader reader, DecoderContext decoderContext) {
+        int start = BsonFields.position(reader);
+        String instance = null;
+        String clazz = null;
+        List<Modification> modifications = new ArrayList<>();
+        int count = 0;
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "instance":
+                    instance = BsonFields.readString(reader);
+                    break;
+                case "class":
+                    clazz = BsonFields.readString(reader);
+                    break;
+                case "modifications":
+                    if (reader.getCurrentBsonType() == BsonType.ARRAY) {
+                        reader.readStartArray();
+                        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                            addModification(readModification(reader), modifications);
+                            count++;
+                        }
+                        reader.readEndArray();
+                    } else {
+                        addModification(readModification(reader), modifications);
+                        count++;
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        BsonFields.countFrom(reader, start);
+        // the lemmas can follow the modifications in the document, the tuples are created at the end
+        TupleList tuples = new TupleList(instance, clazz, modifications.size());
+        for (Modification m : modifications) {
+            tuples.add(new Tuple(instance, clazz, m.frequency, m.pidSpread, m.pldSpread,
+                    m.iPreMod, m.iPostMod, m.cPreMod, m.cPostMod, m.pids, m.plds, m.provids));
+        }
+        tuples.setModificationCount(count, filter != null);
+        return tuples;
+    }
+
+    private void addModification(Modification m, List<Modification> modifications) {
+        if (filter == null || filter.accept(m.iPreMod, m.iPostMod, m.cPreMod, m.cPostMod,
+                m.frequency, m.pidSpread, m.pldSpread, m.pids, m.plds)) {
+            modifications.add(m);
+        }
+    }
+
+    private static Modification readModification(BsonReader reader) {
+        Modification m = new Modification();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "ipremod":
+                    m.iPreMod = BsonFields.readString(reader);
+                    break;
+                case "ipostmod":
+                    m.iPostMod = BsonFields.readString(reader);
+                    break;
+                case "cpremod":
+                    m.cPreMod = BsonFields.readString(reader);
+                    break;
+                case "cpostmod":
+                    m.cPostMod = BsonFields.readString(reader);
+                    break;
+                case "frequency":
+                    m.frequency = BsonFields.readDouble(reader);
+                    break;
+                case "pidspread":
+                    m.pidSpread = BsonFields.readInt(reader);
+                    break;
+                case "pldspread":
+                    m.pldSpread = BsonFields.readInt(reader);
+                    break;
+                case "pids":
+                    m.pids = BsonFields.readString(reader);
+                    break;
+                case "plds":
+                    m.plds = BsonFields.readString(reader);
+                    break;
+                case "provids":
+                    m.provids = BsonFields.readString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return m;
+    }
+
+    /**
+     * The fields of a modification, kept until the lemmas of the document are read.
+     * The missing fields are empty strings and zeros.
+     */
+    private static final class Modification {
+        String iPreMod = "";
+        String iPostMod = "";
+        String cPreMod = "";
+        String cPostMod = "";
+        double frequency;
+        int pidSpread;
+        int pldSpread;
+        String pids = "";
+        String plds = "";
+        String provids = "";
+    }
+
+    @Override
+    public void encode(BsonWriter writer, TupleList value, EncoderContext encoderContext) {
+        throw new UnsupportedOperationException("The tuples collections are read-only");
+    }
+
+    @Override
+    public Class<TupleList> getEncoderClass() {
+        return TupleList.class;
+    }
+}
@@ -0,0 +1,54 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.codecs;
+
+import com.mongodb.DB;
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoDatabase;
+
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * This class holds the codec registry used by the iterators: the default codecs of the driver (for the queries)
+ * and the codecs decoding the documents straight into CoreTuple, TupleList and Context.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public final class WebIsADbCodecs {
+
+    public static final CodecRegistry REGISTRY = CodecRegistries.fromRegistries(
+            MongoClient.getDefaultCodecRegistry(),
+            CodecRegistries.fromCodecs(new CoreTupleCodec(), new TupleListCodec(), new ContextCodec()));
+
+    private WebIsADbCodecs() {
+    }
+
+    /**
+     * Returns the MongoCollection API view of a database opened with the legacy API.
+     * @param db : a database obtained from a MongoClient
+     * @return the same database, using REGISTRY and the current read preference of db
+     */
+    public static MongoDatabase database(DB db) {
+        if (!(db.getMongo() instanceof MongoClient)) {
+            throw new IllegalArgumentException("The database " + db.getName() + " was not obtained from a MongoClient");
+        }
+        return ((MongoClient) db.getMongo()).getDatabase(db.getName()).withCodecRegistry(REGISTRY)
+                .withReadPreference(db.getReadPreference());
+    }
+}
@@ -31,13 +31,31 @@ package de.unima.webtuples.datatypes;
  */
 public class Context {
 
+    private String provid;
     private String plds;
     private String sentence;
     public Context(String plds, String sentence) 
     {
+     this(null, plds, sentence);
+    }
+    /**
+     * @param provid : the provenance id of the context, null if unknown
+     * @param plds : the pay level domain of the sentence
+     * @param sentence : the sentence the tuple was extracted from
+     */
+    public Context(String provid, String plds, String sentence) 
+    {
+     this.provid=provid;
      this.plds=plds;
      this.sentence=sentence;
     }
+    /**
+     * @return the provenance id of the context, null if it was not read
+     */
+    public String getProvid()
+    {
+        return provid;
+    }  
     public String getSentence()
     {
         return sentence;
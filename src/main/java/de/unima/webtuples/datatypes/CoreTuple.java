@@ -15,12 +15,15 @@
 package de.unima.webtuples.datatypes;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 
 /**
  * This class defines a core tuple. A Core tuple is an aggregation of all
  * regular tuples using the core noun of the instance and the core noun of a
  * class as aggregation criteria.
+ * The pids and plds are stored as codes of the global dictionaries Dictionary.PIDS and Dictionary.PLDS:
+ * the pids as a bit mask, the plds as an array of codes. The plds, which got no code because Dictionary.PLDS is full, are kept as strings.
  *
  * @author Julian Seitener, Nacho Vidal and Stefano Faralli
  *
@@ -34,8 +37,13 @@ public class CoreTuple {
     private int pldSpread;
     private String provids;
 
-    private HashSet<String> pids;
-    private HashSet<String> plds;
+    // bit i is set if the tuple has the pid with code i, the codes from 64 on are in pidsOverflow
+    private long pids;
+    private BitSet pidsOverflow;
+    // the distinct codes of the plds, -1 - i for the i-th value of uncodedPlds
+    private int[] plds;
+    // the plds without code, null if there are none
+    private String[] uncodedPlds;
 
     /**
      *
@@ -65,10 +73,153 @@ public class CoreTuple {
         this.pldSpread = pldSpread;
         this.adjustedFrequency = adjFreq;
         this.provids = provids;
-        this.pids = new HashSet<>();
-        this.plds = new HashSet<>();
-        this.pids.addAll(Arrays.asList(pids.split(";")));
-        this.plds.addAll(Arrays.asList(plds.split(";")));
+        encodePids(pids);
+        this.plds = encodePlds(plds);
+    }
+
+    /**
+     * Creates a core tuple whose other fields are set later by a subclass decoding them on demand.
+     * @param ilem : Is the lemmatized core noun of the instance.
+     * @param clem : Is the lemmatized core noun of the class
+     */
+    protected CoreTuple(String ilem, String clem) {
+        this.instanceLemma = ilem;
+        this.classLemma = clem;
+    }
+
+    /**
+     * Sets the pids and plds of a core tuple created by CoreTuple(String, String).
+     */
+    protected void decodePidsAndPlds(String pids, String plds) {
+        this.pids = 0;
+        this.pidsOverflow = null;
+        this.uncodedPlds = null;
+        encodePids(pids);
+        this.plds = encodePlds(plds);
+    }
+
+    private void encodePids(String list) {
+        int start = 0;
+        while (start <= list.length()) {
+            int end = next(list, start);
+            if (end > start || start == 0) {
+                int code = Dictionary.PIDS.code(list.substring(start, end));
+                if (code < 64) {
+                    pids |= 1L << code;
+                } else {
+                    if (pidsOverflow == null) pidsOverflow = new BitSet();
+                    pidsOverflow.set(code - 64);
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Splits the list as String.split(";"), dropping the empty values but the first one.
+     */
+    private int[] encodePlds(String list) {
+        int[] codes = new int[4];
+        int n = 0;
+        int start = 0;
+        while (start <= list.length()) {
+            int end = next(list, start);
+            if (end > start || start == 0) {
+                String pld = list.substring(start, end);
+                int code = Dictionary.PLDS.code(pld);
+                if (code < 0) {
+                    code = uncoded(pld);
+                }
+                if (!contains(codes, n, code)) {
+                    if (n == codes.length) codes = Arrays.copyOf(codes, n * 2);
+                    codes[n++] = code;
+                }
+            }
+            start = end + 1;
+        }
+        return n == codes.length ? codes : Arrays.copyOf(codes, n);
+    }
+
+    /**
+     * @return -1 - i for the i-th value of uncodedPlds, pld is added if it is not there yet
+     */
+    private int uncoded(String pld) {
+        int n = uncodedPlds == null ? 0 : uncodedPlds.length;
+        for (int i = 0; i < n; i++) {
+            if (uncodedPlds[i].equals(pld)) return -1 - i;
+        }
+        uncodedPlds = n == 0 ? new String[1] : Arrays.copyOf(uncodedPlds, n + 1);
+        uncodedPlds[n] = pld;
+        return -1 - n;
+    }
+
+    private static int next(String list, int start) {
+        int end = list.indexOf(';', start);
+        return end < 0 ? list.length() : end;
+    }
+
+    private static boolean contains(int[] codes, int n, int code) {
+        for (int i = 0; i < n; i++) {
+            if (codes[i] == code) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the tuple has the pid with the given code of Dictionary.PIDS
+     */
+    public boolean hasPid(int code) {
+        if (code < 64) {
+            return (pids & (1L << code)) != 0;
+        }
+        return pidsOverflow != null && pidsOverflow.get(code - 64);
+    }
+
+    /**
+     * @return the bit mask of the pids with a code below 64
+     */
+    public long getPidMask() {
+        return pids;
+    }
+
+    /**
+     * @return the highest code of the pids of the tuple, -1 if it has none
+     */
+    public int getMaxPidCode() {
+        if (pidsOverflow != null && !pidsOverflow.isEmpty()) {
+            return 64 + pidsOverflow.length() - 1;
+        }
+        return 63 - Long.numberOfLeadingZeros(pids);
+    }
+
+    /**
+     * @return true if the tuple has the pld with the given code of Dictionary.PLDS
+     */
+    public boolean hasPld(int code) {
+        return contains(plds, plds.length, code);
+    }
+
+    /**
+     * @return the highest code of the plds of the tuple, -1 if it has none
+     */
+    public int getMaxPldCode() {
+        int max = -1;
+        for (int code : plds) {
+            max = Math.max(max, code);
+        }
+        return max;
+    }
+
+    /**
+     * @return true if the tuple has the pld, which got no code because Dictionary.PLDS is full
+     */
+    public boolean hasUncodedPld(String pld) {
+        if (uncodedPlds != null) {
+            for (String uncoded : uncodedPlds) {
+                if (uncoded.equals(pld)) return true;
+            }
+        }
+        return false;
     }
 
     public String getInstanceLemma() {
@@ -102,31 +253,65 @@ public class CoreTuple {
         return String.format("%-100s %s", tuple, stats);
     }
 
+    /**
+     * @return a new set with the pattern ids of the tuple
+     */
     public HashSet<String> getPids() {
-        return pids;
+        HashSet<String> result = new HashSet<>();
+        for (long mask = pids; mask != 0; mask &= mask - 1) {
+            result.add(Dictionary.PIDS.get(Long.numberOfTrailingZeros(mask)));
+        }
+        if (pidsOverflow != null) {
+            for (int i = pidsOverflow.nextSetBit(0); i >= 0; i = pidsOverflow.nextSetBit(i + 1)) {
+                result.add(Dictionary.PIDS.get(i + 64));
+            }
+        }
+        return result;
     }
 
+    /**
+     * @return a new set with the pay level domains of the tuple
+     */
     public HashSet<String> getPlds() {
-        return plds;
+        HashSet<String> result = new HashSet<>();
+        for (int code : plds) {
+            result.add(pld(code));
+        }
+        return result;
     }
 
     public String getProvids() {
         return provids;
     }
 
+    /**
+     * @return the pattern ids in the order of their codes, each followed by a semicolon
+     */
     public String getPidsString() {
         StringBuilder sb = new StringBuilder();
-        for (String pid : pids) {
-            sb.append(pid).append(";");
+        for (long mask = pids; mask != 0; mask &= mask - 1) {
+            sb.append(Dictionary.PIDS.get(Long.numberOfTrailingZeros(mask))).append(";");
+        }
+        if (pidsOverflow != null) {
+            for (int i = pidsOverflow.nextSetBit(0); i >= 0; i = pidsOverflow.nextSetBit(i + 1)) {
+                sb.append(Dictionary.PIDS.get(i + 64)).append(";");
+            }
         }
         return sb.toString();
     }
 
+    /**
+     * @return the pay level domains in their original order, each followed by a semicolon
+     */
     public String getPldsString() {
         StringBuilder sb = new StringBuilder();
-        for (String pld : plds) {
-            sb.append(pld).append(";");
+        for (int code : plds) {
+            sb.append(pld(code)).append(";");
         }
         return sb.toString();
     }
+
+    private String pld(int code) {
+        return code >= 0 ? Dictionary.PLDS.get(code) : uncodedPlds[-1 - code];
+    }
 }
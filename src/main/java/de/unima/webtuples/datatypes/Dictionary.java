@@ -0,0 +1,102 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.datatypes;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class assigns a global int code to each distinct pattern id (PIDS) or pay level domain (PLDS),
+ * so that the tuples store their pids and plds as codes instead of sets of strings.
+ * The codes are assigned in the order the values are first seen and are never removed. A dictionary holds at most
+ * a maximum number of values: once it is full, the new values get no code and the tuples keep them as strings.
+ * The dictionaries can be used by several threads at the same time.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public final class Dictionary {
+
+    // the pattern ids, there are only a few dozens of them
+    public static final Dictionary PIDS = new Dictionary(Integer.MAX_VALUE);
+    // the pay level domains, at most about a million of them (about 100 MB)
+    public static final Dictionary PLDS = new Dictionary(1 << 20);
+
+    private final int maximumSize;
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[64];
+    private int size = 0;
+
+    private Dictionary(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @return the code of value, a new code if value was not seen before, -1 if value was not seen before and the dictionary is full
+     */
+    public int code(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code == null) {
+                if (size == maximumSize) {
+                    return -1;
+                }
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                values[size] = value;
+                code = size++;
+                codes.put(value, code);
+            }
+            return code;
+        }
+    }
+
+    /**
+     * Looks up a value without adding it, e.g. for the values of a query, which would otherwise stay in the dictionary forever.
+     * @return the code of value, -1 if value was not seen before
+     */
+    public int find(String value) {
+        Integer code = codes.get(value);
+        return code != null ? code : -1;
+    }
+
+    /**
+     * @return the value of a code returned by code()
+     */
+    public String get(int code) {
+        return values[code];
+    }
+
+    /**
+     * @return the number of codes assigned so far, the codes assigned from now on are at least this number
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the maximum number of values
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+}
@@ -0,0 +1,185 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.datatypes;
+
+import java.util.HashSet;
+
+import org.bson.BSONObject;
+
+/**
+ * This class defines a tuple, whose fields are decoded from the raw modification document on first access.
+ * Only the lemmas are set when the tuple is created. If the document was read with LazyDBDecoder, it is a slice
+ * of the bytes received from MongoDB: the frequency, the modifiers, the pids, the plds and the provids are not parsed
+ * as long as they are not read.
+ * Unlike Tuple, the decoding is not thread safe: a LazyTuple should be read by one thread.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class LazyTuple extends Tuple {
+
+    private final BSONObject modification;
+    // the modifiers in the order ipremod, ipostmod, cpremod, cpostmod
+    private final String[] modifiers = new String[4];
+    private Double adjustedFrequency;
+    private int pidSpread = -1;
+    private int pldSpread = -1;
+    private boolean pidsAndPldsDecoded = false;
+
+    /**
+     * 
+     * @param ilem : Is the lemmatized core noun of the instance.
+     * @param clem : Is the lemmatized core noun of the class
+     * @param modification : an element of the modifications array of a core tuple document
+     */
+    public LazyTuple(String ilem, String clem, BSONObject modification) {
+        super(ilem, clem);
+        this.modification = modification;
+    }
+
+    private String field(String name) {
+        return modification.get(name).toString();
+    }
+
+    private String modifier(int i, String name) {
+        if (modifiers[i] == null) {
+            modifiers[i] = field(name);
+        }
+        return modifiers[i];
+    }
+
+    private void decodePidsAndPlds() {
+        if (!pidsAndPldsDecoded) {
+            decodePidsAndPlds(field("pids"), field("plds"));
+            pidsAndPldsDecoded = true;
+        }
+    }
+
+    @Override
+    public Double getAdjustedFrequency() {
+        if (adjustedFrequency == null) {
+            adjustedFrequency = Double.parseDouble(field("frequency"));
+        }
+        return adjustedFrequency;
+    }
+
+    @Override
+    public void setAdjustedFrequency(double adjustedFrequency) {
+        this.adjustedFrequency = adjustedFrequency;
+    }
+
+    @Override
+    public int getPidSpread() {
+        if (pidSpread < 0) {
+            pidSpread = Integer.parseInt(field("pidspread"));
+        }
+        return pidSpread;
+    }
+
+    @Override
+    public int getPldSpread() {
+        if (pldSpread < 0) {
+            pldSpread = Integer.parseInt(field("pldspread"));
+        }
+        return pldSpread;
+    }
+
+    @Override
+    public String getInstancePreModifiers() {
+        return modifier(0, "ipremod");
+    }
+
+    @Override
+    public String getInstancePostModifiers() {
+        return modifier(1, "ipostmod");
+    }
+
+    @Override
+    public String getClassPreModifiers() {
+        return modifier(2, "cpremod");
+    }
+
+    @Override
+    public String getClassPostModifiers() {
+        return modifier(3, "cpostmod");
+    }
+
+    @Override
+    public String getProvids() {
+        return field("provids");
+    }
+
+    @Override
+    public boolean hasPid(int code) {
+        decodePidsAndPlds();
+        return super.hasPid(code);
+    }
+
+    @Override
+    public long getPidMask() {
+        decodePidsAndPlds();
+        return super.getPidMask();
+    }
+
+    @Override
+    public boolean hasPld(int code) {
+        decodePidsAndPlds();
+        return super.hasPld(code);
+    }
+
+    @Override
+    public int getMaxPidCode() {
+        decodePidsAndPlds();
+        return super.getMaxPidCode();
+    }
+
+    @Override
+    public int getMaxPldCode() {
+        decodePidsAndPlds();
+        return super.getMaxPldCode();
+    }
+
+    @Override
+    public boolean hasUncodedPld(String pld) {
+        decodePidsAndPlds();
+        return super.hasUncodedPld(pld);
+    }
+
+    @Override
+    public HashSet<String> getPids() {
+        decodePidsAndPlds();
+        return super.getPids();
+    }
+
+    @Override
+    public HashSet<String> getPlds() {
+        decodePidsAndPlds();
+        return super.getPlds();
+    }
+
+    @Override
+    public String getPidsString() {
+        decodePidsAndPlds();
+        return super.getPidsString();
+    }
+
+    @Override
+    public String getPldsString() {
+        decodePidsAndPlds();
+        return super.getPldsString();
+    }
+}
@@ -62,6 +62,16 @@ public class Tuple extends CoreTuple {
         this.classPostModifiers = cPostMod;
     }
     
+    /**
+     * Creates a tuple whose other fields are decoded on demand by a subclass, e.g. LazyTuple.
+     * @param ilem : Is the lemmatized core noun of the instance.
+     * @param clem : Is the lemmatized core noun of the class
+     */
+    protected Tuple(String ilem, String clem)
+    {
+    	super(ilem, clem);
+    }
+    
     public String getInstancePreModifiers() {
         return instancePreModifiers;
     }
@@ -0,0 +1,183 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Reference algorithms on a HypernymGraph, running over the node ranges of HypernymGraph.forEachRange,
+ * so that each thread writes the entries of its own nodes only.
+ * On a graph of instances to classes, the in-degree of a class is its number of instances and
+ * its PageRank grows with the number and the rank of the lemmas it is a hypernym of.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public final class GraphAlgorithms {
+
+    private GraphAlgorithms() {
+    }
+
+    /**
+     * @return the number of edges leaving each node
+     */
+    public static int[] outDegrees(final HypernymGraph graph, int parallelism) {
+        final int[] degrees = new int[graph.getNodeCount()];
+        graph.forEachRange(parallelism, new HypernymGraph.RangeVisitor() {
+            @Override
+            public void visit(int from, int to) {
+                for (int node = from; node < to; node++) {
+                    degrees[node] = graph.degree(node);
+                }
+            }
+        });
+        return degrees;
+    }
+
+    /**
+     * Counts the edges reaching each node in a single pass over the edges. 
+     * Each range of sources counts into its own array when parallelism is higher than 1.
+     * @return the number of edges reaching each node
+     */
+    public static int[] inDegrees(final HypernymGraph graph, int parallelism) {
+        final int nodeCount = graph.getNodeCount();
+        if (parallelism == 1) {
+            int[] degrees = new int[nodeCount];
+            for (int e = 0; e < graph.getEdgeCount(); e++) {
+                degrees[graph.target(e)]++;
+            }
+            return degrees;
+        }
+        // the counts of each thread, summed at the end
+        final ThreadLocal<int[]> local = new ThreadLocal<>();
+        final List<int[]> partials = new ArrayList<>();
+        graph.forEachRange(parallelism, new HypernymGraph.RangeVisitor() {
+            @Override
+            public void visit(int from, int to) {
+                int[] degrees = local.get();
+                if (degrees == null) {
+                    degrees = new int[nodeCount];
+                    local.set(degrees);
+                    synchronized (partials) {
+                        partials.add(degrees);
+                    }
+                }
+                int end = graph.firstEdge(to);
+                for (int e = graph.firstEdge(from); e < end; e++) {
+                    degrees[graph.target(e)]++;
+                }
+            }
+        });
+        int[] degrees = new int[nodeCount];
+        for (int[] partial : partials) {
+            for (int node = 0; node < nodeCount; node++) {
+                degrees[node] += partial[node];
+            }
+        }
+        return degrees;
+    }
+
+    /**
+     * Computes the PageRank of the nodes by power iteration, pulling the rank of each node from the sources of its edges.
+     * The pull needs the edges reaching each node: a graph is reversed first (on the heap) unless reversedGraph is given,
+     * e.g. written once and mapped. The rank of the nodes without edges is spread over all the nodes.
+     * @param graph : the graph
+     * @param reversedGraph : graph.reverse(), null to compute it
+     * @param damping : the probability of following an edge, usually 0.85
+     * @param weighted : if true, an edge is followed with a probability proportional to its weight, otherwise all the edges of a node are equally likely
+     * @param maxIterations : the maximum number of iterations
+     * @param tolerance : the iterations stop when the ranks change less than tolerance in total (L1 norm)
+     * @param parallelism : the number of threads
+     * @return the rank of each node, the ranks sum up to 1
+     */
+    public static double[] pageRank(HypernymGraph graph, HypernymGraph reversedGraph, final double damping, boolean weighted,
+            int maxIterations, double tolerance, int parallelism) {
+        final int nodeCount = graph.getNodeCount();
+        if (nodeCount == 0) {
+            return new double[0];
+        }
+        final HypernymGraph reversed = reversedGraph != null ? reversedGraph : graph.reverse();
+        if (reversed.getNodeCount() != nodeCount || reversed.getEdgeCount() != graph.getEdgeCount()) {
+            throw new IllegalArgumentException("reversedGraph is not the reverse of graph");
+        }
+        // the sum of the weights of the edges leaving each node
+        final double[] outWeights = new double[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            if (!weighted) {
+                outWeights[node] = graph.degree(node);
+                continue;
+            }
+            int end = graph.firstEdge(node + 1);
+            for (int e = graph.firstEdge(node); e < end; e++) {
+                outWeights[node] += graph.weight(e);
+            }
+        }
+        final boolean byWeight = weighted;
+        double[] ranks = new double[nodeCount];
+        Arrays.fill(ranks, 1.0 / nodeCount);
+        // the rank sent along each unit of weight
+        final double[] shares = new double[nodeCount];
+        double[] next = new double[nodeCount];
+        // a single pool for all the iterations
+        ExecutorService executor = parallelism > 1 ? HypernymGraph.newExecutor(parallelism) : null;
+        try {
+            for (int iteration = 0; iteration < maxIterations; iteration++) {
+                double dangling = 0;
+                for (int node = 0; node < nodeCount; node++) {
+                    if (outWeights[node] > 0) {
+                        shares[node] = ranks[node] / outWeights[node];
+                    } else {
+                        shares[node] = 0;
+                        dangling += ranks[node];
+                    }
+                }
+                final double base = (1 - damping) / nodeCount + damping * dangling / nodeCount;
+                final double[] target = next;
+                reversed.forEachRange(parallelism, executor, new HypernymGraph.RangeVisitor() {
+                    @Override
+                    public void visit(int from, int to) {
+                        for (int node = from; node < to; node++) {
+                            double sum = 0;
+                            int end = reversed.firstEdge(node + 1);
+                            for (int e = reversed.firstEdge(node); e < end; e++) {
+                                sum += shares[reversed.target(e)] * (byWeight ? reversed.weight(e) : 1);
+                            }
+                            target[node] = base + damping * sum;
+                        }
+                    }
+                });
+                double change = 0;
+                for (int node = 0; node < nodeCount; node++) {
+                    change += Math.abs(next[node] - ranks[node]);
+                }
+                double[] swap = ranks;
+                ranks = next;
+                next = swap;
+                if (change < tolerance) {
+                    break;
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        return ranks;
+    }
+}
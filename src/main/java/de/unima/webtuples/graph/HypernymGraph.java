@@ -0,0 +1,459 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.graph;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * This class is a read-only hypernym graph in compressed sparse row form, built by HypernymGraphBuilder.
+ * The lemmas are numbered 0 to nodeCount - 1 in the order of their UTF-8 bytes. The edges of node n
+ * are the positions offsets[n] to offsets[n + 1] - 1 of targets and weights, sorted by target. 
+ * An edge goes from an instance to its class (or from a class to its instance in a reversed graph)
+ * and is weighted with the frequency of the core tuple.
+ *
+ * A built graph keeps the arrays on the heap, a graph opened from a file written by write() maps them from the file,
+ * so that it is served from the page cache and the heap holds no per-edge data.
+ * The graph can be read by several threads at the same time.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class HypernymGraph implements Closeable {
+
+    static final int MAGIC = 0x57494752;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    // the largest section of a file, which can be mapped into a single buffer
+    private static final long MAX_SECTION = Integer.MAX_VALUE;
+
+    private final int nodeCount;
+    private final int edgeCount;
+    private final boolean reversed;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final FloatBuffer weights;
+    // the lemmas: nodeCount + 1 offsets into the UTF-8 bytes
+    private final IntBuffer lemmaOffsets;
+    private final ByteBuffer lemmaBytes;
+    // null if the graph is on the heap
+    private final RandomAccessFile file;
+
+    HypernymGraph(int[] offsets, int[] targets, float[] weights, int[] lemmaOffsets, byte[] lemmaBytes, boolean reversed) {
+        this(offsets.length - 1, targets.length, reversed, IntBuffer.wrap(offsets), IntBuffer.wrap(targets), FloatBuffer.wrap(weights),
+                IntBuffer.wrap(lemmaOffsets), ByteBuffer.wrap(lemmaBytes), null);
+    }
+
+    private HypernymGraph(int nodeCount, int edgeCount, boolean reversed, IntBuffer offsets, IntBuffer targets, FloatBuffer weights,
+            IntBuffer lemmaOffsets, ByteBuffer lemmaBytes, RandomAccessFile file) {
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+        this.reversed = reversed;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.lemmaOffsets = lemmaOffsets;
+        this.lemmaBytes = lemmaBytes;
+        this.file = file;
+    }
+
+    /**
+     * Maps a graph written by write(), it has to be closed to release the file.
+     * Each section is mapped into one buffer, so that a file holds up to 2^29 edges.
+     */
+    public static HypernymGraph open(File graph) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(graph, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(graph + " is not a WebIsADb hypernym graph");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported graph version " + header.getInt(4));
+            }
+            boolean reversed = header.getInt(8) != 0;
+            int nodeCount = header.getInt(12);
+            int edgeCount = header.getInt(16);
+            long lemmaByteCount = header.getLong(24);
+            long position = HEADER_SIZE;
+            IntBuffer offsets = map(channel, position, 4L * (nodeCount + 1)).asIntBuffer();
+            position += 4L * (nodeCount + 1);
+            IntBuffer targets = map(channel, position, 4L * edgeCount).asIntBuffer();
+            position += 4L * edgeCount;
+            FloatBuffer weights = map(channel, position, 4L * edgeCount).asFloatBuffer();
+            position += 4L * edgeCount;
+            IntBuffer lemmaOffsets = map(channel, position, 4L * (nodeCount + 1)).asIntBuffer();
+            position += 4L * (nodeCount + 1);
+            ByteBuffer lemmaBytes = map(channel, position, lemmaByteCount);
+            return new HypernymGraph(nodeCount, edgeCount, reversed, offsets, targets, weights, lemmaOffsets, lemmaBytes, file);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        if (length > MAX_SECTION) {
+            throw new IOException("A section of " + length + " bytes cannot be mapped");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    /**
+     * Writes the graph in the format read by open().
+     * Layout: magic, version, reversed, nodeCount, edgeCount, 0, lemma bytes (long), offsets, targets, weights, 
+     * lemma offsets and lemma bytes, all big endian.
+     */
+    public void write(File graph) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(graph), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(reversed ? 1 : 0);
+            out.writeInt(nodeCount);
+            out.writeInt(edgeCount);
+            out.writeInt(0);
+            out.writeLong(lemmaBytes.capacity());
+            for (int i = 0; i <= nodeCount; i++) {
+                out.writeInt(offsets.get(i));
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                out.writeInt(targets.get(e));
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                out.writeFloat(weights.get(e));
+            }
+            for (int i = 0; i <= nodeCount; i++) {
+                out.writeInt(lemmaOffsets.get(i));
+            }
+            for (int i = 0; i < lemmaBytes.capacity(); i++) {
+                out.writeByte(lemmaBytes.get(i));
+            }
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return false if the edges go from the instances to their classes, true if they go from the classes to their instances
+     */
+    public boolean isReversed() {
+        return reversed;
+    }
+
+    /**
+     * @return the node of a lemma, -1 if the lemma is not in the graph
+     */
+    public int node(String lemma) {
+        byte[] key = lemma.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = compareLemma(mid, key);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the UTF-8 bytes of a node with key as unsigned values.
+     */
+    private int compareLemma(int node, byte[] key) {
+        int start = lemmaOffsets.get(node);
+        int length = lemmaOffsets.get(node + 1) - start;
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int c = (lemmaBytes.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return length - key.length;
+    }
+
+    public String lemma(int node) {
+        int start = lemmaOffsets.get(node);
+        byte[] bytes = new byte[lemmaOffsets.get(node + 1) - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = lemmaBytes.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the position of the first edge of node, its edges end at firstEdge(node + 1)
+     */
+    public int firstEdge(int node) {
+        return offsets.get(node);
+    }
+
+    public int degree(int node) {
+        return offsets.get(node + 1) - offsets.get(node);
+    }
+
+    public int target(int edge) {
+        return targets.get(edge);
+    }
+
+    public float weight(int edge) {
+        return weights.get(edge);
+    }
+
+    /**
+     * @return the targets of the edges of node, in ascending order
+     */
+    public int[] neighbours(int node) {
+        int first = offsets.get(node);
+        int[] neighbours = new int[offsets.get(node + 1) - first];
+        for (int i = 0; i < neighbours.length; i++) {
+            neighbours[i] = targets.get(first + i);
+        }
+        return neighbours;
+    }
+
+    /**
+     * @return the position of the edge from source to target, -1 if there is none
+     */
+    public int edge(int source, int target) {
+        int low = offsets.get(source);
+        int high = offsets.get(source + 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int t = targets.get(mid);
+            if (t < target) {
+                low = mid + 1;
+            } else if (t > target) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Receives the edges of the graph.
+     */
+    public interface EdgeVisitor {
+
+        void visit(int source, int target, float weight);
+    }
+
+    /**
+     * Receives a range of nodes, from (inclusive) to to (exclusive).
+     */
+    public interface RangeVisitor {
+
+        void visit(int from, int to);
+    }
+
+    /**
+     * Visits the edges of source in the order of their targets.
+     */
+    public void forEachNeighbour(int source, EdgeVisitor visitor) {
+        int end = offsets.get(source + 1);
+        for (int e = offsets.get(source); e < end; e++) {
+            visitor.visit(source, targets.get(e), weights.get(e));
+        }
+    }
+
+    /**
+     * Visits all the edges, the edges of a source are visited in a row by the same thread.
+     * @param parallelism : the number of threads, 1 visits the edges in order on the calling thread
+     * @param visitor : called by several threads at the same time if parallelism is higher than 1
+     */
+    public void forEachEdge(int parallelism, final EdgeVisitor visitor) {
+        forEachRange(parallelism, new RangeVisitor() {
+            @Override
+            public void visit(int from, int to) {
+                for (int source = from; source < to; source++) {
+                    forEachNeighbour(source, visitor);
+                }
+            }
+        });
+    }
+
+    /**
+     * Splits the nodes into ranges holding about the same number of edges, so that the few nodes with very many edges 
+     * do not keep a single thread busy, and visits the ranges on parallelism threads of a pool created for this call.
+     * The ranges are disjoint: a visitor writing the entries of its own nodes in a shared array needs no synchronization.
+     * @param parallelism : the number of threads, 1 visits all the nodes as one range on the calling thread
+     */
+    public void forEachRange(int parallelism, RangeVisitor visitor) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        if (parallelism == 1 || nodeCount == 0) {
+            visitor.visit(0, nodeCount);
+            return;
+        }
+        ExecutorService executor = newExecutor(parallelism);
+        try {
+            forEachRange(parallelism, executor, visitor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Visits the ranges of forEachRange(parallelism, visitor) on executor, e.g. a pool kept across the iterations 
+     * of an algorithm instead of a pool for each call.
+     * @param parallelism : the number of threads of executor to use, 1 visits all the nodes as one range on the calling thread
+     * @param executor : runs the ranges, it is not shut down. It can be null if parallelism is 1
+     */
+    public void forEachRange(int parallelism, ExecutorService executor, final RangeVisitor visitor) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        if (parallelism == 1 || nodeCount == 0) {
+            visitor.visit(0, nodeCount);
+            return;
+        }
+        List<Future<?>> tasks = new ArrayList<>();
+        try {
+            for (final int[] range : ranges(parallelism * 4)) {
+                tasks.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        visitor.visit(range[0], range[1]);
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while visiting the graph", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        } finally {
+            // the ranges not visited yet are dropped after a failure, the pool is shared
+            for (Future<?> task : tasks) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @return a pool of parallelism daemon threads for forEachRange, shut down by the caller
+     */
+    public static ExecutorService newExecutor(int parallelism) {
+        return Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "webisadb-graph");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * @return up to count ranges of nodes, each with about edgeCount / count edges (and at least one node)
+     */
+    private List<int[]> ranges(int count) {
+        List<int[]> ranges = new ArrayList<>();
+        long perRange = Math.max(1, ((long) edgeCount + nodeCount) / count);
+        int from = 0;
+        while (from < nodeCount) {
+            // the cost of a node is its edges plus one
+            long limit = offsets.get(from) + from + perRange;
+            int low = from + 1;
+            int high = nodeCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if ((long) offsets.get(mid) + mid < limit) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            ranges.add(new int[]{from, low});
+            from = low;
+        }
+        return ranges;
+    }
+
+    /**
+     * @return the graph with all the edges turned around, on the heap. The lemmas are shared with this graph
+     */
+    public HypernymGraph reverse() {
+        int[] reversedOffsets = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            reversedOffsets[targets.get(e) + 1]++;
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            reversedOffsets[n + 1] += reversedOffsets[n];
+        }
+        int[] next = new int[nodeCount];
+        System.arraycopy(reversedOffsets, 0, next, 0, nodeCount);
+        int[] reversedTargets = new int[edgeCount];
+        float[] reversedWeights = new float[edgeCount];
+        // the sources are visited in ascending order, so that the edges of each node are sorted by target
+        for (int source = 0; source < nodeCount; source++) {
+            int end = offsets.get(source + 1);
+            for (int e = offsets.get(source); e < end; e++) {
+                int position = next[targets.get(e)]++;
+                reversedTargets[position] = source;
+                reversedWeights[position] = weights.get(e);
+            }
+        }
+        return new HypernymGraph(nodeCount, edgeCount, !reversed, IntBuffer.wrap(reversedOffsets), IntBuffer.wrap(reversedTargets),
+                FloatBuffer.wrap(reversedWeights), lemmaOffsets, lemmaBytes, null);
+    }
+
+    /**
+     * Releases the file of a mapped graph, the graph cannot be read afterwards.
+     * The mapped buffers are unmapped by the garbage collector.
+     */
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            file.close();
+        }
+    }
+}
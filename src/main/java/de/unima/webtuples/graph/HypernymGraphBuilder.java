@@ -0,0 +1,318 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.graph;
+
+import com.mongodb.MongoClient;
+
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.queries.ResultIterator;
+import de.unima.webtuples.queries.TupleFilter;
+import de.unima.webtuples.store.MongoTupleStore;
+import de.unima.webtuples.store.TupleSink;
+import de.unima.webtuples.store.TupleStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class builds a HypernymGraph from a single pass over the core tuples, e.g. of TupleStore.getCoreTuplesWhere("*", "*", ...)
+ * or as the sink of MongoTupleStore.copyTuples. Each core tuple becomes an edge from its instance to its class,
+ * weighted with its frequency; the modifications are ignored.
+ *
+ * The lemmas are numbered in the order they are first seen, while the edges are spilled to a temporary file, 
+ * so that the heap holds the lemmas and a counter per lemma only. build() sorts the lemmas, then reads the edges
+ * back into the arrays of the graph: the heap needed by a graph of E edges and N lemmas is about 8 E + 12 N bytes plus the lemmas.
+ *
+ * Usage (export tool): HypernymGraphBuilder host port dbName file
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class HypernymGraphBuilder implements TupleSink {
+
+    // the rows with more edges are sorted as packed longs
+    private static final int INSERTION_SORT_SIZE = 32;
+
+    // compares the strings by code point, as their UTF-8 bytes compare
+    static final Comparator<String> UTF8_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            int n = Math.min(a.length(), b.length());
+            for (int i = 0; i < n; i++) {
+                char ca = a.charAt(i);
+                char cb = b.charAt(i);
+                if (ca != cb) {
+                    // a supplementary character sorts after every char, unlike its first surrogate
+                    if (Character.isSurrogate(ca) || Character.isSurrogate(cb)) {
+                        return Integer.compare(a.codePointAt(i), b.codePointAt(i));
+                    }
+                    return ca - cb;
+                }
+            }
+            return a.length() - b.length();
+        }
+    };
+
+    private final File spill;
+    private DataOutputStream edges;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] lemmas = new String[1024];
+    private int[] degrees = new int[1024];
+    private int edgeCount = 0;
+    private TupleFilter filter;
+
+    /**
+     * Spills the edges to a temporary file in the default temporary directory.
+     */
+    public HypernymGraphBuilder() throws IOException {
+        this(null);
+    }
+
+    /**
+     * @param directory : the directory of the temporary file, holding 12 bytes per edge until build(). null for the default
+     */
+    public HypernymGraphBuilder(File directory) throws IOException {
+        spill = File.createTempFile("webisadb-graph", ".edges", directory);
+        spill.deleteOnExit();
+        edges = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spill), 1 << 16));
+    }
+
+    /**
+     * Keeps only the core tuples accepted by the filter, e.g. to leave out the rare tuples.
+     * @param filter : null to keep all of them
+     */
+    public HypernymGraphBuilder filter(TupleFilter filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * Adds an edge from instance to clazz.
+     */
+    public HypernymGraphBuilder addEdge(String instance, String clazz, float weight) {
+        if (edges == null) {
+            throw new IllegalStateException("The graph was already built");
+        }
+        if (edgeCount == Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("The graph is limited to " + edgeCount + " edges");
+        }
+        int source = id(instance);
+        int target = id(clazz);
+        try {
+            edges.writeInt(source);
+            edges.writeInt(target);
+            edges.writeFloat(weight);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        degrees[source]++;
+        edgeCount++;
+        return this;
+    }
+
+    private int id(String lemma) {
+        Integer id = ids.get(lemma);
+        if (id == null) {
+            id = ids.size();
+            if (id == lemmas.length) {
+                lemmas = Arrays.copyOf(lemmas, lemmas.length * 2);
+                degrees = Arrays.copyOf(degrees, degrees.length * 2);
+            }
+            lemmas[id] = lemma;
+            ids.put(lemma, id);
+        }
+        return id;
+    }
+
+    public HypernymGraphBuilder add(CoreTuple tuple) {
+        if (filter == null || filter.matches(tuple)) {
+            addEdge(tuple.getInstanceLemma(), tuple.getClassLemma(), tuple.getAdjustedFrequency().floatValue());
+        }
+        return this;
+    }
+
+    /**
+     * Adds all the core tuples of a store, read once from its instance collections.
+     */
+    public HypernymGraphBuilder addAll(TupleStore store) {
+        ResultIterator<List<? extends CoreTuple>> it = store.getCoreTuplesWhere("*", "*", null, null, 0, 0, 0, 0, 0, 0, false);
+        try {
+            while (it.hasNext()) {
+                for (CoreTuple tuple : it.next()) {
+                    add(tuple);
+                }
+            }
+        } finally {
+            it.close();
+        }
+        return this;
+    }
+
+    @Override
+    public HypernymGraphBuilder addCoreTuple(String instance, String clazz, double frequency, int pidSpread, int pldSpread,
+            String pids, String plds) {
+        if (filter == null || filter.matches(frequency, pidSpread, pldSpread, pids, plds)) {
+            addEdge(instance, clazz, (float) frequency);
+        }
+        return this;
+    }
+
+    @Override
+    public HypernymGraphBuilder addModification(String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+            double frequency, int pidSpread, int pldSpread, String pids, String plds, String provids) {
+        return this;
+    }
+
+    /**
+     * Builds the graph and deletes the temporary file, the builder cannot be used afterwards.
+     */
+    public HypernymGraph build() throws IOException {
+        if (edges == null) {
+            throw new IllegalStateException("The graph was already built");
+        }
+        edges.close();
+        edges = null;
+        try {
+            return read();
+        } finally {
+            spill.delete();
+        }
+    }
+
+    private HypernymGraph read() throws IOException {
+        int nodeCount = ids.size();
+        // the nodes in the order of their lemmas, and the node of each id
+        String[] sorted = Arrays.copyOf(lemmas, nodeCount);
+        Arrays.sort(sorted, UTF8_ORDER);
+        int[] nodes = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            nodes[ids.get(sorted[node])] = node;
+        }
+        ids.clear();
+        lemmas = null;
+
+        int[] lemmaOffsets = new int[nodeCount + 1];
+        byte[][] bytes = new byte[nodeCount][];
+        long lemmaByteCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            bytes[node] = sorted[node].getBytes(StandardCharsets.UTF_8);
+            lemmaByteCount += bytes[node].length;
+            if (lemmaByteCount > Integer.MAX_VALUE) {
+                throw new IOException("The lemmas of the graph are larger than 2GB");
+            }
+            lemmaOffsets[node + 1] = (int) lemmaByteCount;
+        }
+        sorted = null;
+        byte[] lemmaBytes = new byte[(int) lemmaByteCount];
+        for (int node = 0; node < nodeCount; node++) {
+            System.arraycopy(bytes[node], 0, lemmaBytes, lemmaOffsets[node], bytes[node].length);
+        }
+        bytes = null;
+
+        int[] offsets = new int[nodeCount + 1];
+        for (int id = 0; id < nodeCount; id++) {
+            offsets[nodes[id] + 1] = degrees[id];
+        }
+        degrees = null;
+        for (int node = 0; node < nodeCount; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+        int[] next = Arrays.copyOf(offsets, nodeCount);
+        int[] targets = new int[edgeCount];
+        float[] weights = new float[edgeCount];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spill), 1 << 16))) {
+            for (int e = 0; e < edgeCount; e++) {
+                int source = nodes[in.readInt()];
+                int position = next[source]++;
+                targets[position] = nodes[in.readInt()];
+                weights[position] = in.readFloat();
+            }
+        }
+        next = null;
+        for (int node = 0; node < nodeCount; node++) {
+            sortRow(targets, weights, offsets[node], offsets[node + 1]);
+        }
+        return new HypernymGraph(offsets, targets, weights, lemmaOffsets, lemmaBytes, false);
+    }
+
+    /**
+     * Sorts the edges from to to - 1 by target.
+     */
+    static void sortRow(int[] targets, float[] weights, int from, int to) {
+        if (to - from <= INSERTION_SORT_SIZE) {
+            for (int i = from + 1; i < to; i++) {
+                int t = targets[i];
+                float w = weights[i];
+                int j = i - 1;
+                while (j >= from && targets[j] > t) {
+                    targets[j + 1] = targets[j];
+                    weights[j + 1] = weights[j];
+                    j--;
+                }
+                targets[j + 1] = t;
+                weights[j + 1] = w;
+            }
+            return;
+        }
+        // the targets are not negative, so that the packed values sort by target
+        long[] packed = new long[to - from];
+        for (int i = from; i < to; i++) {
+            packed[i - from] = ((long) targets[i] << 32) | (Float.floatToRawIntBits(weights[i]) & 0xffffffffL);
+        }
+        Arrays.sort(packed);
+        for (int i = from; i < to; i++) {
+            targets[i] = (int) (packed[i - from] >>> 32);
+            weights[i] = Float.intBitsToFloat((int) packed[i - from]);
+        }
+    }
+
+    /**
+     * Builds the graph of all the core tuples of a store.
+     */
+    public static HypernymGraph build(TupleStore store) throws IOException {
+        return new HypernymGraphBuilder().addAll(store).build();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: HypernymGraphBuilder host port dbName file");
+            System.exit(1);
+        }
+        MongoClient client = new MongoClient(args[0], Integer.parseInt(args[1]));
+        try {
+            long start = System.currentTimeMillis();
+            HypernymGraph graph = build(new MongoTupleStore(client.getDB(args[2]), null));
+            graph.write(new File(args[3]));
+            System.out.println("Wrote " + graph.getNodeCount() + " lemmas and " + graph.getEdgeCount() + " edges of " + args[2] 
+                    + " to " + args[3] + " in " + (System.currentTimeMillis() - start) + " ms");
+        } finally {
+            client.close();
+        }
+    }
+}
@@ -15,19 +15,25 @@
 
 package de.unima.webtuples.queries;
 
-import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DB;
-import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
+import com.mongodb.LazyDBDecoder;
+import com.mongodb.LazyDBObject;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+
+import de.unima.webtuples.codecs.DecodedBytes;
+import de.unima.webtuples.codecs.TupleList;
+import de.unima.webtuples.codecs.WebIsADbCodecs;
+import de.unima.webtuples.datatypes.LazyTuple;
 
 import de.unima.webtuples.datatypes.Tuple;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 
 /**
  * This class is an iterator, to iterate thorugh all the tuple 
@@ -37,14 +43,26 @@ import java.util.Set;
  * @author Julian Seitener, Nacho Vidal and Stefano Faralli
  *
  */
-public class AllTuplesResultIterator implements Iterator {
+public class AllTuplesResultIterator implements ResultIterator<List<Tuple>> {
 
     List<String> tablenames;
     int currenttable = -1;
-    DBCursor cursor;
-    DBCollection table;
+    // decodes the documents with TupleListCodec
+    MongoCursor<TupleList> cursor;
+    // the legacy cursor keeping the documents as raw bytes, used if lazy
+    DBCursor lazyCursor;
     DB db;
+    // the same database as db, decoding the documents with the codecs of WebIsADbCodecs
+    MongoDatabase database;
+    // if true, the documents are kept as raw bytes and the tuples are decoded on demand
+    boolean lazy = false;
+    // the read preference of the scan, null to read as the other queries of db
+    ReadPreference readPreference;
+    // the counters of the scan
+    final QueryStats stats = new QueryStats(QueryType.ALL_TUPLES);
 
+    // the fields decoded by next()
+    static final BasicDBObject FIELDS = new BasicDBObject("_id", 0).append("instance", 1).append("class", 1).append("modifications", 1);
     
     /**
      * 
@@ -52,38 +70,105 @@ public class AllTuplesResultIterator implements Iterator {
      * @param sortingprefix: "i" for instances and "c" for classes
      */
     public AllTuplesResultIterator(DB db, String sortingprefix) {
+        this(db, new CollectionCatalog(db).getCollections(sortingprefix));
+        // the first table is opened by hasNext()
+    }
+
+    /**
+     * Iterates through the tuples of the given tables only, in the given order.
+     * @param db
+     * @param tablenames : instance or class collections of db
+     */
+    public AllTuplesResultIterator(DB db, List<String> tablenames) {
         this.db = db;
-        Set<String> tablenamesapp = db.getCollectionNames();
-        tablenames = new ArrayList<>();
-        for (String s : tablenamesapp) {
-            if (s.startsWith(sortingprefix)) {
-                tablenames.add(s);
-            }
-        }
-        if (tablenames.size() > 0) {
-            currenttable = 0;
-            openTable(tablenames.get(currenttable));
+        this.database = WebIsADbCodecs.database(db);
+        this.tablenames = new ArrayList<>(tablenames);
+    }
+
+    /**
+     * 
+     * @param db
+     * @param sortingprefix: "i" for instances and "c" for classes
+     * @param lazy : if true, the iterator returns LazyTuple instances, whose fields are decoded on first access
+     */
+    public AllTuplesResultIterator(DB db, String sortingprefix, boolean lazy) {
+        this(db, sortingprefix);
+        this.lazy = lazy;
+    }
+
+    /**
+     * 
+     * @param db
+     * @param tablenames : instance or class collections of db
+     * @param lazy : if true, the iterator returns LazyTuple instances, whose fields are decoded on first access
+     */
+    public AllTuplesResultIterator(DB db, List<String> tablenames, boolean lazy) {
+        this(db, tablenames);
+        this.lazy = lazy;
+    }
+
+    /**
+     * Routes the scan, e.g. to the secondaries dedicated to long reads, so that it does not slow down the lookups.
+     * It has to be set before the first call of hasNext.
+     * @param readPreference : e.g. ReadPreference.secondary(new TagSet(new Tag("workload", "scan"))), 
+     * 		null to read as the other queries of db
+     */
+    public void setReadPreference(ReadPreference readPreference) {
+        this.readPreference = readPreference;
+        this.database = WebIsADbCodecs.database(db);
+        if (readPreference != null) {
+            this.database = database.withReadPreference(readPreference);
         }
     }
 
     private void openTable(String tablename) {
 
-        table = db.getCollection(tablename);
-        cursor = table.find();
+        if (lazy) {
+            lazyCursor = db.getCollection(tablename).find(new BasicDBObject(), FIELDS);
+            if (readPreference != null) {
+                lazyCursor.setReadPreference(readPreference);
+            }
+            lazyCursor.setDecoderFactory(LazyDBDecoder.FACTORY);
+        } else {
+            cursor = openCursor(tablename);
+        }
+        stats.collectionOpened();
+    }
+
+    @Override
+    public QueryStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return a cursor on all the documents of a collection, decoded into TupleList by TupleListCodec
+     */
+    MongoCursor<TupleList> openCursor(String tablename) {
+        return database.getCollection(tablename, TupleList.class).find().projection(FIELDS).iterator();
     }
 
     @Override
     public boolean hasNext() {
+        long bytes = DecodedBytes.get();
+        boolean result = advance();
+        stats.bytesDecoded(DecodedBytes.get() - bytes);
+        if (!result) {
+            stats.finish();
+        }
+        return result;
+    }
+
+    private boolean advance() {
         if (tablenames.isEmpty()) {
             return false;
         }
-        if (cursor == null) {
-            return false;
+        if (currenttable < 0) {
+            currenttable = 0;
+            openTable(tablenames.get(currenttable));
         }
-        if (cursor.hasNext()) {
-            return true;
-        } else {
+        while (lazy ? !lazyCursor.hasNext() : !cursor.hasNext()) {
             if (currenttable < tablenames.size() - 1) {
+                closeCursors();
                 currenttable += 1;
                 openTable(tablenames.get(currenttable));
             } else {
@@ -96,30 +181,57 @@ public class AllTuplesResultIterator implements Iterator {
 
     @Override
     public List<Tuple> next() {
-        List<Tuple> results = new ArrayList<>();
-        
-        DBObject current = cursor.next();
-        String instance = current.get("instance").toString();
+        List<Tuple> result;
+        if (lazy) {
+            DBObject current = lazyCursor.next();
+            if (current instanceof LazyDBObject) {
+                stats.bytesDecoded(((LazyDBObject) current).getBSONSize());
+            }
+            result = decodeLazy(current);
+        } else {
+            long bytes = DecodedBytes.get();
+            result = cursor.next();
+            stats.bytesDecoded(DecodedBytes.get() - bytes);
+        }
+        stats.documentsScanned(1);
+        stats.modificationsExamined(result.size());
+        stats.resultsReturned(result.size());
+        return result;
+    }
 
+    /**
+     * Converts a core tuple document into the list of its tuples without parsing the modifications.
+     * @param current : a document of an instance or class collection
+     * @return a LazyTuple for each modification
+     */
+    static List<Tuple> decodeLazy(DBObject current) {
+        String instance = current.get("instance").toString();
         String clazz = current.get("class").toString();
-        
-        BasicDBList modificationDBList = (BasicDBList) current.get("modifications");
-        BasicDBObject[] modificationDBArr = modificationDBList.toArray(new BasicDBObject[0]);
-        for (DBObject singleModification : modificationDBArr) 
-        {
-            results.add(new Tuple(instance, clazz,
-                    Double.parseDouble(singleModification.get("frequency").toString()),
-                    Integer.parseInt(singleModification.get("pidspread").toString()),
-                    Integer.parseInt(singleModification.get("pldspread").toString()),
-                    singleModification.get("ipremod").toString(), singleModification.get("ipostmod").toString(),
-                    singleModification.get("cpremod").toString(), singleModification.get("cpostmod").toString(),
-                    singleModification.get("pids").toString(), singleModification.get("plds").toString(),
-                    singleModification.get("provids").toString())
-            );
+        List<?> modifications = (List<?>) current.get("modifications");
+        List<Tuple> results = new ArrayList<>(modifications.size());
+        for (Object singleModification : modifications) {
+            results.add(new LazyTuple(instance, clazz, (DBObject) singleModification));
         }
         return results;
+    }
 
+    public void close()
+    {
+        closeCursors();
+        stats.finish();
     }
 
-}
+    private void closeCursors()
+    {
+        if (cursor!=null)
+        {
+            cursor.close();
+        }
+        if (lazyCursor!=null)
+        {
+            lazyCursor.close();
+        }
+    
+    }
 
+}
@@ -0,0 +1,120 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.queries;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+
+import de.unima.webtuples.codecs.DecodedBytes;
+import de.unima.webtuples.codecs.WebIsADbCodecs;
+import de.unima.webtuples.datatypes.CoreTuple;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class walks the hypernym hierarchy of a MongoDB tuples database, one round trip per collection and level:
+ * the nodes of a level are grouped by their collection (the instance collections upwards, the class collections downwards)
+ * and each collection is queried once with a $in query on its nodes, as BulkLemmaQuery does.
+ * The frequency and spread thresholds of the filter are checked by the server, the pids and plds by the client.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class BatchedHypernymClosure extends HypernymClosure {
+
+    // the fields decoded by CoreTupleCodec
+    private static final BasicDBObject FIELDS = new BasicDBObject("_id", 0).append("instance", 1).append("class", 1)
+            .append("frequency", 1).append("pidspread", 1).append("pldspread", 1).append("pids", 1).append("plds", 1);
+
+    private final CollectionCatalog catalog;
+    private final int batchSize;
+
+    /**
+     * @param catalog : the collections of the tuples database
+     * @param batchSize : the maximum number of lemmas of a single query
+     * @param maximumWeight : the total number of nodes of the memoized closures, 0 disables the memoization
+     */
+    public BatchedHypernymClosure(CollectionCatalog catalog, int batchSize, int maximumWeight) {
+        super(maximumWeight);
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.catalog = catalog;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    protected Map<String, Set<String>> expand(List<String> lemmas, boolean up, TupleFilter filter, QueryStats stats) {
+        String sortingprefix = up ? "i" : "c";
+        String field = up ? "instance" : "class";
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        for (String lemma : lemmas) {
+            String tablename = catalog.getTupleCollection(sortingprefix, lemma);
+            if (tablename == null) {
+                continue;
+            }
+            List<String> group = groups.get(tablename);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(tablename, group);
+            }
+            group.add(lemma);
+        }
+
+        Map<String, Set<String>> neighbours = new LinkedHashMap<>();
+        MongoDatabase database = WebIsADbCodecs.database(catalog.getDb());
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            List<String> groupLemmas = group.getValue();
+            for (int from = 0; from < groupLemmas.size(); from += batchSize) {
+                List<String> batch = groupLemmas.subList(from, Math.min(from + batchSize, groupLemmas.size()));
+                BasicDBObject query = batch.size() == 1 ? new BasicDBObject(field, batch.get(0))
+                        : new BasicDBObject(field, new BasicDBObject("$in", new ArrayList<>(batch)));
+                if (filter != null) {
+                    CoreTupleQueryResultIterator.appendRange(query, "frequency", filter.getMinFrequency(), filter.getMaxFrequency());
+                    CoreTupleQueryResultIterator.appendRange(query, "pidspread", filter.getMinPidSpread(), filter.getMaxPidSpread());
+                    CoreTupleQueryResultIterator.appendRange(query, "pldspread", filter.getMinPldSpread(), filter.getMaxPldSpread());
+                }
+                stats.collectionOpened();
+                long bytes = DecodedBytes.get();
+                try (MongoCursor<CoreTuple> cursor = database.getCollection(group.getKey(), CoreTuple.class)
+                        .find(query).projection(FIELDS).iterator()) {
+                    while (cursor.hasNext()) {
+                        CoreTuple tuple = cursor.next();
+                        stats.documentsScanned(1);
+                        if (filter != null && !filter.matches(tuple)) {
+                            continue;
+                        }
+                        String node = up ? tuple.getInstanceLemma() : tuple.getClassLemma();
+                        Set<String> nodeNeighbours = neighbours.get(node);
+                        if (nodeNeighbours == null) {
+                            nodeNeighbours = new LinkedHashSet<>();
+                            neighbours.put(node, nodeNeighbours);
+                        }
+                        nodeNeighbours.add(up ? tuple.getClassLemma() : tuple.getInstanceLemma());
+                    }
+                }
+                stats.bytesDecoded(DecodedBytes.get() - bytes);
+            }
+        }
+        return neighbours;
+    }
+}
@@ -0,0 +1,211 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.queries;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+
+import de.unima.webtuples.codecs.DecodedBytes;
+import de.unima.webtuples.codecs.TupleList;
+import de.unima.webtuples.codecs.WebIsADbCodecs;
+import de.unima.webtuples.datatypes.Tuple;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * This class looks up the tuples of many instance (or class) lemmas at once.
+ * The lemmas are grouped by their collection, as routed by CoreTupleQueryResultIterator.tablename, 
+ * and each collection is queried with a single $in query on its lemmas (split into batches of batchSize lemmas),
+ * instead of a query for each lemma. The queries can run at the same time on an executor.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class BulkLemmaQuery {
+
+    // the fields decoded by TupleListCodec
+    private static final BasicDBObject FIELDS = new BasicDBObject("_id", 0).append("instance", 1).append("class", 1).append("modifications", 1);
+
+    private final CollectionCatalog catalog;
+    private final String sortingprefix;
+    private final int batchSize;
+    private final QueryMetrics metrics;
+    private volatile QueryStats lastStats;
+
+    /**
+     * @param catalog : the collections of the tuples database
+     * @param sortingprefix : "i" to look up instances and "c" to look up classes
+     * @param batchSize : the maximum number of lemmas of a single query
+     */
+    public BulkLemmaQuery(CollectionCatalog catalog, String sortingprefix, int batchSize) {
+        this(catalog, sortingprefix, batchSize, null);
+    }
+
+    /**
+     * @param metrics : the metrics aggregating the lookups, null if they are not reported
+     */
+    public BulkLemmaQuery(CollectionCatalog catalog, String sortingprefix, int batchSize, QueryMetrics metrics) {
+        if (!sortingprefix.equals("i") && !sortingprefix.equals("c")) {
+            throw new IllegalArgumentException("sortingprefix must be \"i\" or \"c\"");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.catalog = catalog;
+        this.sortingprefix = sortingprefix;
+        this.batchSize = batchSize;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns all the tuples of each lemma, as getTuplesWhere with the lemma and "*" everywhere else.
+     * @param lemmas : the lemmas to look up, duplicates are looked up once
+     * @param executor : runs the queries of the collections at the same time, null to run them one after the other
+     * @return the tuples of each lemma in the order of lemmas, an empty list for the lemmas without tuples
+     */
+    public Map<String, List<Tuple>> run(Collection<String> lemmas, ExecutorService executor) {
+        Map<String, List<Tuple>> results = new LinkedHashMap<>();
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        for (String lemma : lemmas) {
+            if (results.containsKey(lemma)) {
+                continue;
+            }
+            results.put(lemma, new ArrayList<Tuple>());
+            String tablename = catalog.getTupleCollection(sortingprefix, lemma);
+            if (tablename == null) {
+                continue;
+            }
+            List<String> group = groups.get(tablename);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(tablename, group);
+            }
+            group.add(lemma);
+        }
+
+        List<Callable<Batch>> queries = new ArrayList<>();
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            List<String> groupLemmas = group.getValue();
+            for (int from = 0; from < groupLemmas.size(); from += batchSize) {
+                queries.add(query(group.getKey(), groupLemmas.subList(from, Math.min(from + batchSize, groupLemmas.size()))));
+            }
+        }
+
+        QueryStats stats = new QueryStats(QueryType.BULK_LEMMAS);
+        stats.reportTo(metrics);
+        lastStats = stats;
+        try {
+            if (executor == null) {
+                for (Callable<Batch> query : queries) {
+                    add(results, call(query), stats);
+                }
+            } else {
+                List<Future<Batch>> futures = new ArrayList<>();
+                for (Callable<Batch> query : queries) {
+                    futures.add(executor.submit(query));
+                }
+                try {
+                    for (Future<Batch> future : futures) {
+                        add(results, future.get(), stats);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for tuples", e);
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+                } finally {
+                    for (Future<Batch> future : futures) {
+                        future.cancel(true);
+                    }
+                }
+            }
+        } finally {
+            stats.finish();
+        }
+        return results;
+    }
+
+    /**
+     * @return the counters of the last call of run, null before the first call
+     */
+    public QueryStats getStats() {
+        return lastStats;
+    }
+
+    private Callable<Batch> query(final String tablename, final List<String> lemmas) {
+        final String field = sortingprefix.equals("i") ? "instance" : "class";
+        return new Callable<Batch>() {
+            @Override
+            public Batch call() {
+                MongoCollection<TupleList> table = WebIsADbCodecs.database(catalog.getDb()).getCollection(tablename, TupleList.class);
+                BasicDBObject query = lemmas.size() == 1 ? new BasicDBObject(field, lemmas.get(0))
+                        : new BasicDBObject(field, new BasicDBObject("$in", lemmas));
+                Batch batch = new Batch();
+                long bytes = DecodedBytes.get();
+                try (MongoCursor<TupleList> cursor = table.find(query).projection(FIELDS).iterator()) {
+                    while (cursor.hasNext()) {
+                        batch.documents.add(cursor.next());
+                    }
+                }
+                batch.bytes = DecodedBytes.get() - bytes;
+                return batch;
+            }
+        };
+    }
+
+    private static Batch call(Callable<Batch> query) {
+        try {
+            return query.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void add(Map<String, List<Tuple>> results, Batch batch, QueryStats stats) {
+        stats.collectionOpened();
+        stats.bytesDecoded(batch.bytes);
+        stats.documentsScanned(batch.documents.size());
+        for (TupleList tuples : batch.documents) {
+            stats.modificationsExamined(tuples.size());
+            List<Tuple> lemmaTuples = results.get(sortingprefix.equals("i") ? tuples.getInstance() : tuples.getClazz());
+            if (lemmaTuples != null) {
+                lemmaTuples.addAll(tuples);
+                stats.resultsReturned(tuples.size());
+            }
+        }
+    }
+
+    /**
+     * The documents read by one query and their size.
+     */
+    private static class Batch {
+
+        final List<TupleList> documents = new ArrayList<>();
+        long bytes;
+    }
+}
@@ -0,0 +1,210 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.queries;
+
+import com.mongodb.DB;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class keeps the names of the collections of a database, so that the iterators can route a lemma or a provid
+ * to its collection without asking the server for the list of the collections on each query.
+ * The names are read on first use and then only by refresh(), called on demand or periodically (startRefreshing).
+ * A collection created after the last refresh is not seen by the lookups until the next refresh.
+ * The catalog can be shared by several threads.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class CollectionCatalog {
+
+    private final DB db;
+    // replaced as a whole by refresh()
+    private volatile Names names;
+    private ScheduledExecutorService timer;
+    private ScheduledFuture<?> refreshing;
+
+    /**
+     * @param db : the database, whose collections are listed
+     */
+    public CollectionCatalog(DB db) {
+        this.db = db;
+    }
+
+    public DB getDb() {
+        return db;
+    }
+
+    /**
+     * Reads the names of the collections from the server.
+     */
+    public void refresh() {
+        names = new Names(db.getCollectionNames());
+    }
+
+    /**
+     * Refreshes the catalog every period on a daemon thread, until stopRefreshing is called.
+     */
+    public synchronized void startRefreshing(long period, TimeUnit unit) {
+        stopRefreshing();
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "webisadb-catalog");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        refreshing = timer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refresh();
+                } catch (RuntimeException e) {
+                    // the previous names are kept until the server answers again
+                }
+            }
+        }, period, period, unit);
+    }
+
+    public synchronized void stopRefreshing() {
+        if (refreshing != null) {
+            refreshing.cancel(false);
+            refreshing = null;
+        }
+    }
+
+    /**
+     * Stops the periodic refresh and its thread.
+     */
+    public synchronized void close() {
+        stopRefreshing();
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    private Names names() {
+        Names current = names;
+        if (current == null) {
+            synchronized (this) {
+                if (names == null) {
+                    refresh();
+                }
+                current = names;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return true if the collection exists
+     */
+    public boolean contains(String tablename) {
+        return names().all.contains(tablename);
+    }
+
+    /**
+     * @param prefix : "i" for instances, "c" for classes, "s" for sentences
+     * @return the collections starting with prefix in alphabetical order, without the system collections
+     */
+    public List<String> getCollections(String prefix) {
+        Names current = names();
+        if (prefix.length() == 1) {
+            List<String> collections = current.byFirstChar.get(prefix.charAt(0));
+            return collections == null ? Collections.<String>emptyList() : collections;
+        }
+        List<String> collections = new ArrayList<>();
+        for (String s : current.sorted) {
+            if (s.startsWith(prefix)) {
+                collections.add(s);
+            }
+        }
+        return collections;
+    }
+
+    /**
+     * @param sortingprefix : "i" for instances and "c" for classes
+     * @param lemma : the instance or class
+     * @return the collection of the lemma, null if it does not exist
+     * @see CoreTupleQueryResultIterator#tablename(String, String)
+     */
+    public String getTupleCollection(String sortingprefix, String lemma) {
+        String tablename = CoreTupleQueryResultIterator.tablename(sortingprefix, lemma);
+        return contains(tablename) ? tablename : null;
+    }
+
+    /**
+     * @param provid : a provenance id
+     * @return the sentence collection of the provid, null if it does not exist
+     */
+    public String getContextCollection(String provid) {
+        String tablename = contextCollection(provid);
+        return contains(tablename) ? tablename : null;
+    }
+
+    /**
+     * @return the name of the sentence collection of a provid: "s" followed by provid/1000000
+     */
+    public static String contextCollection(String provid) {
+        return "s" + Long.parseLong(provid.trim()) / 1000000;
+    }
+
+    /**
+     * The names read by a refresh.
+     */
+    private static class Names {
+
+        final Set<String> all;
+        final List<String> sorted;
+        final Map<Character, List<String>> byFirstChar = new HashMap<>();
+
+        Names(Set<String> collectionNames) {
+            all = new HashSet<>(collectionNames);
+            sorted = new ArrayList<>(new TreeSet<>(collectionNames));
+            for (String s : sorted) {
+                if (s.isEmpty() || s.startsWith("system.")) {
+                    continue;
+                }
+                List<String> collections = byFirstChar.get(s.charAt(0));
+                if (collections == null) {
+                    collections = new ArrayList<>();
+                    byFirstChar.put(s.charAt(0), collections);
+                }
+                collections.add(s);
+            }
+            for (Map.Entry<Character, List<String>> e : byFirstChar.entrySet()) {
+                e.setValue(Collections.unmodifiableList(e.getValue()));
+            }
+        }
+    }
+}
@@ -16,31 +16,34 @@ package de.unima.webtuples.queries;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.DB;
-import com.mongodb.DBCollection;
-import com.mongodb.DBCursor;
-import com.mongodb.DBObject;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import de.unima.webtuples.codecs.DecodedBytes;
+import de.unima.webtuples.codecs.WebIsADbCodecs;
 import de.unima.webtuples.datatypes.Context;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 
 /**
  * This class is used to find the context of the extraction of a tuple.
  * @author Julian Seitener, Nacho Vidal and Stefano Faralli
  *
  */
-public class ContextResultIterator implements Iterator {
+public class ContextResultIterator implements ResultIterator<Context> {
 
     List<String> tablenames;
     int currenttable = -1;
     String provid;
-    DBCursor cursor;
-    DBCollection table;
+    // decodes the documents with ContextCodec
+    MongoCursor<Context> cursor;
     DB db;   
+    MongoDatabase database;
     int counter=0;
     int limit=0;
-    private Set<String> tablenamesapp;
+    // the counters of the query
+    private final QueryStats stats = new QueryStats(QueryType.CONTEXTS);
+    // the fields decoded by next()
+    private static final BasicDBObject FIELDS = new BasicDBObject("_id", 0).append("provid", 1).append("pld", 1).append("sentence", 1);
     /**
      * 
      * @param db : The database, which contains the tables
@@ -53,29 +56,30 @@ public class ContextResultIterator implements Iterator {
     }
     
     public ContextResultIterator(String provid, DB db,int limit) {
-        this.db = db;
-        tablenamesapp = db.getCollectionNames();
+        this(provid, new CollectionCatalog(db), limit);
+    }
+
+    /**
+     * @param provid : The provenance ID of tuple or sentence, null or "" for all the contexts.
+     * @param catalog : The collections of the database, which contains the tables
+     * @param limit : the maximum number of contexts, 0 means no limits
+     */
+    public ContextResultIterator(String provid, CollectionCatalog catalog, int limit) {
+        this.db = catalog.getDb();
+        this.database = WebIsADbCodecs.database(db);
         tablenames = new ArrayList<>();
-       // System.out.println("Query with provid:"+provid);
         this.provid = provid;
         this.limit=limit;
         if (provid==null||provid.equals(""))
         {
-            for (String s : tablenamesapp) {
-                if (s.startsWith("s")) {
-                    tablenames.add(s);
-                }
-            }
+            tablenames.addAll(catalog.getCollections("s"));
         }
         else
         {
-            Double tableId = Math.ceil(Long.parseLong(provid)/1000000);           
-            for (String s : tablenamesapp) {
-                if (s.equals("s"+tableId.intValue())) 
-                {
-                    tablenames.add(s);
-                    //System.out.println("Added Table:"+s);
-                }
+            String s = catalog.getContextCollection(provid);
+            if (s != null) 
+            {
+                tablenames.add(s);
             }
         }
         
@@ -100,14 +104,29 @@ public class ContextResultIterator implements Iterator {
             cursor.close();        
             cursor=null;
         }
-        table = db.getCollection(tablename);
-        cursor = table.find(query);
-        cursor.addOption(com.mongodb.Bytes.QUERYOPTION_NOTIMEOUT);
+        cursor = database.getCollection(tablename, Context.class).find(query).projection(FIELDS)
+                .noCursorTimeout(true).iterator();
+        stats.collectionOpened();
+    }
+
+    @Override
+    public QueryStats getStats() {
+        return stats;
     }
 
     @Override
     public boolean hasNext() {
-        if (limit>0&&counter>limit) 
+        long bytes = DecodedBytes.get();
+        boolean result = advance();
+        stats.bytesDecoded(DecodedBytes.get() - bytes);
+        if (!result) {
+            stats.finish();
+        }
+        return result;
+    }
+
+    private boolean advance() {
+        if (limit>0&&counter>=limit) 
         {
             if (cursor!=null) 
             {
@@ -140,11 +159,11 @@ public class ContextResultIterator implements Iterator {
     public Context next() 
     {       
         
-        DBObject current = cursor.next();
-        //String result = current.get("provid").toString()+" "+current.get("sentence").toString();      
-        Context result= new Context(current.get("pld").toString(),current.get("sentence").toString());
-        /*System.out.println("Found record!");
-        System.out.println();*/
+        long bytes = DecodedBytes.get();
+        Context result= cursor.next();
+        stats.bytesDecoded(DecodedBytes.get() - bytes);
+        stats.documentsScanned(1);
+        stats.resultsReturned(1);
         counter++;
         return result;
 
@@ -155,6 +174,6 @@ public class ContextResultIterator implements Iterator {
         {
             cursor.close();
         }
-    
+        stats.finish();
     }
 }
\ No newline at end of file
@@ -15,30 +15,36 @@
 
 package de.unima.webtuples.queries;
 
+import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DB;
-import com.mongodb.DBCollection;
-import com.mongodb.DBCursor;
-import com.mongodb.DBObject;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
 
+import de.unima.webtuples.codecs.DecodedBytes;
+import de.unima.webtuples.codecs.WebIsADbCodecs;
 import de.unima.webtuples.datatypes.CoreTuple;
 
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.regex.Pattern;
 /**
  * This class is used to iterate through core tuples.
+ * @param <T> the type of the results: List&lt;? extends CoreTuple&gt; for a core lookup, 
+ * 		List&lt;Tuple&gt; for the modification lookup of the TupleQueryResultIterator subclass
  * @author Julian Seitener, Nacho Vidal and Stefano Faralli
  *
  */
-public class CoreTupleQueryResultIterator implements Iterator {
+public class CoreTupleQueryResultIterator<T extends List<? extends CoreTuple>> implements ResultIterator<T> {
 
     List<String> tablenames;
     int currenttable = -1;
-    DBCursor cursor;
-    DBCollection table;
+    // decodes CoreTuple or TupleList, depending on the subclass
+    MongoCursor<?> cursor;
     DB db;
+    // the same database as db, decoding the documents with the codecs of WebIsADbCodecs
+    MongoDatabase database;
     String instance;
     String clazz;
     String[] pids;
@@ -51,6 +57,12 @@ public class CoreTupleQueryResultIterator implements Iterator {
     int maxPldSpread;
     String sortingprefix;
     boolean strict;
+    // true once a cursor was opened with the query of buildQuery(), which sends the frequency, spread, pid and pld filters to MongoDB
+    boolean filtersPushedDown = false;
+    // the client side checks of the filters
+    TupleFilter filter;
+    // the counters of the query
+    final QueryStats stats = new QueryStats(queryType());
 
     /**
      * 
@@ -100,7 +112,22 @@ public class CoreTupleQueryResultIterator implements Iterator {
     		int minPidSpread, int maxPidSpread,
     		int minPldSpread, int maxPldSpread, boolean strict) 
     {
-        this.db = db;
+        this(instance, clazz, new CollectionCatalog(db), pids, plds, minFrequency, maxFrequency, 
+        		minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
+    }
+
+    /**
+     * Same as the constructor taking the database, the collections of a query with instance and class "*" are taken from the catalog.
+     * @param catalog : Refers to the collections of the mongoDB database that is queried
+     */
+    public CoreTupleQueryResultIterator(String instance,String clazz, CollectionCatalog catalog,
+    		String[] pids, String[] plds, 
+    		double minFrequency, double maxFrequency,
+    		int minPidSpread, int maxPidSpread,
+    		int minPldSpread, int maxPldSpread, boolean strict) 
+    {
+        this.db = catalog.getDb();
+        this.database = WebIsADbCodecs.database(db);
         String tag="";
         if (instance.equals("*"))
         {
@@ -128,43 +155,96 @@ public class CoreTupleQueryResultIterator implements Iterator {
         this.plds = plds;
         this.pids = pids;
         this.strict = strict;
+        this.filter = new TupleFilter(pids, plds, minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
         
         tablenames = new ArrayList<>();
-       
-         if (tag.length()==0)
-         {
-        	 tablenames.add(sortingprefix+"00");
-         }
-         else if (tag.length()==1)
-         {
-        	 tablenames.add(sortingprefix+"0"+tag.substring(0,1));
-         }
-         else
-         {
-             tablenames.add(sortingprefix+tag.substring(0,2));
-         }
+        tablenames.add(tablename(sortingprefix, tag));
         
          
          if (instance.equals("*") && clazz.equals("*"))
          {
-        	tablenames = new ArrayList<>();
-         	for (String tn:db.getCollectionNames())
-         	{
-         		if (tn.startsWith("i"))
-         		{
-         			tablenames.add(tn);
-         		}
-         	}
+        	tablenames = new ArrayList<>(catalog.getCollections("i"));
          }
          
-        if (tablenames.size() > 0) {
-            currenttable = 0;
-            openTable(tablenames.get(currenttable));
+        // the first table is opened by hasNext(), once the subclasses have set their own parameters
+    }
+
+    /**
+     * Returns the collection containing a lemma: the prefix followed by the first two letters a-z of the lemma,
+     * "0" followed by the letter if there is only one, "00" if there are none.
+     * @param sortingprefix : "i" for instances and "c" for classes
+     * @param lemma : the instance or class
+     * @return the name of the collection, e.g. "iap" for the instance "apple"
+     */
+    public static String tablename(String sortingprefix, String lemma) {
+        String tag = lemma.replaceAll("[^a-z]", "");
+        if (tag.length() == 0) {
+            return sortingprefix + "00";
+        } else if (tag.length() == 1) {
+            return sortingprefix + "0" + tag;
         }
+        return sortingprefix + tag.substring(0, 2);
     }
 
     private void openTable(String tablename) {
 
+        cursor = openCursor(tablename);
+        stats.collectionOpened();
+    }
+
+    QueryType queryType() {
+        return QueryType.CORE_TUPLES;
+    }
+
+    @Override
+    public QueryStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Opens the cursor on a single collection.
+     * @param tablename : the collection to query
+     * @return a cursor on the matching documents, decoded into CoreTuple by CoreTupleCodec
+     */
+    protected MongoCursor<?> openCursor(String tablename) {
+        MongoCursor<CoreTuple> cursor = database.getCollection(tablename, CoreTuple.class)
+                .find(buildQuery()).projection(fields()).noCursorTimeout(true).iterator();
+        // the server checks the filters, next() only checks the thresholds again
+        filtersPushedDown = true;
+        return cursor;
+    }
+
+    /**
+     * @return the projection on the fields decoded by next(), so that the modifications array is not transferred
+     */
+    protected BasicDBObject fields() {
+        return new BasicDBObject("_id", 0).append("instance", 1).append("class", 1)
+                .append("frequency", 1).append("pidspread", 1).append("pldspread", 1)
+                .append("pids", 1).append("plds", 1);
+    }
+
+    /**
+     * Builds the query sent to each collection. 
+     * Besides the instance and class values, all the thresholds and the pids/plds lists are translated into server side predicates,
+     * so that only the matching core tuples leave the database.
+     * Once openCursor() sent this query next() only checks the thresholds again, for the values stored as strings (see appendRange): 
+     * a subclass opening its cursors in another way keeps all the client side checks.
+     * @return the query for the current parameters
+     */
+    protected BasicDBObject buildQuery() {
+        BasicDBObject query = lemmaQuery();
+        appendRange(query, "frequency", minFrequency, maxFrequency);
+        appendRange(query, "pidspread", minPidSpread, maxPidSpread);
+        appendRange(query, "pldspread", minPldSpread, maxPldSpread);
+        appendContains(query, "pids", pids);
+        appendContains(query, "plds", plds);
+        return query;
+    }
+
+    /**
+     * @return a query matching the instance and class values, "*" matches every value
+     */
+    protected BasicDBObject lemmaQuery() {
         BasicDBObject query = new BasicDBObject();
         if (!clazz.equals("*"))
         {
@@ -174,31 +254,99 @@ public class CoreTupleQueryResultIterator implements Iterator {
         {
         	query.append("instance", instance);
         }
-        table = db.getCollection(tablename);
-        cursor = table.find(query);/*.sort(new BasicDBObject("frequency", -1));*/
-        cursor.addOption(com.mongodb.Bytes.QUERYOPTION_NOTIMEOUT);
-        //cursor.sort();
+        return query;
+    }
+
+    /**
+     * Appends a $gte/$lte predicate on field. As for the constructor parameters, a threshold equal to 0 means no threshold.
+     * The fields are expected to be numbers, but the codecs also parse numbers stored as strings, which $gte/$lte never match:
+     * the predicate lets the strings through ($or on $type 2) and the caller checks the thresholds again on the client.
+     */
+    static void appendRange(BasicDBObject query, String field, double min, double max) {
+        BasicDBObject range = new BasicDBObject();
+        if (min != 0) {
+            range.append("$gte", min);
+        }
+        if (max != 0) {
+            range.append("$lte", max);
+        }
+        if (range.isEmpty()) {
+            return;
+        }
+        BasicDBList or = new BasicDBList();
+        or.add(new BasicDBObject(field, range));
+        or.add(new BasicDBObject(field, new BasicDBObject("$type", 2)));
+        and(query).add(new BasicDBObject("$or", or));
+    }
+
+    /**
+     * @return the $and list of query, added if it has none
+     */
+    static BasicDBList and(BasicDBObject query) {
+        BasicDBList and = (BasicDBList) query.get("$and");
+        if (and == null) {
+            and = new BasicDBList();
+            query.append("$and", and);
+        }
+        return and;
+    }
+
+    /**
+     * Appends the server side equivalent of the check done by TupleFilter: value followed by a semicolon, 
+     * at the beginning of the field or after another semicolon. Without the (^|;) anchor the regex would also match 
+     * the end of a longer value, "p1;" in "p21;", and the pushed down query would return more tuples than the client side check.
+     * In strict mode every value has to be present (one regex per value in $and), otherwise one of them is enough ($in).
+     */
+    void appendContains(BasicDBObject query, String field, String[] values) {
+        if (values == null) {
+            return;
+        }
+        Pattern[] patterns = new Pattern[values.length];
+        for (int i = 0; i < values.length; i++) {
+            patterns[i] = Pattern.compile("(^|;)" + Pattern.quote(values[i] + ";"));
+        }
+        if (!strict) {
+            query.append(field, new BasicDBObject("$in", patterns));
+            return;
+        }
+        BasicDBList and = and(query);
+        for (Pattern pattern : patterns) {
+            and.add(new BasicDBObject(field, pattern));
+        }
     }
 
     @Override
     public boolean hasNext() {
+        long bytes = DecodedBytes.get();
+        boolean result = advance();
+        stats.bytesDecoded(DecodedBytes.get() - bytes);
+        if (!result) {
+            stats.finish();
+        }
+        return result;
+    }
+
+    private boolean advance() {
        
         if (tablenames.isEmpty()) {
             return false;
         }
         if (cursor == null) {
-            return false;
+            if (currenttable >= 0) {
+                return false;
+            }
+            currenttable = 0;
+            openTable(tablenames.get(currenttable));
         }
         
         
-        if (cursor.hasNext()) 
-        {
-            return true;
-        } 
-        else 
+        // with the filters sent to the server a collection can have no results at all, 
+        // therefore move on until a collection with results is found
+        while (!cursor.hasNext()) 
         {
             if (currenttable < tablenames.size() - 1)
             {
+                cursor.close();
                 currenttable += 1;
                 openTable(tablenames.get(currenttable));
             } 
@@ -211,97 +359,37 @@ public class CoreTupleQueryResultIterator implements Iterator {
         return true;
     }
     
+    /**
+     * @return the next core tuple in a list, empty if it does not pass the client side checks.
+     * 		A subclass returning other results overrides this method.
+     */
     @Override
-    public List<? extends CoreTuple> next() {
-    	boolean pldCheck = false;
-    	boolean pidCheck = false;
-        boolean valid = true;
-        DBObject current = cursor.next();
-        String inst = current.get("instance").toString();
-        String claz = current.get("class").toString();
+    @SuppressWarnings("unchecked")
+    public T next() {
+        long bytes = DecodedBytes.get();
+        CoreTuple tuple = (CoreTuple) cursor.next();
+        stats.bytesDecoded(DecodedBytes.get() - bytes);
+        stats.documentsScanned(1);
         List<CoreTuple> result = new ArrayList<>();
         
-    	if(Double.parseDouble(current.get("frequency").toString())<this.minFrequency && !(this.minFrequency==0))
-    	{
-    		valid = false;
-    	}
-    	if(Double.parseDouble(current.get("frequency").toString())>this.maxFrequency && !(this.maxFrequency==0))
-    	{
-    		valid = false;
-    	}
-    	if(Integer.parseInt(current.get("pidspread").toString())<this.minPidSpread && !(this.minPidSpread==0))
-    	{
-    		valid = false;
-    	}
-    	if(Integer.parseInt(current.get("pidspread").toString())>this.maxPidSpread && !(this.maxPidSpread==0))
-    	{
-    		valid = false;
-    	}
-    	if(Integer.parseInt(current.get("pldspread").toString())<this.minPldSpread && !(this.minPldSpread==0))
+        // the client side checks are only a fallback for filters, which were not sent to the server,
+        // and for the thresholds of the values stored as strings
+    	if (filtersPushedDown ? filter.matchesThresholds(tuple.getAdjustedFrequency(), tuple.getPidSpread(), tuple.getPldSpread())
+    			: filter.matches(tuple))
     	{
-    		valid = false;
+    		result.add(tuple);
     	}
-    	if(Integer.parseInt(current.get("pldspread").toString())>this.maxPldSpread && !(this.maxPldSpread==0))
-    	{
-    		valid = false;
-    	}
-    	if (pids!=null)
-    	{
-        	for (String pid : pids)
-        	{
-        		if (current.get("pids").toString().contains(pid+";"))
-        		{
-        			pidCheck=true;
-        		}
-        		if (!current.get("pids").toString().contains(pid+";") && strict)
-        		{
-        			valid=false;
-        			break;
-        		}
-        	}
-        	if (!pidCheck)
-        	{
-        		valid = false;
-        	}
-    	}
-    	if (plds!=null)
-    	{
-        	for (String pld : plds)
-        	{
-        		if (current.get("plds").toString().contains(pld+";"))
-        		{
-        			pldCheck=true;
-        		}
-        		if (!current.get("plds").toString().contains(pld+";") && strict)
-        		{
-        			valid=false;
-        			break;
-        		}
-        	}
-        	if (!pldCheck)
-        	{
-        		valid = false;
-        	}
-    	}
-    	
-    	if (valid)
-    	{
-    		result.add(new CoreTuple(inst, claz,
-                    Double.parseDouble(current.get("frequency").toString()),
-                    Integer.parseInt(current.get("pidspread").toString()),
-                    Integer.parseInt(current.get("pldspread").toString()),
-                    "", "",
-                    ""));
-    	}
-        return result;
+        stats.resultsReturned(result.size());
+        return (T) result;
     }
+
     public void close()
     {
         if (cursor!=null)
         {
             cursor.close();
         }
-    
+        stats.finish();
     }
 }
 
@@ -0,0 +1,78 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.queries;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * This class iterates through the single results of an iterator returning a list for each document,
+ * e.g. the tuples of all the core tuples returned by a TupleQueryResultIterator.
+ * The empty lists, returned when the filters reject all the results of a document, are skipped.
+ *
+ * @param <T> the type of the results
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class FlatResultIterator<T> implements ResultIterator<T> {
+
+    private final ResultIterator<? extends List<? extends T>> source;
+    private Iterator<? extends T> current = Collections.emptyIterator();
+
+    /**
+     * @param source : the iterator over the lists, closed by close()
+     */
+    public FlatResultIterator(ResultIterator<? extends List<? extends T>> source) {
+        this.source = source;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (!source.hasNext()) {
+                return false;
+            }
+            current = source.next().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        source.close();
+    }
+
+    @Override
+    public QueryStats getStats() {
+        return source.getStats();
+    }
+}
@@ -0,0 +1,310 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.queries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class walks the hypernym hierarchy breadth first: upwards from an instance to its classes, their classes and so on 
+ * (e.g. "apple", "fruit", "food"), or downwards from a class to its instances. 
+ * Each level is expanded at once by expand(), e.g. with a single query per collection in BatchedHypernymClosure.
+ * A node is expanded once, the nodes reached again are ignored, so that cycles end the walk.
+ * Only the core tuples accepted by the filter are followed: the thresholds on frequency and spreads prune the walk.
+ *
+ * The closures are memoized across calls: the result of each call, and the direct neighbours of each expanded node.
+ * A walk reaching a node whose closure is memoized for the remaining depth takes that closure instead of expanding it.
+ * The memory used is bounded by the total number of nodes of the memoized closures (the weight, each closure weighs 
+ * its nodes plus one): the least recently used closures are removed first, and a closure heavier than 
+ * a sixteenth of the maximum weight is not memoized, so that a single large walk does not flush the others.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public abstract class HypernymClosure {
+
+    private final int maximumWeight;
+    private final int maximumEntryWeight;
+    // access ordered, the eldest entry is the least recently used
+    private final LinkedHashMap<String, Closure> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // guarded by cache
+    private long weight = 0;
+    private volatile QueryStats lastStats;
+    // null if the walks are not reported
+    private volatile QueryMetrics metrics;
+
+    /**
+     * @param maximumWeight : the total number of nodes of the memoized closures, 0 disables the memoization
+     */
+    protected HypernymClosure(int maximumWeight) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("maximumWeight must not be negative");
+        }
+        this.maximumWeight = maximumWeight;
+        this.maximumEntryWeight = Math.max(1, maximumWeight / 16);
+    }
+
+    /**
+     * Expands one level of the walk.
+     * @param lemmas : the nodes to expand, distinct
+     * @param up : true to return the classes of instances, false to return the instances of classes
+     * @param filter : the core tuples to follow, null to follow all of them
+     * @param stats : the counters of the walk
+     * @return the neighbours of each lemma, lemmas without neighbours can be left out
+     */
+    protected abstract Map<String, Set<String>> expand(List<String> lemmas, boolean up, TupleFilter filter, QueryStats stats);
+
+    /**
+     * @param instance : the instance where the walk starts
+     * @param maxDepth : the maximum number of is-a steps, 1 returns the direct classes only
+     * @param filter : the core tuples to follow, null to follow all of them
+     * @return the classes reached from instance and their distance (the number of is-a steps), ordered by distance
+     */
+    public Map<String, Integer> ancestors(String instance, int maxDepth, TupleFilter filter) {
+        return closure(instance, true, maxDepth, filter);
+    }
+
+    /**
+     * @param clazz : the class where the walk starts
+     * @param maxDepth : the maximum number of is-a steps, 1 returns the direct instances only
+     * @param filter : the core tuples to follow, null to follow all of them
+     * @return the instances reached from clazz and their distance, ordered by distance
+     */
+    public Map<String, Integer> descendants(String clazz, int maxDepth, TupleFilter filter) {
+        return closure(clazz, false, maxDepth, filter);
+    }
+
+    private Map<String, Integer> closure(String lemma, boolean up, int maxDepth, TupleFilter filter) {
+        QueryStats stats = new QueryStats(QueryType.CLOSURE);
+        stats.reportTo(metrics);
+        lastStats = stats;
+        try {
+            if (maxDepth < 1) {
+                return new LinkedHashMap<>();
+            }
+            String key = key(up, filter);
+            Map<String, Integer> depths = new LinkedHashMap<>();
+            Set<String> reached = new LinkedHashSet<>();
+            reached.add(lemma);
+            List<String> frontier = Collections.singletonList(lemma);
+            // false once a memoized closure limited in depth was taken
+            boolean complete = true;
+            for (int depth = 0; depth < maxDepth && !frontier.isEmpty(); depth++) {
+                Map<String, Set<String>> neighbours = new LinkedHashMap<>();
+                List<String> unknown = new ArrayList<>();
+                for (String node : frontier) {
+                    Closure memoized = cached(key, node);
+                    if (memoized != null && memoized.radius >= maxDepth - depth) {
+                        // the nodes beyond it are already in its closure, up to maxDepth
+                        boolean truncated = false;
+                        for (Map.Entry<String, Integer> entry : memoized.depths.entrySet()) {
+                            if (depth + entry.getValue() <= maxDepth) {
+                                reach(lemma, depths, entry.getKey(), depth + entry.getValue());
+                            } else {
+                                truncated = true;
+                            }
+                        }
+                        complete &= memoized.radius == Integer.MAX_VALUE && !truncated;
+                    } else if (memoized != null && memoized.radius >= 1) {
+                        neighbours.put(node, memoized.neighbours());
+                    } else {
+                        unknown.add(node);
+                    }
+                }
+                if (!unknown.isEmpty()) {
+                    Map<String, Set<String>> expanded = expand(unknown, up, filter, stats);
+                    for (String node : unknown) {
+                        Set<String> nodeNeighbours = expanded.containsKey(node) ? expanded.get(node) : Collections.<String>emptySet();
+                        neighbours.put(node, nodeNeighbours);
+                        Map<String, Integer> direct = new LinkedHashMap<>();
+                        for (String neighbour : nodeNeighbours) {
+                            direct.put(neighbour, 1);
+                        }
+                        direct.remove(node);
+                        cache(key, node, new Closure(direct.isEmpty() ? Integer.MAX_VALUE : 1, direct));
+                    }
+                }
+                List<String> next = new ArrayList<>();
+                for (Set<String> nodeNeighbours : neighbours.values()) {
+                    for (String neighbour : nodeNeighbours) {
+                        reach(lemma, depths, neighbour, depth + 1);
+                        // a node with a shorter distance is in a memoized closure, which covers its neighbours too
+                        if (reached.add(neighbour) && depths.containsKey(neighbour) && depths.get(neighbour) == depth + 1) {
+                            next.add(neighbour);
+                        }
+                    }
+                }
+                frontier = next;
+            }
+            Map<String, Integer> results = sortByDepth(depths);
+            // the walk stopped before maxDepth, there are no more nodes
+            complete &= frontier.isEmpty();
+            cache(key, lemma, new Closure(complete ? Integer.MAX_VALUE : maxDepth, results));
+            stats.resultsReturned(results.size());
+            return results;
+        } finally {
+            stats.finish();
+        }
+    }
+
+    private static void reach(String lemma, Map<String, Integer> depths, String node, int depth) {
+        if (node.equals(lemma)) {
+            return;
+        }
+        Integer known = depths.get(node);
+        if (known == null || depth < known) {
+            depths.put(node, depth);
+        }
+    }
+
+    private static Map<String, Integer> sortByDepth(Map<String, Integer> depths) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(depths.entrySet());
+        // stable, the nodes of the same depth stay in the order they were reached
+        Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) {
+                return Integer.compare(a.getValue(), b.getValue());
+            }
+        });
+        Map<String, Integer> sorted = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+        return sorted;
+    }
+
+    /**
+     * @return the key of the memoized closures of a direction and filter, followed by the lemma
+     */
+    private static String key(boolean up, TupleFilter filter) {
+        if (filter == null) {
+            return (up ? "up" : "down") + "\t";
+        }
+        return (up ? "up" : "down") + " " + Arrays.toString(filter.getPids()) + " " + Arrays.toString(filter.getPlds())
+                + " " + filter.getMinFrequency() + " " + filter.getMaxFrequency()
+                + " " + filter.getMinPidSpread() + " " + filter.getMaxPidSpread()
+                + " " + filter.getMinPldSpread() + " " + filter.getMaxPldSpread() + " " + filter.isStrict() + "\t";
+    }
+
+    private Closure cached(String key, String lemma) {
+        if (maximumWeight == 0) {
+            return null;
+        }
+        synchronized (cache) {
+            return cache.get(key + lemma);
+        }
+    }
+
+    private void cache(String key, String lemma, Closure closure) {
+        if (maximumWeight == 0 || closure.weight() > maximumEntryWeight) {
+            return;
+        }
+        synchronized (cache) {
+            Closure known = cache.get(key + lemma);
+            if (known != null && known.radius >= closure.radius) {
+                return;
+            }
+            if (known != null) {
+                weight -= known.weight();
+            }
+            cache.put(key + lemma, closure);
+            weight += closure.weight();
+            Iterator<Closure> eldest = cache.values().iterator();
+            while (weight > maximumWeight && eldest.hasNext()) {
+                weight -= eldest.next().weight();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes the memoized closures, e.g. after the database was updated.
+     */
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * @return the number of memoized closures
+     */
+    public int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * @return the total number of nodes of the memoized closures, at most the maximum weight
+     */
+    public long getCacheWeight() {
+        synchronized (cache) {
+            return weight;
+        }
+    }
+
+    /**
+     * @param metrics : the metrics aggregating the walks from now on, null to stop reporting them
+     */
+    public void setQueryMetrics(QueryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the counters of the last walk, null before the first walk
+     */
+    public QueryStats getStats() {
+        return lastStats;
+    }
+
+    /**
+     * The nodes within radius steps of a node and their distance, radius is Integer.MAX_VALUE if the closure is complete.
+     */
+    private static class Closure {
+
+        final int radius;
+        final Map<String, Integer> depths;
+
+        Closure(int radius, Map<String, Integer> depths) {
+            this.radius = radius;
+            this.depths = Collections.unmodifiableMap(new LinkedHashMap<>(depths));
+        }
+
+        int weight() {
+            return depths.size() + 1;
+        }
+
+        Set<String> neighbours() {
+            Set<String> neighbours = new LinkedHashSet<>();
+            for (Map.Entry<String, Integer> entry : depths.entrySet()) {
+                if (entry.getValue() == 1) {
+                    neighbours.add(entry.getKey());
+                }
+            }
+            return neighbours;
+        }
+    }
+}
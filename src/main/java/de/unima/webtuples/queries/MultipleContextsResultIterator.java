@@ -17,33 +17,54 @@ package de.unima.webtuples.queries;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.DB;
-import com.mongodb.DBCollection;
-import com.mongodb.DBCursor;
-import com.mongodb.DBObject;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import de.unima.webtuples.codecs.DecodedBytes;
+import de.unima.webtuples.codecs.WebIsADbCodecs;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import de.unima.webtuples.datatypes.Context;
-import java.util.HashSet;
 
 
 /**
  * This class is used to iterate through multiple context of extraction.
+ * The provids are grouped by their collection (s followed by provid/1000000) and each collection is queried once,
+ * with the provids of its group only. 
+ * Optionally the collections are queried at the same time by the tasks of an executor.
  * @author Julian Seitener, Nacho Vidal and Stefano Faralli
  *
  */
-public class MultipleContextsResultIterator implements Iterator {
+public class MultipleContextsResultIterator implements ResultIterator<Context> {
 
     List<String> tablenames;
     int currenttable = -1;
-    Set<String> provids;
-    DBCursor cursor;
-    DBCollection table;
+    // the provids of each collection in tablenames, empty if all the contexts are read
+    Map<String, List<String>> groups = new LinkedHashMap<>();
+    // decodes the documents with ContextCodec
+    MongoCursor<Context> cursor;
     DB db;   
+    MongoDatabase database;
     int counter=0;
     int limit=0;
-    private Set<String> tablenamesapp;
+    // the fields decoded by next()
+    private static final BasicDBObject FIELDS = new BasicDBObject("_id", 0).append("provid", 1).append("pld", 1).append("sentence", 1);
+    // in parallel mode, the contexts of each collection in tablenames, otherwise null
+    private List<Future<List<Context>>> fetches;
+    // in parallel mode, the size of the documents decoded by each task
+    private long[] fetchedBytes;
+    private Iterator<Context> fetched;
+    // the counters of the query
+    private final QueryStats stats = new QueryStats(QueryType.CONTEXTS);
     /**
      * 
      * @param db : The database, which contains the tables
@@ -56,19 +77,38 @@ public class MultipleContextsResultIterator implements Iterator {
     }
     
     public MultipleContextsResultIterator(Set<String> provids, DB db,int limit) {
-        this.db = db;
-        tablenamesapp = db.getCollectionNames();
+        this(provids, db, limit, null);
+    }
+
+    /**
+     * @param provids : The contexts IDs of tuple or sentence.
+     * @param db : The database, which contains the tables
+     * @param limit : the maximum number of contexts, 0 means no limits
+     * @param executor : if not null, all the collections are queried at the same time by tasks of the executor, 
+     * 		each reading up to limit contexts. The executor is not shut down by the iterator
+     */
+    public MultipleContextsResultIterator(Set<String> provids, DB db, int limit, ExecutorService executor) {
+        this(provids, new CollectionCatalog(db), limit, executor);
+    }
+
+    /**
+     * @param provids : The contexts IDs of tuple or sentence.
+     * @param catalog : The collections of the database, which contains the tables
+     * @param limit : the maximum number of contexts, 0 means no limits
+     * @param executor : if not null, all the collections are queried at the same time by tasks of the executor, 
+     * 		each reading up to limit contexts. The executor is not shut down by the iterator
+     */
+    public MultipleContextsResultIterator(Set<String> provids, CollectionCatalog catalog, int limit, ExecutorService executor) {
+        this.db = catalog.getDb();
+        this.database = WebIsADbCodecs.database(db);
         tablenames = new ArrayList<>();
-       // System.out.println("Query with provid:"+provid);
-        this.provids = new HashSet<>(provids);
         this.limit=limit;
         
         if (provids==null||provids.isEmpty())
         {
-            for (String s : tablenamesapp) {
-                if (s.startsWith("s")) {
-                    tablenames.add(s);
-                }
+            for (String s : catalog.getCollections("s")) {
+                tablenames.add(s);
+                groups.put(s, new ArrayList<String>());
             }
         }
         else
@@ -76,66 +116,103 @@ public class MultipleContextsResultIterator implements Iterator {
             for (String provid:provids)
             {
                 if (provid.trim().isEmpty()) continue;
-                Double tableId = Math.ceil(Long.parseLong(provid)/1000000);           
-                for (String s : tablenamesapp) 
+                String s = catalog.getContextCollection(provid);
+                if (s == null) continue;
+                List<String> group = groups.get(s);
+                if (group == null)
                 {
-                    if (s.equals("s"+tableId.intValue())) 
-                    {
-                        tablenames.add(s);
-                        //System.out.println("Added Table:"+s);
-                    }
+                    group = new ArrayList<>();
+                    groups.put(s, group);
+                    tablenames.add(s);
                 }
+                group.add(provid);
             }
         }
         
-        if (tablenames.size() > 0) {
+        if (executor != null)
+        {
+            fetches = new ArrayList<>();
+            fetchedBytes = new long[tablenames.size()];
+            for (int t = 0; t < tablenames.size(); t++)
+            {
+                final String tablename = tablenames.get(t);
+                final int table = t;
+                fetches.add(executor.submit(new Callable<List<Context>>() {
+                    @Override
+                    public List<Context> call() {
+                        List<Context> contexts = new ArrayList<>();
+                        long bytes = DecodedBytes.get();
+                        try (MongoCursor<Context> tableCursor = find(tablename, MultipleContextsResultIterator.this.limit).iterator())
+                        {
+                            while (tableCursor.hasNext())
+                            {
+                                contexts.add(tableCursor.next());
+                            }
+                        }
+                        // read by the consumer after Future.get
+                        fetchedBytes[table] = DecodedBytes.get() - bytes;
+                        return contexts;
+                    }
+                }));
+                stats.collectionOpened();
+            }
+        }
+        else if (tablenames.size() > 0) {
             currenttable = 0;
             openTable(tablenames.get(currenttable));
         }
     }
 
-    private void openTable(String tablename) {
-    	BasicDBObject query;
+    /**
+     * @return the query on a collection for the provids of its group, reading at most limit contexts
+     */
+    private FindIterable<Context> find(String tablename, int limit) {
+        List<String> group = groups.get(tablename);
+        BasicDBObject query = group.isEmpty() ? new BasicDBObject() 
+                : group.size() == 1 ? new BasicDBObject("provid", group.get(0)) 
+                : new BasicDBObject("provid", new BasicDBObject("$in", group));
+        return database.getCollection(tablename, Context.class).find(query).projection(FIELDS).limit(limit);
+    }
 
-        String[] keys = new String[provids.size()];
-        int k=0;
-        for (String t:provids)
-        {
-            keys[k]=t;
-            k++;
-        }
-        query = new BasicDBObject("provid", new BasicDBObject("$in", keys));
-        
+    private void openTable(String tablename) {
         if (cursor!=null) 
         {
             cursor.close();        
             cursor=null;
         }
-        table = db.getCollection(tablename);
-        cursor = table.find(query);
+        cursor = find(tablename, limit > 0 ? limit - counter : 0).iterator();
+        stats.collectionOpened();
+    }
+
+    @Override
+    public QueryStats getStats() {
+        return stats;
     }
 
     @Override
     public boolean hasNext() {
-        if (limit>0&&counter>limit) 
+        long bytes = DecodedBytes.get();
+        boolean result = advance();
+        stats.bytesDecoded(DecodedBytes.get() - bytes);
+        if (!result) {
+            stats.finish();
+        }
+        return result;
+    }
+
+    private boolean advance() {
+        if (limit>0&&counter>=limit) 
         {
-            if (cursor!=null) 
-            {
-                cursor.close();
-                cursor=null;
-               /* System.out.println("Found record closing the query process!");*/
-            }
+            close();
             return false;
         }
-        if (tablenames.isEmpty()) {
-            return false;
+        if (fetches != null) {
+            return hasNextFetched();
         }
         if (cursor == null) {
             return false;
         }
-        if (cursor.hasNext()) {
-            return true;
-        } else {
+        while (!cursor.hasNext()) {
             if (currenttable < tablenames.size() - 1) {
                 currenttable += 1;
                 openTable(tablenames.get(currenttable));
@@ -146,12 +223,41 @@ public class MultipleContextsResultIterator implements Iterator {
         return true;
     }
 
+    /**
+     * Waits for the contexts of the collections in order.
+     */
+    private boolean hasNextFetched() {
+        while (fetched == null || !fetched.hasNext()) {
+            if (currenttable >= fetches.size() - 1) {
+                return false;
+            }
+            currenttable += 1;
+            try {
+                fetched = fetches.get(currenttable).get().iterator();
+                stats.bytesDecoded(fetchedBytes[currenttable]);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("Interrupted while waiting for contexts", e);
+            } catch (ExecutionException e) {
+                close();
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+            }
+        }
+        return true;
+    }
+
     @Override
     public Context next() 
     {       
-        
-        DBObject current = cursor.next();
-        Context result= new Context(current.get("pld").toString(),current.get("sentence").toString());
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        long bytes = DecodedBytes.get();
+        Context result= fetches != null ? fetched.next() : cursor.next();
+        stats.bytesDecoded(DecodedBytes.get() - bytes);
+        stats.documentsScanned(1);
+        stats.resultsReturned(1);
         counter++;
         return result;
 
@@ -161,7 +267,17 @@ public class MultipleContextsResultIterator implements Iterator {
         if (cursor!=null)
         {
             cursor.close();
+            cursor=null;
         }
-    
+        if (fetches!=null)
+        {
+            for (Future<List<Context>> fetch : fetches)
+            {
+                fetch.cancel(true);
+            }
+            currenttable = fetches.size() - 1;
+            fetched = null;
+        }
+        stats.finish();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,289 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.queries;
+
+import com.mongodb.DB;
+import com.mongodb.client.MongoCursor;
+
+import de.unima.webtuples.codecs.DecodedBytes;
+import de.unima.webtuples.codecs.TupleList;
+import de.unima.webtuples.datatypes.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * This class is an iterator, to iterate through all the tuples scanning several tables at once.
+ * Each table is read and decoded into tuples by a task running on an executor. The tasks hand the results
+ * to the consumer through bounded queues: when the consumer is slower than the database, the tasks block.
+ *
+ * If ordered is true, the tuples are returned in the same order as AllTuplesResultIterator,
+ * the tables following the current one are prefetched. Otherwise the tuples are returned as soon as they are decoded.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class ParallelAllTuplesResultIterator extends AllTuplesResultIterator {
+
+
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final int parallelism;
+    private final int queueCapacity;
+    private final boolean ordered;
+
+    // the queue of each submitted table, in unordered mode all the tables share the same queue
+    private final List<BlockingQueue<Object>> queues = new ArrayList<>();
+    private final List<Future<?>> tasks = new ArrayList<>();
+    private BlockingQueue<Object> sharedQueue;
+    private int finishedTables = 0;
+    private List<Tuple> nextResult;
+    private boolean closed = false;
+
+    /**
+     * Scans the tables with parallelism threads of an executor owned by the iterator.
+     * The executor is shut down when the iterator is exhausted or closed.
+     * @param db
+     * @param sortingprefix: "i" for instances and "c" for classes
+     * @param parallelism : the number of tables read at the same time
+     * @param ordered : if true, the tuples are returned in the same order as AllTuplesResultIterator
+     */
+    public ParallelAllTuplesResultIterator(DB db, String sortingprefix, int parallelism, boolean ordered) {
+        this(db, new CollectionCatalog(db).getCollections(sortingprefix), newExecutor(parallelism), true, parallelism, 1024, ordered);
+    }
+
+    /**
+     * Scans the given tables with parallelism threads of an executor owned by the iterator.
+     * @param db
+     * @param tablenames : instance or class collections of db
+     * @param parallelism : the number of tables read at the same time
+     * @param ordered : if true, the tuples are returned in the order of tablenames
+     */
+    public ParallelAllTuplesResultIterator(DB db, List<String> tablenames, int parallelism, boolean ordered) {
+        this(db, tablenames, newExecutor(parallelism), true, parallelism, 1024, ordered);
+    }
+
+    /**
+     *
+     * @param db
+     * @param sortingprefix: "i" for instances and "c" for classes
+     * @param executor : runs the tasks reading the tables, it is not shut down by the iterator.
+     * 		It needs at least parallelism free threads: a task waiting for a thread while the consumer waits for its tuples
+     * 		(ordered) or the other tasks wait for room in the queue, blocks the iterator forever
+     * @param parallelism : the number of tables read at the same time
+     * @param queueCapacity : the number of documents, which can be decoded ahead of the consumer by each task (ordered)
+     * 		or by all the tasks (unordered)
+     * @param ordered : if true, the tuples are returned in the same order as AllTuplesResultIterator
+     */
+    public ParallelAllTuplesResultIterator(DB db, String sortingprefix, ExecutorService executor,
+            int parallelism, int queueCapacity, boolean ordered) {
+        this(db, new CollectionCatalog(db).getCollections(sortingprefix), executor, false, parallelism, queueCapacity, ordered);
+    }
+
+    /**
+     * Scans the given tables on the given executor.
+     * @param db
+     * @param tablenames : instance or class collections of db
+     * @see #ParallelAllTuplesResultIterator(DB, String, ExecutorService, int, int, boolean)
+     */
+    public ParallelAllTuplesResultIterator(DB db, List<String> tablenames, ExecutorService executor,
+            int parallelism, int queueCapacity, boolean ordered) {
+        this(db, tablenames, executor, false, parallelism, queueCapacity, ordered);
+    }
+
+    private ParallelAllTuplesResultIterator(DB db, List<String> tablenames, ExecutorService executor, boolean ownExecutor,
+            int parallelism, int queueCapacity, boolean ordered) {
+        super(db, tablenames);
+        if (parallelism < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("parallelism and queueCapacity must be positive");
+        }
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+        this.ordered = ordered;
+    }
+
+    private static ExecutorService newExecutor(int parallelism) {
+        return Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "webisadb-scan");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextResult != null) {
+            return true;
+        }
+        if (closed) {
+            return false;
+        }
+        if (tasks.isEmpty()) {
+            while (tasks.size() < parallelism && submitNextTable()) {
+                // start the first tables
+            }
+        }
+        while (finishedTables < tablenames.size()) {
+            BlockingQueue<Object> queue = ordered ? queues.get(finishedTables) : sharedQueue;
+            Object item;
+            try {
+                item = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("Interrupted while waiting for tuples", e);
+            }
+            if (item instanceof TableEnd) {
+                // the bytes were decoded by the task
+                stats.bytesDecoded(((TableEnd) item).bytes);
+                finishedTables++;
+                submitNextTable();
+                continue;
+            }
+            if (item instanceof Throwable) {
+                // thrown by a task, e.g. a MongoException or an OutOfMemoryError
+                close();
+                if (item instanceof Error) {
+                    throw (Error) item;
+                }
+                throw item instanceof RuntimeException ? (RuntimeException) item : new IllegalStateException((Throwable) item);
+            }
+            @SuppressWarnings("unchecked")
+            List<Tuple> tuples = (List<Tuple>) item;
+            stats.documentsScanned(1);
+            stats.modificationsExamined(tuples.size());
+            stats.resultsReturned(tuples.size());
+            nextResult = tuples;
+            return true;
+        }
+        close();
+        return false;
+    }
+
+    @Override
+    public List<Tuple> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<Tuple> result = nextResult;
+        nextResult = null;
+        return result;
+    }
+
+    private boolean submitNextTable() {
+        int table = tasks.size();
+        if (table >= tablenames.size()) {
+            return false;
+        }
+        BlockingQueue<Object> queue;
+        if (ordered) {
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+        } else {
+            if (sharedQueue == null) {
+                sharedQueue = new ArrayBlockingQueue<>(queueCapacity);
+            }
+            queue = sharedQueue;
+        }
+        queues.add(queue);
+        tasks.add(executor.submit(new TableScan(tablenames.get(table), queue)));
+        stats.collectionOpened();
+        return true;
+    }
+
+    /**
+     * Stops the running tasks and closes their cursors.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Future<?> task : tasks) {
+            task.cancel(true);
+        }
+        if (ownExecutor) {
+            executor.shutdownNow();
+        }
+        stats.finish();
+    }
+
+    /**
+     * Put by a task in its queue after the last document of its table.
+     */
+    private static class TableEnd {
+
+        // the size of the documents decoded by the task
+        final long bytes;
+
+        TableEnd(long bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Reads one table and puts its decoded documents in the queue.
+     */
+    private class TableScan implements Runnable {
+
+        private final String tablename;
+        private final BlockingQueue<Object> queue;
+
+        TableScan(String tablename, BlockingQueue<Object> queue) {
+            this.tablename = tablename;
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            MongoCursor<TupleList> tableCursor = null;
+            long bytes = DecodedBytes.get();
+            try {
+                tableCursor = openCursor(tablename);
+                while (tableCursor.hasNext()) {
+                    queue.put(tableCursor.next());
+                }
+                queue.put(new TableEnd(DecodedBytes.get() - bytes));
+            } catch (InterruptedException e) {
+                // the iterator was closed
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                // handed to the consumer, which would otherwise wait for the end of the table forever
+                try {
+                    queue.put(e);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            } finally {
+                if (tableCursor != null) {
+                    tableCursor.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.queries;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class collects the statistics of the finished queries of one store (e.g. MongoTupleStore.getQueryMetrics()): 
+ * it aggregates them by query type (QueryTypeMetrics) and forwards them to the registered listeners.
+ * An iterator reports to the metrics it was attached to with QueryStats.reportTo, an iterator created directly 
+ * is not reported anywhere.
+ * The aggregates can be exposed as JMX MBeans named de.unima.webtuples:type=QueryMetrics,name=&lt;name&gt;,query=&lt;QueryType&gt;,
+ * so the metrics registered at the same time need distinct names.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class QueryMetrics {
+
+    private final String name;
+    private final Map<QueryType, QueryTypeMetrics> metrics = new EnumMap<>(QueryType.class);
+    private final List<QueryListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param name : the name of the MBeans, e.g. the name of the database of the store
+     */
+    public QueryMetrics(String name) {
+        this.name = name;
+        for (QueryType type : QueryType.values()) {
+            metrics.put(type, new QueryTypeMetrics(type));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the aggregated statistics of the queries of the given type
+     */
+    public QueryTypeMetrics get(QueryType type) {
+        return metrics.get(type);
+    }
+
+    /**
+     * @param listener : notified of every finished query from now on
+     */
+    public void addListener(QueryListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(QueryListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Clears the aggregated statistics of all the query types.
+     */
+    public void reset() {
+        for (QueryTypeMetrics m : metrics.values()) {
+            m.reset();
+        }
+    }
+
+    void report(QueryStats stats) {
+        metrics.get(stats.getType()).queryFinished(stats);
+        for (QueryListener listener : listeners) {
+            try {
+                listener.queryFinished(stats);
+            } catch (RuntimeException e) {
+                // a failing listener must not break the iteration
+            }
+        }
+    }
+
+    /**
+     * Registers an MBean for each query type in the platform MBean server, unless they are already registered.
+     */
+    public synchronized void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (QueryTypeMetrics m : metrics.values()) {
+                try {
+                    server.registerMBean(m, objectName(m.getType()));
+                } catch (InstanceAlreadyExistsException e) {
+                    // registered before
+                }
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register the query metrics", e);
+        }
+    }
+
+    /**
+     * Removes the MBeans registered by registerMBeans.
+     */
+    public synchronized void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (QueryType type : metrics.keySet()) {
+                try {
+                    server.unregisterMBean(objectName(type));
+                } catch (InstanceNotFoundException e) {
+                    // not registered
+                }
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister the query metrics", e);
+        }
+    }
+
+    /**
+     * @return the name of the MBean of a query type
+     */
+    public ObjectName objectName(QueryType type) {
+        try {
+            return new ObjectName("de.unima.webtuples:type=QueryMetrics,name=" + ObjectName.quote(name) + ",query=" + type.name());
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.queries;
+
+/**
+ * This class holds the counters of a single query, updated by its iterator while the results are read.
+ * They are final once the query is finished (the iterator is exhausted or closed), then they are reported 
+ * to the QueryMetrics given to reportTo and its listeners. The counters are updated by the thread reading the iterator only.
+ *
+ * The latency runs from the creation of the iterator until it is exhausted or closed: it includes the time 
+ * the caller spends between two calls of next(), not only the time waiting for the database.
+ * An iterator, which is neither exhausted nor closed, is never reported.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class QueryStats {
+
+    private final QueryType type;
+    private final long startNanos = System.nanoTime();
+    private long elapsedNanos = -1;
+    private long collectionsOpened;
+    private long documentsScanned;
+    private long modificationsExamined;
+    private long resultsReturned;
+    private long bytesDecoded;
+    // null if the query is not reported
+    private QueryMetrics metrics;
+
+    public QueryStats(QueryType type) {
+        this.type = type;
+    }
+
+    /**
+     * @param metrics : the metrics aggregating the query once it is finished, e.g. the metrics of the store creating the iterator.
+     * 		If the query is already finished it is reported at once.
+     */
+    public void reportTo(QueryMetrics metrics) {
+        this.metrics = metrics;
+        if (isFinished() && metrics != null) {
+            metrics.report(this);
+        }
+    }
+
+    public QueryType getType() {
+        return type;
+    }
+
+    /**
+     * @return true if the iterator is exhausted or closed
+     */
+    public boolean isFinished() {
+        return elapsedNanos >= 0;
+    }
+
+    /**
+     * @return the time from the creation of the iterator until it was exhausted or closed, or until now
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return the number of collections queried
+     */
+    public long getCollectionsOpened() {
+        return collectionsOpened;
+    }
+
+    /**
+     * @return the number of documents returned by the database (core tuples, unwound modifications or contexts)
+     */
+    public long getDocumentsScanned() {
+        return documentsScanned;
+    }
+
+    /**
+     * @return the number of modifications checked by the client side filters
+     */
+    public long getModificationsExamined() {
+        return modificationsExamined;
+    }
+
+    /**
+     * @return the number of results (core tuples, tuples or contexts) returned by the iterator
+     */
+    public long getResultsReturned() {
+        return resultsReturned;
+    }
+
+    /**
+     * @return the size of the decoded documents, 0 if the driver did not read them from bytes (e.g. Fongo)
+     */
+    public long getBytesDecoded() {
+        return bytesDecoded;
+    }
+
+    /**
+     * @return the results returned for each scanned document, 
+     * 		e.g. 0.1 if the client side filters rejected most of the transferred documents
+     */
+    public double getSelectivity() {
+        return documentsScanned == 0 ? 0 : (double) resultsReturned / documentsScanned;
+    }
+
+    void collectionOpened() {
+        collectionsOpened++;
+    }
+
+    void documentsScanned(long documents) {
+        documentsScanned += documents;
+    }
+
+    void modificationsExamined(long modifications) {
+        modificationsExamined += modifications;
+    }
+
+    void resultsReturned(long results) {
+        resultsReturned += results;
+    }
+
+    void bytesDecoded(long bytes) {
+        bytesDecoded += bytes;
+    }
+
+    /**
+     * Stops the clock and reports the counters, only the first call has an effect.
+     */
+    void finish() {
+        if (elapsedNanos >= 0) {
+            return;
+        }
+        elapsedNanos = System.nanoTime() - startNanos;
+        if (metrics != null) {
+            metrics.report(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + getElapsedNanos() / 1000 + " us, " + collectionsOpened + " collections, " 
+                + documentsScanned + " documents, " + modificationsExamined + " modifications, " 
+                + resultsReturned + " results, " + bytesDecoded + " bytes";
+    }
+}
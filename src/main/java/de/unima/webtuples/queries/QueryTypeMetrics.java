@@ -0,0 +1,176 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.queries;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class aggregates the statistics of the finished queries of one type: the number of queries, 
+ * a latency histogram and the sums of the counters of QueryStats.
+ * The latency histogram has a bucket for each power of two of microseconds, so that recording a query is cheap 
+ * and the percentiles are exact up to a factor of two.
+ * The counters are LongAdders, so that the threads finishing queries at the same time do not contend on a lock.
+ * A read while queries are finishing, or a reset, may therefore see some counters of a query but not the others yet.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class QueryTypeMetrics implements QueryTypeMetricsMBean, QueryListener {
+
+    private final QueryType type;
+    // buckets[i] counts the queries taking less than 2^i microseconds (and at least 2^(i-1))
+    private final LongAdder[] buckets = new LongAdder[64];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder collectionsOpened = new LongAdder();
+    private final LongAdder documentsScanned = new LongAdder();
+    private final LongAdder modificationsExamined = new LongAdder();
+    private final LongAdder resultsReturned = new LongAdder();
+    private final LongAdder bytesDecoded = new LongAdder();
+
+    QueryTypeMetrics(QueryType type) {
+        this.type = type;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public QueryType getType() {
+        return type;
+    }
+
+    @Override
+    public void queryFinished(QueryStats stats) {
+        long nanos = stats.getElapsedNanos();
+        buckets[64 - Long.numberOfLeadingZeros(nanos / 1000)].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        collectionsOpened.add(stats.getCollectionsOpened());
+        documentsScanned.add(stats.getDocumentsScanned());
+        modificationsExamined.add(stats.getModificationsExamined());
+        resultsReturned.add(stats.getResultsReturned());
+        bytesDecoded.add(stats.getBytesDecoded());
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMeanLatencyMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    @Override
+    public double getMaxLatencyMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * @param percentile : e.g. 99 for the latency of 99% of the queries
+     * @return the upper bound of the histogram bucket containing the percentile, in milliseconds
+     */
+    public double getLatencyPercentileMillis(double percentile) {
+        long[] counts = new long[buckets.length];
+        long n = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            n += counts[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min((1L << i) / 1e3, getMaxLatencyMillis());
+            }
+        }
+        return getMaxLatencyMillis();
+    }
+
+    @Override
+    public double getP50LatencyMillis() {
+        return getLatencyPercentileMillis(50);
+    }
+
+    @Override
+    public double getP90LatencyMillis() {
+        return getLatencyPercentileMillis(90);
+    }
+
+    @Override
+    public double getP99LatencyMillis() {
+        return getLatencyPercentileMillis(99);
+    }
+
+    @Override
+    public long getCollectionsOpened() {
+        return collectionsOpened.sum();
+    }
+
+    @Override
+    public long getDocumentsScanned() {
+        return documentsScanned.sum();
+    }
+
+    @Override
+    public long getModificationsExamined() {
+        return modificationsExamined.sum();
+    }
+
+    @Override
+    public long getResultsReturned() {
+        return resultsReturned.sum();
+    }
+
+    @Override
+    public long getBytesDecoded() {
+        return bytesDecoded.sum();
+    }
+
+    /**
+     * @return the results returned for each scanned document by all the queries
+     */
+    @Override
+    public double getSelectivity() {
+        long documents = documentsScanned.sum();
+        return documents == 0 ? 0 : (double) resultsReturned.sum() / documents;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        collectionsOpened.reset();
+        documentsScanned.reset();
+        modificationsExamined.reset();
+        resultsReturned.reset();
+        bytesDecoded.reset();
+    }
+}
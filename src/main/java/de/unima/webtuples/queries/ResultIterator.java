@@ -0,0 +1,42 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.queries;
+
+import java.util.Iterator;
+
+/**
+ * This interface is implemented by all the iterators returned by the queries.
+ * Always close an iterator, which has not been exhausted, to release its resources (e.g. the database cursor).
+ *
+ * @param <T> the type of the results
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public interface ResultIterator<T> extends Iterator<T> {
+
+    /**
+     * Releases the resources of the iterator. Calling close more than once has no effect.
+     */
+    void close();
+
+    /**
+     * @return the counters of the query, final after the iterator is exhausted or closed, 
+     * 		null if the iterator does not record them (e.g. the iterators of the in-memory stores)
+     */
+    default QueryStats getStats() {
+        return null;
+    }
+}
@@ -0,0 +1,178 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.queries;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * This class publishes the results of a result iterator to Reactive Streams subscribers.
+ * Each subscriber gets its own iterator, opened when it requests the first result.
+ * The results are read on the executor only as far as the subscribers request them, so a slow subscriber
+ * keeps the cursor waiting instead of buffering the results. The iterator is closed when it is exhausted, 
+ * when it fails or when the subscription is cancelled. An exception thrown by a subscriber cancels its subscription
+ * and is thrown on the executor, it is not signalled to the subscriber with onError.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class ResultPublisher<T> implements Publisher<T> {
+
+    private final Supplier<? extends ResultIterator<? extends T>> opener;
+    private final Executor executor;
+
+    /**
+     * @param opener : creates the iterator of a subscriber, e.g. () -> store.getAllTuples()
+     * @param executor : reads the results, a task is running for each subscriber with pending demand
+     */
+    public ResultPublisher(Supplier<? extends ResultIterator<? extends T>> opener, Executor executor) {
+        this.opener = opener;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        ResultSubscription subscription = new ResultSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Emits the results of one iterator. All the signals are sent by the drain task, which runs at most once at a time.
+     */
+    private class ResultSubscription implements Subscription, Runnable {
+
+        private final Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // the number of wake-ups of the drain task, which are not handled yet
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled = false;
+        private volatile Throwable invalidRequest;
+        private ResultIterator<? extends T> iterator;
+        private boolean done = false;
+
+        ResultSubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("the number of requested results must be positive, was " + n);
+            } else {
+                long current;
+                do {
+                    current = demand.get();
+                } while (!demand.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+            }
+            wakeUp();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            wakeUp();
+        }
+
+        private void wakeUp() {
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    pending.set(0);
+                    if (!cancelled) {
+                        cancelled = true;
+                        subscriber.onError(e);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (done) {
+                return;
+            }
+            if (cancelled) {
+                finish();
+                return;
+            }
+            if (invalidRequest != null) {
+                finish();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            while (demand.get() > 0 && !cancelled) {
+                T result;
+                // only the failures of the iterator are signalled to the subscriber
+                try {
+                    if (iterator == null) {
+                        iterator = opener.get();
+                    }
+                    if (!iterator.hasNext()) {
+                        finish();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    result = iterator.next();
+                } catch (RuntimeException e) {
+                    finish();
+                    subscriber.onError(e);
+                    return;
+                }
+                try {
+                    subscriber.onNext(result);
+                } catch (RuntimeException e) {
+                    // a subscriber must not throw (Reactive Streams 2.13): the subscription is cancelled, 
+                    // and the exception is raised to the executor instead of being signalled back
+                    cancelled = true;
+                    finish();
+                    throw e;
+                }
+                demand.decrementAndGet();
+            }
+            if (cancelled) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            done = true;
+            if (iterator != null) {
+                iterator.close();
+                iterator = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.queries;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This class creates the Stream views of the result iterators.
+ * The streams close their iterators when they are closed, use them in a try-with-resources statement
+ * if they may not be consumed completely.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public final class ResultStreams {
+
+    private ResultStreams() {
+    }
+
+    /**
+     * @return a sequential stream of the results of the iterator
+     */
+    public static <T> Stream<T> stream(ResultIterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * @return a sequential stream of the results of the lists returned by the iterator, the empty lists are skipped
+     */
+    public static <T> Stream<T> flatStream(ResultIterator<? extends List<? extends T>> iterator) {
+        return stream(new FlatResultIterator<T>(iterator));
+    }
+
+    /**
+     * @param size : the number of results of all the lists returned by the iterator
+     * @return a sequential stream of the results of the lists returned by the iterator, reporting its size
+     */
+    public static <T> Stream<T> flatStream(ResultIterator<? extends List<? extends T>> iterator, long size) {
+        FlatResultIterator<T> flat = new FlatResultIterator<T>(iterator);
+        return StreamSupport.stream(Spliterators.spliterator(flat, size, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(flat::close);
+    }
+
+    /**
+     * Returns a stream reading the collections one after the other, in the given order.
+     * If the stream is made parallel, the collections are split among the threads.
+     * @param tablenames : the collections to read
+     * @param opener : creates the iterator reading the given collections
+     * @return a sequential stream of the results of all the collections
+     */
+    public static <T> Stream<T> shardStream(List<String> tablenames,
+            Function<List<String>, ? extends ResultIterator<? extends List<? extends T>>> opener) {
+        final Queue<ResultIterator<?>> open = new ConcurrentLinkedQueue<>();
+        return StreamSupport.stream(new ShardSpliterator<T>(tablenames, opener, open, 0, tablenames.size()), false)
+                .onClose(() -> {
+                    for (ResultIterator<?> iterator; (iterator = open.poll()) != null;) {
+                        iterator.close();
+                    }
+                });
+    }
+}
@@ -0,0 +1,97 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.queries;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * This class is a Spliterator over the results of several collections (shards), which are read one after the other.
+ * A Spliterator, which has not started reading yet, is split by handing out the first half of its collections,
+ * so that a parallel stream reads distinct collections on different threads.
+ * Each collection is read by its own iterator, created by the opener and closed as soon as it is exhausted.
+ *
+ * @param <T> the type of the results
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+class ShardSpliterator<T> implements Spliterator<T> {
+
+    private final List<String> tablenames;
+    private final Function<List<String>, ? extends ResultIterator<? extends List<? extends T>>> opener;
+    // the iterators opened by this Spliterator and by its splits, which are not exhausted yet
+    private final Queue<ResultIterator<?>> open;
+    // the first collection not read yet and the end of the collections of this Spliterator
+    private int next;
+    private final int end;
+    private FlatResultIterator<T> current;
+
+    ShardSpliterator(List<String> tablenames, Function<List<String>, ? extends ResultIterator<? extends List<? extends T>>> opener,
+            Queue<ResultIterator<?>> open, int next, int end) {
+        this.tablenames = tablenames;
+        this.opener = opener;
+        this.open = open;
+        this.next = next;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (current == null || !current.hasNext()) {
+            if (current != null) {
+                current.close();
+                open.remove(current);
+                current = null;
+            }
+            if (next >= end) {
+                return false;
+            }
+            current = new FlatResultIterator<T>(opener.apply(tablenames.subList(next, next + 1)));
+            open.add(current);
+            next++;
+        }
+        action.accept(current.next());
+        return true;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (current != null || end - next < 2) {
+            return null;
+        }
+        int middle = next + (end - next) / 2;
+        ShardSpliterator<T> prefix = new ShardSpliterator<>(tablenames, opener, open, next, middle);
+        next = middle;
+        return prefix;
+    }
+
+    /**
+     * The number of results of a collection is not known without reading it.
+     */
+    @Override
+    public long estimateSize() {
+        return next >= end && current == null ? 0 : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
@@ -0,0 +1,318 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.queries;
+
+import de.unima.webtuples.codecs.TupleListCodec;
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.datatypes.Dictionary;
+
+/**
+ * This class checks the filters of a query on a single core tuple or on a single modification.
+ * It is shared by all the tuple stores, so that every store returns the same results for the same query.
+ * The meaning of the parameters is the same as in WebIsADb.getTuplesWhere.
+ * A pid or pld matches if it is one of the values of the semicolon separated list, e.g. "p1" matches "p1;p2;" but not "p21;".
+ * Before the tuple stores, the pids and plds were checked with contains(value + ";"), which also matched the end of 
+ * a longer value ("p1" matched "p21;"); the MongoDB query built by CoreTupleQueryResultIterator is anchored the same way.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class TupleFilter implements TupleListCodec.ModificationFilter {
+
+    private final String iPreModifier;
+    private final String iPostModifier;
+    private final String cPreModifier;
+    private final String cPostModifier;
+    private final String[] pids;
+    private final String[] plds;
+    private final double minFrequency;
+    private final double maxFrequency;
+    private final int minPidSpread;
+    private final int maxPidSpread;
+    private final int minPldSpread;
+    private final int maxPldSpread;
+    private final boolean strict;
+    // the codes of pids and plds in Dictionary.PIDS and Dictionary.PLDS, null if every value is allowed
+    private final Codes pidCodes;
+    private final Codes pldCodes;
+
+    /**
+     * Creates a filter accepting every premodifier and postmodifier, as needed for core tuples.
+     */
+    public TupleFilter(String[] pids, String[] plds,
+            double minFrequency, double maxFrequency,
+            int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict) {
+        this("*", "*", "*", "*", pids, plds, minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
+    }
+
+    public TupleFilter(String iPreModifier, String iPostModifier,
+            String cPreModifier, String cPostModifier,
+            String[] pids, String[] plds,
+            double minFrequency, double maxFrequency,
+            int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict) {
+        this.iPreModifier = iPreModifier;
+        this.iPostModifier = iPostModifier;
+        this.cPreModifier = cPreModifier;
+        this.cPostModifier = cPostModifier;
+        this.pids = pids;
+        this.plds = plds;
+        this.minFrequency = minFrequency;
+        this.maxFrequency = maxFrequency;
+        this.minPidSpread = minPidSpread;
+        this.maxPidSpread = maxPidSpread;
+        this.minPldSpread = minPldSpread;
+        this.maxPldSpread = maxPldSpread;
+        this.strict = strict;
+        pidCodes = pids == null ? null : new Codes(Dictionary.PIDS, pids);
+        pldCodes = plds == null ? null : new Codes(Dictionary.PLDS, plds);
+    }
+
+    /**
+     * @return true if the premodifiers and postmodifiers are accepted, "*" accepts every value
+     */
+    public boolean matchesModifiers(String iPreMod, String iPostMod, String cPreMod, String cPostMod) {
+        return (iPreModifier.equals("*") || iPreModifier.equals(iPreMod))
+                && (iPostModifier.equals("*") || iPostModifier.equals(iPostMod))
+                && (cPreModifier.equals("*") || cPreModifier.equals(cPreMod))
+                && (cPostModifier.equals("*") || cPostModifier.equals(cPostMod));
+    }
+
+    /**
+     * Checks the frequency, spread, pid and pld filters.
+     * @param frequency : the frequency of the core tuple or modification
+     * @param pidSpread : the pattern id spread
+     * @param pldSpread : the pay level domain spread
+     * @param pidsString : the pattern ids separated by a semicolon, e.g. "p1;p2;"
+     * @param pldsString : the pay level domains separated by a semicolon, e.g. "google.com;wikipedia.org;"
+     * @return true if all the filters are satisfied
+     */
+    public boolean matches(double frequency, int pidSpread, int pldSpread, String pidsString, String pldsString) {
+        return matchesThresholds(frequency, pidSpread, pldSpread)
+                && contains(pidsString, pids) && contains(pldsString, plds);
+    }
+
+    /**
+     * Checks all the filters on a modification, before it is decoded into a Tuple.
+     * @see TupleListCodec#TupleListCodec(TupleListCodec.ModificationFilter)
+     */
+    @Override
+    public boolean accept(String iPreMod, String iPostMod, String cPreMod, String cPostMod,
+            double frequency, int pidSpread, int pldSpread, String pidsString, String pldsString) {
+        return matchesModifiers(iPreMod, iPostMod, cPreMod, cPostMod)
+                && matches(frequency, pidSpread, pldSpread, pidsString, pldsString);
+    }
+
+    /**
+     * Checks the frequency, spread, pid and pld filters on a decoded tuple, comparing the codes of its pids and plds.
+     * @return true if all the filters are satisfied
+     */
+    public boolean matches(CoreTuple tuple) {
+        return matchesThresholds(tuple.getAdjustedFrequency(), tuple.getPidSpread(), tuple.getPldSpread())
+                && matchesPids(tuple) && matchesPlds(tuple);
+    }
+
+    private boolean matchesPids(CoreTuple tuple) {
+        Codes codes = pidCodes;
+        if (codes == null) {
+            return true;
+        }
+        if (codes.complete && codes.mask != -1 && codes.codes.length > 0) {
+            long found = tuple.getPidMask() & codes.mask;
+            return strict ? found == codes.mask : found != 0;
+        }
+        int maxCode = codes.complete ? -1 : tuple.getMaxPidCode();
+        boolean check = false;
+        for (int i = 0; i < codes.codes.length; i++) {
+            int code = codes.code(i, maxCode);
+            if (code >= 0 && tuple.hasPid(code)) {
+                check = true;
+            } else if (strict) {
+                return false;
+            }
+        }
+        return check;
+    }
+
+    private boolean matchesPlds(CoreTuple tuple) {
+        Codes codes = pldCodes;
+        if (codes == null) {
+            return true;
+        }
+        int maxCode = codes.complete ? -1 : tuple.getMaxPldCode();
+        boolean check = false;
+        for (int i = 0; i < codes.codes.length; i++) {
+            int code = codes.code(i, maxCode);
+            if (code >= 0 ? tuple.hasPld(code) : tuple.hasUncodedPld(codes.values[i])) {
+                check = true;
+            } else if (strict) {
+                return false;
+            }
+        }
+        return check;
+    }
+
+    /**
+     * The codes of the values of a query, looked up once without adding the values to the dictionary.
+     * A value without code is in none of the tuples decoded so far, therefore it never matches them. 
+     * The tuples decoded later get the codes from the dictionary size read here on: only the tuples having such a code
+     * look the value up again, without changing the codes, so that they can be shared by several threads.
+     * The plds, which have no code because the dictionary is full, are compared to the values kept by the tuples.
+     */
+    private static final class Codes {
+
+        final Dictionary dictionary;
+        final String[] values;
+        // the size of the dictionary before the values were looked up
+        final int size;
+        // -1 for the values without code
+        final int[] codes;
+        // the codes as a bit mask, -1 if a code is 64 or higher
+        final long mask;
+        // false if a value has no code
+        final boolean complete;
+
+        Codes(Dictionary dictionary, String[] values) {
+            this.dictionary = dictionary;
+            this.values = values;
+            size = dictionary.size();
+            codes = new int[values.length];
+            long m = 0;
+            boolean all = true;
+            for (int i = 0; i < values.length; i++) {
+                codes[i] = dictionary.find(values[i]);
+                if (codes[i] < 0) {
+                    all = false;
+                } else {
+                    m = codes[i] < 64 && m != -1 ? m | (1L << codes[i]) : -1;
+                }
+            }
+            mask = m;
+            complete = all;
+        }
+
+        /**
+         * @param maxCode : the highest code of the tuple
+         * @return the code of the i-th value, -1 if it cannot be in the tuple
+         */
+        int code(int i, int maxCode) {
+            if (codes[i] >= 0 || maxCode < size) {
+                return codes[i];
+            }
+            return dictionary.find(values[i]);
+        }
+    }
+
+    /**
+     * Checks only the frequency and spread filters, for stores checking the pids and plds on their own encoding.
+     * @return true if the thresholds are satisfied
+     */
+    public boolean matchesThresholds(double frequency, int pidSpread, int pldSpread) {
+        if (frequency < minFrequency && !(minFrequency == 0)) {
+            return false;
+        }
+        if (frequency > maxFrequency && !(maxFrequency == 0)) {
+            return false;
+        }
+        if (pidSpread < minPidSpread && !(minPidSpread == 0)) {
+            return false;
+        }
+        if (pidSpread > maxPidSpread && !(maxPidSpread == 0)) {
+            return false;
+        }
+        if (pldSpread < minPldSpread && !(minPldSpread == 0)) {
+            return false;
+        }
+        if (pldSpread > maxPldSpread && !(maxPldSpread == 0)) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the pattern ids, which have to be present, null if every pattern id is allowed
+     */
+    public String[] getPids() {
+        return pids;
+    }
+
+    /**
+     * @return the pay level domains, which have to be present, null if every pay level domain is allowed
+     */
+    public String[] getPlds() {
+        return plds;
+    }
+
+    public boolean isStrict() {
+        return strict;
+    }
+
+    public double getMinFrequency() {
+        return minFrequency;
+    }
+
+    public double getMaxFrequency() {
+        return maxFrequency;
+    }
+
+    public int getMinPidSpread() {
+        return minPidSpread;
+    }
+
+    public int getMaxPidSpread() {
+        return maxPidSpread;
+    }
+
+    public int getMinPldSpread() {
+        return minPldSpread;
+    }
+
+    public int getMaxPldSpread() {
+        return maxPldSpread;
+    }
+
+    /**
+     * In strict mode each value has to be present, otherwise only one of them. A null list accepts everything.
+     */
+    private boolean contains(String list, String[] values) {
+        if (values == null) {
+            return true;
+        }
+        boolean check = false;
+        for (String value : values) {
+            if (containsValue(list, value)) {
+                check = true;
+            } else if (strict) {
+                return false;
+            }
+        }
+        return check;
+    }
+
+    /**
+     * @return true if value is one of the values of list, each followed by a semicolon, e.g. "p1" in "p1;p2;"
+     */
+    public static boolean containsValue(String list, String value) {
+        String v = value + ";";
+        for (int i = list.indexOf(v); i >= 0; i = list.indexOf(v, i + 1)) {
+            if (i == 0 || list.charAt(i - 1) == ';') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
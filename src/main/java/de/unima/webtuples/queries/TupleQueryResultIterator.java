@@ -17,24 +17,38 @@ package de.unima.webtuples.queries;
 import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DB;
-import com.mongodb.DBObject;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 
+import de.unima.webtuples.codecs.DecodedBytes;
+import de.unima.webtuples.codecs.TupleList;
+import de.unima.webtuples.codecs.TupleListCodec;
+import de.unima.webtuples.codecs.WebIsADbCodecs;
 import de.unima.webtuples.datatypes.Tuple;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
 /**
  * This class is used to iterate through tuples.
  * @author Julian Seitener, Nacho Vidal and Stefano Faralli
  *
  */
-public class TupleQueryResultIterator extends CoreTupleQueryResultIterator {
+public class TupleQueryResultIterator extends CoreTupleQueryResultIterator<List<Tuple>> {
 
     String iPreModifier;
     String iPostModifier;
     String cPreModifier;
     String cPostModifier;
+    // true if the modifications are filtered by the server with an aggregation pipeline
+    boolean aggregate;
+    // the first unwound modification of the next core tuple, already read from the aggregation cursor
+    TupleList pending;
+    // created by the first openCursor without aggregation
+    private CodecRegistry filteringRegistry;
 
     /**
      * 
@@ -97,119 +111,284 @@ public class TupleQueryResultIterator extends CoreTupleQueryResultIterator {
     		int minPidSpread, int maxPidSpread,
     		int minPldSpread, int maxPldSpread, boolean strict) 
     {
-    	super(instance, clazz, db, pids, plds, minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
+    	this(instance, clazz, db, iPreModifier, iPostModifier, cPreModifier, cPostModifier, pids, plds, minFrequency, maxFrequency, 
+    			minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict, false);
+    }
+    
+    /**
+     * 
+     * @param instance : Refers to the value of the instance of a tuple
+     * 		Classes or instances consist of exactly one word, the so called core noun of a noun phrase.
+     * 		Examples: "apple", "peach"
+     * @param clazz : Refers to the value of the class of the tuple 
+     * 		specified by the field parameter above - are selected as resuilt candidates
+     * 		Examples: "company", "fruit"
+     * @param db : Refers to the mongoDB database that is queried
+     * @param iPreModifier : Refers to the premodifier, that has to be present for the core noun. 
+     * 		If every premodifier should be retrieved use the wildcard "*".
+     * 		Examples: "red", "*", ""
+     * @param iPostModifier : Refers to the postmodifier, that has to be present for the core noun.
+     * 		If every postmodifier should be retrieved use the wildcard "*".
+     * 		Examples: "from portugal", "*", ""
+     * @param cPreModifier : Refers to the premodifier, that has to be present for the core class. 
+     * 		If every premodifier should be retrieved use the wildcard "*".
+     * 		Examples: "red", "*", ""
+     * @param cPostModifier : Refers to the postmodifier, that has to be present for the core class.
+     * 		If every postmodifier should be retrieved use the wildcard "*".
+     * 		Examples: "from portugal", "*", ""
+     * @param pids : Refers to list of pattern IDs. Only if one of the pattern IDs is found in an tuple, it can be returned as result.
+     * 		If every pattern ID should be allowed, pass an null value pids.
+     * 		Example: ["p1","p2"], null
+     * @param plds : Refers to list of pay level domains IDs. Only if one of the pay level domains is found in an tuple, it can be returned as result.
+     * 		If every pay level domain should be allowed, pass an null value plds.
+     * 		Example: ["google.com", "example.org"]
+     * @param minFrequency : This value specifies the minimum allowed frequency of a result entry. 
+     * 		If no minimum frequency threshold is needed, pass the value 0;
+     * 		Examples: "5", "0"
+     * @param maxFrequency : This value specifies the maximum allowed frequency of a result entry. 
+     * 		If no maximum frequency threshold is needed, pass the value 0;
+     * 		Examples: "5", "0"
+     * @param minPidSpread : This value specifies the minimum allowed pattern id spread of a result entry. 
+     * 		The pattern id spread describes the amount of distinct patterns, that identified this tuple.
+     * 		If no minimum pattern id spread threshold is needed, pass the value 0;
+     * 		Examples: "5", "0"
+     * @param maxPidSpread : This value specifies the maximum allowed pattern id spread of a result entry. 
+     * 		The pattern id spread describes the amount of distinct patterns, that identified this tuple.
+     * 		If no maximum pattern id spread threshold is needed, pass the value 0;
+     * 		Examples: "5", "0"
+     * @param minPldSpread : This value specifies the minimum allowed pay level domain spread of a result entry. 
+     * 		The pay level domain spread describes the amount of distinct pay level domains, that identified this tuple.
+     * 		If no minimum pay level domain spread threshold is needed, pass the value 0;
+     * 		Examples: "5", "0"
+     * @param maxPldSpread : This value specifies the maximum allowed pay level domain spread of a result entry. 
+     * 		The pay level domain spread describes the amount of distinct pay level domains, that identified this tuple.
+     * 		If no maximum pay level domain spread threshold is needed, pass the value 0;
+     * 		Examples: "5", "0"
+     * @param strict : This parameter is used to process the pids and plds lists. 
+     * 		Value true: Each single pid in pids and each single pld in plds has to be present in a Tuple
+     * 		Value false: Only one pid of the pids and only one pld of the plds has to be present in a Tuple
+     * @param aggregate : If true, the modifications are filtered by the server with an aggregation pipeline ($match and $unwind)
+     * 		and only the matching modifications are transferred. Otherwise the whole modifications array is transferred and filtered while decoding.
+     * 		Both ways return the same tuples, however with aggregate no empty lists are returned.
+     */
+    public TupleQueryResultIterator(String instance,String clazz, DB db, 
+    		String iPreModifier, String iPostModifier,
+    		String cPreModifier, String cPostModifier,
+    		String[] pids, String[] plds, 
+    		double minFrequency, double maxFrequency,
+    		int minPidSpread, int maxPidSpread,
+    		int minPldSpread, int maxPldSpread, boolean strict, boolean aggregate) 
+    {
+    	this(instance, clazz, new CollectionCatalog(db), iPreModifier, iPostModifier, cPreModifier, cPostModifier, pids, plds, 
+    			minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict, aggregate);
+    }
+    
+    /**
+     * Same as the constructor taking the database, the collections of a query with instance and class "*" are taken from the catalog.
+     * @param catalog : Refers to the collections of the mongoDB database that is queried
+     */
+    public TupleQueryResultIterator(String instance,String clazz, CollectionCatalog catalog, 
+    		String iPreModifier, String iPostModifier,
+    		String cPreModifier, String cPostModifier,
+    		String[] pids, String[] plds, 
+    		double minFrequency, double maxFrequency,
+    		int minPidSpread, int maxPidSpread,
+    		int minPldSpread, int maxPldSpread, boolean strict, boolean aggregate) 
+    {
+    	super(instance, clazz, catalog, pids, plds, minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
         this.iPreModifier = iPreModifier;
         this.iPostModifier = iPostModifier;
         this.cPreModifier = cPreModifier;
         this.cPostModifier = cPostModifier;
+        this.aggregate = aggregate;
+        this.filter = new TupleFilter(iPreModifier, iPostModifier, cPreModifier, cPostModifier, pids, plds, 
+        		minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
+    }
+    
+    /**
+     * The thresholds and the pids/plds lists refer to the single modifications of a core tuple, 
+     * therefore only the instance and class values are sent to the server and the remaining filters are checked on the client, while decoding the modifications.
+     */
+    @Override
+    protected BasicDBObject buildQuery() {
+        return lemmaQuery();
+    }
+    
+    /**
+     * @return the projection on the fields decoded by next(), the aggregated values of the core tuple are not needed
+     */
+    @Override
+    protected BasicDBObject fields() {
+        return new BasicDBObject("_id", 0).append("instance", 1).append("class", 1).append("modifications", 1);
+    }
+    
+    /**
+     * @return a cursor on the matching documents, decoded into TupleList by TupleListCodec
+     */
+    @Override
+    protected MongoCursor<?> openCursor(String tablename) {
+        MongoCollection<TupleList> table = database.getCollection(tablename, TupleList.class);
+        if (!aggregate) {
+            // the modifications are filtered while decoding, the tuples not returned are never created
+            return table.withCodecRegistry(filteringRegistry()).find(buildQuery()).projection(fields())
+                    .noCursorTimeout(true).iterator();
+        }
+        return table.aggregate(buildPipeline()).useCursor(true).iterator();
+    }
+    
+    /**
+     * @return the codecs of WebIsADbCodecs, with a TupleListCodec decoding only the modifications accepted by the filter
+     */
+    private CodecRegistry filteringRegistry() {
+        if (filteringRegistry == null) {
+            filteringRegistry = CodecRegistries.fromRegistries(
+                    CodecRegistries.fromCodecs(new TupleListCodec(filter)), WebIsADbCodecs.REGISTRY);
+        }
+        return filteringRegistry;
+    }
+
+    /**
+     * Builds the aggregation pipeline, which returns one document for each matching modification:
+     * the core tuples having at least one matching modification are selected, their modifications arrays are unwound
+     * and the single modifications are filtered again.
+     * @return the aggregation pipeline for the current parameters
+     */
+    List<BasicDBObject> buildPipeline() {
+        BasicDBObject modificationQuery = modificationQuery();
+        BasicDBObject match = lemmaQuery();
+        BasicDBObject unwoundMatch = new BasicDBObject();
+        if (!modificationQuery.isEmpty()) {
+            match.append("modifications", new BasicDBObject("$elemMatch", modificationQuery));
+            unwoundMatch = prefixed(modificationQuery, "modifications.");
+        }
+        List<BasicDBObject> pipeline = new ArrayList<>();
+        pipeline.add(new BasicDBObject("$match", match));
+        pipeline.add(new BasicDBObject("$unwind", "$modifications"));
+        if (!unwoundMatch.isEmpty()) {
+            pipeline.add(new BasicDBObject("$match", unwoundMatch));
+        }
+        pipeline.add(new BasicDBObject("$project", fields()));
+        return pipeline;
+    }
+    
+    /**
+     * @return query with prefix added to its field names, including the ones inside the $and and $or clauses
+     */
+    private static BasicDBObject prefixed(BasicDBObject query, String prefix) {
+        BasicDBObject result = new BasicDBObject();
+        for (String field : query.keySet()) {
+            if (field.equals("$and") || field.equals("$or")) {
+                BasicDBList clauses = new BasicDBList();
+                for (Object clause : (BasicDBList) query.get(field)) {
+                    clauses.add(prefixed((BasicDBObject) clause, prefix));
+                }
+                result.append(field, clauses);
+            } else {
+                result.append(prefix + field, query.get(field));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the server side equivalent of the checks done in next() on a single modification
+     */
+    BasicDBObject modificationQuery() {
+        BasicDBObject query = new BasicDBObject();
+        appendModifier(query, "ipremod", iPreModifier);
+        appendModifier(query, "ipostmod", iPostModifier);
+        appendModifier(query, "cpremod", cPreModifier);
+        appendModifier(query, "cpostmod", cPostModifier);
+        appendRange(query, "frequency", minFrequency, maxFrequency);
+        appendRange(query, "pidspread", minPidSpread, maxPidSpread);
+        appendRange(query, "pldspread", minPldSpread, maxPldSpread);
+        appendContains(query, "pids", pids);
+        appendContains(query, "plds", plds);
+        return query;
+    }
+    
+    private static void appendModifier(BasicDBObject query, String field, String modifier) {
+        if (!modifier.equals("*")) {
+            query.append(field, modifier);
+        }
+    }
+    
+    @Override
+    QueryType queryType() {
+        return QueryType.TUPLES;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        return pending != null || super.hasNext();
     }
     
     @Override
     public List<Tuple> next() {
-    	boolean pldCheck = false;
-    	boolean pidCheck = false;
+        long bytes = DecodedBytes.get();
+        List<Tuple> results = aggregate ? nextAggregated() : nextFiltered();
+        stats.bytesDecoded(DecodedBytes.get() - bytes);
+        stats.resultsReturned(results.size());
+        return results;
+    }
+    
+    private List<Tuple> nextFiltered() {
+        TupleList tuples = (TupleList) cursor.next();
+        stats.documentsScanned(1);
+        stats.modificationsExamined(tuples.getModificationCount());
+        if (tuples.isFiltered()) {
+            return tuples;
+        }
+        // decoded without the filter, e.g. by a cursor of a subclass
         List<Tuple> results = new ArrayList<>();
-        
-        DBObject current = cursor.next();
-        String inst = current.get("instance").toString();
-        String claz = current.get("class").toString();
-        
-        BasicDBList modificationDBList = (BasicDBList) current.get("modifications");
-        BasicDBObject[] modificationDBArr = modificationDBList.toArray(new BasicDBObject[0]);
-        for (DBObject singleModification : modificationDBArr) 
+        for (Tuple tuple : tuples) 
         {
-        	pldCheck=false;
-        	pidCheck=false;
-        	if (!singleModification.get("ipremod").equals(this.iPreModifier) && !this.iPreModifier.equals("*"))
-        	{
-        		continue;
-        	}
-        	if (!singleModification.get("ipostmod").equals(this.iPostModifier) && !this.iPostModifier.equals("*"))
-        	{
-        		continue;
-        	}
-        	if (!singleModification.get("cpremod").equals(this.cPreModifier) && !this.cPreModifier.equals("*"))
-        	{
-        		continue;
-        	}
-        	if (!singleModification.get("cpostmod").equals(this.cPostModifier) && !this.cPostModifier.equals("*"))
-        	{
-        		continue;
-        	}
-        	if(Double.parseDouble(singleModification.get("frequency").toString())<this.minFrequency && !(this.minFrequency==0))
-        	{
-        		continue;
-        	}
-        	if(Double.parseDouble(singleModification.get("frequency").toString())>this.maxFrequency && !(this.maxFrequency==0))
-        	{
-        		continue;
-        	}
-        	if(Integer.parseInt(singleModification.get("pidspread").toString())<this.minPidSpread && !(this.minPidSpread==0))
-        	{
-        		continue;
-        	}
-        	if(Integer.parseInt(singleModification.get("pidspread").toString())>this.maxPidSpread && !(this.maxPidSpread==0))
-        	{
-        		continue;
-        	}
-        	if(Integer.parseInt(singleModification.get("pldspread").toString())<this.minPldSpread && !(this.minPldSpread==0))
-        	{
-        		continue;
-        	}
-        	if(Integer.parseInt(singleModification.get("pldspread").toString())>this.maxPldSpread && !(this.maxPldSpread==0))
+        	if (filter.matchesModifiers(tuple.getInstancePreModifiers(), tuple.getInstancePostModifiers(),
+        			tuple.getClassPreModifiers(), tuple.getClassPostModifiers())
+        			&& filter.matches(tuple))
         	{
-        		continue;
+        		results.add(tuple);
         	}
-        	if (pids!=null)
-        	{
-	        	for (String pid : pids)
-	        	{
-	        		if (singleModification.get("pids").toString().contains(pid+";"))
-	        		{
-	        			pidCheck=true;
-	        		}
-	        		if (!singleModification.get("pids").toString().contains(pid+";") && strict)
-	        		{
-	        			pidCheck=false;
-	        			break;
-	        		}
-	        	}
-	        	if (!pidCheck)
-	        	{
-	        		continue;
-	        	}
-        	}
-        	if (plds!=null)
-        	{
-	        	for (String pld : plds)
-	        	{
-	        		if (singleModification.get("plds").toString().contains(pld+";"))
-	        		{
-	        			pldCheck=true;
-	        		}
-	        		if (!singleModification.get("plds").toString().contains(pld+";") && strict)
-	        		{
-	        			pldCheck=false;
-	        			break;
-	        		}
-	        	}
-	        	if (!pldCheck)
-	        	{
-	        		continue;
-	        	}
-        	}
-            results.add(new Tuple(inst, claz,
-                    Double.parseDouble(singleModification.get("frequency").toString()),
-                    Integer.parseInt(singleModification.get("pidspread").toString()),
-                    Integer.parseInt(singleModification.get("pldspread").toString()),
-                    singleModification.get("ipremod").toString(), singleModification.get("ipostmod").toString(),
-                    singleModification.get("cpremod").toString(), singleModification.get("cpostmod").toString(),
-                    singleModification.get("pids").toString(), singleModification.get("plds").toString(), 
-                    singleModification.get("provids").toString())
-            );
         }
         return results;
     }
-}
-
+    
+    /**
+     * Collects the consecutive unwound modifications of the same core tuple returned by the aggregation pipeline.
+     */
+    private List<Tuple> nextAggregated() {
+        TupleList current = pending;
+        if (current == null) {
+            current = (TupleList) cursor.next();
+            stats.documentsScanned(1);
+            stats.modificationsExamined(current.size());
+        }
+        pending = null;
+        List<Tuple> results = new ArrayList<Tuple>(current.size());
+        addMatchingThresholds(current, results);
+        while (cursor.hasNext()) 
+        {
+            TupleList following = (TupleList) cursor.next();
+            stats.documentsScanned(1);
+            stats.modificationsExamined(following.size());
+            if (!current.getInstance().equals(following.getInstance()) || !current.getClazz().equals(following.getClazz())) 
+            {
+                pending = following;
+                break;
+            }
+            addMatchingThresholds(following, results);
+        }
+        return results;
+    }
 
+    /**
+     * Adds the tuples passing the thresholds: the pipeline lets the values stored as strings through (see appendRange).
+     */
+    private void addMatchingThresholds(List<Tuple> tuples, List<Tuple> results) {
+        for (Tuple tuple : tuples) {
+            if (filter.matchesThresholds(tuple.getAdjustedFrequency(), tuple.getPidSpread(), tuple.getPldSpread())) {
+                results.add(tuple);
+            }
+        }
+    }
+}
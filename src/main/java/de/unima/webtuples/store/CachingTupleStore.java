@@ -0,0 +1,564 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.store;
+
+import de.unima.webtuples.datatypes.Context;
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.datatypes.Tuple;
+import de.unima.webtuples.queries.ResultIterator;
+import de.unima.webtuples.queries.TupleFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * This class is a TupleStore keeping the results of the core lookups and of the modification lookups of another store in memory,
+ * so that repeated queries do not reach the database. The cache is keyed by the query parameters, 
+ * with the pids and plds lists normalized (sorted, without duplicates).
+ * The full scans, the bulk lemma lookups and the hypernym closures are passed to the store unchanged,
+ * so that the store answers them with its own batched queries.
+ *
+ * The memory used is bounded by the estimated size in bytes of the cached tuples (the weight). 
+ * A result heavier than the maximum entry weight is not cached: the tuples read so far are returned, 
+ * followed by the rest of the result read straight from the store.
+ * Entries are evicted in least recently used order. With the TinyLFU policy a new entry is only cached if it was requested
+ * more often than the entry it would evict, so that a burst of queries asked once does not flush the frequent ones.
+ *
+ * Optionally the contexts of the provenance ids are kept in a ContextCache: a lookup of several provenance ids
+ * reads only the missing ones from the store, with a single query.
+ *
+ * The cache can be used by several threads at the same time. The results are read from the store outside the lock, 
+ * therefore two threads missing the same query at the same time both query the store.
+ *
+ * The cached lists are read-only, but the tuples in them are not copied: every caller of a cached query gets the same
+ * tuple instances. They are shared and must not be modified, e.g. with setAdjustedFrequency, since the change would be seen
+ * by all the later callers of the query.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class CachingTupleStore implements TupleStore {
+
+    /**
+     * The eviction policy of the cache.
+     */
+    public enum Policy {
+        /** evicts the least recently used entries */
+        LRU,
+        /** as LRU, but admits a new entry only if it was requested more often than the entry it would evict */
+        TINY_LFU
+    }
+
+    private final TupleStore store;
+    private final long maximumWeight;
+    private final long maximumEntryWeight;
+    private final long expireAfterWriteNanos;
+    private final Policy policy;
+    private final LongSupplier ticker;
+    // null if the contexts are not cached
+    private final ContextCache contexts;
+
+    // in access order, guarded by this
+    private final LinkedHashMap<List<Object>, CachedResult> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long weight = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong bypasses = new AtomicLong();
+
+    private CachingTupleStore(Builder builder) {
+        this.store = builder.store;
+        this.maximumWeight = builder.maximumWeight;
+        this.maximumEntryWeight = builder.maximumEntryWeight < 0 ? builder.maximumWeight / 16
+                : Math.min(builder.maximumEntryWeight, builder.maximumWeight);
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.policy = builder.policy;
+        this.ticker = builder.ticker;
+        this.contexts = builder.maximumContextBytes > 0 ? new ContextCache(builder.maximumContextBytes) : null;
+        this.sketch = policy == Policy.TINY_LFU ? new FrequencySketch(builder.expectedEntries) : null;
+    }
+
+    /**
+     * @return the store answering the queries, which are not in the cache
+     */
+    public TupleStore getStore() {
+        return store;
+    }
+
+    @Override
+    public ResultIterator<List<Tuple>> getAllTuples() {
+        return store.getAllTuples();
+    }
+
+    @Override
+    public ResultIterator<List<? extends CoreTuple>> getCoreTuplesWhere(String instance, String clazz,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict) {
+        List<Object> key = Arrays.<Object>asList("core", instance, clazz, normalize(pids), normalize(plds),
+                minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
+        List<List<? extends CoreTuple>> cached = get(key);
+        if (cached != null) {
+            return new ListIterator<List<? extends CoreTuple>>(cached.iterator(), null);
+        }
+        return load(key, store.getCoreTuplesWhere(instance, clazz, pids, plds, minFrequency, maxFrequency,
+                minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict));
+    }
+
+    @Override
+    public ResultIterator<List<Tuple>> getTuplesWhere(String instance, String clazz,
+            String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict) {
+        List<Object> key = Arrays.<Object>asList("tuples", instance, clazz, iPreModifier, iPostModifier, cPreModifier, cPostModifier,
+                normalize(pids), normalize(plds), minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
+        List<List<Tuple>> cached = get(key);
+        if (cached != null) {
+            return new ListIterator<List<Tuple>>(cached.iterator(), null);
+        }
+        return load(key, store.getTuplesWhere(instance, clazz, iPreModifier, iPostModifier, cPreModifier, cPostModifier,
+                pids, plds, minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict));
+    }
+
+    /**
+     * Not cached, forwarded to the store, e.g. for the bulk query of MongoTupleStore.
+     */
+    @Override
+    public Map<String, List<Tuple>> getTuplesWhereInstanceLemmas(Collection<String> lemmas) {
+        return store.getTuplesWhereInstanceLemmas(lemmas);
+    }
+
+    /**
+     * Not cached, forwarded to the store, which may memoize the closures itself (e.g. MongoTupleStore).
+     */
+    @Override
+    public Map<String, Integer> getAncestors(String instance, int maxDepth, TupleFilter filter) {
+        return store.getAncestors(instance, maxDepth, filter);
+    }
+
+    /**
+     * Not cached, forwarded to the store.
+     */
+    @Override
+    public Map<String, Integer> getDescendants(String clazz, int maxDepth, TupleFilter filter) {
+        return store.getDescendants(clazz, maxDepth, filter);
+    }
+
+    /**
+     * @return the cache of the contexts, null if the contexts are not cached
+     */
+    public ContextCache getContextCache() {
+        return contexts;
+    }
+
+    @Override
+    public ResultIterator<Context> getContextWithProvid(String provid) {
+        if (contexts == null || provid == null || provid.trim().isEmpty()) {
+            return store.getContextWithProvid(provid);
+        }
+        return getCachedContexts(Collections.singleton(provid), 0);
+    }
+
+    @Override
+    public ResultIterator<Context> getMultipleContextsWithProvid(Set<String> provids, int limit) {
+        if (contexts == null || provids == null || provids.isEmpty()) {
+            return store.getMultipleContextsWithProvid(provids, limit);
+        }
+        List<String> requested = new ArrayList<>(provids.size());
+        for (String provid : provids) {
+            if (!provid.trim().isEmpty()) {
+                requested.add(provid);
+            }
+        }
+        return getCachedContexts(requested, limit);
+    }
+
+    /**
+     * Returns the cached contexts first, then the contexts of the missing provenance ids read from the store.
+     * The missing provenance ids are read without limit, so that all their contexts can be cached, 
+     * and are not read at all if the cached contexts reach the limit.
+     */
+    private ResultIterator<Context> getCachedContexts(Collection<String> provids, int limit) {
+        List<Context> found = new ArrayList<>();
+        List<String> missing = contexts.getAll(provids, found);
+        if (!missing.isEmpty() && (limit == 0 || found.size() < limit)) {
+            List<Context> read = new ArrayList<>();
+            ResultIterator<Context> source = store.getMultipleContextsWithProvid(new HashSet<>(missing), 0);
+            try {
+                while (source.hasNext()) {
+                    read.add(source.next());
+                }
+            } finally {
+                source.close();
+            }
+            contexts.putAll(missing, read);
+            found.addAll(read);
+        }
+        if (limit > 0 && found.size() > limit) {
+            found = found.subList(0, limit);
+        }
+        return new ListIterator<Context>(found.iterator(), null);
+    }
+
+    /**
+     * Empties the cache and closes the store.
+     */
+    @Override
+    public void close() {
+        invalidateAll();
+        store.close();
+    }
+
+    /**
+     * Removes all the entries, including the contexts, e.g. after the database was updated.
+     */
+    public void invalidateAll() {
+        synchronized (this) {
+            entries.clear();
+            weight = 0;
+        }
+        if (contexts != null) {
+            contexts.invalidateAll();
+        }
+    }
+
+    /**
+     * @return the counters of the cache
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hits.get(), misses.get(), evictions.get(), expirations.get(), rejections.get(), bypasses.get(),
+                entries.size(), weight);
+    }
+
+    private static List<String> normalize(String[] values) {
+        return values == null ? null : new ArrayList<>(new TreeSet<>(Arrays.asList(values)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> List<T> get(List<Object> key) {
+        if (sketch != null) {
+            sketch.increment(key);
+        }
+        CachedResult entry = entries.get(key);
+        if (entry != null && expireAfterWriteNanos > 0 && ticker.getAsLong() - entry.written >= expireAfterWriteNanos) {
+            entries.remove(key);
+            weight -= entry.weight;
+            expirations.incrementAndGet();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return (List<T>) entry.results;
+    }
+
+    /**
+     * Reads the result of a query, caches it if it is not too heavy.
+     */
+    private <T extends List<? extends CoreTuple>> ResultIterator<T> load(List<Object> key, ResultIterator<T> source) {
+        List<T> results = new ArrayList<>();
+        long resultWeight = 0;
+        while (source.hasNext()) {
+            T tuples = source.next();
+            results.add(tuples);
+            for (CoreTuple t : tuples) {
+                resultWeight += weigh(t);
+            }
+            if (resultWeight > maximumEntryWeight) {
+                bypasses.incrementAndGet();
+                return new ListIterator<T>(results.iterator(), source);
+            }
+        }
+        source.close();
+        List<T> cached = new ArrayList<>(results.size());
+        for (T tuples : results) {
+            @SuppressWarnings("unchecked")
+            T readOnly = (T) Collections.unmodifiableList(tuples);
+            cached.add(readOnly);
+        }
+        put(key, new CachedResult(Collections.unmodifiableList(cached), resultWeight, ticker.getAsLong()));
+        return new ListIterator<T>(cached.iterator(), null);
+    }
+
+    private synchronized void put(List<Object> key, CachedResult entry) {
+        CachedResult previous = entries.remove(key);
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        Iterator<Map.Entry<List<Object>, CachedResult>> eldest = entries.entrySet().iterator();
+        if (sketch != null && weight + entry.weight > maximumWeight && eldest.hasNext()
+                && sketch.frequency(key) <= sketch.frequency(entries.keySet().iterator().next())) {
+            rejections.incrementAndGet();
+            return;
+        }
+        while (weight + entry.weight > maximumWeight && eldest.hasNext()) {
+            CachedResult victim = eldest.next().getValue();
+            eldest.remove();
+            weight -= victim.weight;
+            evictions.incrementAndGet();
+        }
+        entries.put(key, entry);
+        weight += entry.weight;
+    }
+
+    /**
+     * @return the estimated number of bytes used by a tuple: the characters of its strings and the object headers
+     */
+    static long weigh(CoreTuple tuple) {
+        long chars = tuple.getInstanceLemma().length() + tuple.getClassLemma().length()
+                + tuple.getPidsString().length() + tuple.getPldsString().length() + tuple.getProvids().length();
+        if (tuple instanceof Tuple) {
+            Tuple t = (Tuple) tuple;
+            chars += t.getInstancePreModifiers().length() + t.getInstancePostModifiers().length()
+                    + t.getClassPreModifiers().length() + t.getClassPostModifiers().length();
+        }
+        return 96 + 2 * chars;
+    }
+
+    private static class CachedResult {
+
+        final List<?> results;
+        final long weight;
+        final long written;
+
+        CachedResult(List<?> results, long weight, long written) {
+            this.results = results;
+            this.weight = weight;
+            this.written = written;
+        }
+    }
+
+    /**
+     * Iterates through the results read so far, then through the rest of the source, if any.
+     */
+    private static class ListIterator<T> implements ResultIterator<T> {
+
+        private final Iterator<T> results;
+        private final ResultIterator<T> rest;
+
+        ListIterator(Iterator<T> results, ResultIterator<T> rest) {
+            this.results = results;
+            this.rest = rest;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return results.hasNext() || (rest != null && rest.hasNext());
+        }
+
+        @Override
+        public T next() {
+            if (results.hasNext()) {
+                return results.next();
+            }
+            if (rest == null) {
+                throw new NoSuchElementException();
+            }
+            return rest.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            if (rest != null) {
+                rest.close();
+            }
+        }
+    }
+
+    /**
+     * The counters of a CachingTupleStore at the time getStats was called.
+     */
+    public static class Stats {
+
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long expirationCount;
+        private final long rejectionCount;
+        private final long bypassCount;
+        private final int entryCount;
+        private final long weight;
+
+        Stats(long hitCount, long missCount, long evictionCount, long expirationCount, long rejectionCount, long bypassCount,
+                int entryCount, long weight) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.expirationCount = expirationCount;
+            this.rejectionCount = rejectionCount;
+            this.bypassCount = bypassCount;
+            this.entryCount = entryCount;
+            this.weight = weight;
+        }
+
+        /** @return the number of queries answered by the cache */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /** @return the number of queries sent to the store, including the expired entries */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /** @return the number of entries removed to make room for new ones */
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        /** @return the number of entries removed because they were older than the expiration time */
+        public long getExpirationCount() {
+            return expirationCount;
+        }
+
+        /** @return the number of results not cached by the TinyLFU admission */
+        public long getRejectionCount() {
+            return rejectionCount;
+        }
+
+        /** @return the number of results not cached because they were heavier than the maximum entry weight */
+        public long getBypassCount() {
+            return bypassCount;
+        }
+
+        public int getEntryCount() {
+            return entryCount;
+        }
+
+        /** @return the estimated number of bytes of the cached tuples */
+        public long getWeight() {
+            return weight;
+        }
+
+        public double getHitRate() {
+            long requests = hitCount + missCount;
+            return requests == 0 ? 1.0 : (double) hitCount / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d evictions=%d expirations=%d rejections=%d bypasses=%d entries=%d weight=%d",
+                    hitCount, missCount, evictionCount, expirationCount, rejectionCount, bypassCount, entryCount, weight);
+        }
+    }
+
+    /**
+     * This class configures a CachingTupleStore. By default the cache holds 64 MB of tuples, a single result at most 1/16 of it,
+     * the entries do not expire and the policy is LRU.
+     */
+    public static class Builder {
+
+        private final TupleStore store;
+        private long maximumWeight = 64L << 20;
+        private long maximumEntryWeight = -1;
+        private long expireAfterWriteNanos = 0;
+        private Policy policy = Policy.LRU;
+        private int expectedEntries = 1024;
+        private LongSupplier ticker = System::nanoTime;
+        private long maximumContextBytes = 0;
+
+        /**
+         * @param store : the store answering the queries, which are not in the cache
+         */
+        public Builder(TupleStore store) {
+            this.store = store;
+        }
+
+        /**
+         * @param bytes : the maximum estimated size of all the cached tuples
+         */
+        public Builder maximumWeight(long bytes) {
+            this.maximumWeight = bytes;
+            return this;
+        }
+
+        /**
+         * @param bytes : the maximum estimated size of the tuples of a single result, heavier results are not cached
+         */
+        public Builder maximumEntryWeight(long bytes) {
+            this.maximumEntryWeight = bytes;
+            return this;
+        }
+
+        /**
+         * @param duration : the time after which an entry is read again from the store, 0 means never
+         */
+        public Builder expireAfterWrite(long duration, TimeUnit unit) {
+            this.expireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder policy(Policy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        /**
+         * @param entries : the number of entries expected in the cache, used to size the frequency sketch of TinyLFU
+         */
+        public Builder expectedEntries(int entries) {
+            this.expectedEntries = entries;
+            return this;
+        }
+
+        /**
+         * @param ticker : the source of the time in nanoseconds, System.nanoTime by default
+         */
+        public Builder ticker(LongSupplier ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        /**
+         * @param bytes : the maximum memory used by the cached contexts, 0 (the default) does not cache the contexts
+         */
+        public Builder maximumContextBytes(long bytes) {
+            this.maximumContextBytes = bytes;
+            return this;
+        }
+
+        public CachingTupleStore build() {
+            if (maximumWeight <= 0) {
+                throw new IllegalArgumentException("maximumWeight must be positive");
+            }
+            return new CachingTupleStore(this);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.store;
+
+import de.unima.webtuples.datatypes.Context;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class keeps the contexts of the most recently requested provenance ids, used by CachingTupleStore.
+ * The contexts of a provenance id are encoded into a single byte array (UTF-8 plds and sentences, a missing one as length -1), 
+ * which takes about half the memory of the Strings and no objects besides the array.
+ * Provenance ids are normalized the way the stores parse them (a long, so " 01" and "1" are the same key),
+ * and only the provenance ids, which matched at least one context, are cached: a provenance id without contexts 
+ * is read from the store again, rather than cached as empty under a key the store might have written differently.
+ * The memory used is bounded by the total length of the arrays, the least recently used provenance ids are evicted first.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class ContextCache {
+
+    // the memory used by an entry besides its array: the key, the map entry and the array header
+    private static final int OVERHEAD = 96;
+
+    private final long maximumBytes;
+    // in access order, guarded by this
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * @param maximumBytes : the maximum memory used by the cached contexts
+     */
+    public ContextCache(long maximumBytes) {
+        if (maximumBytes <= 0) {
+            throw new IllegalArgumentException("maximumBytes must be positive");
+        }
+        this.maximumBytes = maximumBytes;
+    }
+
+    /**
+     * Looks up several provenance ids at once.
+     * @param provids : the provenance ids
+     * @param found : receives the contexts of the cached provenance ids, in the order of provids
+     * @return the provenance ids, which are not in the cache
+     */
+    public synchronized List<String> getAll(Collection<String> provids, List<Context> found) {
+        List<String> missing = new ArrayList<>();
+        for (String provid : provids) {
+            String key = normalize(provid);
+            byte[] encoded = entries.get(key);
+            if (encoded == null) {
+                misses++;
+                missing.add(provid);
+            } else {
+                hits++;
+                decode(key, encoded, found);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Caches the contexts of several provenance ids, as read from the store.
+     * @param provids : the provenance ids, which were requested
+     * @param contexts : all the contexts of provids, the provenance ids without contexts are not cached
+     */
+    public void putAll(Collection<String> provids, List<Context> contexts) {
+        Map<String, List<Context>> grouped = new LinkedHashMap<>();
+        for (String provid : provids) {
+            grouped.put(normalize(provid), new ArrayList<Context>(1));
+        }
+        for (Context context : contexts) {
+            if (context.getProvid() == null) {
+                continue;
+            }
+            List<Context> group = grouped.get(normalize(context.getProvid()));
+            if (group != null) {
+                group.add(context);
+            }
+        }
+        // encoded outside the lock
+        Map<String, byte[]> encoded = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Context>> group : grouped.entrySet()) {
+            if (group.getValue().isEmpty()) {
+                continue;
+            }
+            encoded.put(group.getKey(), encode(group.getValue()));
+        }
+        synchronized (this) {
+            for (Map.Entry<String, byte[]> entry : encoded.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void put(String provid, byte[] encoded) {
+        long size = OVERHEAD + encoded.length;
+        if (size > maximumBytes) {
+            return;
+        }
+        byte[] previous = entries.remove(provid);
+        if (previous != null) {
+            bytes -= OVERHEAD + previous.length;
+        }
+        Iterator<byte[]> eldest = entries.values().iterator();
+        while (bytes + size > maximumBytes && eldest.hasNext()) {
+            bytes -= OVERHEAD + eldest.next().length;
+            eldest.remove();
+            evictions++;
+        }
+        entries.put(provid, encoded);
+        bytes += size;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /** @return the number of provenance ids found in the cache */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /** @return the number of provenance ids read from the store */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /** @return the memory used by the cached contexts */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the provenance id as the stores parse it, or trimmed if it is not a number
+     */
+    static String normalize(String provid) {
+        String trimmed = provid.trim();
+        try {
+            return String.valueOf(Long.parseLong(trimmed));
+        } catch (NumberFormatException e) {
+            return trimmed;
+        }
+    }
+
+    private static byte[] encode(List<Context> contexts) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            for (Context context : contexts) {
+                writeString(out, context.getPlds());
+                writeString(out, context.getSentence());
+            }
+            out.close();
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void decode(String provid, byte[] encoded, List<Context> found) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+            while (in.available() > 0) {
+                found.add(new Context(provid, readString(in), readString(in)));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // a sentence can be longer than the 64 KB of writeUTF, null is written as length -1
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,586 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.store;
+
+import de.unima.webtuples.datatypes.Context;
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.datatypes.Tuple;
+import de.unima.webtuples.queries.ResultIterator;
+import de.unima.webtuples.queries.ResultStreams;
+import de.unima.webtuples.queries.TupleFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * This class is a read-only TupleStore keeping the tuples and contexts in memory.
+ * The core tuples are stored column-wise in primitive arrays sorted by instance and class, a second permutation
+ * sorts them by class and instance. The modifications of each core tuple are a contiguous range of the modification arrays.
+ * Lemmas are looked up by binary search in a sorted dictionary, all the other strings are stored once and referenced by their code.
+ *
+ * Instances are created with a Builder, which can be filled for example with MongoTupleStore.copyTuples and copyContexts.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class InMemoryTupleStore implements TupleStore {
+
+    // sorted instance and class lemmas, a lemma is identified by its position
+    private final String[] lemmas;
+    // all the other strings (modifiers, pids, plds, provids), identified by their position
+    private final String[] strings;
+
+    // core tuples sorted by instance and class
+    private final int[] coreInstance;
+    private final int[] coreClass;
+    private final double[] coreFrequency;
+    private final int[] corePidSpread;
+    private final int[] corePldSpread;
+    private final int[] corePids;
+    private final int[] corePlds;
+    // positions of the core tuples sorted by class and instance
+    private final int[] classOrder;
+
+    // the modifications of the core tuple i are at the positions modificationStart[i] ... modificationStart[i+1]-1
+    private final int[] modificationStart;
+    private final int[] iPreModifiers;
+    private final int[] iPostModifiers;
+    private final int[] cPreModifiers;
+    private final int[] cPostModifiers;
+    private final double[] frequencies;
+    private final int[] pidSpreads;
+    private final int[] pldSpreads;
+    private final int[] pids;
+    private final int[] plds;
+    private final int[] provids;
+
+    // contexts sorted by provid
+    private final long[] contextProvids;
+    private final int[] contextPlds;
+    private final String[] contextSentences;
+
+    private InMemoryTupleStore(Builder builder) {
+        strings = builder.strings.toArray(new String[0]);
+
+        List<Builder.Core> cores = builder.cores;
+        // lemma dictionary
+        List<String> lemmaList = new ArrayList<>();
+        for (Builder.Core c : cores) {
+            lemmaList.add(c.instance);
+            lemmaList.add(c.clazz);
+        }
+        Collections.sort(lemmaList);
+        List<String> distinct = new ArrayList<>();
+        for (String l : lemmaList) {
+            if (distinct.isEmpty() || !distinct.get(distinct.size() - 1).equals(l)) {
+                distinct.add(l);
+            }
+        }
+        lemmas = distinct.toArray(new String[0]);
+
+        // core tuples sorted by instance and class
+        final int n = cores.size();
+        final int[] inst = new int[n];
+        final int[] clazz = new int[n];
+        for (int i = 0; i < n; i++) {
+            inst[i] = Arrays.binarySearch(lemmas, cores.get(i).instance);
+            clazz[i] = Arrays.binarySearch(lemmas, cores.get(i).clazz);
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int c = Integer.compare(inst[a], inst[b]);
+                return c != 0 ? c : Integer.compare(clazz[a], clazz[b]);
+            }
+        });
+
+        coreInstance = new int[n];
+        coreClass = new int[n];
+        coreFrequency = new double[n];
+        corePidSpread = new int[n];
+        corePldSpread = new int[n];
+        corePids = new int[n];
+        corePlds = new int[n];
+        modificationStart = new int[n + 1];
+        int m = 0;
+        for (Builder.Core c : cores) {
+            m += c.modifications.size();
+        }
+        iPreModifiers = new int[m];
+        iPostModifiers = new int[m];
+        cPreModifiers = new int[m];
+        cPostModifiers = new int[m];
+        frequencies = new double[m];
+        pidSpreads = new int[m];
+        pldSpreads = new int[m];
+        pids = new int[m];
+        plds = new int[m];
+        provids = new int[m];
+
+        int next = 0;
+        for (int i = 0; i < n; i++) {
+            Builder.Core c = cores.get(order[i]);
+            coreInstance[i] = inst[order[i]];
+            coreClass[i] = clazz[order[i]];
+            coreFrequency[i] = c.frequency;
+            corePidSpread[i] = c.pidSpread;
+            corePldSpread[i] = c.pldSpread;
+            corePids[i] = c.pids;
+            corePlds[i] = c.plds;
+            modificationStart[i] = next;
+            for (Builder.Modification mod : c.modifications) {
+                iPreModifiers[next] = mod.iPreModifier;
+                iPostModifiers[next] = mod.iPostModifier;
+                cPreModifiers[next] = mod.cPreModifier;
+                cPostModifiers[next] = mod.cPostModifier;
+                frequencies[next] = mod.frequency;
+                pidSpreads[next] = mod.pidSpread;
+                pldSpreads[next] = mod.pldSpread;
+                pids[next] = mod.pids;
+                plds[next] = mod.plds;
+                provids[next] = mod.provids;
+                next++;
+            }
+        }
+        modificationStart[n] = next;
+
+        // permutation sorted by class and instance
+        Integer[] byClass = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            byClass[i] = i;
+        }
+        Arrays.sort(byClass, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int c = Integer.compare(coreClass[a], coreClass[b]);
+                return c != 0 ? c : Integer.compare(coreInstance[a], coreInstance[b]);
+            }
+        });
+        classOrder = new int[n];
+        for (int i = 0; i < n; i++) {
+            classOrder[i] = byClass[i];
+        }
+
+        // contexts sorted by provid
+        List<Builder.ContextEntry> contexts = new ArrayList<>(builder.contexts);
+        Collections.sort(contexts, new Comparator<Builder.ContextEntry>() {
+            @Override
+            public int compare(Builder.ContextEntry a, Builder.ContextEntry b) {
+                return Long.compare(a.provid, b.provid);
+            }
+        });
+        contextProvids = new long[contexts.size()];
+        contextPlds = new int[contexts.size()];
+        contextSentences = new String[contexts.size()];
+        for (int i = 0; i < contexts.size(); i++) {
+            contextProvids[i] = contexts.get(i).provid;
+            contextPlds[i] = contexts.get(i).pld;
+            contextSentences[i] = contexts.get(i).sentence;
+        }
+    }
+
+    /**
+     * @return the number of core tuples in the store
+     */
+    public int getCoreTupleCount() {
+        return coreInstance.length;
+    }
+
+    /**
+     * @return the number of tuples (modifications) in the store
+     */
+    public int getTupleCount() {
+        return frequencies.length;
+    }
+
+    @Override
+    public ResultIterator<List<Tuple>> getAllTuples() {
+        return getTuplesWhere("*", "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false);
+    }
+
+    /**
+     * The stream reports its size, the number of tuples in the store.
+     */
+    @Override
+    public Stream<Tuple> streamAllTuples() {
+        return ResultStreams.flatStream(getAllTuples(), getTupleCount());
+    }
+
+    @Override
+    public ResultIterator<List<? extends CoreTuple>> getCoreTuplesWhere(String instance, String clazz,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict) {
+        final TupleFilter filter = new TupleFilter(pids, plds, minFrequency, maxFrequency,
+                minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
+        return new CoreTupleIterator<List<? extends CoreTuple>>(instance, clazz) {
+            @Override
+            List<? extends CoreTuple> results(int core) {
+                if (!filter.matches(coreFrequency[core], corePidSpread[core], corePldSpread[core],
+                        strings[corePids[core]], strings[corePlds[core]])) {
+                    return Collections.emptyList();
+                }
+                return Collections.singletonList(new CoreTuple(lemmas[coreInstance[core]], lemmas[coreClass[core]],
+                        coreFrequency[core], corePidSpread[core], corePldSpread[core],
+                        strings[corePids[core]], strings[corePlds[core]], ""));
+            }
+        };
+    }
+
+    @Override
+    public ResultIterator<List<Tuple>> getTuplesWhere(String instance, String clazz,
+            String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict) {
+        final TupleFilter filter = new TupleFilter(iPreModifier, iPostModifier, cPreModifier, cPostModifier, pids, plds,
+                minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
+        return new CoreTupleIterator<List<Tuple>>(instance, clazz) {
+            @Override
+            List<Tuple> results(int core) {
+                List<Tuple> results = new ArrayList<>();
+                for (int m = modificationStart[core]; m < modificationStart[core + 1]; m++) {
+                    if (filter.matchesModifiers(strings[iPreModifiers[m]], strings[iPostModifiers[m]],
+                            strings[cPreModifiers[m]], strings[cPostModifiers[m]])
+                            && filter.matches(frequencies[m], pidSpreads[m], pldSpreads[m],
+                                    strings[InMemoryTupleStore.this.pids[m]], strings[InMemoryTupleStore.this.plds[m]])) {
+                        results.add(tuple(core, m));
+                    }
+                }
+                return results;
+            }
+        };
+    }
+
+    private Tuple tuple(int core, int m) {
+        return new Tuple(lemmas[coreInstance[core]], lemmas[coreClass[core]],
+                frequencies[m], pidSpreads[m], pldSpreads[m],
+                strings[iPreModifiers[m]], strings[iPostModifiers[m]],
+                strings[cPreModifiers[m]], strings[cPostModifiers[m]],
+                strings[pids[m]], strings[plds[m]], strings[provids[m]]);
+    }
+
+    @Override
+    public ResultIterator<Context> getContextWithProvid(String provid) {
+        if (provid == null || provid.equals("")) {
+            return new ContextIterator(null, 0);
+        }
+        return new ContextIterator(Collections.singleton(provid), 0);
+    }
+
+    @Override
+    public ResultIterator<Context> getMultipleContextsWithProvid(Set<String> provids, int limit) {
+        return new ContextIterator(provids, limit);
+    }
+
+    /**
+     * Nothing to release, the arrays are kept until the store is garbage collected.
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Iterates through the core tuples of an instance and/or a class, "*" matches every lemma.
+     * Core tuples without results are skipped.
+     */
+    private abstract class CoreTupleIterator<T extends List<?>> implements ResultIterator<T> {
+
+        // the core tuples are order[lo] ... order[hi-1], or lo ... hi-1 if order is null
+        private int[] order = null;
+        private int position;
+        private int hi;
+        private T nextResult;
+
+        CoreTupleIterator(String instance, String clazz) {
+            position = 0;
+            hi = coreInstance.length;
+            if (!instance.equals("*")) {
+                int id = Arrays.binarySearch(lemmas, instance);
+                if (id < 0) {
+                    hi = 0;
+                    return;
+                }
+                position = lowerBound(coreInstance, null, 0, hi, id);
+                hi = lowerBound(coreInstance, null, position, hi, id + 1);
+                if (!clazz.equals("*")) {
+                    int classId = Arrays.binarySearch(lemmas, clazz);
+                    if (classId < 0) {
+                        hi = position;
+                        return;
+                    }
+                    position = lowerBound(coreClass, null, position, hi, classId);
+                    hi = lowerBound(coreClass, null, position, hi, classId + 1);
+                }
+            } else if (!clazz.equals("*")) {
+                int id = Arrays.binarySearch(lemmas, clazz);
+                if (id < 0) {
+                    hi = 0;
+                    return;
+                }
+                order = classOrder;
+                position = lowerBound(coreClass, order, 0, hi, id);
+                hi = lowerBound(coreClass, order, position, hi, id + 1);
+            }
+        }
+
+        abstract T results(int core);
+
+        @Override
+        public boolean hasNext() {
+            while (nextResult == null && position < hi) {
+                int core = order == null ? position : order[position];
+                position++;
+                T results = results(core);
+                if (!results.isEmpty()) {
+                    nextResult = results;
+                }
+            }
+            return nextResult != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = nextResult;
+            nextResult = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            position = hi;
+            nextResult = null;
+        }
+    }
+
+    /**
+     * @return the first position in lo ... hi-1 whose value is not smaller than key, hi if there is none
+     */
+    private static int lowerBound(int[] values, int[] order, int lo, int hi, int key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int value = order == null ? values[mid] : values[order[mid]];
+            if (value < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Iterates through the contexts of a set of provids, or through all the contexts if the set is null.
+     */
+    private class ContextIterator implements ResultIterator<Context> {
+
+        private final int[] positions;
+        private final int limit;
+        private int next = 0;
+
+        ContextIterator(Set<String> provids, int limit) {
+            this.limit = limit;
+            if (provids == null) {
+                positions = null;
+                return;
+            }
+            long[] keys = new long[provids.size()];
+            int k = 0;
+            for (String provid : provids) {
+                if (provid.trim().isEmpty()) continue;
+                keys[k++] = Long.parseLong(provid);
+            }
+            keys = Arrays.copyOf(keys, k);
+            Arrays.sort(keys);
+            int[] found = new int[k];
+            int f = 0;
+            for (int i = 0; i < k; i++) {
+                if (i > 0 && keys[i] == keys[i - 1]) continue;
+                int lo = Arrays.binarySearch(contextProvids, keys[i]);
+                if (lo < 0) continue;
+                // a provid can have several contexts
+                while (lo > 0 && contextProvids[lo - 1] == keys[i]) lo--;
+                for (int p = lo; p < contextProvids.length && contextProvids[p] == keys[i]; p++) {
+                    if (f == found.length) found = Arrays.copyOf(found, f * 2 + 1);
+                    found[f++] = p;
+                }
+            }
+            positions = Arrays.copyOf(found, f);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (limit > 0 && next >= limit) {
+                return false;
+            }
+            return next < (positions == null ? contextProvids.length : positions.length);
+        }
+
+        @Override
+        public Context next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int p = positions == null ? next : positions[next];
+            next++;
+            return new Context(String.valueOf(contextProvids[p]), strings[contextPlds[p]], contextSentences[p]);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            next = Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * This class collects the core tuples, their modifications and the contexts of an InMemoryTupleStore.
+     * The modifications are added to the last added core tuple.
+     */
+    public static class Builder implements TupleSink {
+
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<Core> cores = new ArrayList<>();
+        private final List<ContextEntry> contexts = new ArrayList<>();
+
+        private int code(String s) {
+            Integer c = codes.get(s);
+            if (c == null) {
+                c = strings.size();
+                strings.add(s);
+                codes.put(s, c);
+            }
+            return c;
+        }
+
+        /**
+         * Adds a core tuple, add its modifications with addModification.
+         * Each core tuple should be added only once, e.g. only from the instance collections.
+         */
+        @Override
+        public Builder addCoreTuple(String instance, String clazz, double frequency, int pidSpread, int pldSpread,
+                String pids, String plds) {
+            cores.add(new Core(instance, clazz, frequency, pidSpread, pldSpread, code(pids), code(plds)));
+            return this;
+        }
+
+        /**
+         * Adds a modification to the last added core tuple.
+         */
+        @Override
+        public Builder addModification(String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+                double frequency, int pidSpread, int pldSpread, String pids, String plds, String provids) {
+            if (cores.isEmpty()) {
+                throw new IllegalStateException("addCoreTuple has to be called before addModification");
+            }
+            Modification m = new Modification();
+            m.iPreModifier = code(iPreModifier);
+            m.iPostModifier = code(iPostModifier);
+            m.cPreModifier = code(cPreModifier);
+            m.cPostModifier = code(cPostModifier);
+            m.frequency = frequency;
+            m.pidSpread = pidSpread;
+            m.pldSpread = pldSpread;
+            m.pids = code(pids);
+            m.plds = code(plds);
+            m.provids = code(provids);
+            cores.get(cores.size() - 1).modifications.add(m);
+            return this;
+        }
+
+        /**
+         * Adds the context of a provenance id.
+         */
+        public Builder addContext(String provid, String pld, String sentence) {
+            contexts.add(new ContextEntry(Long.parseLong(provid), code(pld), sentence));
+            return this;
+        }
+
+        public InMemoryTupleStore build() {
+            return new InMemoryTupleStore(this);
+        }
+
+        private static class Core {
+            final String instance;
+            final String clazz;
+            final double frequency;
+            final int pidSpread;
+            final int pldSpread;
+            final int pids;
+            final int plds;
+            final List<Modification> modifications = new ArrayList<>();
+
+            Core(String instance, String clazz, double frequency, int pidSpread, int pldSpread, int pids, int plds) {
+                this.instance = instance;
+                this.clazz = clazz;
+                this.frequency = frequency;
+                this.pidSpread = pidSpread;
+                this.pldSpread = pldSpread;
+                this.pids = pids;
+                this.plds = plds;
+            }
+        }
+
+        private static class Modification {
+            int iPreModifier;
+            int iPostModifier;
+            int cPreModifier;
+            int cPostModifier;
+            double frequency;
+            int pidSpread;
+            int pldSpread;
+            int pids;
+            int plds;
+            int provids;
+        }
+
+        private static class ContextEntry {
+            final long provid;
+            final int pld;
+            final String sentence;
+
+            ContextEntry(long provid, int pld, String sentence) {
+                this.provid = provid;
+                this.pld = pld;
+                this.sentence = sentence;
+            }
+        }
+    }
+}
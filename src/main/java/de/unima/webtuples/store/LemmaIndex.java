@@ -0,0 +1,505 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.store;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * This class is a read-only dictionary of the instance and class lemmas, built by LemmaIndexBuilder, 
+ * answering prefix queries (type-ahead) with the most frequent lemmas first.
+ *
+ * The lemmas are sorted by their UTF-8 bytes and front coded in blocks of BLOCK_SIZE lemmas: 
+ * the first lemma of a block is stored whole, the others as the length of the prefix shared with the previous lemma
+ * followed by the rest of their bytes. Each lemma is followed by its frequency as an instance and as a class,
+ * the sums of the frequencies of its core tuples.
+ * A prefix is found by a binary search on the first lemmas of the blocks. The most frequent lemmas of a prefix are found 
+ * without reading all of them: for each kind of frequency a binary tree holds the highest frequency of every range of blocks,
+ * and only the blocks, which can still hold one of the k most frequent lemmas, are decoded.
+ *
+ * A built index keeps its arrays on the heap, an index opened from a file written by write() maps them from the file.
+ * The index can be queried by several threads at the same time.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class LemmaIndex implements Closeable {
+
+    static final int MAGIC = 0x57494c58;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    // the number of lemmas of a front coded block
+    static final int BLOCK_SIZE = 16;
+
+    /**
+     * The frequency ranking the lemmas.
+     */
+    public enum Role {
+        // the frequency as an instance
+        INSTANCE,
+        // the frequency as a class
+        CLASS,
+        // the sum of both
+        ANY
+    }
+
+    private final int count;
+    private final int blockCount;
+    // the number of leaves of the trees, a power of two
+    private final int leaves;
+    private final IntBuffer blockOffsets;
+    private final ByteBuffer blocks;
+    // for each role, the highest frequency of the blocks below each node, node 1 is the root and node leaves + b is block b
+    private final FloatBuffer[] trees;
+    // null if the index is on the heap
+    private final RandomAccessFile file;
+
+    LemmaIndex(int count, int[] blockOffsets, byte[] blocks, float[][] trees) {
+        this(count, blockOffsets.length - 1, trees[0].length / 2, IntBuffer.wrap(blockOffsets), ByteBuffer.wrap(blocks),
+                new FloatBuffer[]{FloatBuffer.wrap(trees[0]), FloatBuffer.wrap(trees[1]), FloatBuffer.wrap(trees[2])}, null);
+    }
+
+    private LemmaIndex(int count, int blockCount, int leaves, IntBuffer blockOffsets, ByteBuffer blocks, FloatBuffer[] trees,
+            RandomAccessFile file) {
+        this.count = count;
+        this.blockCount = blockCount;
+        this.leaves = leaves;
+        this.blockOffsets = blockOffsets;
+        this.blocks = blocks;
+        this.trees = trees;
+        this.file = file;
+    }
+
+    /**
+     * Maps an index written by write(), it has to be closed to release the file.
+     */
+    public static LemmaIndex open(File index) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(index, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(index + " is not a WebIsADb lemma index");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported lemma index version " + header.getInt(4));
+            }
+            if (header.getInt(8) != BLOCK_SIZE) {
+                throw new IOException("Unsupported block size " + header.getInt(8));
+            }
+            int count = header.getInt(12);
+            int blockCount = header.getInt(16);
+            int leaves = header.getInt(20);
+            long blocksLength = header.getLong(24);
+            long position = HEADER_SIZE;
+            IntBuffer blockOffsets = map(channel, position, 4L * (blockCount + 1)).asIntBuffer();
+            position += 4L * (blockCount + 1);
+            ByteBuffer blocks = map(channel, position, blocksLength);
+            position += blocksLength;
+            FloatBuffer[] trees = new FloatBuffer[Role.values().length];
+            for (int role = 0; role < trees.length; role++) {
+                trees[role] = map(channel, position, 8L * leaves).asFloatBuffer();
+                position += 8L * leaves;
+            }
+            return new LemmaIndex(count, blockCount, leaves, blockOffsets, blocks, trees, file);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("A section of " + length + " bytes cannot be mapped");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    /**
+     * Writes the index in the format read by open().
+     * Layout: magic, version, block size, count, block count, leaves, length of the blocks (long), 
+     * the block offsets, the blocks and the trees of the roles, all big endian.
+     */
+    public void write(File index) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(index), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(BLOCK_SIZE);
+            out.writeInt(count);
+            out.writeInt(blockCount);
+            out.writeInt(leaves);
+            out.writeLong(blocks.capacity());
+            for (int b = 0; b <= blockCount; b++) {
+                out.writeInt(blockOffsets.get(b));
+            }
+            for (int i = 0; i < blocks.capacity(); i++) {
+                out.writeByte(blocks.get(i));
+            }
+            for (FloatBuffer tree : trees) {
+                for (int node = 0; node < 2 * leaves; node++) {
+                    out.writeFloat(tree.get(node));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of lemmas
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the lemma and its frequencies, null if it is not in the index
+     */
+    public Completion get(String lemma) {
+        byte[] key = SnapshotWriter.utf8(lemma);
+        BlockReader reader = new BlockReader();
+        int position = lowerBound(key, false, reader);
+        if (position >= count) {
+            return null;
+        }
+        reader.seek(position);
+        return reader.compare(key, false) == 0 ? reader.completion() : null;
+    }
+
+    /**
+     * @param prefix : the beginning of the lemmas, "" for all the lemmas
+     * @return the number of lemmas starting with prefix
+     */
+    public int count(String prefix) {
+        byte[] key = SnapshotWriter.utf8(prefix);
+        BlockReader reader = new BlockReader();
+        return lowerBound(key, true, reader) - lowerBound(key, false, reader);
+    }
+
+    /**
+     * Same as complete(prefix, k, Role.ANY).
+     */
+    public List<Completion> complete(String prefix, int k) {
+        return complete(prefix, k, Role.ANY);
+    }
+
+    /**
+     * Type-ahead lookup: the most frequent lemmas starting with prefix.
+     * @param prefix : the beginning of the lemmas, e.g. "app" for "apple" and "application"
+     * @param k : the maximum number of lemmas
+     * @param role : the frequency ranking the lemmas, the lemmas without frequency in this role are left out 
+     * 		(e.g. the lemmas, which are never a class, with Role.CLASS)
+     * @return up to k lemmas by descending frequency, lemmas of the same frequency in ascending order
+     */
+    public List<Completion> complete(String prefix, int k, Role role) {
+        List<Completion> results = new ArrayList<>();
+        byte[] key = SnapshotWriter.utf8(prefix);
+        BlockReader reader = new BlockReader();
+        int from = lowerBound(key, false, reader);
+        int to = lowerBound(key, true, reader);
+        if (from >= to || k <= 0) {
+            return results;
+        }
+        FloatBuffer tree = trees[role.ordinal()];
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        int firstBlock = from / BLOCK_SIZE;
+        int lastBlock = (to - 1) / BLOCK_SIZE;
+        offerBlock(queue, reader, firstBlock, from, to, role);
+        if (lastBlock != firstBlock) {
+            offerBlock(queue, reader, lastBlock, from, to, role);
+        }
+        // the nodes covering the blocks between the first and the last one
+        int left = leaves + firstBlock + 1;
+        int right = leaves + lastBlock;
+        while (left < right) {
+            if ((left & 1) == 1) {
+                offerNode(queue, tree, left++);
+            }
+            if ((right & 1) == 1) {
+                offerNode(queue, tree, --right);
+            }
+            left >>= 1;
+            right >>= 1;
+        }
+        while (results.size() < k && !queue.isEmpty()) {
+            Candidate candidate = queue.poll();
+            if (candidate.completion != null) {
+                results.add(candidate.completion);
+            } else if (candidate.node >= leaves) {
+                offerBlock(queue, reader, candidate.node - leaves, from, to, role);
+            } else {
+                offerNode(queue, tree, 2 * candidate.node);
+                offerNode(queue, tree, 2 * candidate.node + 1);
+            }
+        }
+        return results;
+    }
+
+    private static void offerNode(PriorityQueue<Candidate> queue, FloatBuffer tree, int node) {
+        float frequency = tree.get(node);
+        if (frequency > 0) {
+            queue.add(new Candidate(frequency, node, -1, null));
+        }
+    }
+
+    private static void offerBlock(PriorityQueue<Candidate> queue, BlockReader reader, int block, int from, int to, Role role) {
+        reader.open(block);
+        while (reader.next()) {
+            if (reader.index >= from && reader.index < to) {
+                float frequency = reader.frequency(role);
+                if (frequency > 0) {
+                    queue.add(new Candidate(frequency, -1, reader.index, reader.completion()));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param key : the UTF-8 bytes of a lemma or prefix
+     * @param afterPrefix : false to find the first lemma not lower than key, 
+     * 		true to find the first lemma higher than key and not starting with key
+     * @return the position of the lemma, size() if there is none
+     */
+    private int lowerBound(byte[] key, boolean afterPrefix, BlockReader reader) {
+        // the last block whose first lemma is before the position
+        int low = 0;
+        int high = blockCount - 1;
+        int block = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            reader.open(mid);
+            reader.next();
+            if (!reader.reached(key, afterPrefix)) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (block < 0) {
+            return 0;
+        }
+        reader.open(block);
+        while (reader.next()) {
+            if (reader.reached(key, afterPrefix)) {
+                return reader.index;
+            }
+        }
+        return Math.min(count, (block + 1) * BLOCK_SIZE);
+    }
+
+    /**
+     * Releases the file of a mapped index, the index cannot be queried afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    /**
+     * A lemma and its frequencies.
+     */
+    public static class Completion {
+
+        private final String lemma;
+        private final float instanceFrequency;
+        private final float classFrequency;
+
+        Completion(String lemma, float instanceFrequency, float classFrequency) {
+            this.lemma = lemma;
+            this.instanceFrequency = instanceFrequency;
+            this.classFrequency = classFrequency;
+        }
+
+        public String getLemma() {
+            return lemma;
+        }
+
+        /**
+         * @return the sum of the frequencies of the core tuples with the lemma as instance
+         */
+        public float getInstanceFrequency() {
+            return instanceFrequency;
+        }
+
+        /**
+         * @return the sum of the frequencies of the core tuples with the lemma as class
+         */
+        public float getClassFrequency() {
+            return classFrequency;
+        }
+
+        public float getFrequency() {
+            return instanceFrequency + classFrequency;
+        }
+
+        @Override
+        public String toString() {
+            return lemma + " (" + instanceFrequency + ", " + classFrequency + ")";
+        }
+    }
+
+    /**
+     * A lemma or a node of a tree, ordered by descending frequency. 
+     * Nodes come before lemmas of the same frequency, so that lemmas of the same frequency are returned in order.
+     */
+    private static class Candidate implements Comparable<Candidate> {
+
+        final float frequency;
+        final int node;
+        final int position;
+        final Completion completion;
+
+        Candidate(float frequency, int node, int position, Completion completion) {
+            this.frequency = frequency;
+            this.node = node;
+            this.position = position;
+            this.completion = completion;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int c = Float.compare(other.frequency, frequency);
+            if (c != 0) {
+                return c;
+            }
+            if ((completion == null) != (other.completion == null)) {
+                return completion == null ? -1 : 1;
+            }
+            return Integer.compare(position, other.position);
+        }
+    }
+
+    /**
+     * Decodes the lemmas of a block one after the other.
+     */
+    private class BlockReader {
+
+        private int position;
+        private int end;
+        private int block;
+        // the position of the current lemma, -1 before the first one
+        int index;
+        byte[] lemma = new byte[64];
+        int length;
+        float instanceFrequency;
+        float classFrequency;
+
+        void open(int block) {
+            this.block = block;
+            position = blockOffsets.get(block);
+            end = blockOffsets.get(block + 1);
+            index = block * BLOCK_SIZE - 1;
+            length = 0;
+        }
+
+        /**
+         * Moves to the lemma at a position lower than size().
+         */
+        void seek(int target) {
+            open(target / BLOCK_SIZE);
+            while (index < target) {
+                next();
+            }
+        }
+
+        boolean next() {
+            if (position >= end) {
+                return false;
+            }
+            int shared = index < block * BLOCK_SIZE ? 0 : readVInt();
+            int suffix = readVInt();
+            length = shared + suffix;
+            if (length > lemma.length) {
+                lemma = Arrays.copyOf(lemma, Math.max(length, 2 * lemma.length));
+            }
+            for (int i = 0; i < suffix; i++) {
+                lemma[shared + i] = blocks.get(position + i);
+            }
+            position += suffix;
+            instanceFrequency = blocks.getFloat(position);
+            classFrequency = blocks.getFloat(position + 4);
+            position += 8;
+            index++;
+            return true;
+        }
+
+        private int readVInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = blocks.get(position++);
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        /**
+         * Compares the current lemma with key as unsigned bytes.
+         * @param prefix : if true, a lemma starting with key is equal to it
+         */
+        int compare(byte[] key, boolean prefix) {
+            int n = Math.min(length, key.length);
+            for (int i = 0; i < n; i++) {
+                int c = (lemma[i] & 0xff) - (key[i] & 0xff);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            if (prefix && length >= key.length) {
+                return 0;
+            }
+            return length - key.length;
+        }
+
+        /**
+         * @return true if the current lemma is at or after the position searched by lowerBound
+         */
+        boolean reached(byte[] key, boolean afterPrefix) {
+            return afterPrefix ? compare(key, true) > 0 : compare(key, false) >= 0;
+        }
+
+        float frequency(Role role) {
+            switch (role) {
+                case INSTANCE:
+                    return instanceFrequency;
+                case CLASS:
+                    return classFrequency;
+                default:
+                    return instanceFrequency + classFrequency;
+            }
+        }
+
+        Completion completion() {
+            return new Completion(new String(lemma, 0, length, StandardCharsets.UTF_8), instanceFrequency, classFrequency);
+        }
+    }
+}
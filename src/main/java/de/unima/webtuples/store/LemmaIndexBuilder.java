@@ -0,0 +1,197 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.store;
+
+import com.mongodb.MongoClient;
+
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.queries.ResultIterator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class builds a LemmaIndex from a single pass over the core tuples, e.g. of TupleStore.getCoreTuplesWhere("*", "*", ...)
+ * or as the sink of MongoTupleStore.copyTuples. Each core tuple adds its frequency to the instance frequency of its instance
+ * and to the class frequency of its class, so that reading the instance collections covers the lemmas of the class collections too.
+ * The frequencies of all the lemmas are kept in memory until build().
+ *
+ * Usage (export tool): LemmaIndexBuilder host port dbName file
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class LemmaIndexBuilder implements TupleSink {
+
+    // the instance and class frequency of each lemma
+    private final Map<String, double[]> frequencies = new HashMap<>();
+
+    public LemmaIndexBuilder add(String instance, String clazz, double frequency) {
+        frequencies(instance)[0] += frequency;
+        frequencies(clazz)[1] += frequency;
+        return this;
+    }
+
+    private double[] frequencies(String lemma) {
+        double[] f = frequencies.get(lemma);
+        if (f == null) {
+            f = new double[2];
+            frequencies.put(lemma, f);
+        }
+        return f;
+    }
+
+    /**
+     * Adds all the core tuples of a store, read once from its instance collections.
+     */
+    public LemmaIndexBuilder addAll(TupleStore store) {
+        ResultIterator<List<? extends CoreTuple>> it = store.getCoreTuplesWhere("*", "*", null, null, 0, 0, 0, 0, 0, 0, false);
+        try {
+            while (it.hasNext()) {
+                for (CoreTuple tuple : it.next()) {
+                    add(tuple.getInstanceLemma(), tuple.getClassLemma(), tuple.getAdjustedFrequency());
+                }
+            }
+        } finally {
+            it.close();
+        }
+        return this;
+    }
+
+    @Override
+    public LemmaIndexBuilder addCoreTuple(String instance, String clazz, double frequency, int pidSpread, int pldSpread,
+            String pids, String plds) {
+        return add(instance, clazz, frequency);
+    }
+
+    @Override
+    public LemmaIndexBuilder addModification(String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+            double frequency, int pidSpread, int pldSpread, String pids, String plds, String provids) {
+        return this;
+    }
+
+    /**
+     * Sorts and front codes the lemmas.
+     */
+    public LemmaIndex build() throws IOException {
+        int count = frequencies.size();
+        byte[][] lemmas = new byte[count][];
+        int i = 0;
+        for (String lemma : frequencies.keySet()) {
+            lemmas[i++] = SnapshotWriter.utf8(lemma);
+        }
+        Arrays.sort(lemmas, new Comparator<byte[]>() {
+            @Override
+            public int compare(byte[] a, byte[] b) {
+                return SnapshotWriter.compareBytes(a, b);
+            }
+        });
+
+        int blockCount = (count + LemmaIndex.BLOCK_SIZE - 1) / LemmaIndex.BLOCK_SIZE;
+        int leaves = 1;
+        while (leaves < blockCount) {
+            leaves <<= 1;
+        }
+        int[] blockOffsets = new int[blockCount + 1];
+        float[][] trees = new float[LemmaIndex.Role.values().length][2 * leaves];
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        byte[] previous = new byte[0];
+        for (i = 0; i < count; i++) {
+            int block = i / LemmaIndex.BLOCK_SIZE;
+            byte[] lemma = lemmas[i];
+            int shared = 0;
+            if (i % LemmaIndex.BLOCK_SIZE == 0) {
+                blockOffsets[block] = blocks.size();
+            } else {
+                int n = Math.min(previous.length, lemma.length);
+                while (shared < n && previous[shared] == lemma[shared]) {
+                    shared++;
+                }
+                writeVInt(blocks, shared);
+            }
+            writeVInt(blocks, lemma.length - shared);
+            blocks.write(lemma, shared, lemma.length - shared);
+            double[] f = frequencies.get(new String(lemma, StandardCharsets.UTF_8));
+            float instanceFrequency = (float) f[0];
+            float classFrequency = (float) f[1];
+            writeFloat(blocks, instanceFrequency);
+            writeFloat(blocks, classFrequency);
+            float[] byRole = {instanceFrequency, classFrequency, instanceFrequency + classFrequency};
+            for (int role = 0; role < trees.length; role++) {
+                trees[role][leaves + block] = Math.max(trees[role][leaves + block], byRole[role]);
+            }
+            if (blocks.size() < 0 || blocks.size() > Integer.MAX_VALUE - 64) {
+                throw new IOException("The lemmas of the index are larger than 2GB");
+            }
+            previous = lemma;
+            lemmas[i] = null;
+        }
+        blockOffsets[blockCount] = blocks.size();
+        for (float[] tree : trees) {
+            for (int node = leaves - 1; node > 0; node--) {
+                tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+        return new LemmaIndex(count, blockOffsets, blocks.toByteArray(), trees);
+    }
+
+    private static void writeVInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeFloat(ByteArrayOutputStream out, float value) {
+        int bits = Float.floatToIntBits(value);
+        out.write(bits >>> 24);
+        out.write(bits >>> 16);
+        out.write(bits >>> 8);
+        out.write(bits);
+    }
+
+    /**
+     * Builds the index of all the lemmas of a store.
+     */
+    public static LemmaIndex build(TupleStore store) throws IOException {
+        return new LemmaIndexBuilder().addAll(store).build();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: LemmaIndexBuilder host port dbName file");
+            System.exit(1);
+        }
+        MongoClient client = new MongoClient(args[0], Integer.parseInt(args[1]));
+        try {
+            long start = System.currentTimeMillis();
+            LemmaIndex index = build(new MongoTupleStore(client.getDB(args[2]), null));
+            index.write(new File(args[3]));
+            System.out.println("Wrote " + index.size() + " lemmas of " + args[2] + " to " + args[3] 
+                    + " in " + (System.currentTimeMillis() - start) + " ms");
+        } finally {
+            client.close();
+        }
+    }
+}
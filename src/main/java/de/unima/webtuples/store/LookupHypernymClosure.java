@@ -0,0 +1,87 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+package de.unima.webtuples.store;
+
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.queries.HypernymClosure;
+import de.unima.webtuples.queries.QueryStats;
+import de.unima.webtuples.queries.ResultIterator;
+import de.unima.webtuples.queries.TupleFilter;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Walks the hypernym hierarchy of any TupleStore with one core lookup for each node,
+ * used by the default implementation of TupleStore.getAncestors and getDescendants.
+ * There is one closure for each store, kept as long as the store is referenced: 
+ * the closure only references the store weakly, so that the registry does not keep it alive.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+class LookupHypernymClosure extends HypernymClosure {
+
+    // the closures of the stores using the default implementation, the stores are compared by identity
+    private static final Map<TupleStore, LookupHypernymClosure> CLOSURES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final WeakReference<TupleStore> store;
+
+    LookupHypernymClosure(TupleStore store, int maximumWeight) {
+        super(maximumWeight);
+        this.store = new WeakReference<>(store);
+    }
+
+    /**
+     * @return the closure of store, created on the first call. It does not memoize the closures, 
+     * since the default implementation cannot tell when the store changes
+     */
+    static LookupHypernymClosure of(TupleStore store) {
+        return CLOSURES.computeIfAbsent(store, s -> new LookupHypernymClosure(s, 0));
+    }
+
+    @Override
+    protected Map<String, Set<String>> expand(List<String> lemmas, boolean up, TupleFilter filter, QueryStats stats) {
+        // the caller of getAncestors or getDescendants references the store
+        TupleStore store = this.store.get();
+        Map<String, Set<String>> neighbours = new LinkedHashMap<>();
+        for (String lemma : lemmas) {
+            Set<String> lemmaNeighbours = new LinkedHashSet<>();
+            ResultIterator<List<? extends CoreTuple>> it = filter == null
+                    ? store.getCoreTuplesWhere(up ? lemma : "*", up ? "*" : lemma, null, null, 0, 0, 0, 0, 0, 0, false)
+                    : store.getCoreTuplesWhere(up ? lemma : "*", up ? "*" : lemma, filter.getPids(), filter.getPlds(),
+                            filter.getMinFrequency(), filter.getMaxFrequency(), filter.getMinPidSpread(), filter.getMaxPidSpread(),
+                            filter.getMinPldSpread(), filter.getMaxPldSpread(), filter.isStrict());
+            try {
+                while (it.hasNext()) {
+                    for (CoreTuple tuple : it.next()) {
+                        lemmaNeighbours.add(up ? tuple.getClassLemma() : tuple.getInstanceLemma());
+                    }
+                }
+            } finally {
+                it.close();
+            }
+            neighbours.put(lemma, lemmaNeighbours);
+        }
+        return neighbours;
+    }
+}
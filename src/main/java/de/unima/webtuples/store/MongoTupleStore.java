@@ -0,0 +1,514 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.store;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ReadPreference;
+import com.mongodb.ServerAddress;
+
+import de.unima.webtuples.datatypes.Context;
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.datatypes.Tuple;
+import de.unima.webtuples.queries.AllTuplesResultIterator;
+import de.unima.webtuples.queries.BatchedHypernymClosure;
+import de.unima.webtuples.queries.BulkLemmaQuery;
+import de.unima.webtuples.queries.CollectionCatalog;
+import de.unima.webtuples.queries.ContextResultIterator;
+import de.unima.webtuples.queries.CoreTupleQueryResultIterator;
+import de.unima.webtuples.queries.HypernymClosure;
+import de.unima.webtuples.queries.MultipleContextsResultIterator;
+import de.unima.webtuples.queries.ParallelAllTuplesResultIterator;
+import de.unima.webtuples.queries.QueryMetrics;
+import de.unima.webtuples.queries.ResultIterator;
+import de.unima.webtuples.queries.ResultStreams;
+import de.unima.webtuples.queries.TupleFilter;
+import de.unima.webtuples.queries.TupleQueryResultIterator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * This class is the TupleStore backed by the MongoDB tuples and contexts instances.
+ * Besides the TupleStore methods, it offers the MongoDB specific query modes (aggregation pipeline, parallel scan)
+ * and copies collections into an InMemoryTupleStore.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class MongoTupleStore implements TupleStore {
+
+    // the maximum number of lemmas in the $in query of a bulk lookup
+    private static final int BULK_BATCH_SIZE = 1000;
+    // the total number of nodes of the closures memoized by getAncestors and getDescendants
+    private static final int CLOSURE_CACHE_WEIGHT = 1 << 18;
+
+    // the clients are null if the databases were passed by the caller
+    private MongoClient mongoClient_tuples_instance;
+    private MongoClient mongoClient_contexts_instance;
+    private final DB mongoDb_tuples_instance;
+    private final DB mongoDb_contexts_instance;
+    // the collections of the databases, shared by all the queries
+    private final CollectionCatalog tuplesCatalog;
+    private final CollectionCatalog contextsCatalog;
+    // walks the hypernym hierarchy, shared by all the queries for its memoized closures
+    private final HypernymClosure closure;
+    // the statistics of the queries of this store
+    private final QueryMetrics metrics;
+    // the read preference of the full scans and copies, null to read as the lookups
+    private volatile ReadPreference scanReadPreference;
+    // the bounds of the replication lag, null if the reads are not bounded
+    private StalenessMonitor tuplesStaleness;
+    private StalenessMonitor contextsStaleness;
+
+    /**
+     * Opens the connections to the MongoDB instances, they are closed by close().
+     * @param tuplesDbUrl : the host of the tuples instance
+     * @param tuplesDbPort : the port of the tuples instance
+     * @param tuplesDbName : the database name of the tuples instance
+     * @param contextsDbUrl : the host of the contexts instance
+     * @param contextsDbPort : the port of the contexts instance
+     * @param contextsDbName : the database name of the contexts instance
+     */
+    public MongoTupleStore(String tuplesDbUrl, int tuplesDbPort, String tuplesDbName,
+            String contextsDbUrl, int contextsDbPort, String contextsDbName) {
+        this(tuplesDbUrl, tuplesDbPort, tuplesDbName, contextsDbUrl, contextsDbPort, contextsDbName, MongoClientOptions.builder().build());
+    }
+
+    /**
+     * Opens the connections to the MongoDB instances with the given options, they are closed by close().
+     * Each instance gets its own connection pool, sized by the options.
+     * @param options : e.g. the pool size, wait queue and timeouts of the connections
+     * @see #MongoTupleStore(String, int, String, String, int, String)
+     */
+    public MongoTupleStore(String tuplesDbUrl, int tuplesDbPort, String tuplesDbName,
+            String contextsDbUrl, int contextsDbPort, String contextsDbName, MongoClientOptions options) {
+        this(Collections.singletonList(new ServerAddress(tuplesDbUrl, tuplesDbPort)), tuplesDbName, options,
+                Collections.singletonList(new ServerAddress(contextsDbUrl, contextsDbPort)), contextsDbName, options);
+    }
+
+    /**
+     * Opens the connections to the MongoDB instances, which can be replica sets, they are closed by close().
+     * A single seed is connected directly, from two or more seeds the driver discovers the members of the replica set.
+     * The read preference of the options (e.g. secondaryPreferred or nearest) applies to all the queries 
+     * on the instance, but the full scans can be routed elsewhere with setScanReadPreference.
+     * @param tuplesSeeds : members of the tuples instance
+     * @param tuplesOptions : the options of the connections to the tuples instance
+     * @param contextsSeeds : members of the contexts instance
+     * @param contextsOptions : the options of the connections to the contexts instance
+     */
+    public MongoTupleStore(List<ServerAddress> tuplesSeeds, String tuplesDbName, MongoClientOptions tuplesOptions,
+            List<ServerAddress> contextsSeeds, String contextsDbName, MongoClientOptions contextsOptions) {
+        mongoClient_tuples_instance = client(tuplesSeeds, tuplesOptions);
+        mongoDb_tuples_instance = mongoClient_tuples_instance.getDB(tuplesDbName);
+        mongoClient_contexts_instance = client(contextsSeeds, contextsOptions);
+        mongoDb_contexts_instance = mongoClient_contexts_instance.getDB(contextsDbName);
+        tuplesCatalog = new CollectionCatalog(mongoDb_tuples_instance);
+        contextsCatalog = new CollectionCatalog(mongoDb_contexts_instance);
+        closure = new BatchedHypernymClosure(tuplesCatalog, BULK_BATCH_SIZE, CLOSURE_CACHE_WEIGHT);
+        metrics = new QueryMetrics(tuplesDbName);
+        closure.setQueryMetrics(metrics);
+    }
+
+    /**
+     * Uses already opened databases, which are not closed by close().
+     * @param tuplesDb : the database of the tuples instance
+     * @param contextsDb : the database of the contexts instance
+     */
+    public MongoTupleStore(DB tuplesDb, DB contextsDb) {
+        mongoDb_tuples_instance = tuplesDb;
+        mongoDb_contexts_instance = contextsDb;
+        tuplesCatalog = new CollectionCatalog(tuplesDb);
+        contextsCatalog = new CollectionCatalog(contextsDb);
+        closure = new BatchedHypernymClosure(tuplesCatalog, BULK_BATCH_SIZE, CLOSURE_CACHE_WEIGHT);
+        metrics = new QueryMetrics(tuplesDb.getName());
+        closure.setQueryMetrics(metrics);
+    }
+
+    private static MongoClient client(List<ServerAddress> seeds, MongoClientOptions options) {
+        if (seeds.isEmpty()) {
+            throw new IllegalArgumentException("at least one seed is needed");
+        }
+        return seeds.size() == 1 ? new MongoClient(seeds.get(0), options) : new MongoClient(seeds, options);
+    }
+
+    /**
+     * @return the client of the tuples instance, null if the database was passed by the caller
+     */
+    public MongoClient getTuplesClient() {
+        return mongoClient_tuples_instance;
+    }
+
+    /**
+     * @return the client of the contexts instance, null if the database was passed by the caller
+     */
+    public MongoClient getContextsClient() {
+        return mongoClient_contexts_instance;
+    }
+
+    public DB getTuplesDb() {
+        return mongoDb_tuples_instance;
+    }
+
+    public DB getContextsDb() {
+        return mongoDb_contexts_instance;
+    }
+
+    /**
+     * @return the collections of the tuples database, read on the first query
+     */
+    public CollectionCatalog getTuplesCatalog() {
+        return tuplesCatalog;
+    }
+
+    /**
+     * @return the collections of the contexts database, read on the first query
+     */
+    public CollectionCatalog getContextsCatalog() {
+        return contextsCatalog;
+    }
+
+    /**
+     * Reads the collections of both databases again, e.g. after a shard was added, and forgets the memoized closures.
+     */
+    public void refreshCatalogs() {
+        tuplesCatalog.refresh();
+        contextsCatalog.refresh();
+        closure.clearCache();
+    }
+
+    /**
+     * Reads the collections of both databases again every period, until the store is closed.
+     */
+    public void startRefreshingCatalogs(long period, TimeUnit unit) {
+        tuplesCatalog.startRefreshing(period, unit);
+        contextsCatalog.startRefreshing(period, unit);
+    }
+
+    /**
+     * Routes the full scans (getAllTuples, getAllLazyTuples, streamAllTuples) and the copies of the collections,
+     * e.g. to hidden or tagged secondaries, so that they do not slow down the lookups.
+     * @param readPreference : e.g. ReadPreference.secondary(new TagSet(new Tag("workload", "scan"))), 
+     * 		null to read as the lookups
+     */
+    public void setScanReadPreference(ReadPreference readPreference) {
+        this.scanReadPreference = readPreference;
+    }
+
+    public ReadPreference getScanReadPreference() {
+        return scanReadPreference;
+    }
+
+    private <T extends AllTuplesResultIterator> T scan(T iterator) {
+        iterator.setReadPreference(scanReadPreference);
+        return metered(iterator);
+    }
+
+    /**
+     * Attaches the statistics of the query to the metrics of the store.
+     */
+    private <T extends ResultIterator<?>> T metered(T iterator) {
+        iterator.getStats().reportTo(metrics);
+        return iterator;
+    }
+
+    /**
+     * @return the statistics of the queries answered by this store, named after the tuples database for the MBeans
+     */
+    public QueryMetrics getQueryMetrics() {
+        return metrics;
+    }
+
+    private DBCursor scan(DBCursor cursor) {
+        if (scanReadPreference != null) {
+            cursor.setReadPreference(scanReadPreference);
+        }
+        return cursor;
+    }
+
+    /**
+     * Bounds the replication lag of the lookups reading from secondaries: while a secondary lags more than maxStaleness, 
+     * the lookups read from the primary. The lag is checked every period until the store is closed.
+     * The full scans are not bounded. Only the instances with a read preference other than primary are checked.
+     * @see StalenessMonitor
+     */
+    public synchronized void limitStaleness(long maxStaleness, TimeUnit unit, long period, TimeUnit periodUnit) {
+        if (tuplesStaleness == null && !mongoDb_tuples_instance.getReadPreference().equals(ReadPreference.primary())) {
+            tuplesStaleness = new StalenessMonitor(mongoDb_tuples_instance, maxStaleness, unit);
+            tuplesStaleness.start(period, periodUnit);
+        }
+        if (contextsStaleness == null && !mongoDb_contexts_instance.getReadPreference().equals(ReadPreference.primary())) {
+            contextsStaleness = new StalenessMonitor(mongoDb_contexts_instance, maxStaleness, unit);
+            contextsStaleness.start(period, periodUnit);
+        }
+    }
+
+    /**
+     * @return the reason why the last staleness check of the tuples database, or else of the contexts database, 
+     * 		could not read the replication lag (e.g. replSetGetStatus needs the clusterMonitor role), 
+     * 		null if the last checks succeeded or the staleness is not limited. The read preferences are not switched while the checks fail.
+     */
+    public synchronized RuntimeException getStalenessFailure() {
+        RuntimeException failure = tuplesStaleness != null ? tuplesStaleness.getLastFailure() : null;
+        if (failure == null && contextsStaleness != null) {
+            failure = contextsStaleness.getLastFailure();
+        }
+        return failure;
+    }
+
+    @Override
+    public ResultIterator<List<Tuple>> getAllTuples() {
+        return scan(new AllTuplesResultIterator(mongoDb_tuples_instance, tuplesCatalog.getCollections("i")));
+    }
+
+    /**
+     * The stream reads the instance collections one after the other, a parallel stream reads them on several threads.
+     */
+    @Override
+    public Stream<Tuple> streamAllTuples() {
+        return ResultStreams.shardStream(getTupleCollections("i"),
+                tables -> scan(new AllTuplesResultIterator(mongoDb_tuples_instance, tables)));
+    }
+
+    /**
+     * Full scan returning LazyTuple instances, whose fields are decoded from the raw documents on first access.
+     * @see AllTuplesResultIterator#AllTuplesResultIterator(DB, List, boolean)
+     */
+    public ResultIterator<List<Tuple>> getAllLazyTuples() {
+        return scan(new AllTuplesResultIterator(mongoDb_tuples_instance, tuplesCatalog.getCollections("i"), true));
+    }
+
+    /**
+     * Full scan reading several instance tables at the same time.
+     * @see ParallelAllTuplesResultIterator
+     */
+    public ParallelAllTuplesResultIterator getAllTuples(int parallelism, boolean ordered) {
+        return scan(new ParallelAllTuplesResultIterator(mongoDb_tuples_instance, tuplesCatalog.getCollections("i"), parallelism, ordered));
+    }
+
+    /**
+     * Full scan reading several instance tables at the same time on the given executor.
+     * @see ParallelAllTuplesResultIterator
+     */
+    public ParallelAllTuplesResultIterator getAllTuples(ExecutorService executor, int parallelism, int queueCapacity, boolean ordered) {
+        return scan(new ParallelAllTuplesResultIterator(mongoDb_tuples_instance, tuplesCatalog.getCollections("i"), executor, parallelism, queueCapacity, ordered));
+    }
+
+    @Override
+    public ResultIterator<List<? extends CoreTuple>> getCoreTuplesWhere(String instance, String clazz,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict) {
+        return metered(new CoreTupleQueryResultIterator<List<? extends CoreTuple>>(instance, clazz, tuplesCatalog, pids, plds, minFrequency,
+                maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict));
+    }
+
+    @Override
+    public ResultIterator<List<Tuple>> getTuplesWhere(String instance, String clazz,
+            String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict) {
+        return getTuplesWhere(instance, clazz, iPreModifier, iPostModifier, cPreModifier, cPostModifier, pids, plds,
+                minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict, false);
+    }
+
+    /**
+     * Modification lookup, optionally filtering the modifications with an aggregation pipeline.
+     * @see TupleQueryResultIterator
+     */
+    public ResultIterator<List<Tuple>> getTuplesWhere(String instance, String clazz,
+            String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict, boolean aggregate) {
+        return metered(new TupleQueryResultIterator(instance, clazz, tuplesCatalog, iPreModifier, iPostModifier,
+                cPreModifier, cPostModifier, pids, plds, minFrequency, maxFrequency, minPidSpread, maxPidSpread,
+                minPldSpread, maxPldSpread, strict, aggregate));
+    }
+
+    /**
+     * Bulk lookup with one $in query for each instance collection of the lemmas.
+     */
+    @Override
+    public Map<String, List<Tuple>> getTuplesWhereInstanceLemmas(Collection<String> lemmas) {
+        return getTuplesWhereInstanceLemmas(lemmas, null);
+    }
+
+    /**
+     * Bulk lookup querying the instance collections of the lemmas at the same time on the given executor.
+     * @see BulkLemmaQuery#run(Collection, ExecutorService)
+     */
+    public Map<String, List<Tuple>> getTuplesWhereInstanceLemmas(Collection<String> lemmas, ExecutorService executor) {
+        return new BulkLemmaQuery(tuplesCatalog, "i", BULK_BATCH_SIZE, metrics).run(lemmas, executor);
+    }
+
+    /**
+     * Expands each level of the walk with one $in query per instance collection, the closures are memoized across calls.
+     * @see BatchedHypernymClosure
+     */
+    @Override
+    public Map<String, Integer> getAncestors(String instance, int maxDepth, TupleFilter filter) {
+        return closure.ancestors(instance, maxDepth, filter);
+    }
+
+    /**
+     * Expands each level of the walk with one $in query per class collection, the closures are memoized across calls.
+     */
+    @Override
+    public Map<String, Integer> getDescendants(String clazz, int maxDepth, TupleFilter filter) {
+        return closure.descendants(clazz, maxDepth, filter);
+    }
+
+    /**
+     * @return the walker of getAncestors and getDescendants, e.g. for its counters or to clear its memoized closures
+     */
+    public HypernymClosure getHypernymClosure() {
+        return closure;
+    }
+
+    @Override
+    public ResultIterator<Context> getContextWithProvid(String provid) {
+        return metered(new ContextResultIterator(provid, contextsCatalog, 0));
+    }
+
+    @Override
+    public ResultIterator<Context> getMultipleContextsWithProvid(Set<String> provids, int limit) {
+        return metered(new MultipleContextsResultIterator(provids, contextsCatalog, limit, null));
+    }
+
+    /**
+     * Context lookup querying the sentence collections of the provids at the same time on the given executor.
+     * @see MultipleContextsResultIterator#MultipleContextsResultIterator(Set, CollectionCatalog, int, ExecutorService)
+     */
+    public ResultIterator<Context> getMultipleContextsWithProvid(Set<String> provids, int limit, ExecutorService executor) {
+        return metered(new MultipleContextsResultIterator(provids, contextsCatalog, limit, executor));
+    }
+
+    /**
+     * Copies the core tuples and their modifications of the instance collections into sink,
+     * e.g. to answer the queries on the most used shards from an InMemoryTupleStore.
+     * @param sink : e.g. the builder of the in-memory store
+     * @param shards : the first two letters of the instances to copy (e.g. "ap" for the collection "iap"), 
+     * 		without arguments all the instance collections are copied
+     */
+    public void copyTuples(TupleSink sink, String... shards) {
+        for (String tablename : tablenames("i", shards)) {
+            copyCollection(tablename, sink);
+        }
+    }
+
+    /**
+     * @return the names of the instance ("i") or class ("c") collections
+     */
+    public List<String> getTupleCollections(String sortingprefix) {
+        return tablenames(sortingprefix, new String[0]);
+    }
+
+    /**
+     * Copies the core tuples and their modifications of one instance or class collection into sink.
+     * @param tablename : the name of the collection, e.g. "iap"
+     * @param sink : receives the core tuples in the order of the collection
+     */
+    public void copyCollection(String tablename, TupleSink sink) {
+        DBCursor cursor = scan(mongoDb_tuples_instance.getCollection(tablename).find(new BasicDBObject(),
+                new BasicDBObject("_id", 0)));
+        try {
+            while (cursor.hasNext()) {
+                DBObject current = cursor.next();
+                sink.addCoreTuple(current.get("instance").toString(), current.get("class").toString(),
+                        Double.parseDouble(current.get("frequency").toString()),
+                        Integer.parseInt(current.get("pidspread").toString()),
+                        Integer.parseInt(current.get("pldspread").toString()),
+                        current.get("pids").toString(), current.get("plds").toString());
+                for (Object o : (List<?>) current.get("modifications")) {
+                    DBObject modification = (DBObject) o;
+                    sink.addModification(modification.get("ipremod").toString(), modification.get("ipostmod").toString(),
+                            modification.get("cpremod").toString(), modification.get("cpostmod").toString(),
+                            Double.parseDouble(modification.get("frequency").toString()),
+                            Integer.parseInt(modification.get("pidspread").toString()),
+                            Integer.parseInt(modification.get("pldspread").toString()),
+                            modification.get("pids").toString(), modification.get("plds").toString(),
+                            modification.get("provids").toString());
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Copies the contexts of the sentence collections into builder.
+     * @param builder : the builder of the in-memory store
+     * @param collections : the numbers of the sentence collections to copy (e.g. "3" for "s3", which contains the provids
+     * 		3000000 ... 3999999), without arguments all the sentence collections are copied
+     */
+    public void copyContexts(InMemoryTupleStore.Builder builder, String... collections) {
+        for (String tablename : tablenames("s", collections)) {
+            DBCursor cursor = scan(mongoDb_contexts_instance.getCollection(tablename).find(new BasicDBObject(),
+                    new BasicDBObject("_id", 0).append("provid", 1).append("pld", 1).append("sentence", 1)));
+            try {
+                while (cursor.hasNext()) {
+                    DBObject current = cursor.next();
+                    builder.addContext(current.get("provid").toString(), current.get("pld").toString(),
+                            current.get("sentence").toString());
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+    }
+
+    private List<String> tablenames(String prefix, String[] suffixes) {
+        CollectionCatalog catalog = prefix.equals("s") ? contextsCatalog : tuplesCatalog;
+        if (suffixes.length == 0) {
+            return new ArrayList<>(catalog.getCollections(prefix));
+        }
+        List<String> tablenames = new ArrayList<>();
+        for (String suffix : suffixes) {
+            if (catalog.contains(prefix + suffix)) {
+                tablenames.add(prefix + suffix);
+            }
+        }
+        return tablenames;
+    }
+
+    /**
+     * Closes the connections opened by the constructor and stops the refresh of the catalogs and the staleness checks.
+     */
+    @Override
+    public void close() {
+        tuplesCatalog.close();
+        contextsCatalog.close();
+        synchronized (this) {
+            if (tuplesStaleness != null) tuplesStaleness.close();
+            if (contextsStaleness != null) contextsStaleness.close();
+        }
+        if (mongoClient_tuples_instance != null) mongoClient_tuples_instance.close();
+        if (mongoClient_contexts_instance != null) mongoClient_contexts_instance.close();
+        mongoClient_tuples_instance = null;
+        mongoClient_contexts_instance = null;
+    }
+}
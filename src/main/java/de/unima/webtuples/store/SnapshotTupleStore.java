@@ -0,0 +1,599 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.store;
+
+import de.unima.webtuples.datatypes.Context;
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.datatypes.Tuple;
+import de.unima.webtuples.queries.CoreTupleQueryResultIterator;
+import de.unima.webtuples.queries.ResultIterator;
+import de.unima.webtuples.queries.TupleFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * This class is a read-only TupleStore answering the tuple queries from a snapshot file written by SnapshotWriter.
+ * The shards and the dictionaries are memory-mapped, so that the lookups are served from the page cache:
+ * a lemma is found by a binary search on the block index of its shard, the thresholds and the pids/plds filters 
+ * are checked on the mapped bytes, and only the matching tuples are decoded into objects.
+ *
+ * The snapshot contains no contexts, the context queries are delegated to another store (e.g. a MongoTupleStore).
+ * The store can be queried by several threads at the same time.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class SnapshotTupleStore implements TupleStore {
+
+    static final int MAGIC = 0x57495341;
+    // the version of the format written by SnapshotWriter, the only one read
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 24;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final Dictionary modifiers;
+    private final Dictionary pids;
+    private final Dictionary plds;
+    private final TreeMap<String, Shard> shards = new TreeMap<>();
+    private final TupleStore contexts;
+
+    /**
+     * Opens a snapshot without contexts.
+     * @param snapshot : the file written by SnapshotWriter
+     */
+    public SnapshotTupleStore(File snapshot) throws IOException {
+        this(snapshot, null);
+    }
+
+    /**
+     * @param snapshot : the file written by SnapshotWriter
+     * @param contexts : the store answering the context queries, null if they are not needed. It is not closed by close().
+     */
+    public SnapshotTupleStore(File snapshot, TupleStore contexts) throws IOException {
+        this.contexts = contexts;
+        file = new RandomAccessFile(snapshot, "r");
+        channel = file.getChannel();
+        try {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(snapshot + " is not a WebIsADb snapshot");
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            byte[] directoryBytes = new byte[(int) header.getLong(16)];
+            channel.map(FileChannel.MapMode.READ_ONLY, header.getLong(8), directoryBytes.length).get(directoryBytes);
+            DataInputStream directory = new DataInputStream(new ByteArrayInputStream(directoryBytes));
+            modifiers = new Dictionary(channel.map(FileChannel.MapMode.READ_ONLY, directory.readLong(), directory.readLong()));
+            pids = new Dictionary(channel.map(FileChannel.MapMode.READ_ONLY, directory.readLong(), directory.readLong()));
+            plds = new Dictionary(channel.map(FileChannel.MapMode.READ_ONLY, directory.readLong(), directory.readLong()));
+            int count = directory.readInt();
+            for (int i = 0; i < count; i++) {
+                Shard s = new Shard(directory.readUTF(), directory.readLong(), directory.readLong(),
+                        directory.readInt(), directory.readInt(), directory.readInt());
+                shards.put(s.name, s);
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of core tuples in the instance shards
+     */
+    public long getCoreTupleCount() {
+        long count = 0;
+        for (Shard s : shards.values()) {
+            if (s.name.startsWith("i")) count += s.recordCount;
+        }
+        return count;
+    }
+
+    @Override
+    public ResultIterator<List<Tuple>> getAllTuples() {
+        return getTuplesWhere("*", "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false);
+    }
+
+    @Override
+    public ResultIterator<List<? extends CoreTuple>> getCoreTuplesWhere(String instance, String clazz,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict) {
+        final Query query = new Query(new TupleFilter(pids, plds, minFrequency, maxFrequency,
+                minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict));
+        return new RecordIterator<List<? extends CoreTuple>>(instance, clazz) {
+            @Override
+            List<? extends CoreTuple> results(ByteBuffer b, int record, int fields) {
+                if (!query.matches(b, fields)) {
+                    return Collections.emptyList();
+                }
+                int pidList = fields + 16;
+                int pldList = skipList(b, pidList);
+                return Collections.singletonList(new CoreTuple(instance(record), clazz(record), b.getDouble(fields),
+                        b.getInt(fields + 8), b.getInt(fields + 12),
+                        SnapshotTupleStore.this.pids.join(b, pidList), SnapshotTupleStore.this.plds.join(b, pldList), ""));
+            }
+        };
+    }
+
+    @Override
+    public ResultIterator<List<Tuple>> getTuplesWhere(String instance, String clazz,
+            String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict) {
+        final TupleFilter filter = new TupleFilter(iPreModifier, iPostModifier, cPreModifier, cPostModifier, pids, plds,
+                minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
+        final Query query = new Query(filter);
+        return new RecordIterator<List<Tuple>>(instance, clazz) {
+            @Override
+            List<Tuple> results(ByteBuffer b, int record, int fields) {
+                List<Tuple> results = new ArrayList<>();
+                String instance = null;
+                String clazz = null;
+                // skip the core fields
+                int p = skipList(b, skipList(b, fields + 16));
+                int count = b.getInt(p);
+                p += 4;
+                for (int m = 0; m < count; m++) {
+                    int next = skipModification(b, p);
+                    if (filter.matchesModifiers(modifiers.get(b.getInt(p)), modifiers.get(b.getInt(p + 4)),
+                            modifiers.get(b.getInt(p + 8)), modifiers.get(b.getInt(p + 12)))
+                            && query.matches(b, p + 16)) {
+                        int pidList = p + 32;
+                        int pldList = skipList(b, pidList);
+                        int provids = skipList(b, pldList);
+                        if (instance == null) {
+                            instance = instance(record);
+                            clazz = clazz(record);
+                        }
+                        results.add(new Tuple(instance, clazz, b.getDouble(p + 16), b.getInt(p + 24), b.getInt(p + 28),
+                                modifiers.get(b.getInt(p)), modifiers.get(b.getInt(p + 4)),
+                                modifiers.get(b.getInt(p + 8)), modifiers.get(b.getInt(p + 12)),
+                                SnapshotTupleStore.this.pids.join(b, pidList), SnapshotTupleStore.this.plds.join(b, pldList),
+                                utf8(b, provids + 4, b.getInt(provids))));
+                    }
+                    p = next;
+                }
+                return results;
+            }
+        };
+    }
+
+    @Override
+    public ResultIterator<Context> getContextWithProvid(String provid) {
+        return contexts().getContextWithProvid(provid);
+    }
+
+    @Override
+    public ResultIterator<Context> getMultipleContextsWithProvid(Set<String> provids, int limit) {
+        return contexts().getMultipleContextsWithProvid(provids, limit);
+    }
+
+    private TupleStore contexts() {
+        if (contexts == null) {
+            throw new UnsupportedOperationException("The snapshot contains no contexts and no context store was given");
+        }
+        return contexts;
+    }
+
+    /**
+     * Closes the file. The mapped buffers are released by the garbage collector.
+     */
+    @Override
+    public void close() {
+        try {
+            file.close();
+        } catch (IOException e) {
+            // nothing left to release
+        }
+    }
+
+    /**
+     * @return the position after a list of dictionary codes starting at p
+     */
+    private static int skipList(ByteBuffer b, int p) {
+        return p + 4 + 4 * b.getInt(p);
+    }
+
+    /**
+     * @return the position after the modification starting at p
+     */
+    private static int skipModification(ByteBuffer b, int p) {
+        int provids = skipList(b, skipList(b, p + 32));
+        return provids + 4 + b.getInt(provids);
+    }
+
+    private static String utf8(ByteBuffer b, int p, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = b.get(p + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares the bytes at position p with key, as SnapshotWriter.compareBytes.
+     */
+    private static int compare(ByteBuffer b, int p, int length, byte[] key) {
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int c = (b.get(p + i) & 0xff) - (key[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * The filters of a query on the mapped core tuples and modifications.
+     */
+    private class Query {
+        private final TupleFilter filter;
+        private final ListFilter pidFilter;
+        private final ListFilter pldFilter;
+
+        Query(TupleFilter filter) {
+            this.filter = filter;
+            pidFilter = new ListFilter(pids, filter.getPids(), filter.isStrict());
+            pldFilter = new ListFilter(plds, filter.getPlds(), filter.isStrict());
+        }
+
+        /**
+         * @param p : the position of the frequency, followed by the spreads, the pids and the plds
+         */
+        boolean matches(ByteBuffer b, int p) {
+            if (!filter.matchesThresholds(b.getDouble(p), b.getInt(p + 8), b.getInt(p + 12))) {
+                return false;
+            }
+            int pidList = p + 16;
+            return pidFilter.matches(b, pidList) && pldFilter.matches(b, skipList(b, pidList));
+        }
+    }
+
+    /**
+     * Checks a pids or plds list with the semantics of TupleFilter: the list "p1;p2;" contains value if one of the parts 
+     * before the last semicolon is equal to value. The codes of these parts are computed once per query.
+     */
+    private static class ListFilter {
+        private final Dictionary dictionary;
+        private final String[] values;
+        private final boolean strict;
+        // the codes of the parts equal to each value, null for values containing a semicolon
+        private final BitSet[] codes;
+
+        ListFilter(Dictionary dictionary, String[] values, boolean strict) {
+            this.dictionary = dictionary;
+            this.values = values;
+            this.strict = strict;
+            codes = values == null ? null : new BitSet[values.length];
+            if (values != null) {
+                for (int i = 0; i < values.length; i++) {
+                    if (!values[i].contains(";")) {
+                        codes[i] = dictionary.equalTo(values[i]);
+                    }
+                }
+            }
+        }
+
+        boolean matches(ByteBuffer b, int p) {
+            if (values == null) {
+                return true;
+            }
+            int count = b.getInt(p);
+            boolean check = false;
+            for (int i = 0; i < values.length; i++) {
+                boolean found = false;
+                if (codes[i] == null) {
+                    found = TupleFilter.containsValue(dictionary.join(b, p), values[i]);
+                } else {
+                    for (int j = 0; j < count - 1 && !found; j++) {
+                        found = codes[i].get(b.getInt(p + 4 + 4 * j));
+                    }
+                }
+                if (found) {
+                    check = true;
+                } else if (strict) {
+                    return false;
+                }
+            }
+            return check;
+        }
+    }
+
+    /**
+     * A dictionary of the snapshot: the strings are decoded on first use and kept.
+     */
+    private static class Dictionary {
+        private final ByteBuffer buffer;
+        private final int count;
+        private final int data;
+        private final String[] decoded;
+        // the position of the codes in the order of their strings
+        private final int order;
+
+        Dictionary(ByteBuffer buffer) {
+            this.buffer = buffer;
+            count = buffer.getInt(0);
+            data = 4 + 4 * (count + 1);
+            decoded = new String[count];
+            order = data + buffer.getInt(4 + 4 * count);
+        }
+
+        String get(int code) {
+            String s = decoded[code];
+            if (s == null) {
+                int start = buffer.getInt(4 + 4 * code);
+                s = utf8(buffer, data + start, buffer.getInt(8 + 4 * code) - start);
+                decoded[code] = s;
+            }
+            return s;
+        }
+
+        /**
+         * @return the list of codes at position p joined by semicolons, e.g. "p1;p2;"
+         */
+        String join(ByteBuffer b, int p) {
+            int n = b.getInt(p);
+            if (n == 1) {
+                return get(b.getInt(p + 4));
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < n; i++) {
+                if (i > 0) sb.append(';');
+                sb.append(get(b.getInt(p + 4 + 4 * i)));
+            }
+            return sb.toString();
+        }
+
+        /**
+         * @return the code of value (at most one, as the strings are distinct), comparing the UTF-8 bytes
+         * 		with a binary search on the sorted index.
+         */
+        BitSet equalTo(String value) {
+            byte[] s = SnapshotWriter.utf8(value);
+            BitSet result = new BitSet();
+            int lo = 0;
+            int hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int code = buffer.getInt(order + 4 * mid);
+                int c = compare(code, s);
+                if (c < 0) {
+                    lo = mid + 1;
+                } else if (c > 0) {
+                    hi = mid - 1;
+                } else {
+                    result.set(code);
+                    break;
+                }
+            }
+            return result;
+        }
+
+        private int compare(int code, byte[] s) {
+            int start = buffer.getInt(4 + 4 * code);
+            return SnapshotTupleStore.compare(buffer, data + start, buffer.getInt(8 + 4 * code) - start, s);
+        }
+    }
+
+    /**
+     * A collection of the snapshot, mapped on first use.
+     */
+    private class Shard {
+        final String name;
+        final long offset;
+        final long length;
+        final int blockIndex;
+        final int recordCount;
+        final int blockCount;
+        private volatile MappedByteBuffer buffer;
+
+        Shard(String name, long offset, long length, int blockIndex, int recordCount, int blockCount) {
+            this.name = name;
+            this.offset = offset;
+            this.length = length;
+            this.blockIndex = blockIndex;
+            this.recordCount = recordCount;
+            this.blockCount = blockCount;
+        }
+
+        ByteBuffer buffer() {
+            MappedByteBuffer b = buffer;
+            if (b == null) {
+                synchronized (this) {
+                    b = buffer;
+                    if (b == null) {
+                        try {
+                            b = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                        } catch (IOException e) {
+                            throw new IllegalStateException("Cannot map the shard " + name, e);
+                        }
+                        buffer = b;
+                    }
+                }
+            }
+            return b;
+        }
+
+        /**
+         * @return the position of the first core tuple, whose key and other lemma are not smaller than the given ones
+         * 		(other is ignored if null), or blockIndex if there is none
+         */
+        int lowerBound(byte[] key, byte[] other) {
+            ByteBuffer b = buffer();
+            // the last block starting with a smaller core tuple
+            int lo = 0;
+            int hi = blockCount - 1;
+            int start = 0;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int p = b.getInt(blockIndex + 4 * mid);
+                if (compareRecord(b, p, key, other) < 0) {
+                    start = p;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            int p = start;
+            while (p < blockIndex && compareRecord(b, p, key, other) < 0) {
+                p += 4 + b.getInt(p);
+            }
+            return p;
+        }
+
+        int compareRecord(ByteBuffer b, int p, byte[] key, byte[] other) {
+            int keyLength = b.getShort(p + 4) & 0xffff;
+            int c = compare(b, p + 6, keyLength, key);
+            if (c != 0 || other == null) {
+                return c;
+            }
+            int o = p + 6 + keyLength;
+            return compare(b, o + 2, b.getShort(o) & 0xffff, other);
+        }
+    }
+
+    /**
+     * Iterates through the core tuples of an instance and/or a class, "*" matches every lemma.
+     * Core tuples without results are skipped.
+     */
+    private abstract class RecordIterator<T extends List<?>> implements ResultIterator<T> {
+
+        private final List<Shard> shardList = new ArrayList<>();
+        private final byte[] key;
+        private final byte[] other;
+        private int shardIndex = -1;
+        private ByteBuffer b;
+        private int position;
+        private int end;
+        private boolean byInstance;
+        private T nextResult;
+        private boolean done = false;
+
+        RecordIterator(String instance, String clazz) {
+            if (instance.equals("*") && clazz.equals("*")) {
+                key = null;
+                other = null;
+                for (Shard s : shards.values()) {
+                    if (s.name.startsWith("i")) shardList.add(s);
+                }
+                return;
+            }
+            String prefix = instance.equals("*") ? "c" : "i";
+            key = SnapshotWriter.utf8(prefix.equals("i") ? instance : clazz);
+            other = !instance.equals("*") && !clazz.equals("*") ? SnapshotWriter.utf8(clazz) : null;
+            Shard s = shards.get(CoreTupleQueryResultIterator.tablename(prefix, prefix.equals("i") ? instance : clazz));
+            if (s != null) shardList.add(s);
+        }
+
+        /**
+         * @param record : the position of the core tuple
+         * @param fields : the position of its frequency
+         */
+        abstract T results(ByteBuffer b, int record, int fields);
+
+        String instance(int record) {
+            return byInstance ? key(record) : other(record);
+        }
+
+        String clazz(int record) {
+            return byInstance ? other(record) : key(record);
+        }
+
+        private String key(int record) {
+            return utf8(b, record + 6, b.getShort(record + 4) & 0xffff);
+        }
+
+        private String other(int record) {
+            int o = record + 6 + (b.getShort(record + 4) & 0xffff);
+            return utf8(b, o + 2, b.getShort(o) & 0xffff);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextResult == null && !done) {
+                if (b == null || position >= end) {
+                    if (shardIndex + 1 >= shardList.size()) {
+                        done = true;
+                        break;
+                    }
+                    Shard s = shardList.get(++shardIndex);
+                    b = s.buffer();
+                    byInstance = s.name.startsWith("i");
+                    end = s.blockIndex;
+                    position = key == null ? 0 : s.lowerBound(key, other);
+                    continue;
+                }
+                int record = position;
+                if (key != null && s().compareRecord(b, record, key, other) != 0) {
+                    done = true;
+                    break;
+                }
+                position += 4 + b.getInt(record);
+                int o = record + 6 + (b.getShort(record + 4) & 0xffff);
+                T results = results(b, record, o + 2 + (b.getShort(o) & 0xffff));
+                if (!results.isEmpty()) {
+                    nextResult = results;
+                }
+            }
+            return nextResult != null;
+        }
+
+        private Shard s() {
+            return shardList.get(shardIndex);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = nextResult;
+            nextResult = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            done = true;
+            nextResult = null;
+        }
+    }
+}
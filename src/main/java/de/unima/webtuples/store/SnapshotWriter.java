@@ -0,0 +1,388 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.store;
+
+import com.mongodb.MongoClient;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class writes the instance and class collections into a snapshot file read by SnapshotTupleStore.
+ *
+ * Each collection becomes a shard: its core tuples are sorted by instance and class ("i" shards) 
+ * or by class and instance ("c" shards) and followed by a block index holding the position of every BLOCK_SIZE-th core tuple.
+ * The modifiers, the pattern ids and the pay level domains are stored once in three dictionaries
+ * and referenced by their code, the lemmas and the provids are stored in the core tuples.
+ *
+ * The core tuples of a shard are kept in memory until endShard(), the dictionaries until close().
+ *
+ * Usage (export tool): SnapshotWriter host port dbName file
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public class SnapshotWriter implements TupleSink, Closeable {
+
+    // the number of core tuples between two entries of the block index
+    static final int BLOCK_SIZE = 64;
+
+    private final File file;
+    private final DataOutputStream out;
+    private long position;
+
+    private final Dictionary modifiers = new Dictionary();
+    private final Dictionary pids = new Dictionary();
+    private final Dictionary plds = new Dictionary();
+    private final List<ShardEntry> shards = new ArrayList<>();
+
+    // the shard being written
+    private String shard;
+    private final List<Record> records = new ArrayList<>();
+    private Record current;
+
+    public SnapshotWriter(File file) throws IOException {
+        this.file = file;
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        // the header is rewritten by close()
+        writeHeader(out, 0, 0);
+        position = SnapshotTupleStore.HEADER_SIZE;
+    }
+
+    private static void writeHeader(java.io.DataOutput out, long directoryOffset, long directoryLength) throws IOException {
+        out.writeInt(SnapshotTupleStore.MAGIC);
+        out.writeInt(SnapshotTupleStore.VERSION);
+        out.writeLong(directoryOffset);
+        out.writeLong(directoryLength);
+    }
+
+    /**
+     * Starts a shard, the following core tuples belong to it.
+     * @param name : the name of the collection, e.g. "iap" or "cfr"
+     */
+    public void beginShard(String name) {
+        if (shard != null) {
+            throw new IllegalStateException("endShard has to be called before beginShard");
+        }
+        if (!name.startsWith("i") && !name.startsWith("c")) {
+            throw new IllegalArgumentException("Not an instance or class collection: " + name);
+        }
+        shard = name;
+    }
+
+    @Override
+    public SnapshotWriter addCoreTuple(String instance, String clazz, double frequency, int pidSpread, int pldSpread,
+            String pids, String plds) {
+        if (shard == null) {
+            throw new IllegalStateException("beginShard has to be called before addCoreTuple");
+        }
+        finishRecord();
+        boolean byInstance = shard.startsWith("i");
+        current = new Record(utf8(byInstance ? instance : clazz), utf8(byInstance ? clazz : instance));
+        try {
+            current.body.writeDouble(frequency);
+            current.body.writeInt(pidSpread);
+            current.body.writeInt(pldSpread);
+            writeList(current.body, this.pids, pids);
+            writeList(current.body, this.plds, plds);
+        } catch (IOException e) {
+            // cannot happen on a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public SnapshotWriter addModification(String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+            double frequency, int pidSpread, int pldSpread, String pids, String plds, String provids) {
+        if (current == null) {
+            throw new IllegalStateException("addCoreTuple has to be called before addModification");
+        }
+        try {
+            DataOutputStream m = current.modifications;
+            m.writeInt(modifiers.code(iPreModifier));
+            m.writeInt(modifiers.code(iPostModifier));
+            m.writeInt(modifiers.code(cPreModifier));
+            m.writeInt(modifiers.code(cPostModifier));
+            m.writeDouble(frequency);
+            m.writeInt(pidSpread);
+            m.writeInt(pldSpread);
+            writeList(m, this.pids, pids);
+            writeList(m, this.plds, plds);
+            byte[] p = utf8(provids);
+            m.writeInt(p.length);
+            m.write(p);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        current.modificationCount++;
+        return this;
+    }
+
+    /**
+     * Sorts the core tuples of the current shard and writes them, followed by the block index.
+     */
+    public void endShard() throws IOException {
+        finishRecord();
+        Collections.sort(records, new Comparator<Record>() {
+            @Override
+            public int compare(Record a, Record b) {
+                int c = compareBytes(a.key, b.key);
+                return c != 0 ? c : compareBytes(a.other, b.other);
+            }
+        });
+        long start = position;
+        int[] blocks = new int[(records.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        long offset = 0;
+        for (int i = 0; i < records.size(); i++) {
+            if (i % BLOCK_SIZE == 0) {
+                blocks[i / BLOCK_SIZE] = (int) offset;
+            }
+            Record r = records.get(i);
+            byte[] body = r.bytes.toByteArray();
+            byte[] modifications = r.modificationBytes.toByteArray();
+            int length = 2 + r.key.length + 2 + r.other.length + body.length + 4 + modifications.length;
+            out.writeInt(length);
+            out.writeShort(r.key.length);
+            out.write(r.key);
+            out.writeShort(r.other.length);
+            out.write(r.other);
+            out.write(body);
+            out.writeInt(r.modificationCount);
+            out.write(modifications);
+            offset += 4 + length;
+            if (offset > Integer.MAX_VALUE) {
+                throw new IOException("Shard " + shard + " is larger than 2GB");
+            }
+        }
+        int blockIndex = (int) offset;
+        for (int b : blocks) {
+            out.writeInt(b);
+        }
+        offset += 4L * blocks.length;
+        position += offset;
+        shards.add(new ShardEntry(shard, start, offset, blockIndex, records.size(), blocks.length));
+        records.clear();
+        shard = null;
+    }
+
+    private void finishRecord() {
+        if (current != null) {
+            records.add(current);
+            current = null;
+        }
+    }
+
+    /**
+     * Writes the dictionaries and the shard directory, then closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (shard != null) {
+            endShard();
+        }
+        long[] dictionaries = new long[6];
+        Dictionary[] all = {modifiers, pids, plds};
+        for (int i = 0; i < all.length; i++) {
+            dictionaries[2 * i] = position;
+            dictionaries[2 * i + 1] = all[i].write(out);
+            position += dictionaries[2 * i + 1];
+        }
+        Collections.sort(shards, new Comparator<ShardEntry>() {
+            @Override
+            public int compare(ShardEntry a, ShardEntry b) {
+                return a.name.compareTo(b.name);
+            }
+        });
+        ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+        DataOutputStream directory = new DataOutputStream(directoryBytes);
+        for (long d : dictionaries) {
+            directory.writeLong(d);
+        }
+        directory.writeInt(shards.size());
+        for (ShardEntry s : shards) {
+            directory.writeUTF(s.name);
+            directory.writeLong(s.offset);
+            directory.writeLong(s.length);
+            directory.writeInt(s.blockIndex);
+            directory.writeInt(s.recordCount);
+            directory.writeInt(s.blockCount);
+        }
+        directory.flush();
+        out.write(directoryBytes.toByteArray());
+        out.close();
+        try (RandomAccessFile header = new RandomAccessFile(file, "rw")) {
+            writeHeader(header, position, directoryBytes.size());
+        }
+    }
+
+    /**
+     * Splits a list like "p1;p2;" at the semicolons and writes the codes of the parts, 
+     * the last part is the (usually empty) text after the last semicolon.
+     */
+    private static void writeList(DataOutputStream out, Dictionary dictionary, String list) throws IOException {
+        String[] parts = list.split(";", -1);
+        out.writeInt(parts.length);
+        for (String part : parts) {
+            out.writeInt(dictionary.code(part));
+        }
+    }
+
+    static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares the UTF-8 bytes as unsigned values, as SnapshotTupleStore does on the mapped file.
+     */
+    static int compareBytes(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int c = (a[i] & 0xff) - (b[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Exports all the instance and class collections of a MongoDB tuples instance.
+     * @param store : the source of the tuples
+     * @param file : the snapshot file
+     */
+    public static void export(MongoTupleStore store, File file) throws IOException {
+        try (SnapshotWriter writer = new SnapshotWriter(file)) {
+            for (String prefix : new String[]{"i", "c"}) {
+                for (String tablename : store.getTupleCollections(prefix)) {
+                    writer.beginShard(tablename);
+                    store.copyCollection(tablename, writer);
+                    writer.endShard();
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: SnapshotWriter host port dbName file");
+            System.exit(1);
+        }
+        MongoClient client = new MongoClient(args[0], Integer.parseInt(args[1]));
+        try {
+            long start = System.currentTimeMillis();
+            export(new MongoTupleStore(client.getDB(args[2]), null), new File(args[3]));
+            System.out.println("Exported " + args[2] + " to " + args[3] + " in " + (System.currentTimeMillis() - start) + " ms");
+        } finally {
+            client.close();
+        }
+    }
+
+    private static class Record {
+        final byte[] key;
+        final byte[] other;
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        final DataOutputStream body = new DataOutputStream(bytes);
+        final ByteArrayOutputStream modificationBytes = new ByteArrayOutputStream(64);
+        final DataOutputStream modifications = new DataOutputStream(modificationBytes);
+        int modificationCount = 0;
+
+        Record(byte[] key, byte[] other) {
+            this.key = key;
+            this.other = other;
+        }
+    }
+
+    private static class ShardEntry {
+        final String name;
+        final long offset;
+        final long length;
+        final int blockIndex;
+        final int recordCount;
+        final int blockCount;
+
+        ShardEntry(String name, long offset, long length, int blockIndex, int recordCount, int blockCount) {
+            this.name = name;
+            this.offset = offset;
+            this.length = length;
+            this.blockIndex = blockIndex;
+            this.recordCount = recordCount;
+            this.blockCount = blockCount;
+        }
+    }
+
+    /**
+     * Assigns consecutive codes to the strings in the order they are first seen.
+     * Written as: count, count + 1 offsets relative to the first byte of the strings, the UTF-8 bytes of the strings,
+     * and the count codes in the order of their strings (compareBytes), so that a string is found by binary search.
+     */
+    private static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<byte[]> strings = new ArrayList<>();
+
+        int code(String s) {
+            Integer c = codes.get(s);
+            if (c == null) {
+                c = strings.size();
+                codes.put(s, c);
+                strings.add(utf8(s));
+            }
+            return c;
+        }
+
+        long write(DataOutputStream out) throws IOException {
+            out.writeInt(strings.size());
+            int offset = 0;
+            for (byte[] s : strings) {
+                out.writeInt(offset);
+                offset += s.length;
+            }
+            out.writeInt(offset);
+            for (byte[] s : strings) {
+                out.write(s);
+            }
+            Integer[] order = new Integer[strings.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return compareBytes(strings.get(a), strings.get(b));
+                }
+            });
+            for (int code : order) {
+                out.writeInt(code);
+            }
+            return 4 + 4L * (strings.size() + 1) + offset + 4L * strings.size();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.store;
+
+import com.mongodb.CommandResult;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.ReadPreference;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class bounds the staleness of the reads from the secondaries of a replica set, which the MongoDB driver 3.2
+ * cannot do on its own (it has no maxStalenessSeconds). It checks the replication lag of the secondaries periodically 
+ * with replSetGetStatus: while a secondary lags behind the primary more than the bound, the queries on the database 
+ * read from the primary (primaryPreferred), afterwards they use the configured read preference again.
+ * A single lagging secondary is enough to switch all the queries on the database, also the ones the other secondaries could answer.
+ * If the status cannot be read (e.g. a standalone server or a user without the clusterMonitor role), 
+ * the last decision is kept and the failure is returned by getLastFailure() until a check succeeds.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+class StalenessMonitor {
+
+    private final DB db;
+    private final ReadPreference readPreference;
+    private final long maxStalenessMillis;
+    private volatile boolean stale = false;
+    // null if the last check read the replication lag
+    private volatile RuntimeException lastFailure;
+    private ScheduledExecutorService timer;
+
+    /**
+     * @param db : the database, whose read preference is switched
+     * @param maxStaleness : the maximum replication lag of the secondaries
+     */
+    StalenessMonitor(DB db, long maxStaleness, TimeUnit unit) {
+        this.db = db;
+        this.readPreference = db.getReadPreference();
+        this.maxStalenessMillis = unit.toMillis(maxStaleness);
+    }
+
+    /**
+     * @return true if the queries read from the primary because of the lag of a secondary
+     */
+    boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * @return the reason why the last check could not read the replication lag, null if it could
+     */
+    RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Reads the replication lag and switches the read preference of the database if needed.
+     */
+    void check() {
+        CommandResult status;
+        try {
+            status = db.getMongo().getDB("admin").command("replSetGetStatus");
+        } catch (MongoException e) {
+            lastFailure = e;
+            return;
+        }
+        if (!status.ok()) {
+            lastFailure = status.getException();
+            return;
+        }
+        update(maxLag(status));
+        lastFailure = null;
+    }
+
+    void update(long lagMillis) {
+        boolean nowStale = lagMillis > maxStalenessMillis;
+        if (nowStale != stale) {
+            stale = nowStale;
+            db.setReadPreference(nowStale ? ReadPreference.primaryPreferred() : readPreference);
+        }
+    }
+
+    /**
+     * @param status : the result of replSetGetStatus
+     * @return the replication lag of the slowest healthy secondary in milliseconds, compared with the primary 
+     * 		or, without a primary, with the most recent member
+     */
+    static long maxLag(DBObject status) {
+        List<?> members = (List<?>) status.get("members");
+        if (members == null) {
+            return 0;
+        }
+        long newest = Long.MIN_VALUE;
+        long primary = Long.MIN_VALUE;
+        long oldestSecondary = Long.MAX_VALUE;
+        for (Object o : members) {
+            DBObject member = (DBObject) o;
+            Object optime = member.get("optimeDate");
+            Object state = member.get("state");
+            if (!(optime instanceof Date) || !(state instanceof Number)) {
+                continue;
+            }
+            long time = ((Date) optime).getTime();
+            newest = Math.max(newest, time);
+            int code = ((Number) state).intValue();
+            Object health = member.get("health");
+            if (code == 1) {
+                primary = time;
+            } else if (code == 2 && (!(health instanceof Number) || ((Number) health).intValue() == 1)) {
+                oldestSecondary = Math.min(oldestSecondary, time);
+            }
+        }
+        if (oldestSecondary == Long.MAX_VALUE) {
+            return 0;
+        }
+        return (primary != Long.MIN_VALUE ? primary : newest) - oldestSecondary;
+    }
+
+    /**
+     * Checks the lag now and then every period, until close() is called.
+     */
+    synchronized void start(long period, TimeUnit unit) {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "webisadb-staleness");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        timer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    check();
+                } catch (RuntimeException e) {
+                    // the read preference is kept until the next check
+                    lastFailure = e;
+                }
+            }
+        }, 0, period, unit);
+    }
+
+    /**
+     * Stops the checks and restores the configured read preference.
+     */
+    synchronized void close() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+        if (stale) {
+            stale = false;
+            db.setReadPreference(readPreference);
+        }
+    }
+}
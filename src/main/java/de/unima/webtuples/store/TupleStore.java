@@ -0,0 +1,166 @@
+// Web Data Commons - WebIsA Database
+// http://webdatacommons.org/isadb/
+// Christian Bizer
+// Kai Eckert
+// Stefano Faralli
+// Robert Meusel
+// Heiko Paulheim
+// Simone Paolo Ponzetto
+// WebIsADb is a publicly available database containing more than 400 million hypernymy relations we extracted from the CommonCrawl web corpus. This collection of relations represents a rich source of knowledge and may be useful for many researchers. We offer the tuple dataset for public download and an application programming interface to help other researchers programmatically query the database.
+// This software is meant to be the Jave API to query a WebIsADb instance.
+// The WebIsADb and the API are licensed under a Creative Commons Attribution-Non Commercial-Share Alike 3.0 License:
+// http://creativecommons.org/licenses/by-nc-sa/3.0/.
+// Acknowledgements
+// This work was partially funded by the Deutsche Forschungsgemeinschaft within the JOIN-T project (research grant PO 1900/1-1). Part of the computational resources used for this work were provide by an Amazon AWS in Education Grant award.
+
+
+package de.unima.webtuples.store;
+
+import de.unima.webtuples.datatypes.Context;
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.datatypes.Tuple;
+import de.unima.webtuples.queries.HypernymClosure;
+import de.unima.webtuples.queries.ResultIterator;
+import de.unima.webtuples.queries.ResultStreams;
+import de.unima.webtuples.queries.TupleFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * This interface defines the storage backend queried by WebIsADb.
+ * The default implementation is MongoTupleStore, InMemoryTupleStore keeps a (part of the) database in memory.
+ * The meaning of the query parameters is the same as in the corresponding methods of WebIsADb, 
+ * every implementation has to return the same tuples for the same data.
+ *
+ * @author Julian Seitener, Nacho Vidal and Stefano Faralli
+ *
+ */
+public interface TupleStore {
+
+    /**
+     * Full scan: iterates through all the tuples, grouped by core tuple, in the order of their instances.
+     * @return an iterator over the tuples of each core tuple
+     */
+    ResultIterator<List<Tuple>> getAllTuples();
+
+    /**
+     * Core lookup: iterates through the core tuples matching the parameters, "*" matches every instance or class.
+     * @return an iterator over lists of core tuples
+     * @see de.unima.webtuples.WebIsADb#getCoreTuplesWhere
+     */
+    ResultIterator<List<? extends CoreTuple>> getCoreTuplesWhere(String instance, String clazz,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict);
+
+    /**
+     * Modification lookup: iterates through the modifications matching the parameters, "*" matches every value.
+     * @return an iterator over the matching tuples of each core tuple
+     * @see de.unima.webtuples.WebIsADb#getTuplesWhere
+     */
+    ResultIterator<List<Tuple>> getTuplesWhere(String instance, String clazz,
+            String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict);
+
+    /**
+     * Full scan as a stream of single tuples. The stream has to be closed if it is not consumed completely.
+     * @return the tuples in the same order as getAllTuples
+     */
+    default Stream<Tuple> streamAllTuples() {
+        return ResultStreams.flatStream(getAllTuples());
+    }
+
+    /**
+     * Core lookup as a stream of single core tuples. The stream has to be closed if it is not consumed completely.
+     * @see #getCoreTuplesWhere
+     */
+    default Stream<CoreTuple> streamCoreTuplesWhere(String instance, String clazz,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict) {
+        return ResultStreams.flatStream(getCoreTuplesWhere(instance, clazz, pids, plds, minFrequency, maxFrequency,
+                minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict));
+    }
+
+    /**
+     * Modification lookup as a stream of single tuples. The stream has to be closed if it is not consumed completely.
+     * @see #getTuplesWhere
+     */
+    default Stream<Tuple> streamTuplesWhere(String instance, String clazz,
+            String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict) {
+        return ResultStreams.flatStream(getTuplesWhere(instance, clazz, iPreModifier, iPostModifier, cPreModifier, cPostModifier,
+                pids, plds, minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict));
+    }
+
+    /**
+     * Bulk lookup of many instances, as getTuplesWhere with each instance and "*" everywhere else.
+     * The default implementation runs one query for each instance.
+     * @param lemmas : the instances, duplicates are looked up once
+     * @return the tuples of each instance in the order of lemmas, an empty list for the instances without tuples
+     */
+    default Map<String, List<Tuple>> getTuplesWhereInstanceLemmas(Collection<String> lemmas) {
+        Map<String, List<Tuple>> results = new LinkedHashMap<>();
+        for (String lemma : lemmas) {
+            if (results.containsKey(lemma)) {
+                continue;
+            }
+            List<Tuple> tuples = new ArrayList<>();
+            ResultIterator<List<Tuple>> it = getTuplesWhere(lemma, "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false);
+            try {
+                while (it.hasNext()) {
+                    tuples.addAll(it.next());
+                }
+            } finally {
+                it.close();
+            }
+            results.put(lemma, tuples);
+        }
+        return results;
+    }
+
+    /**
+     * Transitive closure upwards: the classes of instance, their classes and so on, up to maxDepth is-a steps.
+     * The default implementation runs one core tuple query for each node, with one closure for each store.
+     * @param filter : the core tuples to follow, null to follow all of them
+     * @return the classes and their distance from instance, ordered by distance
+     * @see HypernymClosure#ancestors
+     */
+    default Map<String, Integer> getAncestors(String instance, int maxDepth, TupleFilter filter) {
+        return LookupHypernymClosure.of(this).ancestors(instance, maxDepth, filter);
+    }
+
+    /**
+     * Transitive closure downwards: the instances of clazz, their instances and so on, up to maxDepth is-a steps.
+     * @see #getAncestors
+     */
+    default Map<String, Integer> getDescendants(String clazz, int maxDepth, TupleFilter filter) {
+        return LookupHypernymClosure.of(this).descendants(clazz, maxDepth, filter);
+    }
+
+    /**
+     * Context lookup: iterates through the contexts of the given provenance id.
+     * @param provid : the context id, null or "" returns all the contexts
+     * @return an iterator over the contexts
+     */
+    ResultIterator<Context> getContextWithProvid(String provid);
+
+    /**
+     * Context lookup: iterates through the contexts of the given provenance ids.
+     * @param provids : the context ids
+     * @param limit : the maximum number of contexts, 0 means no limits
+     * @return an iterator over the contexts
+     */
+    ResultIterator<Context> getMultipleContextsWithProvid(Set<String> provids, int limit);
+
+    /**
+     * Releases the resources of the store (e.g. the connections).
+     */
+    void close();
+}
@@ -0,0 +1,202 @@
+package de.unima.webtuples;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import de.unima.webtuples.datatypes.Context;
+import de.unima.webtuples.datatypes.Tuple;
+import de.unima.webtuples.queries.ResultIterator;
+import de.unima.webtuples.queries.ResultPublisher;
+import de.unima.webtuples.store.MongoTupleStore;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import junit.framework.TestCase;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Checks the futures and publishers of AsyncWebIsADb against the synchronous store, using Fongo as in-process MongoDB.
+ */
+public class AsyncWebIsADbTest extends TestCase
+{
+    private MongoTupleStore store;
+    private ExecutorService executor;
+    private AsyncWebIsADb async;
+
+    @Override
+    protected void setUp()
+    {
+        Fongo fongo = new Fongo("webisadb");
+        DB tuplesDb = fongo.getDB("tuplesdb");
+        DB contextsDb = fongo.getDB("sentencesdb");
+        BasicDBList modifications = new BasicDBList();
+        modifications.add(modification("red", "1;2;"));
+        modifications.add(modification("green", "3;"));
+        tuplesDb.getCollection("iap").insert(new BasicDBObject("instance", "apple").append("class", "fruit").append("modifications", modifications));
+        for (int d = 0; d < 20; d++)
+        {
+            modifications = new BasicDBList();
+            modifications.add(modification("", ""));
+            tuplesDb.getCollection("ipe").insert(new BasicDBObject("instance", "pear" + d).append("class", "fruit").append("modifications", modifications));
+        }
+        contextsDb.getCollection("s0").insert(new BasicDBObject("provid", "1").append("pld", "example.org").append("sentence", "red apples"));
+        contextsDb.getCollection("s0").insert(new BasicDBObject("provid", "3").append("pld", "google.com").append("sentence", "green apples"));
+        store = new MongoTupleStore(tuplesDb, contextsDb);
+        executor = Executors.newFixedThreadPool(2);
+        async = new AsyncWebIsADb(store, executor);
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    public void testFuturesAndComposition() throws Exception
+    {
+        List<Tuple> tuples = async.getTuplesWhereInstanceLemma("apple", false).get(10, TimeUnit.SECONDS);
+        assertEquals(2, tuples.size());
+        assertEquals(1, async.getCoreTuplesWhere("apple", "*", null, null, 0, 0, 0, 0, 0, 0, false).get(10, TimeUnit.SECONDS).size());
+
+        List<Context> contexts = async.getTuplesWhereInstanceLemma("apple", false)
+                .thenCompose(t -> async.getContextsOf(t, 0)).get(10, TimeUnit.SECONDS);
+        assertEquals(2, contexts.size());
+        // without provids no context is looked up, instead of all of them
+        assertTrue(async.getContextsOf(new ArrayList<Tuple>(), 0).get().isEmpty());
+    }
+
+    public void testPublisherFollowsDemand() throws Exception
+    {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        async.publishAllTuples().subscribe(subscriber);
+        subscriber.subscription.request(3);
+        Thread.sleep(200);
+        assertEquals(3, subscriber.results.size());
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.finished.await(10, TimeUnit.SECONDS));
+        assertNull(subscriber.error);
+        assertTrue(subscriber.completed);
+        assertEquals(21, subscriber.results.size());
+    }
+
+    public void testCancelAndInvalidRequest() throws Exception
+    {
+        RecordingSubscriber cancelled = new RecordingSubscriber();
+        async.publishAllTuples().subscribe(cancelled);
+        cancelled.subscription.request(1);
+        cancelled.subscription.cancel();
+        cancelled.subscription.request(5);
+        Thread.sleep(200);
+        assertTrue(cancelled.results.size() <= 1);
+        assertFalse(cancelled.completed);
+
+        RecordingSubscriber invalid = new RecordingSubscriber();
+        async.publishAllTuples().subscribe(invalid);
+        invalid.subscription.request(0);
+        assertTrue(invalid.finished.await(10, TimeUnit.SECONDS));
+        assertTrue(invalid.error instanceof IllegalArgumentException);
+    }
+
+    public void testThrowingSubscriber()
+    {
+        final AtomicBoolean closed = new AtomicBoolean();
+        ResultPublisher<List<Tuple>> publisher = new ResultPublisher<>(() -> new ResultIterator<List<Tuple>>() {
+            private final ResultIterator<List<Tuple>> tuples = store.getAllTuples();
+
+            @Override
+            public boolean hasNext()
+            {
+                return tuples.hasNext();
+            }
+
+            @Override
+            public List<Tuple> next()
+            {
+                return tuples.next();
+            }
+
+            @Override
+            public void close()
+            {
+                closed.set(true);
+                tuples.close();
+            }
+        }, Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber()
+        {
+            @Override
+            public void onNext(List<Tuple> tuples)
+            {
+                super.onNext(tuples);
+                throw new IllegalStateException("subscriber failure");
+            }
+        };
+        publisher.subscribe(subscriber);
+        try
+        {
+            // the executor runs the drain task in the calling thread
+            subscriber.subscription.request(5);
+            fail();
+        }
+        catch (IllegalStateException e)
+        {
+            assertEquals("subscriber failure", e.getMessage());
+        }
+        // the subscription is cancelled, the failure is not signalled back
+        assertNull(subscriber.error);
+        assertFalse(subscriber.completed);
+        assertEquals(1, subscriber.results.size());
+        assertTrue(closed.get());
+        subscriber.subscription.request(5);
+        assertEquals(1, subscriber.results.size());
+    }
+
+    private static BasicDBObject modification(String ipremod, String provids)
+    {
+        return new BasicDBObject("ipremod", ipremod).append("ipostmod", "").append("cpremod", "").append("cpostmod", "")
+                .append("frequency", 1.0).append("pidspread", 1).append("pldspread", 1)
+                .append("pids", "p1;").append("plds", "example.org;").append("provids", provids);
+    }
+
+    private static class RecordingSubscriber implements Subscriber<List<Tuple>>
+    {
+        final List<List<Tuple>> results = Collections.synchronizedList(new ArrayList<List<Tuple>>());
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile Subscription subscription;
+        volatile Throwable error;
+        volatile boolean completed;
+
+        @Override
+        public void onSubscribe(Subscription s)
+        {
+            subscription = s;
+        }
+
+        @Override
+        public void onNext(List<Tuple> tuples)
+        {
+            results.add(tuples);
+        }
+
+        @Override
+        public void onError(Throwable t)
+        {
+            error = t;
+            finished.countDown();
+        }
+
+        @Override
+        public void onComplete()
+        {
+            completed = true;
+            finished.countDown();
+        }
+    }
+}
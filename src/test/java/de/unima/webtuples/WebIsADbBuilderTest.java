@@ -0,0 +1,106 @@
+package de.unima.webtuples;
+
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ReadPreference;
+import com.mongodb.ServerAddress;
+import com.mongodb.Tag;
+import com.mongodb.TagSet;
+import de.unima.webtuples.store.MongoTupleStore;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Checks that the clients of WebIsADb.Builder own independent connection pools and read preferences configured by the builder.
+ * The clients are not used for queries, the driver connects to the servers only on the first query.
+ */
+public class WebIsADbBuilderTest extends TestCase
+{
+    public void testOptions()
+    {
+        WebIsADb.Builder builder = new WebIsADb.Builder()
+                .tuples("localhost", 27017, "tuplesdb")
+                .contexts("localhost", 27018, "sentencesdb")
+                .connectionsPerHost(16)
+                .minConnectionsPerHost(2)
+                .threadsAllowedToBlockForConnectionMultiplier(3)
+                .maxWaitTime(2, TimeUnit.SECONDS)
+                .connectTimeout(500, TimeUnit.MILLISECONDS)
+                .socketTimeout(1, TimeUnit.MINUTES);
+        WebIsADb client = builder.build();
+        try
+        {
+            MongoTupleStore store = (MongoTupleStore) client.getStore();
+            MongoClientOptions options = store.getTuplesClient().getMongoClientOptions();
+            assertEquals(16, options.getConnectionsPerHost());
+            assertEquals(2, options.getMinConnectionsPerHost());
+            assertEquals(3, options.getThreadsAllowedToBlockForConnectionMultiplier());
+            assertEquals(2000, options.getMaxWaitTime());
+            assertEquals(500, options.getConnectTimeout());
+            assertEquals(60000, options.getSocketTimeout());
+            assertEquals(options, store.getContextsClient().getMongoClientOptions());
+            assertEquals("sentencesdb", store.getContextsDb().getName());
+        }
+        finally
+        {
+            client.shutdown();
+        }
+    }
+
+    public void testIndependentClients()
+    {
+        WebIsADb.Builder builder = new WebIsADb.Builder().tuples("localhost", 27017, "tuplesdb").contexts("localhost", 27017, "sentencesdb");
+        WebIsADb first = builder.build();
+        WebIsADb second = builder.connectionsPerHost(4).build();
+        try
+        {
+            MongoTupleStore firstStore = (MongoTupleStore) first.getStore();
+            MongoTupleStore secondStore = (MongoTupleStore) second.getStore();
+            assertNotSame(firstStore.getTuplesClient(), secondStore.getTuplesClient());
+            assertEquals(4, secondStore.getTuplesClient().getMongoClientOptions().getConnectionsPerHost());
+            assertEquals(MongoClientOptions.builder().build().getConnectionsPerHost(),
+                    firstStore.getTuplesClient().getMongoClientOptions().getConnectionsPerHost());
+        }
+        finally
+        {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+
+    public void testReadPreferences()
+    {
+        ReadPreference scans = ReadPreference.secondary(new TagSet(new Tag("workload", "scan")));
+        WebIsADb client = new WebIsADb.Builder()
+                .tuplesReplicaSet(Arrays.asList(new ServerAddress("localhost", 27017), new ServerAddress("localhost", 27018)), "tuplesdb")
+                .contexts("localhost", 27017, "sentencesdb")
+                .tuplesReadPreference(ReadPreference.secondaryPreferred())
+                .contextsReadPreference(ReadPreference.nearest())
+                .scanReadPreference(scans)
+                .build();
+        try
+        {
+            MongoTupleStore store = (MongoTupleStore) client.getStore();
+            assertEquals(ReadPreference.secondaryPreferred(), store.getTuplesDb().getReadPreference());
+            assertEquals(ReadPreference.nearest(), store.getContextsDb().getReadPreference());
+            assertEquals(scans, store.getScanReadPreference());
+        }
+        finally
+        {
+            client.shutdown();
+        }
+    }
+
+    public void testInvalidDuration()
+    {
+        try
+        {
+            new WebIsADb.Builder().socketTimeout(-1, TimeUnit.SECONDS);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package de.unima.webtuples;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import de.unima.webtuples.datatypes.Tuple;
+import de.unima.webtuples.queries.QueryType;
+import de.unima.webtuples.queries.ResultIterator;
+import de.unima.webtuples.store.MongoTupleStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Runs lookups of a single WebIsADb client from many threads against a Fongo database and checks that every lookup
+ * completes with its own results. Fongo has no connection pool: the pool sizes are only checked by WebIsADbBuilderTest,
+ * their effect under load needs a MongoDB server (ClientThroughputBenchmark of the benchmarks module).
+ */
+public class WebIsADbConcurrencyTest extends TestCase
+{
+    private static final int LEMMAS = 50;
+    private static final int THREADS = 16;
+    private static final int LOOKUPS = 200;
+
+    private WebIsADb client;
+
+    @Override
+    protected void setUp()
+    {
+        Fongo fongo = new Fongo("webisadb");
+        MongoTupleStore store = new MongoTupleStore(fongo.getDB("tuplesdb"), fongo.getDB("sentencesdb"));
+        DB db = store.getTuplesDb();
+        for (int i = 0; i < LEMMAS; i++)
+        {
+            insert(db, "ab" + i, "class" + i);
+        }
+        client = new WebIsADb(store);
+    }
+
+    public void testConcurrentLookups() throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> futures = new ArrayList<>();
+        try
+        {
+            for (int t = 0; t < THREADS; t++)
+            {
+                final int offset = t;
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception
+                    {
+                        int tuples = 0;
+                        for (int l = 0; l < LOOKUPS; l++)
+                        {
+                            int lemma = (offset + l) % LEMMAS;
+                            ResultIterator<List<Tuple>> it = client.getTuplesWhereInstanceLemma("ab" + lemma, false);
+                            try
+                            {
+                                while (it.hasNext())
+                                {
+                                    for (Tuple tuple : it.next())
+                                    {
+                                        assertEquals("class" + lemma, tuple.getClassLemma());
+                                        tuples++;
+                                    }
+                                }
+                            }
+                            finally
+                            {
+                                it.close();
+                            }
+                        }
+                        return tuples;
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures)
+            {
+                // an exception of a lookup fails the test here
+                assertEquals(LOOKUPS, future.get(1, TimeUnit.MINUTES).intValue());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        assertEquals(THREADS * LOOKUPS, client.getQueryMetrics().get(QueryType.TUPLES).getCount());
+        assertEquals(THREADS * LOOKUPS, client.getQueryMetrics().get(QueryType.TUPLES).getResultsReturned());
+    }
+
+    private static void insert(DB db, String instance, String clazz)
+    {
+        BasicDBList modifications = new BasicDBList();
+        modifications.add(new BasicDBObject("ipremod", "").append("ipostmod", "").append("cpremod", "").append("cpostmod", "")
+                .append("frequency", 2.0).append("pidspread", 1).append("pldspread", 1)
+                .append("pids", "p1;").append("plds", "example.org;").append("provids", "1;"));
+        BasicDBObject document = new BasicDBObject("instance", instance).append("class", clazz)
+                .append("frequency", 2.0).append("pidspread", 1).append("pldspread", 1)
+                .append("pids", "p1;").append("plds", "example.org;").append("modifications", modifications);
+        db.getCollection("i" + instance.substring(0, 2)).insert(new BasicDBObject(document));
+        db.getCollection("c" + clazz.substring(0, 2)).insert(new BasicDBObject(document));
+    }
+}
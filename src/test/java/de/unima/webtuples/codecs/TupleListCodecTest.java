@@ -0,0 +1,104 @@
+package de.unima.webtuples.codecs;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import de.unima.webtuples.datatypes.Context;
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.datatypes.Tuple;
+import java.nio.ByteBuffer;
+import junit.framework.TestCase;
+import org.bson.BasicBSONEncoder;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonReader;
+import org.bson.codecs.DecoderContext;
+
+/**
+ * Checks the codecs on documents encoded as they are stored, including the shapes returned by the aggregation pipeline.
+ */
+public class TupleListCodecTest extends TestCase
+{
+    private static final DecoderContext CONTEXT = DecoderContext.builder().build();
+
+    public void testModificationsArray()
+    {
+        BasicDBList modifications = new BasicDBList();
+        modifications.add(modification("red", 3.0, 2));
+        modifications.add(modification("green", 7.0, 3));
+        TupleList tuples = new TupleListCodec().decode(reader(new BasicDBObject("instance", "apple").append("class", "fruit")
+                .append("frequency", 10.0).append("modifications", modifications)), CONTEXT);
+        assertEquals("apple", tuples.getInstance());
+        assertEquals("fruit", tuples.getClazz());
+        assertEquals(2, tuples.size());
+        Tuple green = tuples.get(1);
+        assertEquals("apple", green.getInstanceLemma());
+        assertEquals("green", green.getInstancePreModifiers());
+        assertEquals(7.0, green.getAdjustedFrequency());
+        assertEquals(3, green.getPidSpread());
+        assertEquals("1;2;", green.getProvids());
+    }
+
+    public void testUnwoundModificationBeforeLemmas()
+    {
+        // an $unwind result has a single document, the fields can come in any order after a $project
+        TupleList tuples = new TupleListCodec().decode(reader(new BasicDBObject("modifications", modification("red", 3.0, 2))
+                .append("instance", "apple").append("class", "fruit")), CONTEXT);
+        assertEquals(1, tuples.size());
+        assertEquals("apple", tuples.get(0).getInstanceLemma());
+        assertEquals("fruit", tuples.get(0).getClassLemma());
+    }
+
+    public void testFilter()
+    {
+        BasicDBList modifications = new BasicDBList();
+        modifications.add(modification("red", 3.0, 2));
+        modifications.add(modification("green", 7.0, 3));
+        modifications.add(modification("red", 9.0, 1));
+        TupleListCodec codec = new TupleListCodec(new TupleListCodec.ModificationFilter()
+        {
+            @Override
+            public boolean accept(String iPreMod, String iPostMod, String cPreMod, String cPostMod,
+                    double frequency, int pidSpread, int pldSpread, String pids, String plds)
+            {
+                return iPreMod.equals("red") && frequency > 5;
+            }
+        });
+        TupleList tuples = codec.decode(reader(new BasicDBObject("instance", "apple").append("class", "fruit")
+                .append("modifications", modifications)), CONTEXT);
+        assertTrue(tuples.isFiltered());
+        assertEquals(1, tuples.size());
+        assertEquals(3, tuples.getModificationCount());
+        assertEquals(9.0, tuples.get(0).getAdjustedFrequency());
+        assertEquals("apple", tuples.get(0).getInstanceLemma());
+    }
+
+    public void testNumbersStoredAsStrings()
+    {
+        CoreTuple tuple = new CoreTupleCodec().decode(reader(new BasicDBObject("instance", "apple").append("class", "fruit")
+                .append("frequency", "11").append("pidspread", 5L).append("pldspread", "3")
+                .append("pids", "p1;p2;").append("plds", "example.org;")), CONTEXT);
+        assertEquals(11.0, tuple.getAdjustedFrequency());
+        assertEquals(5, tuple.getPidSpread());
+        assertEquals(3, tuple.getPldSpread());
+        assertTrue(tuple.getPids().contains("p2"));
+    }
+
+    public void testContext()
+    {
+        Context context = new ContextCodec().decode(reader(new BasicDBObject("provid", "1").append("pld", "example.org")
+                .append("sentence", "apples are fruits")), CONTEXT);
+        assertEquals("example.org", context.getPlds());
+        assertEquals("apples are fruits", context.getSentence());
+    }
+
+    private static BsonReader reader(BasicDBObject document)
+    {
+        return new BsonBinaryReader(ByteBuffer.wrap(new BasicBSONEncoder().encode(document)));
+    }
+
+    private static BasicDBObject modification(String ipremod, double frequency, int pidspread)
+    {
+        return new BasicDBObject("ipremod", ipremod).append("ipostmod", "").append("cpremod", "").append("cpostmod", "")
+                .append("frequency", frequency).append("pidspread", pidspread).append("pldspread", 1)
+                .append("pids", "p1;").append("plds", "example.org;").append("provids", "1;2;");
+    }
+}
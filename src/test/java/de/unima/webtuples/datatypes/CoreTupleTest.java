@@ -0,0 +1,42 @@
+package de.unima.webtuples.datatypes;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import junit.framework.TestCase;
+
+/**
+ * Checks the dictionary encoding of the pids and plds of CoreTuple.
+ */
+public class CoreTupleTest extends TestCase
+{
+    public void testViews()
+    {
+        CoreTuple t = new CoreTuple("apple", "fruit", 3.0, 2, 2, "p1;p3a;", "google.com;example.org;google.com;", "");
+        assertEquals(new HashSet<>(Arrays.asList("p1", "p3a")), t.getPids());
+        assertEquals(new HashSet<>(Arrays.asList("google.com", "example.org")), t.getPlds());
+        assertEquals("google.com;example.org;", t.getPldsString());
+        assertTrue(t.hasPid(Dictionary.PIDS.code("p1")));
+        assertFalse(t.hasPid(Dictionary.PIDS.code("p2")));
+        assertTrue(t.hasPld(Dictionary.PLDS.code("example.org")));
+        assertFalse(t.hasPld(Dictionary.PLDS.code("wikipedia.org")));
+    }
+
+    public void testEmptyLists()
+    {
+        CoreTuple t = new CoreTuple("apple", "fruit", 3.0, 2, 2, "", "", "");
+        assertEquals(new HashSet<>(Arrays.asList("")), t.getPids());
+        assertEquals(";", t.getPldsString());
+    }
+
+    public void testManyPids()
+    {
+        StringBuilder pids = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+        {
+            pids.append("q").append(i).append(";");
+        }
+        CoreTuple t = new CoreTuple("apple", "fruit", 3.0, 2, 2, pids.toString(), "example.org;", "");
+        assertEquals(100, t.getPids().size());
+        assertTrue(t.hasPid(Dictionary.PIDS.code("q99")));
+    }
+}
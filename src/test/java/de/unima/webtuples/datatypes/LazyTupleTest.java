@@ -0,0 +1,66 @@
+package de.unima.webtuples.datatypes;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.LazyDBDecoder;
+import de.unima.webtuples.queries.AllTuplesResultIterator;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+import org.bson.BasicBSONEncoder;
+
+/**
+ * Checks that LazyTuple returns the same values as Tuple.
+ */
+public class LazyTupleTest extends TestCase
+{
+    private static BasicDBObject modification()
+    {
+        return new BasicDBObject("ipremod", "red").append("ipostmod", "from portugal")
+                .append("cpremod", "sweet").append("cpostmod", "")
+                .append("frequency", 3.0).append("pidspread", 2).append("pldspread", 1)
+                .append("pids", "p1;p2;").append("plds", "example.org;").append("provids", "1;2;");
+    }
+
+    public void testRawBytes()
+    {
+        byte[] bytes = new BasicBSONEncoder().encode(modification());
+        DBObject raw = new LazyDBDecoder().decode(bytes, (DBCollection) null);
+        LazyTuple lazy = new LazyTuple("apple", "fruit", raw);
+        Tuple eager = new Tuple("apple", "fruit", 3.0, 2, 1, "red", "from portugal", "sweet", "", "p1;p2;", "example.org;", "1;2;");
+        assertEquals("apple", lazy.getInstanceLemma());
+        assertEquals(3.0, lazy.getAdjustedFrequency());
+        assertEquals(eager.toString(), lazy.toString());
+        assertEquals(eager.getPids(), lazy.getPids());
+        assertTrue(lazy.hasPld(Dictionary.PLDS.code("example.org")));
+    }
+
+    public void testLazyScan()
+    {
+        DB db = new Fongo("webisadb").getDB("tuplesdb");
+        BasicDBList modifications = new BasicDBList();
+        modifications.add(modification());
+        modifications.add(modification().append("ipremod", "green"));
+        db.getCollection("iap").insert(new BasicDBObject("instance", "apple").append("class", "fruit")
+                .append("modifications", modifications));
+        assertEquals(collect(new AllTuplesResultIterator(db, "i")), collect(new AllTuplesResultIterator(db, "i", true)));
+    }
+
+    private static List<String> collect(AllTuplesResultIterator iterator)
+    {
+        List<String> results = new ArrayList<>();
+        while (iterator.hasNext())
+        {
+            for (Tuple t : iterator.next())
+            {
+                results.add(t.toString());
+            }
+        }
+        iterator.close();
+        return results;
+    }
+}
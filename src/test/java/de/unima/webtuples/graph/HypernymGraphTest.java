@@ -0,0 +1,178 @@
+package de.unima.webtuples.graph;
+
+import de.unima.webtuples.queries.TupleFilter;
+import de.unima.webtuples.store.InMemoryTupleStore;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import junit.framework.TestCase;
+
+/**
+ * Checks the compressed sparse row graph built from the core tuples of a store, 
+ * written to a file and mapped back, and the reference algorithms on it.
+ */
+public class HypernymGraphTest extends TestCase
+{
+    private InMemoryTupleStore store;
+    private HypernymGraph graph;
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        InMemoryTupleStore.Builder builder = new InMemoryTupleStore.Builder();
+        builder.addCoreTuple("apple", "fruit", 11.0, 5, 3, "p1;", "example.org;");
+        builder.addCoreTuple("apple", "company", 2.0, 1, 1, "p1;", "example.org;");
+        builder.addCoreTuple("pear", "fruit", 4.0, 2, 1, "p1;", "example.org;");
+        builder.addCoreTuple("fruit", "food", 8.0, 3, 1, "p1;", "example.org;");
+        builder.addCoreTuple("company", "organization", 6.0, 4, 1, "p1;", "example.org;");
+        builder.addCoreTuple("caf\u00e9", "company", 1.0, 1, 1, "p1;", "example.org;");
+        store = builder.build();
+        graph = HypernymGraphBuilder.build(store);
+        file = File.createTempFile("webisadb-graph", ".bin");
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        file.delete();
+    }
+
+    public void testStructure()
+    {
+        assertEquals(7, graph.getNodeCount());
+        assertEquals(6, graph.getEdgeCount());
+        // the nodes are numbered in the order of the lemmas
+        assertEquals("apple", graph.lemma(0));
+        assertEquals("caf\u00e9", graph.lemma(1));
+        assertEquals("pear", graph.lemma(6));
+        assertEquals(-1, graph.node("banana"));
+        assertEquals(1, graph.node("caf\u00e9"));
+
+        int apple = graph.node("apple");
+        assertEquals(2, graph.degree(apple));
+        assertEquals(Arrays.asList("company", "fruit"), lemmas(graph.neighbours(apple)));
+        assertEquals(11.0f, graph.weight(graph.edge(apple, graph.node("fruit"))));
+        assertEquals(-1, graph.edge(apple, graph.node("food")));
+        assertEquals(0, graph.degree(graph.node("food")));
+    }
+
+    public void testLemmaOrder() throws Exception
+    {
+        // the lemmas are sorted by their UTF-8 bytes: a supplementary character after every other one
+        HypernymGraph unicode = new HypernymGraphBuilder().addEdge("\ud83c\udf4e", "fruit", 1)
+                .addEdge("\uffe6", "fruit", 1).addEdge("z", "fruit", 1).build();
+        assertEquals(Arrays.asList("fruit", "z", "\uffe6", "\ud83c\udf4e"),
+                Arrays.asList(unicode.lemma(0), unicode.lemma(1), unicode.lemma(2), unicode.lemma(3)));
+        assertEquals(3, unicode.node("\ud83c\udf4e"));
+    }
+
+    public void testFilter() throws Exception
+    {
+        HypernymGraph frequent = new HypernymGraphBuilder().filter(new TupleFilter(null, null, 4, 0, 0, 0, 0, 0, false))
+                .addAll(store).build();
+        assertEquals(4, frequent.getEdgeCount());
+        assertEquals(-1, frequent.edge(frequent.node("apple"), frequent.node("company")));
+    }
+
+    public void testWriteAndMap() throws Exception
+    {
+        graph.write(file);
+        try (HypernymGraph mapped = HypernymGraph.open(file))
+        {
+            assertEquals(graph.getNodeCount(), mapped.getNodeCount());
+            assertEquals(graph.getEdgeCount(), mapped.getEdgeCount());
+            for (int node = 0; node < graph.getNodeCount(); node++)
+            {
+                assertEquals(graph.lemma(node), mapped.lemma(node));
+                assertEquals(node, mapped.node(graph.lemma(node)));
+                assertTrue(Arrays.equals(graph.neighbours(node), mapped.neighbours(node)));
+            }
+            assertEquals(8.0f, mapped.weight(mapped.edge(mapped.node("fruit"), mapped.node("food"))));
+        }
+    }
+
+    public void testReverse()
+    {
+        HypernymGraph reversed = graph.reverse();
+        assertTrue(reversed.isReversed());
+        assertEquals(Arrays.asList("apple", "caf\u00e9"), lemmas(reversed.neighbours(reversed.node("company"))));
+        assertEquals(4.0f, reversed.weight(reversed.edge(reversed.node("fruit"), reversed.node("pear"))));
+    }
+
+    public void testDegrees()
+    {
+        int[] in = GraphAlgorithms.inDegrees(graph, 1);
+        assertEquals(2, in[graph.node("fruit")]);
+        assertEquals(2, in[graph.node("company")]);
+        assertEquals(0, in[graph.node("apple")]);
+        assertTrue(Arrays.equals(in, GraphAlgorithms.inDegrees(graph, 3)));
+        assertTrue(Arrays.equals(GraphAlgorithms.outDegrees(graph, 1), GraphAlgorithms.outDegrees(graph, 3)));
+    }
+
+    public void testPageRank()
+    {
+        double[] ranks = GraphAlgorithms.pageRank(graph, null, 0.85, false, 100, 1e-12, 1);
+        double sum = 0;
+        for (double rank : ranks)
+        {
+            sum += rank;
+        }
+        assertEquals(1.0, sum, 1e-9);
+        // food collects the rank of fruit, which collects the rank of apple and pear
+        assertTrue(ranks[graph.node("food")] > ranks[graph.node("fruit")]);
+        assertTrue(ranks[graph.node("fruit")] > ranks[graph.node("apple")]);
+        double[] parallel = GraphAlgorithms.pageRank(graph, graph.reverse(), 0.85, false, 100, 1e-12, 3);
+        for (int node = 0; node < ranks.length; node++)
+        {
+            assertEquals(ranks[node], parallel[node], 1e-12);
+        }
+        // weighted, apple passes most of its rank to fruit
+        double[] weighted = GraphAlgorithms.pageRank(graph, null, 0.85, true, 100, 1e-12, 1);
+        assertTrue(weighted[graph.node("fruit")] > ranks[graph.node("fruit")]);
+    }
+
+    public void testSharedExecutor()
+    {
+        ExecutorService executor = HypernymGraph.newExecutor(3);
+        try
+        {
+            for (int round = 0; round < 3; round++)
+            {
+                final int[] visits = new int[graph.getNodeCount()];
+                graph.forEachRange(3, executor, new HypernymGraph.RangeVisitor() {
+                    @Override
+                    public void visit(int from, int to)
+                    {
+                        for (int node = from; node < to; node++)
+                        {
+                            visits[node]++;
+                        }
+                    }
+                });
+                // each node is in exactly one range, the pool is still running after each call
+                for (int visit : visits)
+                {
+                    assertEquals(1, visit);
+                }
+                assertFalse(executor.isShutdown());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<String> lemmas(int[] nodes)
+    {
+        List<String> lemmas = new ArrayList<>();
+        for (int node : nodes)
+        {
+            lemmas.add(graph.lemma(node));
+        }
+        return lemmas;
+    }
+}
@@ -0,0 +1,49 @@
+package de.unima.webtuples.queries;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+/**
+ * Checks the routing of lemmas and provids to their collections and the refresh of CollectionCatalog.
+ */
+public class CollectionCatalogTest extends TestCase
+{
+    private DB db;
+    private CollectionCatalog catalog;
+
+    @Override
+    protected void setUp()
+    {
+        db = new Fongo("webisadb").getDB("tuplesdb");
+        for (String tablename : new String[]{"ipe", "iap", "i0x", "cfr", "s0", "s1"})
+        {
+            db.getCollection(tablename).insert(new BasicDBObject("x", 1));
+        }
+        catalog = new CollectionCatalog(db);
+    }
+
+    public void testRouting()
+    {
+        assertEquals(Arrays.asList("i0x", "iap", "ipe"), catalog.getCollections("i"));
+        assertEquals(Arrays.asList("s0", "s1"), catalog.getCollections("s"));
+        assertEquals("iap", catalog.getTupleCollection("i", "apple"));
+        assertEquals("i0x", catalog.getTupleCollection("i", "x-1"));
+        assertNull(catalog.getTupleCollection("c", "company"));
+        assertEquals("s1", catalog.getContextCollection("1000001"));
+        assertNull(catalog.getContextCollection("2000001"));
+    }
+
+    public void testRefresh()
+    {
+        assertFalse(catalog.contains("s2"));
+        db.getCollection("s2").insert(new BasicDBObject("x", 1));
+        // the names are only read again by refresh
+        assertNull(catalog.getContextCollection("2000001"));
+        catalog.refresh();
+        assertEquals("s2", catalog.getContextCollection("2000001"));
+        assertEquals(Arrays.asList("s0", "s1", "s2"), catalog.getCollections("s"));
+    }
+}
@@ -0,0 +1,137 @@
+package de.unima.webtuples.queries;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.client.MongoCursor;
+import de.unima.webtuples.datatypes.CoreTuple;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Checks that the filters sent to the server by CoreTupleQueryResultIterator return the same core tuples
+ * as the client side checks of next(), using Fongo as in-process MongoDB.
+ */
+public class CoreTupleQueryResultIteratorTest extends TestCase
+{
+    private DB db;
+
+    @Override
+    protected void setUp()
+    {
+        db = new Fongo("webisadb").getDB("tuplesdb");
+        insert("apple", "fruit", 11.0, 5, 3, "p1;p2;p3a;p5;", "example.org;google.com;wikipedia.org;");
+        insert("apple", "company", 5.0, 2, 2, "p2;p5;", "example.org;google.com;");
+        insert("apple", "tree", 2.0, 1, 1, "p21;", "myexample.org;");
+        insert("apricot", "fruit", 2.0, 1, 1, "p1;", "example.org;");
+    }
+
+    public void testThresholds()
+    {
+        assertSameResults("apple", "*", null, null, 0, 0, 0, 0, 0, 0, false, 3);
+        assertSameResults("apple", "*", null, null, 3, 0, 0, 0, 0, 0, false, 2);
+        assertSameResults("apple", "*", null, null, 0, 5, 2, 0, 0, 0, false, 1);
+        assertSameResults("*", "fruit", null, null, 0, 0, 0, 0, 2, 3, false, 1);
+    }
+
+    public void testPidsAndPlds()
+    {
+        // p1 is not the end of p21, nor example.org the end of myexample.org
+        assertSameResults("apple", "*", new String[]{"p1"}, null, 0, 0, 0, 0, 0, 0, false, 1);
+        assertSameResults("apple", "*", new String[]{"p1", "p2"}, null, 0, 0, 0, 0, 0, 0, false, 2);
+        assertSameResults("apple", "*", new String[]{"p1", "p2"}, null, 0, 0, 0, 0, 0, 0, true, 1);
+        assertSameResults("apple", "*", null, new String[]{"example.org"}, 0, 0, 0, 0, 0, 0, false, 2);
+        assertSameResults("*", "fruit", new String[]{"p1"}, new String[]{"wikipedia.org"}, 3, 0, 0, 0, 0, 0, false, 1);
+    }
+
+    public void testNumbersStoredAsStrings()
+    {
+        // $gte and $lte do not match strings, the pushed down ranges let them through to the client side checks
+        db.getCollection("iap").insert(new BasicDBObject("instance", "apple").append("class", "pie")
+                .append("frequency", "9.0").append("pidspread", "4").append("pldspread", "2").append("pids", "p1;").append("plds", "example.org;"));
+        db.getCollection("iap").insert(new BasicDBObject("instance", "apple").append("class", "juice")
+                .append("frequency", "1.0").append("pidspread", "1").append("pldspread", "1").append("pids", "p1;").append("plds", "example.org;"));
+        assertSameResults("apple", "*", null, null, 3, 0, 0, 0, 0, 0, false, 3);
+        assertSameResults("apple", "*", null, null, 0, 10, 3, 4, 0, 0, false, 1);
+        assertSameResults("apple", "*", null, null, 0, 0, 0, 0, 0, 0, false, 5);
+    }
+
+    public void testFlagFollowsTheCursor()
+    {
+        CoreTupleQueryResultIterator<List<CoreTuple>> pushed = iterator("apple", "*", new String[]{"p1"}, null, 0, 0, 0, 0, 0, 0, false, true);
+        pushed.buildQuery();
+        assertFalse(pushed.filtersPushedDown);
+        assertTrue(pushed.hasNext());
+        assertTrue(pushed.filtersPushedDown);
+        pushed.close();
+
+        CoreTupleQueryResultIterator<List<CoreTuple>> clientSide = iterator("apple", "*", new String[]{"p1"}, null, 0, 0, 0, 0, 0, 0, false, false);
+        assertTrue(clientSide.hasNext());
+        assertFalse(clientSide.filtersPushedDown);
+        clientSide.close();
+    }
+
+    private void assertSameResults(String instance, String clazz, String[] pids, String[] plds,
+            double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict, int expected)
+    {
+        List<String> pushed = collect(iterator(instance, clazz, pids, plds, minFrequency, maxFrequency,
+                minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict, true));
+        List<String> clientSide = collect(iterator(instance, clazz, pids, plds, minFrequency, maxFrequency,
+                minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict, false));
+        assertEquals(expected, pushed.size());
+        assertEquals(clientSide, pushed);
+    }
+
+    /**
+     * @param pushDown : false to send only the instance and class values, the filters are then checked by next()
+     */
+    private CoreTupleQueryResultIterator<List<CoreTuple>> iterator(String instance, String clazz, String[] pids, String[] plds,
+            double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict, boolean pushDown)
+    {
+        if (pushDown)
+        {
+            return new CoreTupleQueryResultIterator<List<CoreTuple>>(instance, clazz, db, pids, plds, minFrequency, maxFrequency,
+                    minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict);
+        }
+        return new CoreTupleQueryResultIterator<List<CoreTuple>>(instance, clazz, db, pids, plds, minFrequency, maxFrequency,
+                minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict) {
+            @Override
+            protected MongoCursor<?> openCursor(String tablename)
+            {
+                return database.getCollection(tablename, CoreTuple.class).find(lemmaQuery()).projection(fields()).iterator();
+            }
+        };
+    }
+
+    private static List<String> collect(CoreTupleQueryResultIterator<List<CoreTuple>> iterator)
+    {
+        List<String> results = new ArrayList<>();
+        try
+        {
+            while (iterator.hasNext())
+            {
+                for (CoreTuple tuple : iterator.next())
+                {
+                    results.add(tuple.getInstanceLemma() + " " + tuple.getClassLemma());
+                }
+            }
+        }
+        finally
+        {
+            iterator.close();
+        }
+        return results;
+    }
+
+    private void insert(String instance, String clazz, double frequency, int pidspread, int pldspread, String pids, String plds)
+    {
+        BasicDBObject document = new BasicDBObject("instance", instance).append("class", clazz)
+                .append("frequency", frequency).append("pidspread", pidspread).append("pldspread", pldspread)
+                .append("pids", pids).append("plds", plds);
+        db.getCollection("i" + instance.substring(0, 2)).insert(new BasicDBObject(document));
+        db.getCollection("c" + clazz.substring(0, 2)).insert(new BasicDBObject(document));
+    }
+}
@@ -0,0 +1,82 @@
+package de.unima.webtuples.queries;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import de.unima.webtuples.datatypes.Context;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import junit.framework.TestCase;
+
+/**
+ * Checks that the provids are routed to their own sentence collections, sequentially and in parallel.
+ */
+public class MultipleContextsResultIteratorTest extends TestCase
+{
+    private DB db;
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp()
+    {
+        db = new Fongo("webisadb").getDB("sentencesdb");
+        for (long provid = 0; provid < 5000000; provid += 250000)
+        {
+            db.getCollection("s" + provid / 1000000).insert(new BasicDBObject("provid", String.valueOf(provid))
+                    .append("pld", "example.org").append("sentence", "sentence " + provid));
+        }
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    public void testGroups()
+    {
+        Set<String> provids = new HashSet<>();
+        for (String provid : new String[]{"0", "250000", "1000000", "3750000", "3500000", "7000000", "42"})
+        {
+            provids.add(provid);
+        }
+        MultipleContextsResultIterator iterator = new MultipleContextsResultIterator(provids, db);
+        // s7 does not exist, 42 has no context
+        assertEquals(3, iterator.tablenames.size());
+        assertEquals(3, iterator.groups.get("s0").size());
+        List<String> sequential = collect(iterator);
+        assertEquals(5, sequential.size());
+        assertEquals(sequential, collect(new MultipleContextsResultIterator(provids, db, 0, executor)));
+    }
+
+    public void testLimit()
+    {
+        Set<String> provids = new HashSet<>();
+        for (long provid = 0; provid < 5000000; provid += 250000)
+        {
+            provids.add(String.valueOf(provid));
+        }
+        assertEquals(20, collect(new MultipleContextsResultIterator(provids, db)).size());
+        assertEquals(7, collect(new MultipleContextsResultIterator(provids, db, 7)).size());
+        assertEquals(7, collect(new MultipleContextsResultIterator(provids, db, 7, executor)).size());
+    }
+
+    private static List<String> collect(MultipleContextsResultIterator iterator)
+    {
+        List<String> sentences = new ArrayList<>();
+        while (iterator.hasNext())
+        {
+            Context context = iterator.next();
+            sentences.add(context.getProvid() + " " + context.getSentence());
+        }
+        iterator.close();
+        Collections.sort(sentences);
+        return sentences;
+    }
+}
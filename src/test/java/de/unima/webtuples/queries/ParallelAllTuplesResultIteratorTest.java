@@ -0,0 +1,40 @@
+package de.unima.webtuples.queries;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.DB;
+import com.mongodb.client.MongoCursor;
+import de.unima.webtuples.codecs.TupleList;
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+/**
+ * Checks that a failing table scan ends the parallel iterator with the failure instead of blocking the consumer.
+ */
+public class ParallelAllTuplesResultIteratorTest extends TestCase
+{
+    public void testErrorOfATaskIsRethrown()
+    {
+        DB db = new Fongo("webisadb").getDB("tuplesdb");
+        for (boolean ordered : new boolean[]{true, false})
+        {
+            ParallelAllTuplesResultIterator iterator = new ParallelAllTuplesResultIterator(db, Arrays.asList("iaa", "iab"), 2, ordered)
+            {
+                @Override
+                MongoCursor<TupleList> openCursor(String tablename)
+                {
+                    throw new StackOverflowError("scan of " + tablename);
+                }
+            };
+            try
+            {
+                iterator.hasNext();
+                fail("expected the error of the task");
+            }
+            catch (StackOverflowError e)
+            {
+                assertTrue(e.getMessage().startsWith("scan of"));
+            }
+            assertFalse(iterator.hasNext());
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package de.unima.webtuples.queries;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.datatypes.Tuple;
+import de.unima.webtuples.store.MongoTupleStore;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.management.MBeanServer;
+import junit.framework.TestCase;
+
+/**
+ * Checks the counters recorded by the iterators, their aggregation by QueryMetrics, the listeners and the MBeans,
+ * using Fongo as in-process MongoDB.
+ */
+public class QueryMetricsTest extends TestCase
+{
+    private DB db;
+    private final QueryMetrics metrics = new QueryMetrics("test");
+    private final List<QueryStats> finished = new ArrayList<>();
+    private final QueryListener listener = new QueryListener() {
+        @Override
+        public void queryFinished(QueryStats stats)
+        {
+            finished.add(stats);
+        }
+    };
+
+    @Override
+    protected void setUp()
+    {
+        db = new Fongo("webisadb").getDB("tuplesdb");
+        BasicDBList modifications = new BasicDBList();
+        modifications.add(modification("red", "p1;"));
+        modifications.add(modification("green", "p2;"));
+        modifications.add(modification("", "p1;"));
+        db.getCollection("iap").insert(new BasicDBObject("instance", "apple").append("class", "fruit")
+                .append("frequency", 3.0).append("pidspread", 2).append("pldspread", 1)
+                .append("pids", "p1;p2;").append("plds", "example.org;").append("modifications", modifications));
+        modifications = new BasicDBList();
+        modifications.add(modification("", "p2;"));
+        db.getCollection("ipe").insert(new BasicDBObject("instance", "pear").append("class", "fruit")
+                .append("frequency", 1.0).append("pidspread", 1).append("pldspread", 1)
+                .append("pids", "p2;").append("plds", "example.org;").append("modifications", modifications));
+        metrics.addListener(listener);
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        metrics.removeListener(listener);
+        metrics.unregisterMBeans();
+    }
+
+    public void testTupleQueryCounters()
+    {
+        TupleQueryResultIterator it = new TupleQueryResultIterator("apple", "*", db, "*", "*", "*", "*",
+                new String[]{"p1"}, null, 0, 0, 0, 0, 0, 0, false, false);
+        it.getStats().reportTo(metrics);
+        int results = 0;
+        while (it.hasNext())
+        {
+            results += it.next().size();
+        }
+        it.close();
+        QueryStats stats = it.getStats();
+        assertTrue(stats.isFinished());
+        assertEquals(QueryType.TUPLES, stats.getType());
+        assertEquals(2, results);
+        assertEquals(1, stats.getCollectionsOpened());
+        assertEquals(1, stats.getDocumentsScanned());
+        assertEquals(3, stats.getModificationsExamined());
+        assertEquals(2, stats.getResultsReturned());
+        assertEquals(2.0, stats.getSelectivity());
+        // reported once, although the iterator was exhausted and then closed
+        assertEquals(1, finished.size());
+        assertSame(stats, finished.get(0));
+        assertEquals(1, metrics.get(QueryType.TUPLES).getCount());
+        assertEquals(3, metrics.get(QueryType.TUPLES).getModificationsExamined());
+    }
+
+    public void testScanAndFlatIterator()
+    {
+        FlatResultIterator<Object> it = new FlatResultIterator<Object>(new AllTuplesResultIterator(db, "i"));
+        it.getStats().reportTo(metrics);
+        int tuples = 0;
+        while (it.hasNext())
+        {
+            it.next();
+            tuples++;
+        }
+        assertEquals(4, tuples);
+        assertEquals(4, it.getStats().getResultsReturned());
+        assertEquals(2, it.getStats().getDocumentsScanned());
+        assertTrue(it.getStats().isFinished());
+        assertEquals(1, metrics.get(QueryType.ALL_TUPLES).getCount());
+    }
+
+    public void testMBeans() throws Exception
+    {
+        metrics.registerMBeans();
+        // registering twice has no effect
+        metrics.registerMBeans();
+        CoreTupleQueryResultIterator<List<? extends CoreTuple>> it = new CoreTupleQueryResultIterator<>("apple", "*", db, null, null, 0, 0, 0, 0, 0, 0, false);
+        it.getStats().reportTo(metrics);
+        while (it.hasNext())
+        {
+            it.next();
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertEquals(1L, server.getAttribute(metrics.objectName(QueryType.CORE_TUPLES), "Count"));
+        assertEquals(1L, server.getAttribute(metrics.objectName(QueryType.CORE_TUPLES), "ResultsReturned"));
+        double p99 = (Double) server.getAttribute(metrics.objectName(QueryType.CORE_TUPLES), "P99LatencyMillis");
+        assertTrue(p99 > 0 && p99 <= metrics.get(QueryType.CORE_TUPLES).getMaxLatencyMillis());
+        server.invoke(metrics.objectName(QueryType.CORE_TUPLES), "reset", null, null);
+        assertEquals(0, metrics.get(QueryType.CORE_TUPLES).getCount());
+    }
+
+    public void testNotAttached()
+    {
+        CoreTupleQueryResultIterator<List<? extends CoreTuple>> it = new CoreTupleQueryResultIterator<>("apple", "*", db, null, null, 0, 0, 0, 0, 0, 0, false);
+        while (it.hasNext())
+        {
+            it.next();
+        }
+        assertTrue(it.getStats().isFinished());
+        assertEquals(0, finished.size());
+        // attached after the end, reported at once
+        it.getStats().reportTo(metrics);
+        assertEquals(1, metrics.get(QueryType.CORE_TUPLES).getCount());
+    }
+
+    public void testPerStore()
+    {
+        MongoTupleStore first = new MongoTupleStore(db, db);
+        MongoTupleStore second = new MongoTupleStore(db, db);
+        ResultIterator<List<Tuple>> it = first.getTuplesWhere("apple", "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false);
+        while (it.hasNext())
+        {
+            it.next();
+        }
+        assertEquals(1, first.getQueryMetrics().get(QueryType.TUPLES).getCount());
+        assertEquals(0, second.getQueryMetrics().get(QueryType.TUPLES).getCount());
+        first.getTuplesWhereInstanceLemmas(Arrays.asList("apple", "pear"));
+        assertEquals(1, first.getQueryMetrics().get(QueryType.BULK_LEMMAS).getCount());
+    }
+
+    public void testConcurrentQueries() throws InterruptedException
+    {
+        final QueryTypeMetrics tuples = metrics.get(QueryType.TUPLES);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++)
+        {
+            threads[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for (int i = 0; i < 10000; i++)
+                    {
+                        QueryStats stats = new QueryStats(QueryType.TUPLES);
+                        stats.resultsReturned(2);
+                        stats.finish();
+                        tuples.queryFinished(stats);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        assertEquals(40000, tuples.getCount());
+        assertEquals(80000, tuples.getResultsReturned());
+        assertTrue(tuples.getP99LatencyMillis() <= tuples.getMaxLatencyMillis());
+    }
+
+    private static BasicDBObject modification(String ipremod, String pids)
+    {
+        return new BasicDBObject("ipremod", ipremod).append("ipostmod", "").append("cpremod", "").append("cpostmod", "")
+                .append("frequency", 1.0).append("pidspread", 1).append("pldspread", 1)
+                .append("pids", pids).append("plds", "example.org;").append("provids", "1;");
+    }
+}
@@ -0,0 +1,35 @@
+package de.unima.webtuples.queries;
+
+import de.unima.webtuples.datatypes.CoreTuple;
+import de.unima.webtuples.datatypes.Dictionary;
+import junit.framework.TestCase;
+
+/**
+ * Checks that the pids and plds of a query are not added to the dictionaries, 
+ * and that they match the tuples decoded after the filter was created.
+ */
+public class TupleFilterTest extends TestCase
+{
+    public void testUnknownValuesAreNotAdded()
+    {
+        TupleFilter filter = new TupleFilter(new String[]{"never-seen-pid"}, new String[]{"never-seen.org"}, 0, 0, 0, 0, 0, 0, false);
+        CoreTuple t = new CoreTuple("apple", "fruit", 3.0, 2, 2, "p1;", "example.org;", "");
+        assertFalse(filter.matches(t));
+        assertEquals(-1, Dictionary.PIDS.find("never-seen-pid"));
+        assertEquals(-1, Dictionary.PLDS.find("never-seen.org"));
+    }
+
+    public void testValuesSeenLater()
+    {
+        TupleFilter any = new TupleFilter(new String[]{"p1", "later-pid"}, new String[]{"later.org"}, 0, 0, 0, 0, 0, 0, false);
+        TupleFilter strict = new TupleFilter(new String[]{"p1", "later-pid"}, null, 0, 0, 0, 0, 0, 0, true);
+        CoreTuple without = new CoreTuple("apple", "fruit", 3.0, 2, 2, "p1;", "example.org;", "");
+        assertFalse(any.matches(without));
+        assertFalse(strict.matches(without));
+        // decoding the tuple adds its values to the dictionaries
+        CoreTuple with = new CoreTuple("pear", "fruit", 3.0, 2, 2, "p1;later-pid;", "later.org;", "");
+        assertTrue(any.matches(with));
+        assertTrue(strict.matches(with));
+        assertFalse(strict.matches(without));
+    }
+}
@@ -0,0 +1,128 @@
+package de.unima.webtuples.queries;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import de.unima.webtuples.datatypes.Tuple;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Checks that the aggregation pipeline of TupleQueryResultIterator returns the same tuples
+ * as the client side filtering of the modifications, using Fongo as in-process MongoDB.
+ */
+public class TupleQueryResultIteratorTest extends TestCase
+{
+    private DB db;
+
+    @Override
+    protected void setUp()
+    {
+        db = new Fongo("webisadb").getDB("tuplesdb");
+        BasicDBList modifications = new BasicDBList();
+        modifications.add(modification("red", "", "", "", 3.0, 2, 1, "p1;p2;", "example.org;"));
+        modifications.add(modification("", "from portugal", "", "", 1.0, 1, 1, "p3a;", "google.com;"));
+        modifications.add(modification("green", "", "sweet", "", 7.0, 3, 2, "p1;p3a;p5;", "google.com;wikipedia.org;"));
+        insert("apple", "fruit", 11.0, 5, 3, "p1;p2;p3a;p5;", "example.org;google.com;wikipedia.org;", modifications);
+
+        modifications = new BasicDBList();
+        modifications.add(modification("", "", "big", "", 5.0, 2, 2, "p2;p5;", "example.org;google.com;"));
+        insert("apple", "company", 5.0, 2, 2, "p2;p5;", "example.org;google.com;", modifications);
+
+        modifications = new BasicDBList();
+        modifications.add(modification("", "", "", "", 2.0, 1, 1, "p1;", "example.org;"));
+        insert("apricot", "fruit", 2.0, 1, 1, "p1;", "example.org;", modifications);
+    }
+
+    public void testAllModifications()
+    {
+        assertSameResults("apple", "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false, 4);
+    }
+
+    public void testModifiers()
+    {
+        assertSameResults("apple", "fruit", "red", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false, 1);
+        assertSameResults("apple", "*", "", "*", "*", "", null, null, 0, 0, 0, 0, 0, 0, false, 2);
+        assertSameResults("*", "fruit", "*", "*", "sweet", "*", null, null, 0, 0, 0, 0, 0, 0, false, 1);
+    }
+
+    public void testThresholds()
+    {
+        assertSameResults("apple", "*", "*", "*", "*", "*", null, null, 3, 0, 0, 0, 0, 0, false, 3);
+        assertSameResults("apple", "*", "*", "*", "*", "*", null, null, 0, 5, 2, 0, 0, 0, false, 2);
+        assertSameResults("*", "fruit", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 2, 2, false, 1);
+    }
+
+    public void testPidsAndPlds()
+    {
+        assertSameResults("apple", "*", "*", "*", "*", "*", new String[]{"p1", "p2"}, null, 0, 0, 0, 0, 0, 0, false, 3);
+        assertSameResults("apple", "*", "*", "*", "*", "*", null, new String[]{"google.com"}, 0, 0, 0, 0, 0, 0, false, 3);
+        assertSameResults("*", "fruit", "*", "*", "*", "*", new String[]{"p1"}, new String[]{"wikipedia.org"}, 0, 0, 0, 0, 0, 0, false, 1);
+        assertSameResults("apple", "*", "*", "*", "*", "*", new String[]{"p9"}, null, 0, 0, 0, 0, 0, 0, false, 0);
+        // a pid is matched as a whole value, "3a" is not "p3a"
+        assertSameResults("apple", "*", "*", "*", "*", "*", new String[]{"3a"}, null, 0, 0, 0, 0, 0, 0, false, 0);
+        assertSameResults("apple", "*", "*", "*", "*", "*", new String[]{"p3a"}, null, 0, 0, 0, 0, 0, 0, false, 2);
+        assertSameResults("apple", "*", "*", "*", "*", "*", new String[]{"p1", "p5"}, new String[]{"google.com"}, 0, 0, 0, 0, 0, 0, true, 1);
+    }
+
+    public void testNumbersStoredAsStrings()
+    {
+        BasicDBList modifications = new BasicDBList();
+        modifications.add(new BasicDBObject("ipremod", "").append("ipostmod", "").append("cpremod", "").append("cpostmod", "")
+                .append("frequency", "4.0").append("pidspread", "2").append("pldspread", "1")
+                .append("pids", "p1;").append("plds", "example.org;").append("provids", "3;"));
+        modifications.add(new BasicDBObject("ipremod", "").append("ipostmod", "").append("cpremod", "").append("cpostmod", "")
+                .append("frequency", "1.0").append("pidspread", "1").append("pldspread", "1")
+                .append("pids", "p1;").append("plds", "example.org;").append("provids", "4;"));
+        insert("apricot", "stone", 5.0, 2, 1, "p1;", "example.org;", modifications);
+        assertSameResults("apricot", "*", "*", "*", "*", "*", null, null, 3, 0, 0, 0, 0, 0, false, 1);
+        assertSameResults("apricot", "*", "*", "*", "*", "*", null, null, 0, 1.5, 0, 0, 0, 0, false, 1);
+    }
+
+    private void assertSameResults(String instance, String clazz, String iPreModifier, String iPostModifier, String cPreModifier, String cPostModifier,
+            String[] pids, String[] plds, double minFrequency, double maxFrequency, int minPidSpread, int maxPidSpread,
+            int minPldSpread, int maxPldSpread, boolean strict, int expected)
+    {
+        List<String> clientSide = collect(new TupleQueryResultIterator(instance, clazz, db, iPreModifier, iPostModifier, cPreModifier, cPostModifier,
+                pids, plds, minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict, false));
+        List<String> serverSide = collect(new TupleQueryResultIterator(instance, clazz, db, iPreModifier, iPostModifier, cPreModifier, cPostModifier,
+                pids, plds, minFrequency, maxFrequency, minPidSpread, maxPidSpread, minPldSpread, maxPldSpread, strict, true));
+        assertEquals(expected, clientSide.size());
+        assertEquals(clientSide, serverSide);
+    }
+
+    private static List<String> collect(TupleQueryResultIterator iterator)
+    {
+        List<String> results = new ArrayList<>();
+        while (iterator.hasNext())
+        {
+            for (Tuple t : iterator.next())
+            {
+                results.add(t.toString());
+            }
+        }
+        iterator.close();
+        return results;
+    }
+
+    private void insert(String instance, String clazz, double frequency, int pidspread, int pldspread, String pids, String plds,
+            BasicDBList modifications)
+    {
+        BasicDBObject document = new BasicDBObject("instance", instance).append("class", clazz)
+                .append("frequency", frequency).append("pidspread", pidspread).append("pldspread", pldspread)
+                .append("pids", pids).append("plds", plds).append("modifications", modifications);
+        db.getCollection("i" + instance.substring(0, 2)).insert(new BasicDBObject(document));
+        db.getCollection("c" + clazz.substring(0, 2)).insert(new BasicDBObject(document));
+    }
+
+    private static BasicDBObject modification(String ipremod, String ipostmod, String cpremod, String cpostmod,
+            double frequency, int pidspread, int pldspread, String pids, String plds)
+    {
+        return new BasicDBObject("ipremod", ipremod).append("ipostmod", ipostmod)
+                .append("cpremod", cpremod).append("cpostmod", cpostmod)
+                .append("frequency", frequency).append("pidspread", pidspread).append("pldspread", pldspread)
+                .append("pids", pids).append("plds", plds).append("provids", "1;2;");
+    }
+}
@@ -0,0 +1,79 @@
+package de.unima.webtuples.store;
+
+import com.github.fakemongo.Fongo;
+import de.unima.webtuples.datatypes.Tuple;
+import de.unima.webtuples.queries.BulkLemmaQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import junit.framework.TestCase;
+
+/**
+ * Checks that the bulk lookup of MongoTupleStore, grouping the lemmas by collection, returns the same tuples
+ * as one getTuplesWhere for each lemma (the default implementation used by InMemoryTupleStore).
+ */
+public class BulkLemmaLookupTest extends TestCase
+{
+    private static final List<String> LEMMAS = Arrays.asList("pear", "apple", "banana", "apricot", "apple", "");
+
+    private MongoTupleStore mongo;
+    private InMemoryTupleStore memory;
+
+    @Override
+    protected void setUp()
+    {
+        Fongo fongo = new Fongo("webisadb");
+        mongo = new MongoTupleStore(fongo.getDB("tuplesdb"), fongo.getDB("sentencesdb"));
+        TestData.fill(mongo.getTuplesDb(), mongo.getContextsDb());
+        InMemoryTupleStore.Builder builder = new InMemoryTupleStore.Builder();
+        mongo.copyTuples(builder);
+        memory = builder.build();
+    }
+
+    public void testSameTuplesAsSingleLookups()
+    {
+        Map<String, List<String>> expected = toStrings(memory.getTuplesWhereInstanceLemmas(LEMMAS));
+        assertEquals(Arrays.asList("pear", "apple", "banana", "apricot", ""), new ArrayList<>(expected.keySet()));
+        assertEquals(4, expected.get("apple").size());
+        assertTrue(expected.get("banana").isEmpty());
+        assertEquals(expected, toStrings(mongo.getTuplesWhereInstanceLemmas(LEMMAS)));
+    }
+
+    public void testParallelAndBatches() throws Exception
+    {
+        Map<String, List<String>> expected = toStrings(mongo.getTuplesWhereInstanceLemmas(LEMMAS));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            assertEquals(expected, toStrings(mongo.getTuplesWhereInstanceLemmas(LEMMAS, executor)));
+            // apple and apricot share the collection iap, with batches of one lemma it is queried twice
+            assertEquals(expected, toStrings(new BulkLemmaQuery(mongo.getTuplesCatalog(), "i", 1).run(LEMMAS, executor)));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static Map<String, List<String>> toStrings(Map<String, List<Tuple>> results)
+    {
+        Map<String, List<String>> strings = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Tuple>> entry : results.entrySet())
+        {
+            List<String> tuples = new ArrayList<>();
+            for (Tuple t : entry.getValue())
+            {
+                tuples.add(t.toString());
+            }
+            // the stores keep the core tuples of a lemma in different orders
+            Collections.sort(tuples);
+            strings.put(entry.getKey(), tuples);
+        }
+        return strings;
+    }
+}
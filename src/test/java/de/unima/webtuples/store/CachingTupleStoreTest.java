@@ -0,0 +1,204 @@
+package de.unima.webtuples.store;
+
+import com.github.fakemongo.Fongo;
+import de.unima.webtuples.datatypes.Context;
+import de.unima.webtuples.queries.ResultIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import junit.framework.TestCase;
+
+/**
+ * Checks the hits, the weight bound, the expiration, the TinyLFU admission and the context cache of CachingTupleStore
+ * on an InMemoryTupleStore copied from the Fongo test data.
+ */
+public class CachingTupleStoreTest extends TestCase
+{
+    private MongoTupleStore mongo;
+    private InMemoryTupleStore memory;
+
+    @Override
+    protected void setUp()
+    {
+        Fongo fongo = new Fongo("webisadb");
+        mongo = new MongoTupleStore(fongo.getDB("tuplesdb"), fongo.getDB("sentencesdb"));
+        TestData.fill(mongo.getTuplesDb(), mongo.getContextsDb());
+        InMemoryTupleStore.Builder builder = new InMemoryTupleStore.Builder();
+        mongo.copyTuples(builder);
+        memory = builder.build();
+    }
+
+    public void testHits()
+    {
+        CachingTupleStore cache = new CachingTupleStore.Builder(mongo).build();
+        InMemoryTupleStoreTest.assertSameResults(3, memory.getTuplesWhere("apple", "*", "*", "*", "*", "*", new String[]{"p1", "p2"}, null, 0, 0, 0, 0, 0, 0, false),
+                cache.getTuplesWhere("apple", "*", "*", "*", "*", "*", new String[]{"p1", "p2"}, null, 0, 0, 0, 0, 0, 0, false));
+        // the pids are normalized, the order does not matter
+        InMemoryTupleStoreTest.assertSameResults(3, memory.getTuplesWhere("apple", "*", "*", "*", "*", "*", new String[]{"p1", "p2"}, null, 0, 0, 0, 0, 0, 0, false),
+                cache.getTuplesWhere("apple", "*", "*", "*", "*", "*", new String[]{"p2", "p1", "p2"}, null, 0, 0, 0, 0, 0, 0, false));
+        InMemoryTupleStoreTest.assertSameResults(2, memory.getCoreTuplesWhere("apple", "*", null, null, 0, 0, 0, 0, 0, 0, false),
+                cache.getCoreTuplesWhere("apple", "*", null, null, 0, 0, 0, 0, 0, 0, false));
+        CachingTupleStore.Stats stats = cache.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(2, stats.getEntryCount());
+        assertTrue(stats.getWeight() > 0);
+    }
+
+    public void testBypass()
+    {
+        CachingTupleStore cache = new CachingTupleStore.Builder(mongo).maximumEntryWeight(1).build();
+        for (int i = 0; i < 2; i++)
+        {
+            InMemoryTupleStoreTest.assertSameResults(6, memory.getTuplesWhere("*", "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false),
+                    cache.getTuplesWhere("*", "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false));
+        }
+        assertEquals(2, cache.getStats().getBypassCount());
+        assertEquals(0, cache.getStats().getEntryCount());
+    }
+
+    public void testEviction()
+    {
+        long appleWeight = weight("apple");
+        CachingTupleStore cache = new CachingTupleStore.Builder(mongo).maximumWeight(appleWeight).maximumEntryWeight(appleWeight).build();
+        query(cache, "apple");
+        query(cache, "pear");
+        query(cache, "apple");
+        CachingTupleStore.Stats stats = cache.getStats();
+        assertEquals(0, stats.getHitCount());
+        assertEquals(2, stats.getEvictionCount());
+        assertTrue(stats.getWeight() <= appleWeight);
+    }
+
+    public void testExpiration()
+    {
+        final AtomicLong time = new AtomicLong();
+        CachingTupleStore cache = new CachingTupleStore.Builder(mongo).expireAfterWrite(1, TimeUnit.MINUTES).ticker(time::get).build();
+        query(cache, "apple");
+        time.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        query(cache, "apple");
+        time.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        query(cache, "apple");
+        CachingTupleStore.Stats stats = cache.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getExpirationCount());
+        assertEquals(1, stats.getEntryCount());
+    }
+
+    public void testTinyLfuKeepsFrequentEntries()
+    {
+        long appleWeight = weight("apple");
+        CachingTupleStore cache = new CachingTupleStore.Builder(mongo).maximumWeight(appleWeight).maximumEntryWeight(appleWeight)
+                .policy(CachingTupleStore.Policy.TINY_LFU).build();
+        for (int i = 0; i < 5; i++)
+        {
+            query(cache, "apple");
+        }
+        // requested once, pear is not admitted
+        query(cache, "pear");
+        query(cache, "apple");
+        CachingTupleStore.Stats stats = cache.getStats();
+        assertEquals(5, stats.getHitCount());
+        assertEquals(1, stats.getRejectionCount());
+        assertEquals(0, stats.getEvictionCount());
+    }
+
+    public void testContexts()
+    {
+        CachingTupleStore cache = new CachingTupleStore.Builder(mongo).maximumContextBytes(1 << 20).build();
+        ContextCache contexts = cache.getContextCache();
+        assertEquals(Arrays.asList("1 red apples are fruits", "2 apples such as red ones"),
+                sentences(cache.getMultipleContextsWithProvid(new HashSet<>(Arrays.asList("1", "2")), 0)));
+        assertEquals(2, contexts.getMissCount());
+        // only 3 and 99 are read from the store, 99 has no contexts
+        assertEquals(Arrays.asList("1 red apples are fruits", "1000001 sweet fruits like green apples", "2 apples such as red ones"),
+                sentences(cache.getMultipleContextsWithProvid(new HashSet<>(Arrays.asList("1", "2", "1000001", "99")), 0)));
+        assertEquals(2, contexts.getHitCount());
+        assertEquals(4, contexts.getMissCount());
+        // 99 is not cached as empty
+        assertEquals(3, contexts.getEntryCount());
+        assertEquals(Collections.emptyList(), sentences(cache.getContextWithProvid("99")));
+        assertEquals(1, sentences(cache.getMultipleContextsWithProvid(new HashSet<>(Arrays.asList("1", "2")), 1)).size());
+        assertEquals(4, contexts.getHitCount());
+        assertEquals(5, contexts.getMissCount());
+    }
+
+    public void testContextsNormalizedProvids()
+    {
+        CachingTupleStore cache = new CachingTupleStore.Builder(mongo).maximumContextBytes(1 << 20).build();
+        ContextCache contexts = cache.getContextCache();
+        assertEquals(Arrays.asList("2 apples such as red ones"), sentences(cache.getContextWithProvid("2")));
+        // the same provid written differently is a hit
+        assertEquals(Arrays.asList("2 apples such as red ones"), sentences(cache.getContextWithProvid(" 02")));
+        assertEquals(1, contexts.getHitCount());
+        assertEquals(1, contexts.getEntryCount());
+        assertEquals("2", ContextCache.normalize(" 02 "));
+        assertEquals("abc", ContextCache.normalize(" abc"));
+    }
+
+    public void testForwarded()
+    {
+        CachingTupleStore cache = new CachingTupleStore.Builder(mongo).build();
+        assertEquals(mongo.getTuplesWhereInstanceLemmas(Arrays.asList("apple", "pear")).toString(),
+                cache.getTuplesWhereInstanceLemmas(Arrays.asList("apple", "pear")).toString());
+        assertEquals(Collections.singletonMap("fruit", 1), cache.getAncestors("pear", 3, null));
+        // answered by the bulk query and the memoized closure of the store, not by lookups through the cache
+        assertEquals(0, cache.getStats().getMissCount());
+        assertTrue(mongo.getHypernymClosure().getCacheSize() > 0);
+    }
+
+    public void testContextsEviction()
+    {
+        CachingTupleStore cache = new CachingTupleStore.Builder(mongo).maximumContextBytes(150).build();
+        for (String provid : Arrays.asList("1", "2", "3", "1"))
+        {
+            assertEquals(1, sentences(cache.getContextWithProvid(provid)).size());
+        }
+        ContextCache contexts = cache.getContextCache();
+        assertEquals(0, contexts.getHitCount());
+        assertEquals(3, contexts.getEvictionCount());
+        assertTrue(contexts.getBytes() <= 150);
+    }
+
+    public void testContextsWithoutPldsOrSentence()
+    {
+        ContextCache contexts = new ContextCache(1 << 20);
+        contexts.putAll(Arrays.asList("5"), Arrays.asList(new Context("5", null, "a sentence"), new Context("5", "example.org", null)));
+        List<Context> found = new ArrayList<>();
+        assertEquals(Collections.emptyList(), contexts.getAll(Arrays.asList("5"), found));
+        assertEquals(2, found.size());
+        assertNull(found.get(0).getPlds());
+        assertEquals("a sentence", found.get(0).getSentence());
+        assertEquals("example.org", found.get(1).getPlds());
+        assertNull(found.get(1).getSentence());
+    }
+
+    private static List<String> sentences(ResultIterator<Context> iterator)
+    {
+        List<String> sentences = new ArrayList<>();
+        while (iterator.hasNext())
+        {
+            Context context = iterator.next();
+            sentences.add(context.getProvid() + " " + context.getSentence());
+        }
+        iterator.close();
+        Collections.sort(sentences);
+        return sentences;
+    }
+
+    private long weight(String instance)
+    {
+        CachingTupleStore cache = new CachingTupleStore.Builder(mongo).build();
+        query(cache, instance);
+        return cache.getStats().getWeight();
+    }
+
+    private static void query(CachingTupleStore cache, String instance)
+    {
+        InMemoryTupleStoreTest.collect(cache.getTuplesWhere(instance, "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false));
+    }
+}
@@ -0,0 +1,177 @@
+package de.unima.webtuples.store;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.DB;
+import de.unima.webtuples.queries.HypernymClosure;
+import de.unima.webtuples.queries.QueryStats;
+import de.unima.webtuples.queries.TupleFilter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import junit.framework.TestCase;
+
+/**
+ * Checks the transitive closures of MongoTupleStore, expanding each level with one query per collection,
+ * against the default implementation running one lookup per node (used by InMemoryTupleStore).
+ */
+public class HypernymClosureTest extends TestCase
+{
+    private MongoTupleStore mongo;
+    private InMemoryTupleStore memory;
+
+    @Override
+    protected void setUp()
+    {
+        Fongo fongo = new Fongo("webisadb");
+        mongo = new MongoTupleStore(fongo.getDB("tuplesdb"), fongo.getDB("sentencesdb"));
+        DB db = mongo.getTuplesDb();
+        TestData.insert(db, "apple", "fruit", 11.0, 5);
+        TestData.insert(db, "apple", "company", 2.0, 1);
+        TestData.insert(db, "pear", "fruit", 4.0, 2);
+        TestData.insert(db, "fruit", "food", 8.0, 3);
+        TestData.insert(db, "company", "organization", 6.0, 4);
+        TestData.insert(db, "food", "substance", 3.0, 2);
+        // a cycle back to fruit
+        TestData.insert(db, "substance", "fruit", 1.0, 1);
+        InMemoryTupleStore.Builder builder = new InMemoryTupleStore.Builder();
+        mongo.copyTuples(builder);
+        memory = builder.build();
+    }
+
+    public void testAncestors()
+    {
+        Map<String, Integer> expected = depths("fruit", 1, "company", 1, "food", 2, "organization", 2, "substance", 3);
+        assertEquals(expected, mongo.getAncestors("apple", 10, null));
+        assertEquals(expected, memory.getAncestors("apple", 10, null));
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(mongo.getAncestors("apple", 10, null).keySet()));
+        assertTrue(mongo.getAncestors("banana", 10, null).isEmpty());
+    }
+
+    public void testMaxDepth()
+    {
+        assertEquals(depths("fruit", 1, "company", 1), mongo.getAncestors("apple", 1, null));
+        assertEquals(depths("fruit", 1, "company", 1, "food", 2, "organization", 2), mongo.getAncestors("apple", 2, null));
+        // the memoized closure of depth 2 does not hide the nodes beyond it
+        assertEquals(depths("fruit", 1, "company", 1, "food", 2, "organization", 2, "substance", 3), mongo.getAncestors("apple", 3, null));
+        assertTrue(mongo.getAncestors("apple", 0, null).isEmpty());
+    }
+
+    public void testShrinkingDepth()
+    {
+        // the complete closure of fruit is memoized, then spliced into shallower walks
+        assertEquals(depths("food", 1, "substance", 2), mongo.getAncestors("fruit", 10, null));
+        assertEquals(depths("fruit", 1, "company", 1, "food", 2, "organization", 2), mongo.getAncestors("apple", 2, null));
+        assertEquals(depths("food", 1), mongo.getAncestors("fruit", 1, null));
+        assertEquals(depths("fruit", 1, "company", 1), mongo.getAncestors("apple", 1, null));
+        // the truncated walks are not memoized as complete
+        assertEquals(depths("fruit", 1, "company", 1, "food", 2, "organization", 2, "substance", 3), mongo.getAncestors("apple", 10, null));
+
+        // the closure of depth 2 of apple is memoized, then a walk of depth 1 starts from it
+        assertEquals(depths("fruit", 1, "company", 1, "food", 2, "organization", 2), memory.getAncestors("apple", 2, null));
+        HypernymClosure closure = new LookupHypernymClosure(memory, 1000);
+        closure.ancestors("apple", 2, null);
+        assertEquals(depths("fruit", 1, "company", 1), closure.ancestors("apple", 1, null));
+        assertEquals(depths("fruit", 1, "company", 1, "food", 2, "organization", 2), closure.ancestors("apple", 2, null));
+    }
+
+    public void testCycle()
+    {
+        // the walk comes back to fruit and ends
+        assertEquals(depths("food", 1, "substance", 2), mongo.getAncestors("fruit", 10, null));
+        assertEquals(depths("food", 1, "substance", 2), memory.getAncestors("fruit", 10, null));
+    }
+
+    public void testFilterPrunes()
+    {
+        TupleFilter filter = new TupleFilter(null, null, 3, 0, 2, 0, 0, 0, false);
+        // apple isa company and substance isa fruit are too rare
+        Map<String, Integer> expected = depths("fruit", 1, "food", 2, "substance", 3);
+        assertEquals(expected, mongo.getAncestors("apple", 10, filter));
+        assertEquals(expected, memory.getAncestors("apple", 10, filter));
+        // the closures of different filters are memoized separately
+        assertEquals(5, mongo.getAncestors("apple", 10, null).size());
+    }
+
+    public void testDescendants()
+    {
+        // food is an instance of fruit again through the cycle
+        Map<String, Integer> expected = depths("apple", 1, "pear", 1, "substance", 1, "food", 2);
+        assertEquals(expected, mongo.getDescendants("fruit", 10, null));
+        assertEquals(expected, memory.getDescendants("fruit", 10, null));
+        assertEquals(depths("company", 1, "apple", 2), mongo.getDescendants("organization", 10, null));
+    }
+
+    public void testMemoized()
+    {
+        mongo.getAncestors("apple", 10, null);
+        QueryStats first = mongo.getHypernymClosure().getStats();
+        assertTrue(first.getCollectionsOpened() > 0);
+        assertEquals(5, first.getResultsReturned());
+
+        assertEquals(depths("food", 1, "substance", 2), mongo.getAncestors("fruit", 10, null));
+        assertEquals(0, mongo.getHypernymClosure().getStats().getCollectionsOpened());
+
+        // pear reaches fruit, whose closure is spliced in
+        assertEquals(depths("fruit", 1, "food", 2, "substance", 3), mongo.getAncestors("pear", 10, null));
+        assertEquals(1, mongo.getHypernymClosure().getStats().getCollectionsOpened());
+
+        mongo.refreshCatalogs();
+        assertEquals(0, mongo.getHypernymClosure().getCacheSize());
+    }
+
+    public void testWeightBound()
+    {
+        final int[] expanded = new int[1];
+        // a chain 0 isa 1 isa 2 ..., the direct closure of each node weighs 2
+        HypernymClosure chain = new HypernymClosure(32)
+        {
+            @Override
+            protected Map<String, Set<String>> expand(List<String> lemmas, boolean up, TupleFilter filter, QueryStats stats)
+            {
+                expanded[0] += lemmas.size();
+                Map<String, Set<String>> neighbours = new LinkedHashMap<>();
+                for (String lemma : lemmas)
+                {
+                    neighbours.put(lemma, Collections.singleton(String.valueOf(Integer.parseInt(lemma) + 1)));
+                }
+                return neighbours;
+            }
+        };
+        assertEquals(100, chain.ancestors("0", 100, null).size());
+        assertEquals(100, expanded[0]);
+        // the walk itself weighs 101, more than a sixteenth of the maximum, the least recently used nodes were removed
+        assertEquals(32, chain.getCacheWeight());
+        assertEquals(16, chain.getCacheSize());
+
+        expanded[0] = 0;
+        assertEquals(10, chain.ancestors("90", 10, null).size());
+        assertEquals(0, expanded[0]);
+        chain.ancestors("0", 3, null);
+        assertEquals(3, expanded[0]);
+        assertTrue(chain.getCacheWeight() <= 32);
+
+        chain.clearCache();
+        assertEquals(0, chain.getCacheWeight());
+    }
+
+    public void testOneClosurePerStore()
+    {
+        assertSame(LookupHypernymClosure.of(memory), LookupHypernymClosure.of(memory));
+        InMemoryTupleStore other = new InMemoryTupleStore.Builder().build();
+        assertNotSame(LookupHypernymClosure.of(memory), LookupHypernymClosure.of(other));
+        assertTrue(other.getAncestors("apple", 10, null).isEmpty());
+    }
+
+    private static Map<String, Integer> depths(Object... entries)
+    {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        for (int i = 0; i < entries.length; i += 2)
+        {
+            depths.put((String) entries[i], (Integer) entries[i + 1]);
+        }
+        return depths;
+    }
+}
@@ -0,0 +1,132 @@
+package de.unima.webtuples.store;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.DB;
+import de.unima.webtuples.datatypes.Context;
+import de.unima.webtuples.queries.ResultIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Checks that InMemoryTupleStore returns the same results as MongoTupleStore on a Fongo database
+ * from which it was copied.
+ */
+public class InMemoryTupleStoreTest extends TestCase
+{
+    private DB tuplesDb;
+    private DB contextsDb;
+    private MongoTupleStore mongo;
+    private InMemoryTupleStore memory;
+
+    @Override
+    protected void setUp()
+    {
+        Fongo fongo = new Fongo("webisadb");
+        tuplesDb = fongo.getDB("tuplesdb");
+        contextsDb = fongo.getDB("sentencesdb");
+
+        TestData.fill(tuplesDb, contextsDb);
+
+        mongo = new MongoTupleStore(tuplesDb, contextsDb);
+        InMemoryTupleStore.Builder builder = new InMemoryTupleStore.Builder();
+        mongo.copyTuples(builder);
+        mongo.copyContexts(builder);
+        memory = builder.build();
+    }
+
+    public void testCopy()
+    {
+        assertEquals(4, memory.getCoreTupleCount());
+        assertEquals(6, memory.getTupleCount());
+    }
+
+    public void testAllTuples()
+    {
+        assertSameResults(6, mongo.getAllTuples(), memory.getAllTuples());
+    }
+
+    public void testCoreTuples()
+    {
+        assertSameResults(2, mongo.getCoreTuplesWhere("apple", "*", null, null, 0, 0, 0, 0, 0, 0, false),
+                memory.getCoreTuplesWhere("apple", "*", null, null, 0, 0, 0, 0, 0, 0, false));
+        assertSameResults(3, mongo.getCoreTuplesWhere("*", "fruit", null, null, 0, 0, 0, 0, 0, 0, false),
+                memory.getCoreTuplesWhere("*", "fruit", null, null, 0, 0, 0, 0, 0, 0, false));
+        assertSameResults(1, mongo.getCoreTuplesWhere("apple", "company", null, null, 0, 0, 0, 0, 0, 0, false),
+                memory.getCoreTuplesWhere("apple", "company", null, null, 0, 0, 0, 0, 0, 0, false));
+        assertSameResults(2, mongo.getCoreTuplesWhere("*", "fruit", new String[]{"p1"}, null, 2, 0, 0, 0, 0, 0, false),
+                memory.getCoreTuplesWhere("*", "fruit", new String[]{"p1"}, null, 2, 0, 0, 0, 0, 0, false));
+        assertSameResults(0, mongo.getCoreTuplesWhere("banana", "*", null, null, 0, 0, 0, 0, 0, 0, false),
+                memory.getCoreTuplesWhere("banana", "*", null, null, 0, 0, 0, 0, 0, 0, false));
+    }
+
+    public void testTuples()
+    {
+        assertSameResults(4, mongo.getTuplesWhere("apple", "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false),
+                memory.getTuplesWhere("apple", "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false));
+        assertSameResults(1, mongo.getTuplesWhere("*", "fruit", "*", "*", "sweet", "*", null, null, 0, 0, 0, 0, 0, 0, false),
+                memory.getTuplesWhere("*", "fruit", "*", "*", "sweet", "*", null, null, 0, 0, 0, 0, 0, 0, false));
+        assertSameResults(1, mongo.getTuplesWhere("*", "fruit", "*", "*", "*", "*", new String[]{"p1", "p5"}, null, 0, 0, 0, 0, 0, 0, true),
+                memory.getTuplesWhere("*", "fruit", "*", "*", "*", "*", new String[]{"p1", "p5"}, null, 0, 0, 0, 0, 0, 0, true));
+        assertSameResults(2, mongo.getTuplesWhere("apple", "*", "*", "*", "*", "*", null, null, 0, 5, 2, 0, 0, 0, false),
+                memory.getTuplesWhere("apple", "*", "*", "*", "*", "*", null, null, 0, 5, 2, 0, 0, 0, false));
+    }
+
+    public void testWholeValues()
+    {
+        // "p3" and "e.com" are substrings of "p3a;" and "google.com;", but not values of the lists
+        assertSameResults(0, mongo.getCoreTuplesWhere("*", "*", new String[]{"p3"}, null, 0, 0, 0, 0, 0, 0, false),
+                memory.getCoreTuplesWhere("*", "*", new String[]{"p3"}, null, 0, 0, 0, 0, 0, 0, false));
+        assertSameResults(0, mongo.getCoreTuplesWhere("*", "*", null, new String[]{"e.com"}, 0, 0, 0, 0, 0, 0, false),
+                memory.getCoreTuplesWhere("*", "*", null, new String[]{"e.com"}, 0, 0, 0, 0, 0, 0, false));
+        assertSameResults(1, mongo.getCoreTuplesWhere("*", "*", new String[]{"p3a"}, new String[]{"google.com"}, 0, 0, 0, 0, 0, 0, true),
+                memory.getCoreTuplesWhere("*", "*", new String[]{"p3a"}, new String[]{"google.com"}, 0, 0, 0, 0, 0, 0, true));
+    }
+
+    public void testContexts()
+    {
+        assertSameResults(1, mongo.getContextWithProvid("3"), memory.getContextWithProvid("3"));
+        assertSameResults(3, mongo.getMultipleContextsWithProvid(new HashSet<>(Arrays.asList("1", "3", "1000001", "7")), 0),
+                memory.getMultipleContextsWithProvid(new HashSet<>(Arrays.asList("1", "3", "1000001", "7")), 0));
+        assertEquals(2, collect(memory.getMultipleContextsWithProvid(new HashSet<>(Arrays.asList("1", "2", "3")), 2)).size());
+        assertEquals(2, collect(mongo.getMultipleContextsWithProvid(new HashSet<>(Arrays.asList("1", "2", "3")), 2)).size());
+    }
+
+    static void assertSameResults(int expected, ResultIterator<?> mongoResults, ResultIterator<?> memoryResults)
+    {
+        List<String> fromMongo = collect(mongoResults);
+        List<String> fromMemory = collect(memoryResults);
+        assertEquals(expected, fromMemory.size());
+        assertEquals(fromMongo, fromMemory);
+    }
+
+    /**
+     * @return the string representation of the results, sorted as the stores use different orders
+     */
+    static List<String> collect(ResultIterator<?> iterator)
+    {
+        List<String> results = new ArrayList<>();
+        while (iterator.hasNext())
+        {
+            Object next = iterator.next();
+            if (next instanceof List)
+            {
+                for (Object o : (List<?>) next)
+                {
+                    results.add(o.toString());
+                }
+            }
+            else
+            {
+                Context c = (Context) next;
+                results.add(c.getPlds() + "\t" + c.getSentence());
+            }
+        }
+        iterator.close();
+        Collections.sort(results);
+        return results;
+    }
+}
@@ -0,0 +1,155 @@
+package de.unima.webtuples.store;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import junit.framework.TestCase;
+
+/**
+ * Checks the prefix lookups of LemmaIndex, built from the core tuples of a store and mapped from a file, 
+ * against a scan of all the lemmas.
+ */
+public class LemmaIndexTest extends TestCase
+{
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        file = File.createTempFile("webisadb-lemmas", ".bin");
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        file.delete();
+    }
+
+    public void testFromStore() throws Exception
+    {
+        InMemoryTupleStore.Builder builder = new InMemoryTupleStore.Builder();
+        builder.addCoreTuple("apple", "fruit", 11.0, 5, 3, "p1;", "example.org;");
+        builder.addCoreTuple("apple", "company", 2.0, 1, 1, "p1;", "example.org;");
+        builder.addCoreTuple("apricot", "fruit", 2.0, 1, 1, "p1;", "example.org;");
+        builder.addCoreTuple("application", "program", 7.0, 2, 1, "p1;", "example.org;");
+        builder.addCoreTuple("app", "application", 3.0, 1, 1, "p1;", "example.org;");
+        LemmaIndex index = LemmaIndexBuilder.build(builder.build());
+
+        assertEquals(7, index.size());
+        assertEquals(4, index.count("ap"));
+        assertEquals(0, index.count("b"));
+        assertEquals(7, index.count(""));
+        assertEquals(13.0f, index.get("apple").getInstanceFrequency());
+        assertEquals(13.0f, index.get("fruit").getClassFrequency());
+        assertNull(index.get("appl"));
+
+        assertEquals("[apple, application, app, apricot]", lemmas(index.complete("ap", 10)));
+        assertEquals("[apple, application]", lemmas(index.complete("ap", 2)));
+        // application is a class of app too
+        assertEquals("[apple, application]", lemmas(index.complete("app", 2)));
+        assertEquals("[apple, application, app]", lemmas(index.complete("app", 5, LemmaIndex.Role.INSTANCE)));
+        assertEquals("[application]", lemmas(index.complete("ap", 5, LemmaIndex.Role.CLASS)));
+        assertTrue(index.complete("banana", 5).isEmpty());
+    }
+
+    public void testSameAsScan() throws Exception
+    {
+        Random random = new Random(42);
+        LemmaIndexBuilder builder = new LemmaIndexBuilder();
+        TreeMap<String, float[]> expected = new TreeMap<>();
+        for (int i = 0; i < 3000; i++)
+        {
+            String instance = word(random);
+            String clazz = word(random);
+            double frequency = 1 + random.nextInt(50);
+            builder.add(instance, clazz, frequency);
+            frequencies(expected, instance)[0] += frequency;
+            frequencies(expected, clazz)[1] += frequency;
+        }
+        LemmaIndex index = builder.build();
+        index.write(file);
+        try (LemmaIndex mapped = LemmaIndex.open(file))
+        {
+            assertEquals(expected.size(), mapped.size());
+            for (String prefix : new String[]{"", "a", "b", "ab", "abc", "ca", "dd", "z", "\u00e9"})
+            {
+                for (LemmaIndex.Role role : LemmaIndex.Role.values())
+                {
+                    String scan = scan(expected, prefix, 7, role);
+                    assertEquals(scan, lemmas(index.complete(prefix, 7, role)));
+                    assertEquals(scan, lemmas(mapped.complete(prefix, 7, role)));
+                }
+                assertEquals(expected.subMap(prefix, prefix + Character.MAX_VALUE).size(), mapped.count(prefix));
+            }
+            for (String lemma : expected.keySet())
+            {
+                assertEquals(expected.get(lemma)[0], mapped.get(lemma).getInstanceFrequency());
+            }
+        }
+    }
+
+    private static String word(Random random)
+    {
+        StringBuilder word = new StringBuilder();
+        int length = 1 + random.nextInt(6);
+        for (int i = 0; i < length; i++)
+        {
+            word.append(random.nextInt(20) == 0 ? '\u00e9' : (char) ('a' + random.nextInt(4)));
+        }
+        return word.toString();
+    }
+
+    private static float[] frequencies(TreeMap<String, float[]> lemmas, String lemma)
+    {
+        if (!lemmas.containsKey(lemma))
+        {
+            lemmas.put(lemma, new float[2]);
+        }
+        return lemmas.get(lemma);
+    }
+
+    /**
+     * The k most frequent lemmas starting with prefix, by reading all of them.
+     */
+    private static String scan(TreeMap<String, float[]> lemmas, String prefix, int k, final LemmaIndex.Role role)
+    {
+        List<String> matches = new ArrayList<>();
+        for (String lemma : lemmas.keySet())
+        {
+            if (lemma.startsWith(prefix) && frequency(lemmas.get(lemma), role) > 0)
+            {
+                matches.add(lemma);
+            }
+        }
+        final TreeMap<String, float[]> all = lemmas;
+        // stable, the lemmas of the same frequency stay in order
+        Collections.sort(matches, new Comparator<String>()
+        {
+            @Override
+            public int compare(String a, String b)
+            {
+                return Float.compare(frequency(all.get(b), role), frequency(all.get(a), role));
+            }
+        });
+        return matches.subList(0, Math.min(k, matches.size())).toString();
+    }
+
+    private static float frequency(float[] frequencies, LemmaIndex.Role role)
+    {
+        return role == LemmaIndex.Role.INSTANCE ? frequencies[0] : role == LemmaIndex.Role.CLASS ? frequencies[1] : frequencies[0] + frequencies[1];
+    }
+
+    private static String lemmas(List<LemmaIndex.Completion> completions)
+    {
+        List<String> lemmas = new ArrayList<>();
+        for (LemmaIndex.Completion completion : completions)
+        {
+            lemmas.add(completion.getLemma());
+        }
+        return lemmas.toString();
+    }
+}
@@ -0,0 +1,161 @@
+package de.unima.webtuples.store;
+
+import static de.unima.webtuples.store.InMemoryTupleStoreTest.assertSameResults;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.DB;
+import java.io.File;
+import java.io.IOException;
+import junit.framework.TestCase;
+
+/**
+ * Checks that SnapshotTupleStore returns the same tuples as MongoTupleStore on a Fongo database
+ * exported with SnapshotWriter.
+ */
+public class SnapshotTupleStoreTest extends TestCase
+{
+    private File file;
+    private MongoTupleStore mongo;
+    private SnapshotTupleStore snapshot;
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        Fongo fongo = new Fongo("webisadb");
+        DB tuplesDb = fongo.getDB("tuplesdb");
+        DB contextsDb = fongo.getDB("sentencesdb");
+        TestData.fill(tuplesDb, contextsDb);
+        mongo = new MongoTupleStore(tuplesDb, contextsDb);
+
+        file = File.createTempFile("webisadb", ".snapshot");
+        SnapshotWriter.export(mongo, file);
+        snapshot = new SnapshotTupleStore(file, mongo);
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        snapshot.close();
+        file.delete();
+    }
+
+    public void testAllTuples()
+    {
+        assertEquals(4, snapshot.getCoreTupleCount());
+        assertSameResults(6, mongo.getAllTuples(), snapshot.getAllTuples());
+    }
+
+    public void testCoreTuples()
+    {
+        assertSameResults(2, mongo.getCoreTuplesWhere("apple", "*", null, null, 0, 0, 0, 0, 0, 0, false),
+                snapshot.getCoreTuplesWhere("apple", "*", null, null, 0, 0, 0, 0, 0, 0, false));
+        assertSameResults(3, mongo.getCoreTuplesWhere("*", "fruit", null, null, 0, 0, 0, 0, 0, 0, false),
+                snapshot.getCoreTuplesWhere("*", "fruit", null, null, 0, 0, 0, 0, 0, 0, false));
+        assertSameResults(1, mongo.getCoreTuplesWhere("apple", "company", null, null, 0, 0, 0, 0, 0, 0, false),
+                snapshot.getCoreTuplesWhere("apple", "company", null, null, 0, 0, 0, 0, 0, 0, false));
+        assertSameResults(2, mongo.getCoreTuplesWhere("*", "fruit", new String[]{"p1"}, null, 2, 0, 0, 0, 0, 0, false),
+                snapshot.getCoreTuplesWhere("*", "fruit", new String[]{"p1"}, null, 2, 0, 0, 0, 0, 0, false));
+        assertSameResults(0, mongo.getCoreTuplesWhere("banana", "*", null, null, 0, 0, 0, 0, 0, 0, false),
+                snapshot.getCoreTuplesWhere("banana", "*", null, null, 0, 0, 0, 0, 0, 0, false));
+        assertSameResults(0, mongo.getCoreTuplesWhere("appl", "*", null, null, 0, 0, 0, 0, 0, 0, false),
+                snapshot.getCoreTuplesWhere("appl", "*", null, null, 0, 0, 0, 0, 0, 0, false));
+    }
+
+    public void testTuples()
+    {
+        assertSameResults(4, mongo.getTuplesWhere("apple", "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false),
+                snapshot.getTuplesWhere("apple", "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false));
+        assertSameResults(1, mongo.getTuplesWhere("*", "fruit", "*", "*", "sweet", "*", null, null, 0, 0, 0, 0, 0, 0, false),
+                snapshot.getTuplesWhere("*", "fruit", "*", "*", "sweet", "*", null, null, 0, 0, 0, 0, 0, 0, false));
+        assertSameResults(1, mongo.getTuplesWhere("*", "fruit", "*", "*", "*", "*", new String[]{"p1", "p5"}, null, 0, 0, 0, 0, 0, 0, true),
+                snapshot.getTuplesWhere("*", "fruit", "*", "*", "*", "*", new String[]{"p1", "p5"}, null, 0, 0, 0, 0, 0, 0, true));
+        assertSameResults(3, mongo.getTuplesWhere("apple", "*", "*", "*", "*", "*", null, new String[]{"wikipedia.org", "example.org"}, 0, 0, 0, 0, 0, 0, false),
+                snapshot.getTuplesWhere("apple", "*", "*", "*", "*", "*", null, new String[]{"wikipedia.org", "example.org"}, 0, 0, 0, 0, 0, 0, false));
+        // the pids are matched as whole values
+        assertSameResults(2, mongo.getTuplesWhere("apple", "*", "*", "*", "*", "*", new String[]{"p3a"}, null, 0, 0, 0, 0, 0, 0, false),
+                snapshot.getTuplesWhere("apple", "*", "*", "*", "*", "*", new String[]{"p3a"}, null, 0, 0, 0, 0, 0, 0, false));
+        assertSameResults(0, mongo.getTuplesWhere("apple", "*", "*", "*", "*", "*", new String[]{"3a"}, null, 0, 0, 0, 0, 0, 0, false),
+                snapshot.getTuplesWhere("apple", "*", "*", "*", "*", "*", new String[]{"3a"}, null, 0, 0, 0, 0, 0, 0, false));
+    }
+
+    public void testBlockIndex() throws IOException
+    {
+        File many = File.createTempFile("webisadb", ".snapshot");
+        InMemoryTupleStore.Builder builder = new InMemoryTupleStore.Builder();
+        SnapshotWriter writer = new SnapshotWriter(many);
+        writer.beginShard("iab");
+        for (int i = 999; i >= 0; i--)
+        {
+            for (TupleSink sink : new TupleSink[]{builder, writer})
+            {
+                sink.addCoreTuple("ab" + i, "class" + (i % 7), i, 1, 1, "p1;", "example.org;");
+                sink.addModification("", "", "", "", i, 1, 1, "p1;", "example.org;", i + ";");
+            }
+        }
+        writer.endShard();
+        writer.close();
+        InMemoryTupleStore memory = builder.build();
+        SnapshotTupleStore store = new SnapshotTupleStore(many);
+        try
+        {
+            for (int i = 0; i < 1000; i += 37)
+            {
+                assertSameResults(1, memory.getTuplesWhere("ab" + i, "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false),
+                        store.getTuplesWhere("ab" + i, "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false));
+                assertSameResults(1, memory.getCoreTuplesWhere("ab" + i, "class" + (i % 7), null, null, 0, 0, 0, 0, 0, 0, false),
+                        store.getCoreTuplesWhere("ab" + i, "class" + (i % 7), null, null, 0, 0, 0, 0, 0, 0, false));
+            }
+            assertSameResults(1000, memory.getAllTuples(), store.getAllTuples());
+            assertSameResults(0, memory.getTuplesWhere("ab1000", "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false),
+                    store.getTuplesWhere("ab1000", "*", "*", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false));
+        }
+        finally
+        {
+            store.close();
+            many.delete();
+        }
+    }
+
+    public void testDictionaryIndex() throws IOException
+    {
+        File many = File.createTempFile("webisadb", ".snapshot");
+        InMemoryTupleStore.Builder builder = new InMemoryTupleStore.Builder();
+        SnapshotWriter writer = new SnapshotWriter(many);
+        writer.beginShard("iab");
+        // the codes are assigned in the order the pids are seen, which is not their byte order
+        for (int i = 0; i < 300; i++)
+        {
+            String pid = (i % 2 == 0 ? "p" : "\u00e9") + (300 - i);
+            for (TupleSink sink : new TupleSink[]{builder, writer})
+            {
+                sink.addCoreTuple("ab" + i, "class", i, 1, 1, pid + ";", "example.org;");
+                sink.addModification("", "", "", "", i, 1, 1, pid + ";", "example.org;", i + ";");
+            }
+        }
+        writer.endShard();
+        writer.close();
+        InMemoryTupleStore memory = builder.build();
+        SnapshotTupleStore store = new SnapshotTupleStore(many);
+        try
+        {
+            for (int i = 0; i < 300; i += 13)
+            {
+                String[] pids = {(i % 2 == 0 ? "p" : "\u00e9") + (300 - i)};
+                assertSameResults(1, memory.getTuplesWhere("ab" + i, "*", "*", "*", "*", "*", pids, null, 0, 0, 0, 0, 0, 0, false),
+                        store.getTuplesWhere("ab" + i, "*", "*", "*", "*", "*", pids, null, 0, 0, 0, 0, 0, 0, false));
+            }
+            assertSameResults(0, memory.getTuplesWhere("ab0", "*", "*", "*", "*", "*", new String[]{"p0"}, null, 0, 0, 0, 0, 0, 0, false),
+                    store.getTuplesWhere("ab0", "*", "*", "*", "*", "*", new String[]{"p0"}, null, 0, 0, 0, 0, 0, 0, false));
+        }
+        finally
+        {
+            store.close();
+            many.delete();
+        }
+    }
+
+    public void testContextsAreDelegated()
+    {
+        assertSameResults(1, mongo.getContextWithProvid("3"), snapshot.getContextWithProvid("3"));
+    }
+}
@@ -0,0 +1,70 @@
+package de.unima.webtuples.store;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.MongoClient;
+import com.mongodb.ReadPreference;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Checks the replication lag read from a replSetGetStatus document, the switch of the read preference
+ * and the failure of a check.
+ */
+public class StalenessMonitorTest extends TestCase
+{
+    public void testMaxLag()
+    {
+        BasicDBList members = new BasicDBList();
+        members.add(member(1, 100000, 1));
+        members.add(member(2, 95000, 1));
+        members.add(member(2, 99000, 1));
+        // an unhealthy secondary and an arbiter are not read
+        members.add(member(2, 10000, 0));
+        members.add(new BasicDBObject("state", 7).append("health", 1));
+        assertEquals(5000, StalenessMonitor.maxLag(new BasicDBObject("members", members)));
+
+        members.remove(0);
+        assertEquals(4000, StalenessMonitor.maxLag(new BasicDBObject("members", members)));
+        assertEquals(0, StalenessMonitor.maxLag(new BasicDBObject()));
+    }
+
+    public void testSwitchesToPrimary()
+    {
+        // Fongo ignores the read preferences, the client is not connected by these calls
+        MongoClient client = new MongoClient("localhost");
+        DB db = client.getDB("tuplesdb");
+        db.setReadPreference(ReadPreference.secondaryPreferred());
+        StalenessMonitor monitor = new StalenessMonitor(db, 10, TimeUnit.SECONDS);
+        monitor.update(2000);
+        assertFalse(monitor.isStale());
+        assertEquals(ReadPreference.secondaryPreferred(), db.getReadPreference());
+        monitor.update(20000);
+        assertTrue(monitor.isStale());
+        assertEquals(ReadPreference.primaryPreferred(), db.getReadPreference());
+        monitor.update(1000);
+        assertEquals(ReadPreference.secondaryPreferred(), db.getReadPreference());
+        monitor.update(20000);
+        monitor.close();
+        assertEquals(ReadPreference.secondaryPreferred(), db.getReadPreference());
+        client.close();
+    }
+
+    public void testFailedCheck()
+    {
+        // Fongo is not a replica set, replSetGetStatus fails
+        StalenessMonitor monitor = new StalenessMonitor(new Fongo("webisadb").getDB("tuplesdb"), 10, TimeUnit.SECONDS);
+        assertNull(monitor.getLastFailure());
+        monitor.check();
+        assertNotNull(monitor.getLastFailure());
+        assertFalse(monitor.isStale());
+    }
+
+    private static BasicDBObject member(int state, long optime, int health)
+    {
+        return new BasicDBObject("state", state).append("optimeDate", new Date(optime)).append("health", health);
+    }
+}
@@ -0,0 +1,72 @@
+package de.unima.webtuples.store;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+
+/**
+ * The tuples and contexts used by the store tests: 4 core tuples with 6 modifications and 4 contexts in 2 sentence collections.
+ */
+class TestData
+{
+    static void fill(DB tuplesDb, DB contextsDb)
+    {
+        BasicDBList modifications = new BasicDBList();
+        modifications.add(modification("red", "", "", "", 3.0, 2, 1, "p1;p2;", "example.org;", "1;2;"));
+        modifications.add(modification("", "from portugal", "", "", 1.0, 1, 1, "p3a;", "google.com;", "3;"));
+        modifications.add(modification("green", "", "sweet", "", 7.0, 3, 2, "p1;p3a;p5;", "google.com;wikipedia.org;", "1000001;"));
+        insert(tuplesDb, "apple", "fruit", 11.0, 5, 3, "p1;p2;p3a;p5;", "example.org;google.com;wikipedia.org;", modifications);
+
+        modifications = new BasicDBList();
+        modifications.add(modification("", "", "big", "", 5.0, 2, 2, "p2;p5;", "example.org;google.com;", "4;"));
+        insert(tuplesDb, "apple", "company", 5.0, 2, 2, "p2;p5;", "example.org;google.com;", modifications);
+
+        modifications = new BasicDBList();
+        modifications.add(modification("", "", "", "", 2.0, 1, 1, "p1;", "example.org;", "5;"));
+        insert(tuplesDb, "apricot", "fruit", 2.0, 1, 1, "p1;", "example.org;", modifications);
+
+        modifications = new BasicDBList();
+        modifications.add(modification("", "", "", "", 4.0, 1, 1, "p2;", "example.org;", "6;"));
+        insert(tuplesDb, "pear", "fruit", 4.0, 1, 1, "p2;", "example.org;", modifications);
+
+        context(contextsDb, "1", "example.org", "red apples are fruits");
+        context(contextsDb, "2", "example.org", "apples such as red ones");
+        context(contextsDb, "3", "google.com", "apples from portugal");
+        context(contextsDb, "1000001", "wikipedia.org", "sweet fruits like green apples");
+    }
+
+    /**
+     * Inserts a core tuple with a single modification without modifiers, pattern p1 and domain example.org.
+     */
+    static void insert(DB tuplesDb, String instance, String clazz, double frequency, int pidspread)
+    {
+        BasicDBList modifications = new BasicDBList();
+        modifications.add(modification("", "", "", "", frequency, pidspread, 1, "p1;", "example.org;", "1;"));
+        insert(tuplesDb, instance, clazz, frequency, pidspread, 1, "p1;", "example.org;", modifications);
+    }
+
+    static void insert(DB tuplesDb, String instance, String clazz, double frequency, int pidspread, int pldspread, String pids, String plds,
+            BasicDBList modifications)
+    {
+        BasicDBObject document = new BasicDBObject("instance", instance).append("class", clazz)
+                .append("frequency", frequency).append("pidspread", pidspread).append("pldspread", pldspread)
+                .append("pids", pids).append("plds", plds).append("modifications", modifications);
+        tuplesDb.getCollection("i" + instance.substring(0, 2)).insert(new BasicDBObject(document));
+        tuplesDb.getCollection("c" + clazz.substring(0, 2)).insert(new BasicDBObject(document));
+    }
+
+    private static void context(DB contextsDb, String provid, String pld, String sentence)
+    {
+        contextsDb.getCollection("s" + Long.parseLong(provid) / 1000000)
+                .insert(new BasicDBObject("provid", provid).append("pld", pld).append("sentence", sentence));
+    }
+
+    private static BasicDBObject modification(String ipremod, String ipostmod, String cpremod, String cpostmod,
+            double frequency, int pidspread, int pldspread, String pids, String plds, String provids)
+    {
+        return new BasicDBObject("ipremod", ipremod).append("ipostmod", ipostmod)
+                .append("cpremod", cpremod).append("cpostmod", cpostmod)
+                .append("frequency", frequency).append("pidspread", pidspread).append("pldspread", pldspread)
+                .append("pids", pids).append("plds", plds).append("provids", provids);
+    }
+}
@@ -0,0 +1,77 @@
+package de.unima.webtuples.store;
+
+import com.github.fakemongo.Fongo;
+import de.unima.webtuples.datatypes.Tuple;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import junit.framework.TestCase;
+
+/**
+ * Checks the Stream views of the stores: the lists of the iterators are flattened, 
+ * a parallel full scan of MongoTupleStore returns the same tuples as a sequential one.
+ */
+public class TupleStreamsTest extends TestCase
+{
+    private MongoTupleStore mongo;
+    private InMemoryTupleStore memory;
+
+    @Override
+    protected void setUp()
+    {
+        Fongo fongo = new Fongo("webisadb");
+        mongo = new MongoTupleStore(fongo.getDB("tuplesdb"), fongo.getDB("sentencesdb"));
+        TestData.fill(mongo.getTuplesDb(), mongo.getContextsDb());
+        InMemoryTupleStore.Builder builder = new InMemoryTupleStore.Builder();
+        mongo.copyTuples(builder);
+        memory = builder.build();
+    }
+
+    public void testAllTuples()
+    {
+        List<String> sequential = toStrings(mongo.streamAllTuples());
+        assertEquals(6, sequential.size());
+        assertEquals(sequential, toStrings(mongo.streamAllTuples().parallel()));
+        assertEquals(sequential, toStrings(memory.streamAllTuples()));
+    }
+
+    public void testInMemorySize()
+    {
+        try (Stream<Tuple> tuples = memory.streamAllTuples())
+        {
+            Spliterator<Tuple> spliterator = tuples.spliterator();
+            assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+            assertEquals(6, spliterator.getExactSizeIfKnown());
+        }
+    }
+
+    public void testEmptyListsAreSkipped()
+    {
+        // only one of the 3 modifications of apple/fruit and none of apple/company have the premodifier red
+        try (Stream<Tuple> tuples = mongo.streamTuplesWhere("apple", "*", "red", "*", "*", "*", null, null, 0, 0, 0, 0, 0, 0, false))
+        {
+            assertEquals(1, tuples.count());
+        }
+        assertEquals(2, mongo.streamCoreTuplesWhere("*", "fruit", new String[]{"p1"}, null, 0, 0, 0, 0, 0, 0, false).count());
+    }
+
+    public void testLimit()
+    {
+        try (Stream<Tuple> tuples = mongo.streamAllTuples().parallel())
+        {
+            assertEquals(2, tuples.limit(2).count());
+        }
+    }
+
+    private static List<String> toStrings(Stream<Tuple> tuples)
+    {
+        try (Stream<Tuple> s = tuples)
+        {
+            List<String> results = s.map(Tuple::toString).collect(Collectors.toList());
+            Collections.sort(results);
+            return results;
+        }
+    }
+}